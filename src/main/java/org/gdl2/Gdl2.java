@@ -3,17 +3,32 @@ package org.gdl2;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Suggestion;
 import org.gdl2.cdshooks.UseTemplate;
 import org.gdl2.datatypes.CodePhrase;
-import org.gdl2.deserializers.CodePhraseDeserializer;
-import org.gdl2.deserializers.ExpressionItemDeserializer;
-import org.gdl2.expression.ExpressionItem;
+import org.gdl2.deserializers.Gdl2TypeAdapters;
+import org.gdl2.deserializers.LazyExpressionList;
 import org.gdl2.model.DataBinding;
 import org.gdl2.model.GuideDefinition;
 import org.gdl2.model.Guideline;
 import org.gdl2.model.Rule;
 import org.gdl2.serializers.*;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -22,13 +37,143 @@ import java.util.Map;
  */
 public class Gdl2 {
 
+    /**
+     * Parses a guideline, with all its lists and maps unmodifiable so it can be shared between threads, and all its
+     * expressions parsed.
+     *
+     * @param guidelineInGDL2Format guideline in Gdl2 json format
+     * @return the guideline
+     */
     public static Guideline fromGdl2(String guidelineInGDL2Format) {
-        GsonBuilder gsonBuilder = new GsonBuilder()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
-                .registerTypeAdapter(ExpressionItem.class, new ExpressionItemDeserializer())
-                .registerTypeAdapter(CodePhrase.class, new CodePhraseDeserializer());
-        Gson gson = gsonBuilder.create();
-        return gson.fromJson(guidelineInGDL2Format, Guideline.class);
+        return guidelineInGDL2Format == null ? null : fromGdl2(new StringReader(guidelineInGDL2Format));
+    }
+
+    /**
+     * Parses a guideline from a stream in UTF-8, with all its lists and maps unmodifiable so it can be shared between
+     * threads, and all its expressions parsed. The stream is not closed.
+     *
+     * @param guidelineInGDL2Format guideline in Gdl2 json format
+     * @return the guideline
+     */
+    public static Guideline fromGdl2(InputStream guidelineInGDL2Format) {
+        return fromGdl2(guidelineInGDL2Format, ExpressionParsing.STRICT);
+    }
+
+    /**
+     * Parses a guideline from a stream in UTF-8, with all its lists and maps unmodifiable so it can be shared between
+     * threads. The stream is not closed.
+     *
+     * @param guidelineInGDL2Format guideline in Gdl2 json format
+     * @param expressionParsing     when to parse the expressions of the guideline
+     * @return the guideline
+     */
+    public static Guideline fromGdl2(InputStream guidelineInGDL2Format, ExpressionParsing expressionParsing) {
+        return fromGdl2(new InputStreamReader(guidelineInGDL2Format, StandardCharsets.UTF_8), expressionParsing);
+    }
+
+    /**
+     * Parses a guideline as it is read, with all its lists and maps unmodifiable so it can be shared between
+     * threads, and all its expressions parsed. The reader is not closed.
+     *
+     * @param guidelineInGDL2Format guideline in Gdl2 json format
+     * @return the guideline, or null for an empty document
+     */
+    public static Guideline fromGdl2(Reader guidelineInGDL2Format) {
+        return fromGdl2(guidelineInGDL2Format, ExpressionParsing.STRICT);
+    }
+
+    /**
+     * Parses a guideline as it is read, with all its lists and maps unmodifiable so it can be shared between
+     * threads. The reader is not closed.
+     *
+     * @param guidelineInGDL2Format guideline in Gdl2 json format
+     * @param expressionParsing     when to parse the expressions of the guideline
+     * @return the guideline, or null for an empty document
+     */
+    public static Guideline fromGdl2(Reader guidelineInGDL2Format, ExpressionParsing expressionParsing) {
+        if (expressionParsing == null) {
+            throw new IllegalArgumentException("null expressionParsing");
+        }
+        JsonReader reader = new JsonReader(guidelineInGDL2Format);
+        reader.setLenient(true);
+        Guideline guideline = read(reader);
+        if (guideline != null && expressionParsing == ExpressionParsing.STRICT) {
+            parseExpressions(guideline);
+        }
+        reader.setLenient(false);
+        try {
+            if (guideline != null && reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonIOException("JSON document was not fully consumed.");
+            }
+        } catch (MalformedJsonException exception) {
+            throw new JsonSyntaxException(exception);
+        } catch (IOException exception) {
+            throw new JsonIOException(exception);
+        }
+        return guideline;
+    }
+
+    /*
+     * guideline read by the streaming type adapters, failing with the exceptions of Gson for the same documents
+     */
+    private static Guideline read(JsonReader reader) {
+        boolean empty = true;
+        try {
+            reader.peek();
+            empty = false;
+            return Gdl2TypeAdapters.GUIDELINE.read(reader);
+        } catch (EOFException exception) {
+            if (empty) {
+                return null;
+            }
+            throw new JsonSyntaxException(exception);
+        } catch (IllegalStateException | IOException exception) {
+            throw new JsonSyntaxException(exception);
+        }
+    }
+
+    /*
+     * all lists of expressions parsed, failing on the first invalid expression
+     */
+    private static void parseExpressions(Guideline guideline) {
+        GuideDefinition definition = guideline.getDefinition();
+        if (definition == null) {
+            return;
+        }
+        LazyExpressionList.parse(definition.getPreConditions());
+        LazyExpressionList.parse(definition.getDefaultActions());
+        if (definition.getDataBindings() != null) {
+            for (DataBinding dataBinding : definition.getDataBindings().values()) {
+                if (dataBinding != null) {
+                    LazyExpressionList.parse(dataBinding.getPredicates());
+                }
+            }
+        }
+        if (definition.getRules() != null) {
+            for (Rule rule : definition.getRules().values()) {
+                if (rule != null) {
+                    LazyExpressionList.parse(rule.getWhen());
+                    LazyExpressionList.parse(rule.getThen());
+                    parseExpressions(rule.getCards());
+                }
+            }
+        }
+    }
+
+    private static void parseExpressions(List<Card> cards) {
+        for (Card card : cards == null ? Collections.<Card>emptyList() : cards) {
+            if (card != null && card.getSuggestions() != null) {
+                for (Suggestion suggestion : card.getSuggestions()) {
+                    if (suggestion != null && suggestion.getActions() != null) {
+                        for (Action action : suggestion.getActions()) {
+                            if (action != null && action.getResourceTemplate() != null) {
+                                LazyExpressionList.parse(action.getResourceTemplate().getAssignments());
+                            }
+                        }
+                    }
+                }
+            }
+        }
     }
 
     public static String toGdl2(Guideline guideline) {
@@ -46,4 +191,19 @@ public class Gdl2 {
                 .create();
         return gson.toJson(guideline);
     }
+
+    /**
+     * When the expressions of a loaded guideline are parsed.
+     */
+    public enum ExpressionParsing {
+        /**
+         * All expressions parsed when loading, failing on any invalid expression.
+         */
+        STRICT,
+        /**
+         * Expressions kept as text and parsed on first use, failing then on an invalid expression, so guidelines
+         * loaded but never executed are loaded faster and take less memory.
+         */
+        LAZY
+    }
 }
@@ -0,0 +1,365 @@
+package org.gdl2.batch;
+
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.runtime.DataInstance;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Patient records of a cohort file written by {@link CohortWriter}, memory mapped so cohorts larger than
+ * the heap can be evaluated, e.g. by {@link org.gdl2.runtime.Interpreter#executeGuidelinesBatch}.
+ *
+ * <p>The data instances of a patient are views of the mapped file that decode their values on each access,
+ * and keep nothing else than their position in the file. They are read only. Only the symbol table is read
+ * into the heap when opening the file. The file is mapped in segments of up to 1 GB holding whole records.
+ *
+ * <p>A reader can be shared by threads.
+ */
+public final class CohortReader implements Closeable {
+    private static final long MAX_SEGMENT_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final int patients;
+    private final ByteBuffer index;
+    private final String[] symbols;
+    private final Map<String, Integer> symbolsByValue;
+    private final ZoneId[] zones;
+    private final long[] segmentStarts;
+    private final ByteBuffer[] segments;
+
+    private CohortReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() < CohortWriter.HEADER_SIZE) {
+            throw new IOException("Not a cohort file");
+        }
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, CohortWriter.HEADER_SIZE);
+        if (header.getLong(0) != CohortWriter.MAGIC) {
+            throw new IOException("Not a cohort file");
+        }
+        if (header.getInt(8) != CohortWriter.VERSION) {
+            throw new IOException("Unsupported cohort file version: " + header.getInt(8));
+        }
+        this.patients = header.getInt(12);
+        long indexOffset = header.getLong(16);
+        long symbolsOffset = header.getLong(24);
+        this.index = channel.map(FileChannel.MapMode.READ_ONLY, indexOffset, (long) patients * Long.BYTES);
+        ByteBuffer symbolTable = channel.map(FileChannel.MapMode.READ_ONLY, symbolsOffset, indexOffset - symbolsOffset);
+        this.symbols = new String[symbolTable.getInt(0)];
+        this.symbolsByValue = new HashMap<>();
+        this.zones = new ZoneId[symbols.length];
+        int position = Integer.BYTES;
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            symbols[symbol] = string(symbolTable, position);
+            symbolsByValue.put(symbols[symbol], symbol);
+            position += Integer.BYTES + symbolTable.getInt(position);
+        }
+        List<Long> starts = new ArrayList<>();
+        List<ByteBuffer> mapped = new ArrayList<>();
+        long segmentStart = CohortWriter.HEADER_SIZE;
+        for (int patient = 0; patient <= patients; patient++) {
+            long recordStart = patient < patients ? offset(patient) : symbolsOffset;
+            long recordEnd = patient + 1 < patients ? offset(patient + 1) : symbolsOffset;
+            if (patient == patients || recordEnd - segmentStart > MAX_SEGMENT_SIZE) {
+                if (recordStart > segmentStart) {
+                    starts.add(segmentStart);
+                    mapped.add(channel.map(FileChannel.MapMode.READ_ONLY, segmentStart, recordStart - segmentStart));
+                }
+                if (patient < patients && recordEnd - recordStart > MAX_SEGMENT_SIZE) {
+                    throw new IOException("Record of patient " + patient + " larger than " + MAX_SEGMENT_SIZE + " bytes");
+                }
+                segmentStart = recordStart;
+            }
+        }
+        this.segmentStarts = starts.stream().mapToLong(Long::longValue).toArray();
+        this.segments = mapped.toArray(new ByteBuffer[0]);
+    }
+
+    /**
+     * Opens and maps a cohort file.
+     */
+    public static CohortReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new CohortReader(channel);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Number of patients.
+     */
+    public int size() {
+        return patients;
+    }
+
+    /**
+     * Record of the patient at the position in the file, with views of its data instances.
+     */
+    public PatientRecord get(int patient) {
+        if (patient < 0 || patient >= patients) {
+            throw new IndexOutOfBoundsException("Patient: " + patient);
+        }
+        long offset = offset(patient);
+        int segment = Arrays.binarySearch(segmentStarts, offset);
+        segment = segment >= 0 ? segment : -segment - 2;
+        ByteBuffer buffer = segments[segment];
+        int position = (int) (offset - segmentStarts[segment]);
+        final String id = string(buffer, position);
+        position += stringSize(buffer, position);
+        int instances = buffer.getInt(position);
+        position += Integer.BYTES;
+        List<DataInstance> dataInstances = new ArrayList<>(instances);
+        for (int instance = 0; instance < instances; instance++) {
+            String dataInstanceId = symbol(buffer.getInt(position));
+            String modelId = symbol(buffer.getInt(position + Integer.BYTES));
+            int values = buffer.getInt(position + 2 * Integer.BYTES);
+            position += 3 * Integer.BYTES;
+            StoredValues storedValues = new StoredValues(buffer, position, values);
+            dataInstances.add(DataInstance.of(dataInstanceId, modelId, storedValues));
+            position = storedValues.end();
+        }
+        return new PatientRecord(id, dataInstances);
+    }
+
+    /**
+     * Data instances of each patient in file order, decoded as the list is read, e.g. as the input of a batch
+     * execution.
+     */
+    public List<List<DataInstance>> patients() {
+        return new AbstractList<List<DataInstance>>() {
+            @Override
+            public List<DataInstance> get(int patient) {
+                return CohortReader.this.get(patient).getDataInstances();
+            }
+
+            @Override
+            public int size() {
+                return patients;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private long offset(int patient) {
+        return index.getLong(patient * Long.BYTES);
+    }
+
+    private String symbol(int symbol) {
+        return symbol == CohortWriter.NONE ? null : symbols[symbol];
+    }
+
+    private ZoneId zone(int symbol) {
+        ZoneId zone = zones[symbol];
+        if (zone == null) {
+            zone = ZoneId.of(symbols[symbol]);
+            zones[symbol] = zone;
+        }
+        return zone;
+    }
+
+    private static String string(ByteBuffer buffer, int position) {
+        int length = buffer.getInt(position);
+        if (length == CohortWriter.NONE) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int index = 0; index < length; index++) {
+            bytes[index] = buffer.get(position + Integer.BYTES + index);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int stringSize(ByteBuffer buffer, int position) {
+        return Integer.BYTES + Math.max(0, buffer.getInt(position));
+    }
+
+    /*
+     * values of a stored data instance: path symbol, type tag and fields of each value, read with absolute gets
+     * only so views can be read by several threads
+     */
+    private final class StoredValues extends AbstractMap<String, Object> {
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int count;
+
+        StoredValues(ByteBuffer buffer, int start, int count) {
+            this.buffer = buffer;
+            this.start = start;
+            this.count = count;
+        }
+
+        int end() {
+            int position = start;
+            for (int value = 0; value < count; value++) {
+                position = skip(position);
+            }
+            return position;
+        }
+
+        @Override
+        public Object get(Object key) {
+            int position = find(key);
+            return position < 0 ? null : decode(position);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<Entry<String, Object>>() {
+                        private int value;
+                        private int position = start;
+
+                        @Override
+                        public boolean hasNext() {
+                            return value < count;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (value++ >= count) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<String, Object> entry = new SimpleImmutableEntry<>(symbols[buffer.getInt(position)], decode(position));
+                            position = skip(position);
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        private int find(Object key) {
+            Integer symbol = symbolsByValue.get(key);
+            if (symbol == null) {
+                return -1;
+            }
+            int position = start;
+            for (int value = 0; value < count; value++) {
+                if (buffer.getInt(position) == symbol) {
+                    return position;
+                }
+                position = skip(position);
+            }
+            return -1;
+        }
+
+        /*
+         * position of the value after the one at the position
+         */
+        private int skip(int position) {
+            int fields = position + Integer.BYTES + 1;
+            switch (ValueType.ofTag(buffer.get(position + Integer.BYTES))) {
+                case DV_QUANTITY:
+                case DV_ORDINAL:
+                case DATE_TIME:
+                    return fields + 16;
+                case DV_CODED_TEXT:
+                case DV_DATE_TIME:
+                    return fields + 12;
+                case DV_COUNT:
+                case INTEGER:
+                    return fields + 4;
+                case DV_BOOLEAN:
+                    return fields + 1;
+                case DV_DATE:
+                case REAL:
+                case LONG:
+                    return fields + 8;
+                default:
+                    return fields + stringSize(buffer, fields);
+            }
+        }
+
+        private Object decode(int position) {
+            int fields = position + Integer.BYTES + 1;
+            switch (ValueType.ofTag(buffer.get(position + Integer.BYTES))) {
+                case DV_QUANTITY:
+                    return new DvQuantity(symbol(buffer.getInt(fields + 8)), buffer.getDouble(fields), buffer.getInt(fields + 12));
+                case DV_CODED_TEXT:
+                    return codedText(fields);
+                case DV_COUNT:
+                    return new DvCount(buffer.getInt(fields));
+                case DV_ORDINAL:
+                    return new DvOrdinal(buffer.getInt(fields), codedText(fields + 4));
+                case DV_BOOLEAN:
+                    return DvBoolean.valueOf(buffer.get(fields) != 0);
+                case DV_TEXT:
+                    return new DvText(string(buffer, fields));
+                case DV_DATE_TIME:
+                    return DvDateTime.valueOf(LocalDateTime.ofEpochSecond(buffer.getLong(fields), buffer.getInt(fields + 8), ZoneOffset.UTC).toString());
+                case DV_DATE:
+                    return DvDate.valueOf(LocalDate.ofEpochDay(buffer.getLong(fields)).toString());
+                case DATE_TIME:
+                    return ZonedDateTime.ofInstant(Instant.ofEpochSecond(buffer.getLong(fields), buffer.getInt(fields + 8)),
+                            zone(buffer.getInt(fields + 12)));
+                case STRING:
+                    return string(buffer, fields);
+                case REAL:
+                    return buffer.getDouble(fields);
+                case INTEGER:
+                    return buffer.getInt(fields);
+                default:
+                    return buffer.getLong(fields);
+            }
+        }
+
+        private DvCodedText codedText(int fields) {
+            return new DvCodedText(symbol(buffer.getInt(fields)),
+                    new CodePhrase(symbol(buffer.getInt(fields + 4)), symbol(buffer.getInt(fields + 8))));
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package org.gdl2.batch;
+
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.runtime.DataInstance;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes patient records to a cohort file, read back by memory mapping with {@link CohortReader}.
+ *
+ * <p>The file starts with a header of the magic number, version, number of patients and the offsets of the
+ * patient index and of the symbol table, followed by the patient records in the order written, the symbol
+ * table and the patient index of record offsets. All numbers are big-endian.
+ *
+ * <p>A patient record is its id, then its data instances, each with its id, model id and values. A value is
+ * its path, the tag of its {@link ValueType} and its fields. Model ids, paths, units, terminologies, codes
+ * and the other strings repeated across patients are numbered in the symbol table, held in memory while
+ * writing. Free text and patient ids are written in the records.
+ */
+public final class CohortWriter implements Closeable {
+    static final long MAGIC = 0x47444C32434F4854L;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int NONE = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final List<String> symbolList = new ArrayList<>();
+    private ByteBuffer record = ByteBuffer.allocate(BUFFER_SIZE);
+    private long[] offsets = new long[1024];
+    private int patients;
+    private long position = HEADER_SIZE;
+    private boolean closed;
+
+    public CohortWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Converts NDJSON patient records, one per line as parsed by {@link PatientRecordJson}, to a cohort file.
+     *
+     * @param ndjson lines of patient records, blank lines skipped
+     * @param cohort the cohort file to write
+     * @return the number of patients written
+     */
+    public static int convert(BufferedReader ndjson, Path cohort) throws IOException {
+        try (CohortWriter writer = new CohortWriter(cohort)) {
+            for (String line = ndjson.readLine(); line != null; line = ndjson.readLine()) {
+                if (!line.trim().isEmpty()) {
+                    writer.write(PatientRecordJson.parse(line));
+                }
+            }
+            return writer.patients;
+        }
+    }
+
+    /**
+     * Appends the record of a patient.
+     *
+     * @throws IllegalArgumentException if a value is of a type not in {@link ValueType}, other than {@link ValueType#OBJECT}
+     */
+    public void write(PatientRecord patientRecord) throws IOException {
+        record.clear();
+        putString(patientRecord.getId());
+        ensure(Integer.BYTES);
+        record.putInt(patientRecord.getDataInstances().size());
+        for (DataInstance dataInstance : patientRecord.getDataInstances()) {
+            ensure(3 * Integer.BYTES);
+            record.putInt(symbol(dataInstance.id()));
+            record.putInt(symbol(dataInstance.modelId()));
+            record.putInt(dataInstance.size());
+            for (Map.Entry<String, Object> entry : dataInstance.values().entrySet()) {
+                putValue(entry.getKey(), entry.getValue());
+            }
+        }
+        record.flip();
+        if (patients == offsets.length) {
+            offsets = Arrays.copyOf(offsets, patients * 2);
+        }
+        offsets[patients++] = position;
+        position += writeFully(record, position);
+    }
+
+    /**
+     * Writes the symbol table, the patient index and the header.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            final long symbolsOffset = position;
+            record.clear();
+            ensure(Integer.BYTES);
+            record.putInt(symbolList.size());
+            for (String symbol : symbolList) {
+                putString(symbol);
+            }
+            record.flip();
+            position += writeFully(record, position);
+            final long indexOffset = position;
+            ByteBuffer index = ByteBuffer.allocate(BUFFER_SIZE);
+            for (int patient = 0; patient < patients; patient++) {
+                if (!index.hasRemaining()) {
+                    index.flip();
+                    position += writeFully(index, position);
+                    index.clear();
+                }
+                index.putLong(offsets[patient]);
+            }
+            index.flip();
+            position += writeFully(index, position);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putInt(patients).putLong(indexOffset).putLong(symbolsOffset);
+            header.flip();
+            writeFully(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putValue(String path, Object value) {
+        ValueType valueType = ValueType.of(value);
+        ensure(Integer.BYTES + 1 + 4 * Long.BYTES);
+        record.putInt(symbol(path));
+        record.put(valueType.getTag());
+        switch (valueType) {
+            case DV_QUANTITY:
+                DvQuantity dvQuantity = (DvQuantity) value;
+                record.putDouble(dvQuantity.getMagnitude()).putInt(symbol(dvQuantity.getUnit())).putInt(dvQuantity.getPrecision());
+                break;
+            case DV_CODED_TEXT:
+                putCodedText((DvCodedText) value);
+                break;
+            case DV_COUNT:
+                record.putInt(((DvCount) value).getMagnitude());
+                break;
+            case DV_ORDINAL:
+                DvOrdinal dvOrdinal = (DvOrdinal) value;
+                record.putInt(dvOrdinal.getValue());
+                putCodedText(dvOrdinal.getSymbol());
+                break;
+            case DV_BOOLEAN:
+                record.put((byte) (((DvBoolean) value).getValue() ? 1 : 0));
+                break;
+            case DV_TEXT:
+                putString(((DvText) value).getValue());
+                break;
+            case DV_DATE_TIME:
+                LocalDateTime dateTime = ((DvDateTime) value).getDateTime();
+                record.putLong(dateTime.toEpochSecond(ZoneOffset.UTC)).putInt(dateTime.getNano());
+                break;
+            case DV_DATE:
+                record.putLong(((DvDate) value).getDate().toEpochDay());
+                break;
+            case DATE_TIME:
+                ZonedDateTime zonedDateTime = (ZonedDateTime) value;
+                record.putLong(zonedDateTime.toEpochSecond()).putInt(zonedDateTime.getNano()).putInt(symbol(zonedDateTime.getZone().getId()));
+                break;
+            case STRING:
+                putString((String) value);
+                break;
+            case REAL:
+                record.putDouble((Double) value);
+                break;
+            case INTEGER:
+                record.putInt((Integer) value);
+                break;
+            case LONG:
+                record.putLong((Long) value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported value at " + path + " in cohort file: " + value.getClass().getName());
+        }
+    }
+
+    private void putCodedText(DvCodedText dvCodedText) {
+        record.putInt(symbol(dvCodedText.getValue()))
+                .putInt(symbol(dvCodedText.getDefiningCode().getTerminology()))
+                .putInt(symbol(dvCodedText.getDefiningCode().getCode()));
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            ensure(Integer.BYTES);
+            record.putInt(NONE);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(Integer.BYTES + bytes.length);
+        record.putInt(bytes.length).put(bytes);
+    }
+
+    private int symbol(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return symbols.computeIfAbsent(value, key -> {
+            symbolList.add(key);
+            return symbolList.size() - 1;
+        });
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            grown.put(record);
+            record = grown;
+        }
+    }
+
+    private int writeFully(ByteBuffer buffer, long at) throws IOException {
+        int size = buffer.remaining();
+        long next = at;
+        while (buffer.hasRemaining()) {
+            next += channel.write(buffer, next);
+        }
+        return size;
+    }
+}
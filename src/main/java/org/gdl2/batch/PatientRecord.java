@@ -0,0 +1,15 @@
+package org.gdl2.batch;
+
+import lombok.Value;
+import org.gdl2.runtime.DataInstance;
+
+import java.util.List;
+
+/**
+ * Data instances of one patient of a cohort, as read from a line of NDJSON or from a cohort file.
+ */
+@Value
+public class PatientRecord {
+    private String id;
+    private List<DataInstance> dataInstances;
+}
@@ -0,0 +1,135 @@
+package org.gdl2.batch;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import org.gdl2.runtime.DataInstance;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Patient records as lines of NDJSON, one patient per line:
+ *
+ * <pre>
+ * {"id": "patient-1", "data_instances": [{"model_id": "openEHR-EHR-OBSERVATION.body_weight.v1",
+ *     "values": {"/data[at0002]/events[at0003]/data[at0001]/items[at0004]": {"type": "DV_QUANTITY", "value": "72.5,kg", "precision": 1},
+ *                "/data/events/time": {"type": "DATE_TIME", "value": "2018-01-01T00:00Z"}}}]}
+ * </pre>
+ *
+ * <p>Data instances may also have an "id". The json form of each value type is described in {@link ValueType}.
+ */
+public final class PatientRecordJson {
+    private PatientRecordJson() {
+    }
+
+    /**
+     * Parses a line of NDJSON.
+     *
+     * @param line json object of one patient
+     * @return the patient record
+     * @throws JsonParseException if the line is not a patient record
+     */
+    public static PatientRecord parse(String line) {
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            return read(reader);
+        } catch (IOException exception) {
+            throw new JsonParseException(exception);
+        } catch (IllegalStateException | IllegalArgumentException exception) {
+            throw new JsonParseException("Invalid patient record: " + exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Formats a patient record as one line of NDJSON, without the line separator.
+     */
+    public static String format(PatientRecord patientRecord) {
+        StringWriter line = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(line)) {
+            writer.beginObject();
+            if (patientRecord.getId() != null) {
+                writer.name("id").value(patientRecord.getId());
+            }
+            writer.name("data_instances");
+            writeDataInstances(writer, patientRecord.getDataInstances());
+            writer.endObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return line.toString();
+    }
+
+    static PatientRecord read(JsonReader reader) throws IOException {
+        String id = null;
+        List<DataInstance> dataInstances = new ArrayList<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = reader.nextString();
+                    break;
+                case "data_instances":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        dataInstances.add(readDataInstance(reader));
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new PatientRecord(id, dataInstances);
+    }
+
+    static void writeDataInstances(JsonWriter writer, List<DataInstance> dataInstances) throws IOException {
+        writer.beginArray();
+        for (DataInstance dataInstance : dataInstances) {
+            writer.beginObject();
+            if (dataInstance.id() != null) {
+                writer.name("id").value(dataInstance.id());
+            }
+            writer.name("model_id").value(dataInstance.modelId());
+            writer.name("values").beginObject();
+            for (Map.Entry<String, Object> entry : dataInstance.values().entrySet()) {
+                writer.name(entry.getKey());
+                ValueType.writeJson(writer, entry.getValue());
+            }
+            writer.endObject();
+            writer.endObject();
+        }
+        writer.endArray();
+    }
+
+    private static DataInstance readDataInstance(JsonReader reader) throws IOException {
+        DataInstance.Builder builder = new DataInstance.Builder();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    builder.id(reader.nextString());
+                    break;
+                case "model_id":
+                    builder.modelId(reader.nextString());
+                    break;
+                case "values":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        builder.addValue(reader.nextName(), ValueType.readJson(reader));
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+}
@@ -0,0 +1,37 @@
+package org.gdl2.batch;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Threads of each stage and bounds of a {@link PipelineExecutor}, with defaults for values of 0.
+ */
+@Value
+@Builder(toBuilder = true)
+public class PipelineConfiguration {
+    /**
+     * Threads parsing patient records, 1 if 0.
+     */
+    private int ingestThreads;
+    /**
+     * Threads executing guidelines, the number of processors if 0.
+     */
+    private int evaluationThreads;
+    /**
+     * Threads rendering outcomes as json, 1 if 0.
+     */
+    private int renderingThreads;
+    /**
+     * Capacity of the queue in front of each stage, 4 per thread of the stage if 0.
+     */
+    private int queueCapacity;
+    /**
+     * Patients read and not yet written, including those waiting to be written in order, twice the capacity of all
+     * queues if 0.
+     */
+    private int maxInFlight;
+    /**
+     * Number of patients between metrics reports, 10000 if 0.
+     */
+    private int reportInterval;
+}
@@ -0,0 +1,422 @@
+package org.gdl2.batch;
+
+import com.google.gson.JsonParseException;
+import lombok.Value;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.RuntimeConfiguration;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Executes guidelines for each patient of an NDJSON file of {@link PatientRecordJson patient records} as
+ * {@link PopulationRunner} does, but through a pipeline of stages, each with its own threads and a bounded queue in
+ * front of it, so a stage slow for some patients, e.g. rendering the cards of template-heavy guidelines, does not
+ * stall the other stages:
+ *
+ * <ol>
+ * <li>ingest: parses lines of patient records, read in order by a reader thread,</li>
+ * <li>evaluation: executes the guidelines, i.e. selects data instances, evaluates rules and collects results,</li>
+ * <li>rendering: renders the outcomes as lines of json, including cards,</li>
+ * <li>output: writes the lines in the order of the patients, on the calling thread.</li>
+ * </ol>
+ *
+ * <p>Reading stops while {@link PipelineConfiguration#getMaxInFlight()} patients are read and not yet written, and a
+ * stage waits while the queue of the next stage is full. The first failure of a stage stops all stages.
+ */
+public final class PipelineExecutor {
+    private static final long POLL_MILLIS = 50;
+    private static final int DEFAULT_QUEUE_CAPACITY_PER_THREAD = 4;
+    private static final int DEFAULT_REPORT_INTERVAL = 10_000;
+
+    private final Function<List<DataInstance>, Interpreter.BatchExecutionOutput> execution;
+    private final int ingestThreads;
+    private final int evaluationThreads;
+    private final int renderingThreads;
+    private final int queueCapacity;
+    private final int maxInFlight;
+    private final int reportInterval;
+
+    public PipelineExecutor(List<Guideline> guidelines, RuntimeConfiguration runtimeConfiguration, PipelineConfiguration pipelineConfiguration) {
+        if (pipelineConfiguration == null) {
+            throw new IllegalArgumentException("PipelineConfiguration cannot be null.");
+        }
+        this.execution = new Interpreter(runtimeConfiguration).compileGuidelinesBatch(guidelines);
+        this.ingestThreads = orDefault(pipelineConfiguration.getIngestThreads(), 1);
+        this.evaluationThreads = orDefault(pipelineConfiguration.getEvaluationThreads(), Runtime.getRuntime().availableProcessors());
+        this.renderingThreads = orDefault(pipelineConfiguration.getRenderingThreads(), 1);
+        this.queueCapacity = pipelineConfiguration.getQueueCapacity();
+        this.maxInFlight = orDefault(pipelineConfiguration.getMaxInFlight(),
+                2 * (capacity(ingestThreads) + capacity(evaluationThreads) + capacity(renderingThreads) + capacity(1)));
+        this.reportInterval = orDefault(pipelineConfiguration.getReportInterval(), DEFAULT_REPORT_INTERVAL);
+    }
+
+    /**
+     * Executes the guidelines for each patient read from the input and writes their outcomes to the output.
+     *
+     * @param input           lines of patient records, blank lines skipped
+     * @param output          lines of outcomes, flushed but not closed
+     * @param metricsListener called on the calling thread every report interval and once at the end
+     * @return the final metrics
+     * @throws JsonParseException     if a line is not a patient record
+     * @throws InterruptedIOException if a thread of the run is interrupted, with the interrupt status of the calling
+     *                                thread set
+     */
+    public Metrics run(BufferedReader input, Writer output, Consumer<Metrics> metricsListener) throws IOException {
+        return new Run(input, output, metricsListener).execute();
+    }
+
+    private int capacity(int threads) {
+        return queueCapacity > 0 ? queueCapacity : DEFAULT_QUEUE_CAPACITY_PER_THREAD * threads;
+    }
+
+    private static int orDefault(int value, int defaultValue) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative pipeline configuration: " + value);
+        }
+        return value == 0 ? defaultValue : value;
+    }
+
+    /**
+     * Patients written and metrics of each stage since the start of a run.
+     */
+    @Value
+    public static class Metrics {
+        private long patients;
+        private long elapsedNanos;
+        private List<StageMetrics> stages;
+
+        public double getPatientsPerSecond() {
+            return elapsedNanos == 0 ? 0 : patients * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d patients in %.1f s, %.0f patients/s", patients, elapsedNanos / 1e9, getPatientsPerSecond())
+                    + stages.stream().map(StageMetrics::toString).collect(Collectors.joining(", ", " [", "]"));
+        }
+    }
+
+    /**
+     * Patients a stage processed, the time its threads were busy processing them and the depth of its queue.
+     */
+    @Value
+    public static class StageMetrics {
+        private String name;
+        private int threads;
+        private int queueDepth;
+        private int maxQueueDepth;
+        private long processed;
+        private long busyNanos;
+        private long elapsedNanos;
+
+        public double getPatientsPerSecond() {
+            return elapsedNanos == 0 ? 0 : processed * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * Share of the time its threads were busy, close to 1 for the stage limiting the throughput of the pipeline.
+         */
+        public double getUtilization() {
+            return elapsedNanos == 0 ? 0 : (double) busyNanos / elapsedNanos / threads;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s: %.0f patients/s, %.0f%% busy, queue %d (max %d)",
+                    name, getPatientsPerSecond(), 100 * getUtilization(), queueDepth, maxQueueDepth);
+        }
+    }
+
+    /*
+     * patient moving through the stages, with its position in the input
+     */
+    private static final class Patient {
+        private static final Patient END = new Patient(-1, 0, null);
+
+        private final long sequence;
+        private final long lineNumber;
+        private final String line;
+        private PatientRecord patientRecord;
+        private Interpreter.BatchExecutionOutput batchOutput;
+        private String outcome;
+
+        Patient(long sequence, long lineNumber, String line) {
+            this.sequence = sequence;
+            this.lineNumber = lineNumber;
+            this.line = line;
+        }
+    }
+
+    /*
+     * one run: reader, stage threads and the first failure, which stops all threads
+     */
+    private final class Run {
+        private final BufferedReader input;
+        private final Writer output;
+        private final Consumer<Metrics> metricsListener;
+        private final long start = System.nanoTime();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final Semaphore inFlight = new Semaphore(maxInFlight);
+        private final List<Thread> threads = new ArrayList<>();
+        private final Stage outputStage = new Stage("output", 1, null, null);
+        private final Stage rendering = new Stage("rendering", renderingThreads, this::render, outputStage);
+        private final Stage evaluation = new Stage("evaluation", evaluationThreads, this::evaluate, rendering);
+        private final Stage ingest = new Stage("ingest", ingestThreads, this::parse, evaluation);
+        private volatile boolean stopped;
+
+        Run(BufferedReader input, Writer output, Consumer<Metrics> metricsListener) {
+            this.input = input;
+            this.output = output;
+            this.metricsListener = metricsListener;
+        }
+
+        Metrics execute() throws IOException {
+            try {
+                start("reader", this::read);
+                for (Stage stage : new Stage[] {ingest, evaluation, rendering}) {
+                    for (int thread = 0; thread < stage.threads; thread++) {
+                        start(stage.name + "-" + thread, stage::work);
+                    }
+                }
+                write();
+            } catch (IOException | RuntimeException | Error exception) {
+                fail(exception);
+            } finally {
+                stopped = true;
+                for (Thread thread : threads) {
+                    join(thread);
+                }
+            }
+            Throwable throwable = failure.get();
+            if (throwable instanceof IOException) {
+                throw (IOException) throwable;
+            } else if (throwable instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) throwable).getCause();
+            } else if (throwable instanceof RuntimeException) {
+                throw (RuntimeException) throwable;
+            } else if (throwable instanceof Error) {
+                throw (Error) throwable;
+            } else if (throwable instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interrupted = new InterruptedIOException("Pipeline interrupted");
+                interrupted.initCause(throwable);
+                throw interrupted;
+            }
+            Metrics metrics = metrics();
+            metricsListener.accept(metrics);
+            return metrics;
+        }
+
+        private void read() {
+            try {
+                long sequence = 0;
+                long lineNumber = 0;
+                for (String line = input.readLine(); line != null && !isStopping(); line = input.readLine()) {
+                    lineNumber++;
+                    if (!line.trim().isEmpty() && acquire()) {
+                        ingest.put(new Patient(sequence++, lineNumber, line));
+                    }
+                }
+                ingest.end();
+            } catch (IOException exception) {
+                fail(new UncheckedIOException(exception));
+            }
+        }
+
+        private void parse(Patient patient) {
+            try {
+                patient.patientRecord = PatientRecordJson.parse(patient.line);
+            } catch (JsonParseException exception) {
+                throw new JsonParseException("Line " + patient.lineNumber + ": " + exception.getMessage(), exception);
+            }
+        }
+
+        private void evaluate(Patient patient) {
+            patient.batchOutput = execution.apply(patient.patientRecord.getDataInstances());
+        }
+
+        private void render(Patient patient) {
+            patient.outcome = PopulationRunner.formatOutcome(patient.patientRecord.getId(), patient.batchOutput);
+        }
+
+        /*
+         * writes the outcomes in the order of the input, keeping the outcomes rendered ahead of their turn
+         */
+        private void write() throws IOException {
+            Map<Long, Patient> ahead = new HashMap<>();
+            long next = 0;
+            for (Patient patient = outputStage.take(); patient != null && patient != Patient.END; patient = outputStage.take()) {
+                ahead.put(patient.sequence, patient);
+                for (Patient written = ahead.remove(next); written != null; written = ahead.remove(next)) {
+                    long begin = System.nanoTime();
+                    output.write(written.outcome);
+                    output.write('\n');
+                    outputStage.busyNanos.addAndGet(System.nanoTime() - begin);
+                    inFlight.release();
+                    next++;
+                    if (outputStage.processed.incrementAndGet() % reportInterval == 0) {
+                        metricsListener.accept(metrics());
+                    }
+                }
+            }
+            output.flush();
+        }
+
+        private Metrics metrics() {
+            long elapsedNanos = System.nanoTime() - start;
+            List<StageMetrics> stages = new ArrayList<>();
+            for (Stage stage : new Stage[] {ingest, evaluation, rendering, outputStage}) {
+                stages.add(new StageMetrics(stage.name, stage.threads, stage.queue.size(), stage.maxQueueDepth.get(),
+                        stage.processed.get(), stage.busyNanos.get(), elapsedNanos));
+            }
+            return new Metrics(outputStage.processed.get(), elapsedNanos, stages);
+        }
+
+        private boolean acquire() {
+            try {
+                while (!isStopping()) {
+                    if (inFlight.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                fail(exception);
+            }
+            return false;
+        }
+
+        private boolean isStopping() {
+            return stopped || failure.get() != null;
+        }
+
+        private void fail(Throwable throwable) {
+            failure.compareAndSet(null, throwable);
+        }
+
+        private void start(String name, Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                try {
+                    runnable.run();
+                } catch (RuntimeException | Error exception) {
+                    fail(exception);
+                }
+            }, "gdl2-pipeline-" + name);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        private void join(Thread thread) {
+            boolean interrupted = false;
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /*
+         * threads taking the patients from the queue of the stage and putting them in the queue of the next stage,
+         * the last thread of the stage ending the next stage
+         */
+        private final class Stage {
+            private final String name;
+            private final int threads;
+            private final BlockingQueue<Patient> queue;
+            private final Consumer<Patient> work;
+            private final Stage next;
+            private final AtomicInteger running;
+            private final AtomicInteger maxQueueDepth = new AtomicInteger();
+            private final AtomicLong processed = new AtomicLong();
+            private final AtomicLong busyNanos = new AtomicLong();
+
+            Stage(String name, int threads, Consumer<Patient> work, Stage next) {
+                this.name = name;
+                this.threads = threads;
+                this.queue = new ArrayBlockingQueue<>(capacity(threads));
+                this.work = work;
+                this.next = next;
+                this.running = new AtomicInteger(threads);
+            }
+
+            void work() {
+                Patient patient = take();
+                for (; patient != null && patient != Patient.END; patient = take()) {
+                    long begin = System.nanoTime();
+                    work.accept(patient);
+                    busyNanos.addAndGet(System.nanoTime() - begin);
+                    processed.incrementAndGet();
+                    next.put(patient);
+                }
+                if (patient == Patient.END && running.decrementAndGet() == 0) {
+                    next.end();
+                }
+            }
+
+            void end() {
+                for (int thread = 0; thread < threads; thread++) {
+                    put(Patient.END);
+                }
+            }
+
+            void put(Patient patient) {
+                try {
+                    while (!isStopping()) {
+                        if (queue.offer(patient, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                            maxQueueDepth.accumulateAndGet(queue.size(), Math::max);
+                            return;
+                        }
+                    }
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    fail(exception);
+                }
+            }
+
+            /*
+             * next patient, null if the run is stopping
+             */
+            Patient take() {
+                try {
+                    while (!isStopping()) {
+                        Patient patient = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                        if (patient != null) {
+                            return patient;
+                        }
+                    }
+                } catch (InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                    fail(exception);
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package org.gdl2.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonWriter;
+import lombok.Value;
+import org.gdl2.Gdl2;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.RuntimeConfiguration;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+/**
+ * Executes guidelines for each patient of an NDJSON file of {@link PatientRecordJson patient records}, writing the
+ * outcome of each patient as a line of NDJSON in the order of the patients:
+ *
+ * <pre>
+ * {"id": "patient-1", "data_instances": [...], "fired_rules": {"BSA_Calculation.v1": ["gt0004"]}, "cards": [...]}
+ * </pre>
+ *
+ * <p>Patients are read as the execution progresses, so only the patients in flight, as configured by
+ * {@link RuntimeConfiguration#getBatchPatientsInFlight()}, and their outcomes are kept in memory. Reading stops
+ * while all of them are executing or waiting to be written. Patients are executed on
+ * {@link RuntimeConfiguration#getBatchForkJoinPool()}.
+ *
+ * <p>Usage: {@code PopulationRunner [--threads n] [--in-flight n] [--current-date-time t] input.ndjson output.ndjson guideline.gdl2...},
+ * with the guidelines in order of execution, reporting progress on the standard error.
+ */
+public final class PopulationRunner {
+    private static final int DEFAULT_PROGRESS_INTERVAL = 10_000;
+    private static final Gson GSON = new Gson();
+
+    private final Interpreter interpreter;
+    private final List<Guideline> guidelines;
+    private final int progressInterval;
+
+    public PopulationRunner(List<Guideline> guidelines, RuntimeConfiguration runtimeConfiguration) {
+        this(guidelines, runtimeConfiguration, DEFAULT_PROGRESS_INTERVAL);
+    }
+
+    /**
+     * Runner reporting progress every progress interval of patients.
+     *
+     * @param progressInterval number of patients between progress reports
+     */
+    public PopulationRunner(List<Guideline> guidelines, RuntimeConfiguration runtimeConfiguration, int progressInterval) {
+        if (guidelines == null) {
+            throw new IllegalArgumentException("List<Guideline> cannot be null.");
+        }
+        if (progressInterval <= 0) {
+            throw new IllegalArgumentException("Progress interval must be positive: " + progressInterval);
+        }
+        this.interpreter = new Interpreter(runtimeConfiguration);
+        this.guidelines = guidelines;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * Executes the guidelines for each patient read from the input and writes their outcomes to the output.
+     *
+     * @param input            lines of patient records, blank lines skipped
+     * @param output           lines of outcomes, flushed but not closed
+     * @param progressListener called on the calling thread every progress interval and once at the end
+     * @return the final progress
+     * @throws JsonParseException if a line is not a patient record
+     */
+    public Progress run(BufferedReader input, Writer output, Consumer<Progress> progressListener) throws IOException {
+        long start = System.nanoTime();
+        Deque<PatientRecord> inFlight = new ArrayDeque<>();
+        long[] patients = new long[1];
+        try {
+            interpreter.executeGuidelinesBatchAndGetFiredRules(guidelines, () -> new PatientIterator(input, inFlight), (batchOutput, index) -> {
+                try {
+                    output.write(formatOutcome(inFlight.poll().getId(), batchOutput));
+                    output.write('\n');
+                } catch (IOException exception) {
+                    throw new UncheckedIOException(exception);
+                }
+                if (++patients[0] % progressInterval == 0) {
+                    progressListener.accept(new Progress(patients[0], System.nanoTime() - start));
+                }
+            });
+        } catch (UncheckedIOException exception) {
+            throw exception.getCause();
+        }
+        output.flush();
+        Progress progress = new Progress(patients[0], System.nanoTime() - start);
+        progressListener.accept(progress);
+        return progress;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int inFlight = 0;
+        RuntimeConfiguration.RuntimeConfigurationBuilder builder = RuntimeConfiguration.builder();
+        int arg = 0;
+        for (; arg < args.length && args[arg].startsWith("--"); arg += 2) {
+            if (arg + 1 == args.length) {
+                usage("Missing value of " + args[arg]);
+            }
+            switch (args[arg]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[arg + 1]);
+                    break;
+                case "--in-flight":
+                    inFlight = Integer.parseInt(args[arg + 1]);
+                    break;
+                case "--current-date-time":
+                    builder.currentDateTime(ZonedDateTime.parse(args[arg + 1]));
+                    break;
+                default:
+                    usage("Unknown option " + args[arg]);
+            }
+        }
+        if (args.length - arg < 3) {
+            usage("Missing input, output or guidelines");
+        }
+        List<Guideline> guidelines = new ArrayList<>();
+        for (int guideline = arg + 2; guideline < args.length; guideline++) {
+            try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[guideline]), StandardCharsets.UTF_8)) {
+                guidelines.add(Gdl2.fromGdl2(reader));
+            }
+        }
+        ForkJoinPool forkJoinPool = new ForkJoinPool(threads);
+        try (BufferedReader input = Files.newBufferedReader(Paths.get(args[arg]), StandardCharsets.UTF_8);
+             BufferedWriter output = Files.newBufferedWriter(Paths.get(args[arg + 1]), StandardCharsets.UTF_8)) {
+            new PopulationRunner(guidelines, builder.batchForkJoinPool(forkJoinPool).batchPatientsInFlight(inFlight).build())
+                    .run(input, output, progress -> System.err.println(progress));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    private static void usage(String message) {
+        throw new IllegalArgumentException(message + System.lineSeparator()
+                + "Usage: PopulationRunner [--threads n] [--in-flight n] [--current-date-time t] input.ndjson output.ndjson guideline.gdl2...");
+    }
+
+    /*
+     * outcome of a patient as one line of json, without the line separator
+     */
+    static String formatOutcome(String id, Interpreter.BatchExecutionOutput batchOutput) {
+        StringWriter line = new StringWriter();
+        try (JsonWriter writer = new JsonWriter(line)) {
+            writer.beginObject();
+            if (id != null) {
+                writer.name("id").value(id);
+            }
+            writer.name("data_instances");
+            PatientRecordJson.writeDataInstances(writer, batchOutput.getResult());
+            writer.name("fired_rules").beginObject();
+            for (Map.Entry<String, Set<String>> entry : batchOutput.getFiredRules().entrySet()) {
+                writer.name(entry.getKey()).beginArray();
+                for (String rule : new TreeSet<>(entry.getValue())) {
+                    writer.value(rule);
+                }
+                writer.endArray();
+            }
+            writer.endObject();
+            writer.name("cards").beginArray();
+            for (Card card : batchOutput.getCards()) {
+                GSON.toJson(GSON.toJsonTree(card), writer);
+            }
+            writer.endArray();
+            writer.endObject();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Patients executed and time elapsed since the start of a run.
+     */
+    @Value
+    public static class Progress {
+        private long patients;
+        private long elapsedNanos;
+
+        public double getPatientsPerSecond() {
+            return elapsedNanos == 0 ? 0 : patients * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d patients in %.1f s, %.0f patients/s", patients, elapsedNanos / 1e9, getPatientsPerSecond());
+        }
+    }
+
+    /*
+     * data instances of the patients of the input, parsed on demand, keeping the record of each patient returned
+     * until its outcome is written
+     */
+    private static final class PatientIterator implements Iterator<List<DataInstance>> {
+        private final BufferedReader input;
+        private final Deque<PatientRecord> inFlight;
+        private String line;
+        private long lineNumber;
+
+        PatientIterator(BufferedReader input, Deque<PatientRecord> inFlight) {
+            this.input = input;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (line == null) {
+                    line = input.readLine();
+                    if (line == null) {
+                        return false;
+                    }
+                    lineNumber++;
+                    if (line.trim().isEmpty()) {
+                        line = null;
+                    }
+                }
+                return true;
+            } catch (IOException exception) {
+                throw new UncheckedIOException(exception);
+            }
+        }
+
+        @Override
+        public List<DataInstance> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            PatientRecord patientRecord;
+            try {
+                patientRecord = PatientRecordJson.parse(line);
+            } catch (JsonParseException exception) {
+                throw new JsonParseException("Line " + lineNumber + ": " + exception.getMessage(), exception);
+            }
+            line = null;
+            inFlight.add(patientRecord);
+            return patientRecord.getDataInstances();
+        }
+    }
+}
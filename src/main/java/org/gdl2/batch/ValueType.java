@@ -0,0 +1,197 @@
+package org.gdl2.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+
+/**
+ * Types of the values of data instances in patient records, with their tag in cohort files and their
+ * json form {@code {"type": "DV_QUANTITY", "value": "72.5,kg", "precision": 1}}, where the value is in
+ * the notation of the {@code valueOf} method of the data type.
+ */
+enum ValueType {
+    DV_QUANTITY(1),
+    DV_CODED_TEXT(2),
+    DV_COUNT(3),
+    DV_ORDINAL(4),
+    DV_BOOLEAN(5),
+    DV_TEXT(6),
+    DV_DATE_TIME(7),
+    DV_DATE(8),
+    DATE_TIME(9),
+    STRING(10),
+    REAL(11),
+    INTEGER(12),
+    LONG(13),
+    /**
+     * Any other value, e.g. the root object of a template, written as json only.
+     */
+    OBJECT(0);
+
+    private static final Gson GSON = new Gson();
+    private static final ValueType[] BY_TAG = new ValueType[14];
+
+    static {
+        for (ValueType valueType : values()) {
+            BY_TAG[valueType.tag] = valueType;
+        }
+    }
+
+    private final byte tag;
+
+    ValueType(int tag) {
+        this.tag = (byte) tag;
+    }
+
+    byte getTag() {
+        return tag;
+    }
+
+    static ValueType ofTag(byte tag) {
+        ValueType valueType = tag >= 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+        if (valueType == null || valueType == OBJECT) {
+            throw new IllegalArgumentException("Unknown value type tag: " + tag);
+        }
+        return valueType;
+    }
+
+    static ValueType of(Object value) {
+        if (value instanceof DvQuantity) {
+            return DV_QUANTITY;
+        } else if (value instanceof DvCodedText) {
+            return DV_CODED_TEXT;
+        } else if (value instanceof DvCount) {
+            return DV_COUNT;
+        } else if (value instanceof DvOrdinal) {
+            return DV_ORDINAL;
+        } else if (value instanceof DvBoolean) {
+            return DV_BOOLEAN;
+        } else if (value instanceof DvText) {
+            return DV_TEXT;
+        } else if (value instanceof DvDateTime) {
+            return DV_DATE_TIME;
+        } else if (value instanceof DvDate) {
+            return DV_DATE;
+        } else if (value instanceof ZonedDateTime) {
+            return DATE_TIME;
+        } else if (value instanceof String) {
+            return STRING;
+        } else if (value instanceof Double) {
+            return REAL;
+        } else if (value instanceof Integer) {
+            return INTEGER;
+        } else if (value instanceof Long) {
+            return LONG;
+        }
+        return OBJECT;
+    }
+
+    static void writeJson(JsonWriter writer, Object value) throws IOException {
+        ValueType valueType = of(value);
+        writer.beginObject();
+        writer.name("type").value(valueType.name());
+        writer.name("value");
+        switch (valueType) {
+            case DV_QUANTITY:
+                DvQuantity dvQuantity = (DvQuantity) value;
+                writer.value(dvQuantity.getMagnitude() + (dvQuantity.getUnit() == null || dvQuantity.getUnit().isEmpty() ? "" : "," + dvQuantity.getUnit()));
+                writer.name("precision").value(dvQuantity.getPrecision());
+                break;
+            case DV_TEXT:
+                writer.value(((DvText) value).getValue());
+                break;
+            case REAL:
+                writer.value((Double) value);
+                break;
+            case INTEGER:
+            case LONG:
+                writer.value((Number) value);
+                break;
+            case OBJECT:
+                GSON.toJson(GSON.toJsonTree(value), writer);
+                break;
+            default:
+                writer.value(value.toString());
+        }
+        writer.endObject();
+    }
+
+    static Object readJson(JsonReader reader) throws IOException {
+        ValueType valueType = null;
+        Object value = null;
+        String text = null;
+        int precision = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "type":
+                    valueType = valueOf(reader.nextString());
+                    break;
+                case "value":
+                    if (reader.peek() == JsonToken.STRING || reader.peek() == JsonToken.NUMBER) {
+                        text = reader.nextString();
+                    } else {
+                        value = GSON.fromJson(reader, Object.class);
+                    }
+                    break;
+                case "precision":
+                    precision = reader.nextInt();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (valueType == null || (text == null && value == null)) {
+            throw new JsonParseException("Value without type or value at " + reader);
+        }
+        return text == null ? value : valueType.parse(text, precision);
+    }
+
+    private Object parse(String text, int precision) {
+        switch (this) {
+            case DV_QUANTITY:
+                DvQuantity dvQuantity = DvQuantity.valueOf(text);
+                return new DvQuantity(dvQuantity.getUnit(), dvQuantity.getMagnitude(), precision);
+            case DV_CODED_TEXT:
+                return DvCodedText.valueOf(text);
+            case DV_COUNT:
+                return DvCount.valueOf(text);
+            case DV_ORDINAL:
+                return DvOrdinal.valueOf(text);
+            case DV_BOOLEAN:
+                return DvBoolean.valueOf(text);
+            case DV_TEXT:
+                return DvText.valueOf(text);
+            case DV_DATE_TIME:
+                return DvDateTime.valueOf(text);
+            case DV_DATE:
+                return DvDate.valueOf(text);
+            case DATE_TIME:
+                return ZonedDateTime.parse(text);
+            case STRING:
+                return text;
+            case REAL:
+                return Double.parseDouble(text);
+            case INTEGER:
+                return Integer.parseInt(text);
+            case LONG:
+                return Long.parseLong(text);
+            default:
+                return text;
+        }
+    }
+}
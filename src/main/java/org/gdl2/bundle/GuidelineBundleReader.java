@@ -0,0 +1,503 @@
+package org.gdl2.bundle;
+
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.cdshooks.UseTemplate;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.deserializers.UnmodifiableCollectionsAdapterFactory;
+import org.gdl2.expression.AnyExpression;
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.CodePhraseConstant;
+import org.gdl2.expression.CodedTextConstant;
+import org.gdl2.expression.Constant;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.DateTimeConstant;
+import org.gdl2.expression.DoubleConstant;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.Function;
+import org.gdl2.expression.FunctionalExpression;
+import org.gdl2.expression.IntegerConstant;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.MathConstant;
+import org.gdl2.expression.MultipleAssignmentExpression;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.OrdinalConstant;
+import org.gdl2.expression.QuantityConstant;
+import org.gdl2.expression.ReferenceVariable;
+import org.gdl2.expression.StringConstant;
+import org.gdl2.expression.UnaryExpression;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Element;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.GuideOntology;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.InternalVariable;
+import org.gdl2.model.Rule;
+import org.gdl2.model.Template;
+import org.gdl2.resources.Language;
+import org.gdl2.resources.Reference;
+import org.gdl2.resources.ResourceDescription;
+import org.gdl2.resources.ResourceDescriptionItem;
+import org.gdl2.resources.TranslationDetails;
+import org.gdl2.terminology.Binding;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermBinding;
+import org.gdl2.terminology.TermDefinition;
+import org.gdl2.test.TestCase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.gdl2.bundle.GuidelineBundleWriter.NONE;
+
+/**
+ * Guidelines of a bundle written by {@link GuidelineBundleWriter}, memory mapped and decoded without parsing json
+ * or expressions, equal to the guidelines loaded from Gdl2 json by {@link org.gdl2.Gdl2#fromGdl2(java.io.Reader)}.
+ *
+ * <p>The symbol table is read into the heap when opening the bundle; each guideline is decoded when it is got,
+ * with all its lists and maps unmodifiable as when loaded from json. A reader can be shared by threads.
+ */
+public final class GuidelineBundleReader implements Closeable {
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final int guidelines;
+    private final long indexOffset;
+    private final String[] symbols;
+
+    private GuidelineBundleReader(FileChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.size() < GuidelineBundleWriter.HEADER_SIZE) {
+            throw new IOException("Not a guideline bundle");
+        }
+        if (channel.size() > Integer.MAX_VALUE) {
+            throw new IOException("Guideline bundle larger than " + Integer.MAX_VALUE + " bytes");
+        }
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        if (buffer.getLong(0) != GuidelineBundleWriter.MAGIC) {
+            throw new IOException("Not a guideline bundle");
+        }
+        if (buffer.getInt(8) != GuidelineBundleWriter.VERSION) {
+            throw new IOException("Unsupported guideline bundle version: " + buffer.getInt(8));
+        }
+        this.guidelines = buffer.getInt(12);
+        this.indexOffset = buffer.getLong(16);
+        ByteBuffer symbolTable = buffer.duplicate();
+        symbolTable.position((int) buffer.getLong(24));
+        this.symbols = new String[symbolTable.getInt()];
+        for (int symbol = 0; symbol < symbols.length; symbol++) {
+            byte[] bytes = new byte[symbolTable.getInt()];
+            symbolTable.get(bytes);
+            symbols[symbol] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Opens and maps a guideline bundle.
+     */
+    public static GuidelineBundleReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new GuidelineBundleReader(channel);
+        } catch (IOException | RuntimeException exception) {
+            channel.close();
+            throw exception;
+        }
+    }
+
+    /**
+     * Reads all guidelines of a bundle.
+     *
+     * @param bundle the bundle file
+     * @return the guidelines in the order written
+     */
+    public static List<Guideline> read(Path bundle) throws IOException {
+        try (GuidelineBundleReader reader = open(bundle)) {
+            return new ArrayList<>(reader.guidelines());
+        }
+    }
+
+    /**
+     * Number of guidelines.
+     */
+    public int size() {
+        return guidelines;
+    }
+
+    /**
+     * Decodes the guideline at the position in the bundle.
+     */
+    public Guideline get(int guideline) {
+        if (guideline < 0 || guideline >= guidelines) {
+            throw new IndexOutOfBoundsException("Guideline: " + guideline);
+        }
+        return new Decoder((int) buffer.getLong((int) indexOffset + guideline * Long.BYTES)).guideline();
+    }
+
+    /**
+     * Guidelines in the order written, decoded as the list is read.
+     */
+    public List<Guideline> guidelines() {
+        return new AbstractList<Guideline>() {
+            @Override
+            public Guideline get(int guideline) {
+                return GuidelineBundleReader.this.get(guideline);
+            }
+
+            @Override
+            public int size() {
+                return guidelines;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /*
+     * reads one guideline from its own view of the mapped bundle, in the order the writer put its fields
+     */
+    private final class Decoder {
+        private final ByteBuffer in;
+
+        Decoder(int offset) {
+            this.in = buffer.duplicate();
+            in.position(offset);
+        }
+
+        Guideline guideline() {
+            return new Guideline(string(), string(), string(), language(), resourceDescription(), guideDefinition(), guideOntology(),
+                    list(this::testCase));
+        }
+
+        private Language language() {
+            return present() ? new Language(codePhrase(), map(this::translationDetails)) : null;
+        }
+
+        private TranslationDetails translationDetails() {
+            return new TranslationDetails(string(), codePhrase(), map(this::string));
+        }
+
+        private ResourceDescription resourceDescription() {
+            if (!present()) {
+                return null;
+            }
+            return new ResourceDescription(map(this::string), list(this::string), string(), string(), map(this::resourceDescriptionItem),
+                    map(this::string), list(this::reference));
+        }
+
+        private ResourceDescriptionItem resourceDescriptionItem() {
+            return new ResourceDescriptionItem(string(), codePhrase(), string(), list(this::string), string(), string(), string());
+        }
+
+        private Reference reference() {
+            return new Reference(string(), string(), string());
+        }
+
+        private GuideDefinition guideDefinition() {
+            if (!present()) {
+                return null;
+            }
+            return new GuideDefinition(map(this::dataBinding), list(this::internalVariable), map(this::template), list(this::expression),
+                    list(this::expression), map(this::rule));
+        }
+
+        private DataBinding dataBinding() {
+            return new DataBinding(string(), enumValue(DataBinding.Type.class), string(), string(), map(this::element), list(this::expression));
+        }
+
+        private Element element() {
+            return new Element(string(), string());
+        }
+
+        private InternalVariable internalVariable() {
+            return new InternalVariable(string(), enumValue(InternalVariable.DataType.class));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Template template() {
+            String id = string();
+            String name = string();
+            String modelId = string();
+            String templateId = string();
+            Map<String, Object> object = mutableMap(this::value);
+            return new Template(id, name, modelId, templateId,
+                    (Map<String, Object>) UnmodifiableCollectionsAdapterFactory.unmodifiable(object), list(this::elementBinding));
+        }
+
+        private ElementBinding elementBinding() {
+            return new ElementBinding(string(), string());
+        }
+
+        private Rule rule() {
+            return new Rule(string(), list(this::expression), list(this::expression), list(this::card), in.getInt());
+        }
+
+        private Card card() {
+            return Card.builder()
+                    .summary(string())
+                    .detail(string())
+                    .indicator(enumValue(Card.IndicatorEnum.class))
+                    .source(present() ? source() : null)
+                    .suggestions(list(this::suggestion))
+                    .links(list(this::link))
+                    .build();
+        }
+
+        private Source source() {
+            return Source.builder()
+                    .label(string())
+                    .url(url())
+                    .icon(url())
+                    .labelReference(string())
+                    .urlReference(string())
+                    .build();
+        }
+
+        private Suggestion suggestion() {
+            String uuid = string();
+            return Suggestion.builder()
+                    .uuid(uuid == null ? null : UUID.fromString(uuid))
+                    .label(string())
+                    .actions(list(this::action))
+                    .build();
+        }
+
+        private Action action() {
+            return Action.builder()
+                    .type(enumValue(Action.ActionType.class))
+                    .description(string())
+                    .resource(value())
+                    .resourceTemplate(present() ? new UseTemplate(string(), list(this::expression)) : null)
+                    .build();
+        }
+
+        private Link link() {
+            return Link.builder()
+                    .label(string())
+                    .url(url())
+                    .type(enumValue(Link.LinkType.class))
+                    .labelReference(string())
+                    .urlReference(string())
+                    .build();
+        }
+
+        private GuideOntology guideOntology() {
+            return present() ? new GuideOntology(map(this::termDefinition), map(this::termBinding)) : null;
+        }
+
+        private TermDefinition termDefinition() {
+            return new TermDefinition(string(), map(this::term));
+        }
+
+        private Term term() {
+            return new Term(string(), string(), string());
+        }
+
+        private TermBinding termBinding() {
+            return new TermBinding(string(), map(this::binding));
+        }
+
+        private Binding binding() {
+            return new Binding(string(), list(this::codePhrase), string());
+        }
+
+        private TestCase testCase() {
+            return new TestCase(string(), map(this::string), map(this::string));
+        }
+
+        private CodePhrase codePhrase() {
+            return present() ? codePhraseFields() : null;
+        }
+
+        private CodePhrase codePhraseFields() {
+            return new CodePhrase(string(), string());
+        }
+
+        private ExpressionItem expression() {
+            byte tag = in.get();
+            switch (tag) {
+                case GuidelineBundleWriter.NULL:
+                    return null;
+                case GuidelineBundleWriter.VARIABLE:
+                    return variableFields();
+                case GuidelineBundleWriter.REFERENCE_VARIABLE:
+                    return new ReferenceVariable(in.getInt(), string());
+                case GuidelineBundleWriter.CONSTANT:
+                    return new ConstantExpression(string());
+                case GuidelineBundleWriter.STRING_CONSTANT:
+                    return new StringConstant(string());
+                case GuidelineBundleWriter.INTEGER_CONSTANT:
+                    return new IntegerConstant(string());
+                case GuidelineBundleWriter.DOUBLE_CONSTANT:
+                    return new DoubleConstant(string());
+                case GuidelineBundleWriter.DATE_TIME_CONSTANT:
+                    return new DateTimeConstant(string());
+                case GuidelineBundleWriter.QUANTITY_CONSTANT:
+                    String unit = string();
+                    return new QuantityConstant(new DvQuantity(unit, in.getDouble(), in.getInt()));
+                case GuidelineBundleWriter.CODED_TEXT_CONSTANT:
+                    return new CodedTextConstant(string(), codePhraseFields());
+                case GuidelineBundleWriter.CODE_PHRASE_CONSTANT:
+                    return new CodePhraseConstant(codePhraseFields());
+                case GuidelineBundleWriter.ORDINAL_CONSTANT:
+                    int order = in.getInt();
+                    return new OrdinalConstant(new DvOrdinal(order, new DvCodedText(string(), codePhraseFields())));
+                case GuidelineBundleWriter.MATH_CONSTANT:
+                    return MathConstant.create(enumValue(Constant.class));
+                case GuidelineBundleWriter.UNARY:
+                    return new UnaryExpression(expression(), enumValue(OperatorKind.class));
+                case GuidelineBundleWriter.BINARY:
+                    return BinaryExpression.create(expression(), expression(), enumValue(OperatorKind.class));
+                case GuidelineBundleWriter.LONG:
+                    return new LongExpression(list(() -> new LongExpression.OperandPair(expression(), enumValue(OperatorKind.class))));
+                case GuidelineBundleWriter.FUNCTIONAL:
+                    return FunctionalExpression.create(new Function(string()), list(this::expression));
+                case GuidelineBundleWriter.ASSIGNMENT:
+                    return new AssignmentExpression(variableFields(), expression());
+                case GuidelineBundleWriter.CREATE_INSTANCE:
+                    return new CreateInstanceExpression(variableFields(), list(this::assignment));
+                case GuidelineBundleWriter.MULTIPLE_ASSIGNMENT:
+                    return new MultipleAssignmentExpression(list(this::assignment));
+                case GuidelineBundleWriter.USE_TEMPLATE:
+                    return new UseTemplateExpression(variableFields(), list(this::assignment), list(this::variable), inputVariableMap());
+                case GuidelineBundleWriter.ANY:
+                    return new AnyExpression(list(this::variable), expression());
+                default:
+                    throw new IllegalStateException("Unknown expression tag in guideline bundle: " + tag);
+            }
+        }
+
+        private Variable variableFields() {
+            return new Variable(string(), string(), string(), string());
+        }
+
+        private Variable variable() {
+            return (Variable) expression();
+        }
+
+        private AssignmentExpression assignment() {
+            return (AssignmentExpression) expression();
+        }
+
+        private Map<Variable, List<Variable>> inputVariableMap() {
+            int size = in.getInt();
+            if (size == NONE) {
+                return null;
+            }
+            Map<Variable, List<Variable>> map = new LinkedHashMap<>();
+            for (int entry = 0; entry < size; entry++) {
+                map.put(variable(), list(this::variable));
+            }
+            return map;
+        }
+
+        /*
+         * value of a template object or a resource, with mutable maps and lists as read from json
+         */
+        private Object value() {
+            byte tag = in.get();
+            switch (tag) {
+                case GuidelineBundleWriter.NULL:
+                    return null;
+                case GuidelineBundleWriter.STRING_VALUE:
+                    return string();
+                case GuidelineBundleWriter.DOUBLE_VALUE:
+                    return in.getDouble();
+                case GuidelineBundleWriter.BOOLEAN_VALUE:
+                    return in.get() != 0;
+                case GuidelineBundleWriter.LIST_VALUE:
+                    return mutableList(this::value);
+                case GuidelineBundleWriter.MAP_VALUE:
+                    return mutableMap(this::value);
+                default:
+                    throw new IllegalStateException("Unknown value tag in guideline bundle: " + tag);
+            }
+        }
+
+        private URL url() {
+            String url = string();
+            try {
+                return url == null ? null : new URL(url);
+            } catch (MalformedURLException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+
+        private <E extends Enum<E>> E enumValue(Class<E> enumClass) {
+            String name = string();
+            return name == null ? null : Enum.valueOf(enumClass, name);
+        }
+
+        private boolean present() {
+            return in.get() != 0;
+        }
+
+        private String string() {
+            int symbol = in.getInt();
+            return symbol == NONE ? null : symbols[symbol];
+        }
+
+        private <T> List<T> list(Supplier<T> reader) {
+            List<T> list = mutableList(reader);
+            return list == null ? null : Collections.unmodifiableList(list);
+        }
+
+        private <T> List<T> mutableList(Supplier<T> reader) {
+            int size = in.getInt();
+            if (size == NONE) {
+                return null;
+            }
+            List<T> list = new ArrayList<>(size);
+            for (int element = 0; element < size; element++) {
+                list.add(reader.get());
+            }
+            return list;
+        }
+
+        private <T> Map<String, T> map(Supplier<T> reader) {
+            Map<String, T> map = mutableMap(reader);
+            return map == null ? null : Collections.unmodifiableMap(map);
+        }
+
+        private <T> Map<String, T> mutableMap(Supplier<T> reader) {
+            int size = in.getInt();
+            if (size == NONE) {
+                return null;
+            }
+            Map<String, T> map = new LinkedHashMap<>(size * 4 / 3 + 1);
+            for (int entry = 0; entry < size; entry++) {
+                String key = string();
+                map.put(key, reader.get());
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package org.gdl2.bundle;
+
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.cdshooks.UseTemplate;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.AnyExpression;
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.CodePhraseConstant;
+import org.gdl2.expression.CodedTextConstant;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.DateTimeConstant;
+import org.gdl2.expression.DoubleConstant;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.FunctionalExpression;
+import org.gdl2.expression.IntegerConstant;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.MathConstant;
+import org.gdl2.expression.MultipleAssignmentExpression;
+import org.gdl2.expression.OrdinalConstant;
+import org.gdl2.expression.QuantityConstant;
+import org.gdl2.expression.ReferenceVariable;
+import org.gdl2.expression.StringConstant;
+import org.gdl2.expression.UnaryExpression;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Element;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.GuideOntology;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.InternalVariable;
+import org.gdl2.model.Rule;
+import org.gdl2.model.Template;
+import org.gdl2.resources.Language;
+import org.gdl2.resources.Reference;
+import org.gdl2.resources.ResourceDescription;
+import org.gdl2.resources.ResourceDescriptionItem;
+import org.gdl2.resources.TranslationDetails;
+import org.gdl2.terminology.Binding;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermBinding;
+import org.gdl2.terminology.TermDefinition;
+import org.gdl2.test.TestCase;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Writes parsed guidelines to a guideline bundle, read back by memory mapping with {@link GuidelineBundleReader}
+ * without parsing json or expressions.
+ *
+ * <p>The file starts with a header of the magic number, version, number of guidelines and the offsets of the
+ * guideline index and of the symbol table, followed by the guidelines in the order written, the symbol table and
+ * the guideline index of guideline offsets. All numbers are big-endian.
+ *
+ * <p>A guideline is written field by field in the order of the constructors of the model, with the expressions
+ * as trees of tagged nodes. Every string, including the names of enum constants, is numbered in the symbol table;
+ * lists and maps are their sizes followed by their elements, or {@link #NONE} for null. Values of template objects
+ * and resources are tagged maps, lists, strings, doubles and booleans, the values read from Gdl2 json.
+ */
+public final class GuidelineBundleWriter implements Closeable {
+    static final long MAGIC = 0x47444C3242444C45L;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 32;
+    static final int NONE = -1;
+
+    static final byte NULL = 0;
+    static final byte VARIABLE = 1;
+    static final byte REFERENCE_VARIABLE = 2;
+    static final byte CONSTANT = 3;
+    static final byte STRING_CONSTANT = 4;
+    static final byte INTEGER_CONSTANT = 5;
+    static final byte DOUBLE_CONSTANT = 6;
+    static final byte DATE_TIME_CONSTANT = 7;
+    static final byte QUANTITY_CONSTANT = 8;
+    static final byte CODED_TEXT_CONSTANT = 9;
+    static final byte CODE_PHRASE_CONSTANT = 10;
+    static final byte ORDINAL_CONSTANT = 11;
+    static final byte MATH_CONSTANT = 12;
+    static final byte UNARY = 13;
+    static final byte BINARY = 14;
+    static final byte LONG = 15;
+    static final byte FUNCTIONAL = 16;
+    static final byte ASSIGNMENT = 17;
+    static final byte CREATE_INSTANCE = 18;
+    static final byte MULTIPLE_ASSIGNMENT = 19;
+    static final byte USE_TEMPLATE = 20;
+    static final byte ANY = 21;
+
+    static final byte STRING_VALUE = 1;
+    static final byte DOUBLE_VALUE = 2;
+    static final byte BOOLEAN_VALUE = 3;
+    static final byte LIST_VALUE = 4;
+    static final byte MAP_VALUE = 5;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final Map<String, Integer> symbols = new HashMap<>();
+    private final List<String> symbolList = new ArrayList<>();
+    private ByteBuffer record = ByteBuffer.allocate(BUFFER_SIZE);
+    private long[] offsets = new long[64];
+    private int guidelines;
+    private long position = HEADER_SIZE;
+    private boolean closed;
+
+    public GuidelineBundleWriter(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Writes the guidelines to a bundle.
+     *
+     * @param guidelines guidelines, e.g. loaded by {@link org.gdl2.Gdl2#fromGdl2(java.io.Reader)}
+     * @param bundle     the bundle file to write
+     */
+    public static void write(List<Guideline> guidelines, Path bundle) throws IOException {
+        try (GuidelineBundleWriter writer = new GuidelineBundleWriter(bundle)) {
+            for (Guideline guideline : guidelines) {
+                writer.write(guideline);
+            }
+        }
+    }
+
+    /**
+     * Appends a guideline.
+     *
+     * @throws IllegalArgumentException if an expression or a value of a template object or resource is of a class
+     *                                  not read from Gdl2 json
+     */
+    public void write(Guideline guideline) throws IOException {
+        if (guideline == null) {
+            throw new IllegalArgumentException("null guideline");
+        }
+        record.clear();
+        putString(guideline.getId());
+        putString(guideline.getGdlVersion());
+        putString(guideline.getConcept());
+        putObject(guideline.getLanguage(), this::putLanguage);
+        putObject(guideline.getDescription(), this::putResourceDescription);
+        putObject(guideline.getDefinition(), this::putGuideDefinition);
+        putObject(guideline.getOntology(), this::putGuideOntology);
+        putList(guideline.getTestCases(), this::putTestCase);
+        record.flip();
+        if (guidelines == offsets.length) {
+            offsets = Arrays.copyOf(offsets, guidelines * 2);
+        }
+        offsets[guidelines++] = position;
+        position += writeFully(record, position);
+    }
+
+    /**
+     * Writes the symbol table, the guideline index and the header.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            final long symbolsOffset = position;
+            record.clear();
+            putInt(symbolList.size());
+            for (String symbol : symbolList) {
+                byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+                ensure(Integer.BYTES + bytes.length);
+                record.putInt(bytes.length).put(bytes);
+            }
+            ensure(guidelines * Long.BYTES);
+            final long indexOffset = position + record.position();
+            for (int guideline = 0; guideline < guidelines; guideline++) {
+                record.putLong(offsets[guideline]);
+            }
+            record.flip();
+            position += writeFully(record, position);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(VERSION).putInt(guidelines).putLong(indexOffset).putLong(symbolsOffset);
+            header.flip();
+            writeFully(header, 0);
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putLanguage(Language language) {
+        putObject(language.getOriginalLanguage(), this::putCodePhrase);
+        putMap(language.getTranslations(), this::putTranslationDetails);
+    }
+
+    private void putTranslationDetails(TranslationDetails translationDetails) {
+        putString(translationDetails.getId());
+        putObject(translationDetails.getLanguage(), this::putCodePhrase);
+        putMap(translationDetails.getAuthor(), this::putString);
+    }
+
+    private void putResourceDescription(ResourceDescription description) {
+        putMap(description.getOriginalAuthor(), this::putString);
+        putList(description.getOtherContributors(), this::putString);
+        putString(description.getLifecycleState());
+        putString(description.getResourcePackageUri());
+        putMap(description.getDetails(), this::putResourceDescriptionItem);
+        putMap(description.getOtherDetails(), this::putString);
+        putList(description.getReferences(), this::putReference);
+    }
+
+    private void putResourceDescriptionItem(ResourceDescriptionItem item) {
+        putString(item.getId());
+        putObject(item.getLanguage(), this::putCodePhrase);
+        putString(item.getPurpose());
+        putList(item.getKeywords(), this::putString);
+        putString(item.getUse());
+        putString(item.getMisuse());
+        putString(item.getCopyright());
+    }
+
+    private void putReference(Reference reference) {
+        putString(reference.getId());
+        putString(reference.getLabel());
+        putString(reference.getUrl());
+    }
+
+    private void putGuideDefinition(GuideDefinition definition) {
+        putMap(definition.getDataBindings(), this::putDataBinding);
+        putList(definition.getInternalVariables(), this::putInternalVariable);
+        putMap(definition.getTemplates(), this::putTemplate);
+        putList(definition.getPreConditions(), this::putExpression);
+        putList(definition.getDefaultActions(), this::putExpression);
+        putMap(definition.getRules(), this::putRule);
+    }
+
+    private void putDataBinding(DataBinding dataBinding) {
+        putString(dataBinding.getId());
+        putEnum(dataBinding.getType());
+        putString(dataBinding.getModelId());
+        putString(dataBinding.getTemplateId());
+        putMap(dataBinding.getElements(), this::putElement);
+        putList(dataBinding.getPredicates(), this::putExpression);
+    }
+
+    private void putElement(Element element) {
+        putString(element.getId());
+        putString(element.getPath());
+    }
+
+    private void putInternalVariable(InternalVariable internalVariable) {
+        putString(internalVariable.getId());
+        putEnum(internalVariable.getDataType());
+    }
+
+    private void putTemplate(Template template) {
+        putString(template.getId());
+        putString(template.getName());
+        putString(template.getModelId());
+        putString(template.getTemplateId());
+        putMap(template.getObject(), this::putValue);
+        putList(template.getElementBindings(), this::putElementBinding);
+    }
+
+    private void putElementBinding(ElementBinding elementBinding) {
+        putString(elementBinding.getPath());
+        putString(elementBinding.getType());
+    }
+
+    private void putRule(Rule rule) {
+        putString(rule.getId());
+        putList(rule.getWhen(), this::putExpression);
+        putList(rule.getThen(), this::putExpression);
+        putList(rule.getCards(), this::putCard);
+        putInt(rule.getPriority());
+    }
+
+    private void putCard(Card card) {
+        putString(card.getSummary());
+        putString(card.getDetail());
+        putEnum(card.getIndicator());
+        putObject(card.getSource(), this::putSource);
+        putList(card.getSuggestions(), this::putSuggestion);
+        putList(card.getLinks(), this::putLink);
+    }
+
+    private void putSource(Source source) {
+        putString(source.getLabel());
+        putString(source.getUrl() == null ? null : source.getUrl().toString());
+        putString(source.getIcon() == null ? null : source.getIcon().toString());
+        putString(source.getLabelReference());
+        putString(source.getUrlReference());
+    }
+
+    private void putSuggestion(Suggestion suggestion) {
+        putString(suggestion.getUuid() == null ? null : suggestion.getUuid().toString());
+        putString(suggestion.getLabel());
+        putList(suggestion.getActions(), this::putAction);
+    }
+
+    private void putAction(Action action) {
+        putEnum(action.getType());
+        putString(action.getDescription());
+        putValue(action.getResource());
+        putObject(action.getResourceTemplate(), this::putUseTemplate);
+    }
+
+    private void putUseTemplate(UseTemplate useTemplate) {
+        putString(useTemplate.getTemplateId());
+        putList(useTemplate.getAssignments(), this::putExpression);
+    }
+
+    private void putLink(Link link) {
+        putString(link.getLabel());
+        putString(link.getUrl() == null ? null : link.getUrl().toString());
+        putEnum(link.getType());
+        putString(link.getLabelReference());
+        putString(link.getUrlReference());
+    }
+
+    private void putGuideOntology(GuideOntology ontology) {
+        putMap(ontology.getTermDefinitions(), this::putTermDefinition);
+        putMap(ontology.getTermBindings(), this::putTermBinding);
+    }
+
+    private void putTermDefinition(TermDefinition termDefinition) {
+        putString(termDefinition.getId());
+        putMap(termDefinition.getTerms(), this::putTerm);
+    }
+
+    private void putTerm(Term term) {
+        putString(term.getId());
+        putString(term.getText());
+        putString(term.getDescription());
+    }
+
+    private void putTermBinding(TermBinding termBinding) {
+        putString(termBinding.getId());
+        putMap(termBinding.getBindings(), this::putBinding);
+    }
+
+    private void putBinding(Binding binding) {
+        putString(binding.getId());
+        putList(binding.getCodes(), codePhrase -> putObject(codePhrase, this::putCodePhrase));
+        putString(binding.getUri());
+    }
+
+    private void putTestCase(TestCase testCase) {
+        putString(testCase.getId());
+        putMap(testCase.getInput(), this::putString);
+        putMap(testCase.getExpectedOutput(), this::putString);
+    }
+
+    private void putCodePhrase(CodePhrase codePhrase) {
+        putString(codePhrase.getTerminology());
+        putString(codePhrase.getCode());
+    }
+
+    /*
+     * tag of the node then its fields; constants keep the text they were parsed from, which is part of their equality
+     */
+    private void putExpression(ExpressionItem item) {
+        if (item == null) {
+            putByte(NULL);
+        } else if (item instanceof ReferenceVariable) {
+            putByte(REFERENCE_VARIABLE);
+            putInt(((ReferenceVariable) item).getIndex());
+            putString(((ReferenceVariable) item).getAttribute());
+        } else if (item.getClass() == Variable.class) {
+            putByte(VARIABLE);
+            putVariable((Variable) item);
+        } else if (item instanceof ConstantExpression) {
+            putConstant((ConstantExpression) item);
+        } else if (item instanceof UnaryExpression) {
+            putByte(UNARY);
+            putExpression(((UnaryExpression) item).getOperand());
+            putEnum(((UnaryExpression) item).getOperator());
+        } else if (item instanceof BinaryExpression) {
+            putByte(BINARY);
+            putExpression(((BinaryExpression) item).getLeft());
+            putExpression(((BinaryExpression) item).getRight());
+            putEnum(((BinaryExpression) item).getOperator());
+        } else if (item instanceof LongExpression) {
+            putByte(LONG);
+            putList(((LongExpression) item).getItems(), operandPair -> {
+                putExpression(operandPair.getExpressionItem());
+                putEnum(operandPair.getOperator());
+            });
+        } else if (item instanceof FunctionalExpression) {
+            putByte(FUNCTIONAL);
+            putString(((FunctionalExpression) item).getFunction().toString());
+            putList(((FunctionalExpression) item).getItems(), this::putExpression);
+        } else if (item instanceof CreateInstanceExpression) {
+            putByte(CREATE_INSTANCE);
+            putVariable(((CreateInstanceExpression) item).getVariable());
+            putList(((CreateInstanceExpression) item).getAssignmentExpressions(), this::putExpression);
+        } else if (item.getClass() == AssignmentExpression.class) {
+            putByte(ASSIGNMENT);
+            putVariable(((AssignmentExpression) item).getVariable());
+            putExpression(((AssignmentExpression) item).getAssignment());
+        } else if (item instanceof MultipleAssignmentExpression) {
+            putByte(MULTIPLE_ASSIGNMENT);
+            putList(((MultipleAssignmentExpression) item).getAssignmentExpressions(), this::putExpression);
+        } else if (item instanceof UseTemplateExpression) {
+            UseTemplateExpression useTemplate = (UseTemplateExpression) item;
+            putByte(USE_TEMPLATE);
+            putVariable(useTemplate.getVariable());
+            putList(useTemplate.getAssignmentExpressions(), this::putExpression);
+            putList(useTemplate.getIfVariables(), this::putExpression);
+            if (useTemplate.getInputVariableMap() == null) {
+                putInt(NONE);
+            } else {
+                putInt(useTemplate.getInputVariableMap().size());
+                for (Map.Entry<Variable, List<Variable>> entry : useTemplate.getInputVariableMap().entrySet()) {
+                    putExpression(entry.getKey());
+                    putList(entry.getValue(), this::putExpression);
+                }
+            }
+        } else if (item instanceof AnyExpression) {
+            putByte(ANY);
+            putList(((AnyExpression) item).getInputVariables(), this::putExpression);
+            putExpression(((AnyExpression) item).getOperand());
+        } else {
+            throw new IllegalArgumentException("Unsupported expression in guideline bundle: " + item.getClass().getName());
+        }
+    }
+
+    private void putVariable(Variable variable) {
+        putString(variable.getCode());
+        putString(variable.getName());
+        putString(variable.getPath());
+        putString(variable.getAttribute());
+    }
+
+    private void putConstant(ConstantExpression constant) {
+        if (constant instanceof StringConstant) {
+            putByte(STRING_CONSTANT);
+            putString(((StringConstant) constant).getString());
+        } else if (constant instanceof IntegerConstant) {
+            putByte(INTEGER_CONSTANT);
+            putString(constant.getValue());
+        } else if (constant instanceof DoubleConstant) {
+            putByte(DOUBLE_CONSTANT);
+            putString(constant.getValue());
+        } else if (constant instanceof DateTimeConstant) {
+            putByte(DATE_TIME_CONSTANT);
+            putString(constant.getValue());
+        } else if (constant instanceof QuantityConstant) {
+            DvQuantity quantity = ((QuantityConstant) constant).getQuantity();
+            putByte(QUANTITY_CONSTANT);
+            putString(quantity.getUnit());
+            ensure(Double.BYTES + Integer.BYTES);
+            record.putDouble(quantity.getMagnitude()).putInt(quantity.getPrecision());
+        } else if (constant instanceof CodedTextConstant) {
+            putByte(CODED_TEXT_CONSTANT);
+            putCodedText(((CodedTextConstant) constant).getCodedText());
+        } else if (constant instanceof CodePhraseConstant) {
+            putByte(CODE_PHRASE_CONSTANT);
+            putCodePhrase(((CodePhraseConstant) constant).getCodePhrase());
+        } else if (constant instanceof OrdinalConstant) {
+            putByte(ORDINAL_CONSTANT);
+            putInt(((OrdinalConstant) constant).getOrdinal().getValue());
+            putCodedText(((OrdinalConstant) constant).getOrdinal().getSymbol());
+        } else if (constant instanceof MathConstant) {
+            putByte(MATH_CONSTANT);
+            putEnum(((MathConstant) constant).getConstant());
+        } else if (constant.getClass() == ConstantExpression.class) {
+            putByte(CONSTANT);
+            putString(constant.getValue());
+        } else {
+            throw new IllegalArgumentException("Unsupported constant in guideline bundle: " + constant.getClass().getName());
+        }
+    }
+
+    private void putCodedText(DvCodedText codedText) {
+        putString(codedText.getValue());
+        putCodePhrase(codedText.getDefiningCode());
+    }
+
+    /*
+     * value of a template object or a resource, as read from json
+     */
+    @SuppressWarnings("unchecked")
+    private void putValue(Object value) {
+        if (value == null) {
+            putByte(NULL);
+        } else if (value instanceof String) {
+            putByte(STRING_VALUE);
+            putString((String) value);
+        } else if (value instanceof Double) {
+            putByte(DOUBLE_VALUE);
+            ensure(Double.BYTES);
+            record.putDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            putByte(BOOLEAN_VALUE);
+            putByte((byte) ((Boolean) value ? 1 : 0));
+        } else if (value instanceof List) {
+            putByte(LIST_VALUE);
+            putList((List<Object>) value, this::putValue);
+        } else if (value instanceof Map) {
+            putByte(MAP_VALUE);
+            putMap((Map<String, Object>) value, this::putValue);
+        } else {
+            throw new IllegalArgumentException("Unsupported value in guideline bundle: " + value.getClass().getName());
+        }
+    }
+
+    private <T> void putObject(T object, Consumer<T> writer) {
+        putByte((byte) (object == null ? 0 : 1));
+        if (object != null) {
+            writer.accept(object);
+        }
+    }
+
+    private <T> void putList(List<T> list, Consumer<T> writer) {
+        if (list == null) {
+            putInt(NONE);
+            return;
+        }
+        putInt(list.size());
+        for (T element : list) {
+            writer.accept(element);
+        }
+    }
+
+    private <T> void putMap(Map<String, T> map, Consumer<T> writer) {
+        if (map == null) {
+            putInt(NONE);
+            return;
+        }
+        putInt(map.size());
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            putString(entry.getKey());
+            writer.accept(entry.getValue());
+        }
+    }
+
+    private void putEnum(Enum<?> constant) {
+        putString(constant == null ? null : constant.name());
+    }
+
+    private void putString(String value) {
+        putInt(symbol(value));
+    }
+
+    private void putInt(int value) {
+        ensure(Integer.BYTES);
+        record.putInt(value);
+    }
+
+    private void putByte(byte value) {
+        ensure(1);
+        record.put(value);
+    }
+
+    private int symbol(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        return symbols.computeIfAbsent(value, key -> {
+            symbolList.add(key);
+            return symbolList.size() - 1;
+        });
+    }
+
+    private void ensure(int bytes) {
+        if (record.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(record.capacity() * 2, record.position() + bytes));
+            record.flip();
+            grown.put(record);
+            record = grown;
+        }
+    }
+
+    private int writeFully(ByteBuffer buffer, long at) throws IOException {
+        int size = buffer.remaining();
+        long next = at;
+        while (buffer.hasRemaining()) {
+            next += channel.write(buffer, next);
+        }
+        return size;
+    }
+}
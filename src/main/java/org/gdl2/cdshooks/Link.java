@@ -3,17 +3,20 @@ package org.gdl2.cdshooks;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.gson.annotations.SerializedName;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.Value;
 
 import java.net.URL;
 
-/* One of the requirements of cds-service, is to
-   be able to override a link's url,
-   thus Link class uses the @Data annotation instead of @Value
+/* Links are part of guidelines shared between threads, so they are immutable;
+   cds-service overrides a link's url on a copy made by toBuilder()
  */
-@Data
-@Builder
+@Value
+@Builder(toBuilder = true)
+@NoArgsConstructor(force = true)
+@AllArgsConstructor
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class Link {
     private String label;
@@ -0,0 +1,41 @@
+package org.gdl2.codegen;
+
+import org.gdl2.cdshooks.Card;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.CompiledGuideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A guideline built into a class, e.g. generated by {@link GuidelineSourceGenerator}, ready to execute without
+ * loading or parsing it.
+ */
+public interface ExecutableGuideline {
+
+    /**
+     * The guideline, equal to the one loaded from its Gdl2 json.
+     */
+    Guideline getGuideline();
+
+    /**
+     * The guideline compiled once for all executions.
+     */
+    CompiledGuideline getCompiledGuideline();
+
+    /**
+     * Executes the guideline on the input, as {@link Interpreter#executeGuidelines(List, List)} does.
+     */
+    default List<DataInstance> execute(Interpreter interpreter, List<DataInstance> inputDataInstances) {
+        return interpreter.executeCompiledGuidelines(Collections.singletonList(getCompiledGuideline()), inputDataInstances);
+    }
+
+    /**
+     * Executes the guideline on the input, as {@link Interpreter#executeCdsHooksGuidelines(List, List)} does.
+     */
+    default List<Card> executeCdsHooks(Interpreter interpreter, List<DataInstance> inputDataInstances) {
+        return interpreter.executeCompiledCdsHooksGuidelines(Collections.singletonList(getCompiledGuideline()), inputDataInstances);
+    }
+}
@@ -0,0 +1,51 @@
+package org.gdl2.codegen;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the lists, maps and urls of the guidelines generated by {@link GuidelineSourceGenerator}, which keep their
+ * code short by calling it. Lists and maps are unmodifiable as when loaded from json.
+ */
+public final class GeneratedGuidelineSupport {
+
+    private GeneratedGuidelineSupport() {
+    }
+
+    @SafeVarargs
+    public static <T> List<T> list(T... elements) {
+        return Collections.unmodifiableList(new ArrayList<>(Arrays.asList(elements)));
+    }
+
+    /**
+     * Unmodifiable map of the keys and values in order.
+     *
+     * @param keysAndValues each key followed by its value
+     * @return the map
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> Map<K, V> map(Object... keysAndValues) {
+        if (keysAndValues.length % 2 != 0) {
+            throw new IllegalArgumentException("Key without value");
+        }
+        Map<K, V> map = new LinkedHashMap<>();
+        for (int key = 0; key < keysAndValues.length; key += 2) {
+            map.put((K) keysAndValues[key], (V) keysAndValues[key + 1]);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    public static URL url(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException exception) {
+            throw new IllegalArgumentException(exception);
+        }
+    }
+}
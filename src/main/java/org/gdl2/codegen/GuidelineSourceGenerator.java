@@ -0,0 +1,880 @@
+package org.gdl2.codegen;
+
+import org.gdl2.Gdl2;
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.cdshooks.UseTemplate;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.AnyExpression;
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.CodePhraseConstant;
+import org.gdl2.expression.CodedTextConstant;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.DateTimeConstant;
+import org.gdl2.expression.DoubleConstant;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.FunctionalExpression;
+import org.gdl2.expression.IntegerConstant;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.MathConstant;
+import org.gdl2.expression.MultipleAssignmentExpression;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.OrdinalConstant;
+import org.gdl2.expression.QuantityConstant;
+import org.gdl2.expression.ReferenceVariable;
+import org.gdl2.expression.StringConstant;
+import org.gdl2.expression.UnaryExpression;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.GuideOntology;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.InternalVariable;
+import org.gdl2.model.Rule;
+import org.gdl2.model.Template;
+import org.gdl2.resources.Language;
+import org.gdl2.resources.Reference;
+import org.gdl2.resources.ResourceDescription;
+import org.gdl2.resources.ResourceDescriptionItem;
+import org.gdl2.resources.TranslationDetails;
+import org.gdl2.runtime.GeneratedExpression;
+import org.gdl2.terminology.Binding;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermBinding;
+import org.gdl2.terminology.TermDefinition;
+import org.gdl2.test.TestCase;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Generates the Java source of a class implementing {@link ExecutableGuideline} that builds a guideline, with its
+ * expressions, templates and terms, by straight-line constructor calls instead of loading and parsing its Gdl2 json.
+ *
+ * <p>The class also evaluates the when conditions, assigned values, pre-conditions and data binding predicates of the
+ * guideline by generated code: one method per expression evaluating its logical, arithmetic, relational, equality
+ * and is-a operators, with arithmetic and comparisons computed on unboxed doubles when all their operands are
+ * numbers. The operands, e.g. variables, constants and functions, are evaluated by the nodes compiled by the
+ * interpreter, and so are operators on other values, e.g. quantities and date times. The class compiles the guideline
+ * once, on first use, with these evaluators as {@link GeneratedExpression}s.
+ *
+ * <p>The guideline is split into one method per data binding, template, rule, term definition, term binding,
+ * test case and evaluated expression, so large guidelines stay within the size limits of methods.
+ *
+ * <p>Run from the command line with the Gdl2 json file, the source directory, the package and optionally the
+ * name of the class, by default the id of the guideline.
+ */
+public final class GuidelineSourceGenerator {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*");
+    private static final String SUPPORT = GeneratedGuidelineSupport.class.getSimpleName();
+    private static final String[] IMPORTS = {
+            "org.gdl2.cdshooks.Action", "org.gdl2.cdshooks.Card", "org.gdl2.cdshooks.Link", "org.gdl2.cdshooks.Source",
+            "org.gdl2.cdshooks.Suggestion", "org.gdl2.cdshooks.UseTemplate", "org.gdl2.codegen.ExecutableGuideline",
+            "org.gdl2.codegen.GeneratedGuidelineSupport", "org.gdl2.datatypes.CodePhrase", "org.gdl2.datatypes.DvCodedText",
+            "org.gdl2.datatypes.DvOrdinal", "org.gdl2.datatypes.DvQuantity", "org.gdl2.expression.*", "org.gdl2.model.DataBinding",
+            "org.gdl2.model.Element", "org.gdl2.model.ElementBinding", "org.gdl2.model.GuideDefinition", "org.gdl2.model.GuideOntology",
+            "org.gdl2.model.Guideline", "org.gdl2.model.InternalVariable", "org.gdl2.model.Rule", "org.gdl2.model.Template",
+            "org.gdl2.resources.Language", "org.gdl2.resources.Reference", "org.gdl2.resources.ResourceDescription",
+            "org.gdl2.resources.ResourceDescriptionItem", "org.gdl2.resources.TranslationDetails", "org.gdl2.runtime.CompiledGuideline",
+            "org.gdl2.runtime.EvaluationContext", "org.gdl2.runtime.GeneratedExpression", "org.gdl2.runtime.GuidelineCompiler",
+            "org.gdl2.terminology.Binding", "org.gdl2.terminology.Term", "org.gdl2.terminology.TermBinding",
+            "org.gdl2.terminology.TermDefinition", "org.gdl2.test.TestCase", "java.util.IdentityHashMap", "java.util.List",
+            "java.util.Map", "java.util.UUID"};
+    private static final Set<OperatorKind> ARITHMETIC_OPERATORS = EnumSet.of(OperatorKind.ADDITION, OperatorKind.SUBTRACTION,
+            OperatorKind.MULTIPLICATION, OperatorKind.DIVISION, OperatorKind.EXPONENT);
+    private static final Set<OperatorKind> RELATIONAL_OPERATORS = EnumSet.of(OperatorKind.GREATER_THAN,
+            OperatorKind.GREATER_THAN_OR_EQUAL, OperatorKind.LESS_THAN, OperatorKind.LESS_THAN_OR_EQUAL);
+    private static final int EVALUATORS_PER_METHOD = 200;
+
+    private final String className;
+    private final StringBuilder methods = new StringBuilder();
+    private final List<String> evaluators = new ArrayList<>();
+    private int methodCount;
+    private int node;
+    private int local;
+
+    private GuidelineSourceGenerator(String className) {
+        this.className = className;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("Usage: GuidelineSourceGenerator <guideline.gdl2.json> <source directory> <package> [class name]");
+            System.exit(1);
+        }
+        Guideline guideline;
+        try (Reader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            guideline = Gdl2.fromGdl2(reader);
+        }
+        if (guideline == null) {
+            throw new IllegalArgumentException("No guideline in " + args[0]);
+        }
+        String className = args.length == 4 ? args[3] : className(guideline.getId());
+        Path directory = Paths.get(args[1], args[2].split("\\."));
+        Files.createDirectories(directory);
+        Path source = directory.resolve(className + ".java");
+        try (Writer writer = Files.newBufferedWriter(source, StandardCharsets.UTF_8)) {
+            writer.write(generate(guideline, args[2], className));
+        }
+        System.err.println("Generated " + source);
+    }
+
+    /**
+     * Name of the class generated by default for a guideline: its id with other characters than letters, digits and
+     * underscores replaced by underscores.
+     *
+     * @param guidelineId id of the guideline, e.g. BSA_Calculation.v1
+     * @return the class name, e.g. BSA_Calculation_v1
+     */
+    public static String className(String guidelineId) {
+        if (guidelineId == null || guidelineId.isEmpty()) {
+            throw new IllegalArgumentException("Guideline without id");
+        }
+        String name = guidelineId.replaceAll("[^A-Za-z0-9_]", "_");
+        return Character.isJavaIdentifierStart(name.charAt(0)) ? name : "_" + name;
+    }
+
+    /**
+     * Generates the source of a class building the guideline.
+     *
+     * @param guideline   the guideline
+     * @param packageName package of the class, empty for the default package
+     * @param className   simple name of the class
+     * @return the Java source of the class
+     */
+    public static String generate(Guideline guideline, String packageName, String className) {
+        if (guideline == null) {
+            throw new IllegalArgumentException("null guideline");
+        }
+        if (packageName == null || !(packageName.isEmpty() || packageName.matches("[A-Za-z_$][A-Za-z0-9_$]*(\\.[A-Za-z_$][A-Za-z0-9_$]*)*"))) {
+            throw new IllegalArgumentException("Invalid package: " + packageName);
+        }
+        if (className == null || !IDENTIFIER.matcher(className).matches()) {
+            throw new IllegalArgumentException("Invalid class name: " + className);
+        }
+        return new GuidelineSourceGenerator(className).classSource(guideline, packageName);
+    }
+
+    private String classSource(Guideline guideline, String packageName) {
+        final String guidelineExpression = guideline(guideline);
+        if (guideline.getDefinition() != null) {
+            evaluators(guideline.getDefinition());
+        }
+        final String evaluatorsMethods = evaluatorsMethods();
+        StringBuilder source = new StringBuilder();
+        source.append("// Generated by ").append(getClass().getName()).append(" from guideline ").append(comment(guideline.getId()))
+                .append(", do not edit.\n");
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n");
+        }
+        source.append('\n');
+        for (String importName : IMPORTS) {
+            source.append("import ").append(importName).append(";\n");
+        }
+        source.append('\n')
+                .append("public final class ").append(className).append(" implements ExecutableGuideline {\n")
+                .append("    private static final Guideline GUIDELINE = guideline();\n\n")
+                .append("    @Override\n")
+                .append("    public Guideline getGuideline() {\n")
+                .append("        return GUIDELINE;\n")
+                .append("    }\n\n")
+                .append("    @Override\n")
+                .append("    public CompiledGuideline getCompiledGuideline() {\n")
+                .append("        return Compiled.COMPILED_GUIDELINE;\n")
+                .append("    }\n\n")
+                .append("    /**\n")
+                .append("     * Generated evaluators of the expressions of the guideline, by identity of their expression items.\n")
+                .append("     */\n")
+                .append("    public static Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators() {\n")
+                .append("        Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators = new IdentityHashMap<>();\n")
+                .append(evaluatorsMethods)
+                .append("        return evaluators;\n")
+                .append("    }\n\n")
+                .append("    private static Guideline guideline() {\n")
+                .append("        return ").append(guidelineExpression).append(";\n")
+                .append("    }\n")
+                .append(methods)
+                .append("\n")
+                .append("    private static final class Compiled {\n")
+                .append("        private static final CompiledGuideline COMPILED_GUIDELINE = new GuidelineCompiler().compile(GUIDELINE, evaluators());\n")
+                .append("    }\n")
+                .append("}\n");
+        return source.toString();
+    }
+
+    private String guideline(Guideline guideline) {
+        return "new Guideline(" + String.join(", ",
+                string(guideline.getId()),
+                string(guideline.getGdlVersion()),
+                string(guideline.getConcept()),
+                guideline.getLanguage() == null ? "null" : method("language", "Language", language(guideline.getLanguage())),
+                guideline.getDescription() == null ? "null" : method("description", "ResourceDescription", description(guideline.getDescription())),
+                guideline.getDefinition() == null ? "null" : method("definition", "GuideDefinition", definition(guideline.getDefinition())),
+                guideline.getOntology() == null ? "null" : method("ontology", "GuideOntology", ontology(guideline.getOntology())),
+                list("TestCase", guideline.getTestCases(), testCase -> testCase == null ? "null" : method("testCase", "TestCase",
+                        testCase(testCase)))) + ")";
+    }
+
+    private String language(Language language) {
+        return "new Language(" + codePhrase(language.getOriginalLanguage()) + ", "
+                + map("TranslationDetails", language.getTranslations(), this::translationDetails) + ")";
+    }
+
+    private String translationDetails(TranslationDetails details) {
+        return details == null ? "null" : "new TranslationDetails(" + string(details.getId()) + ", " + codePhrase(details.getLanguage()) + ", "
+                + map("String", details.getAuthor(), this::string) + ")";
+    }
+
+    private String description(ResourceDescription description) {
+        return "new ResourceDescription(" + String.join(", ",
+                map("String", description.getOriginalAuthor(), this::string),
+                list("String", description.getOtherContributors(), this::string),
+                string(description.getLifecycleState()),
+                string(description.getResourcePackageUri()),
+                map("ResourceDescriptionItem", description.getDetails(), this::descriptionItem),
+                map("String", description.getOtherDetails(), this::string),
+                list("Reference", description.getReferences(), this::reference)) + ")";
+    }
+
+    private String descriptionItem(ResourceDescriptionItem item) {
+        return item == null ? "null" : "new ResourceDescriptionItem(" + String.join(", ",
+                string(item.getId()),
+                codePhrase(item.getLanguage()),
+                string(item.getPurpose()),
+                list("String", item.getKeywords(), this::string),
+                string(item.getUse()),
+                string(item.getMisuse()),
+                string(item.getCopyright())) + ")";
+    }
+
+    private String reference(Reference reference) {
+        return reference == null ? "null"
+                : "new Reference(" + string(reference.getId()) + ", " + string(reference.getLabel()) + ", " + string(reference.getUrl()) + ")";
+    }
+
+    private String definition(GuideDefinition definition) {
+        return "new GuideDefinition(" + String.join(", ",
+                map("DataBinding", definition.getDataBindings(), dataBinding -> dataBinding == null ? "null"
+                        : method("dataBinding", "DataBinding", dataBinding(dataBinding))),
+                list("InternalVariable", definition.getInternalVariables(), this::internalVariable),
+                map("Template", definition.getTemplates(), template -> template == null ? "null" : method("template", "Template", template(template))),
+                expressions("preConditions", definition.getPreConditions()),
+                expressions("defaultActions", definition.getDefaultActions()),
+                map("Rule", definition.getRules(), rule -> rule == null ? "null" : method("rule", "Rule", rule(rule)))) + ")";
+    }
+
+    private String dataBinding(DataBinding dataBinding) {
+        return "new DataBinding(" + String.join(", ",
+                string(dataBinding.getId()),
+                constant(dataBinding.getType()),
+                string(dataBinding.getModelId()),
+                string(dataBinding.getTemplateId()),
+                map("Element", dataBinding.getElements(), element -> element == null ? "null"
+                        : "new Element(" + string(element.getId()) + ", " + string(element.getPath()) + ")"),
+                list("ExpressionItem", dataBinding.getPredicates(), this::expression)) + ")";
+    }
+
+    private String internalVariable(InternalVariable internalVariable) {
+        return internalVariable == null ? "null"
+                : "new InternalVariable(" + string(internalVariable.getId()) + ", " + constant(internalVariable.getDataType()) + ")";
+    }
+
+    private String template(Template template) {
+        return "new Template(" + String.join(", ",
+                string(template.getId()),
+                string(template.getName()),
+                string(template.getModelId()),
+                string(template.getTemplateId()),
+                map("Object", template.getObject(), this::value),
+                list("ElementBinding", template.getElementBindings(), this::elementBinding)) + ")";
+    }
+
+    private String elementBinding(ElementBinding elementBinding) {
+        return elementBinding == null ? "null"
+                : "new ElementBinding(" + string(elementBinding.getPath()) + ", " + string(elementBinding.getType()) + ")";
+    }
+
+    private String rule(Rule rule) {
+        return "new Rule(" + String.join(", ",
+                string(rule.getId()),
+                list("ExpressionItem", rule.getWhen(), this::expression),
+                list("ExpressionItem", rule.getThen(), this::expression),
+                list("Card", rule.getCards(), this::card),
+                Integer.toString(rule.getPriority())) + ")";
+    }
+
+    private String card(Card card) {
+        if (card == null) {
+            return "null";
+        }
+        return "Card.builder()"
+                + ".summary(" + string(card.getSummary()) + ")"
+                + ".detail(" + string(card.getDetail()) + ")"
+                + ".indicator(" + constant(card.getIndicator()) + ")"
+                + ".source(" + source(card.getSource()) + ")"
+                + ".suggestions(" + list("Suggestion", card.getSuggestions(), this::suggestion) + ")"
+                + ".links(" + list("Link", card.getLinks(), this::link) + ")"
+                + ".build()";
+    }
+
+    private String source(Source source) {
+        if (source == null) {
+            return "null";
+        }
+        return "Source.builder()"
+                + ".label(" + string(source.getLabel()) + ")"
+                + ".url(" + url(source.getUrl()) + ")"
+                + ".icon(" + url(source.getIcon()) + ")"
+                + ".labelReference(" + string(source.getLabelReference()) + ")"
+                + ".urlReference(" + string(source.getUrlReference()) + ")"
+                + ".build()";
+    }
+
+    private String suggestion(Suggestion suggestion) {
+        if (suggestion == null) {
+            return "null";
+        }
+        return "Suggestion.builder()"
+                + ".uuid(" + (suggestion.getUuid() == null ? "null" : "UUID.fromString(" + string(suggestion.getUuid().toString()) + ")") + ")"
+                + ".label(" + string(suggestion.getLabel()) + ")"
+                + ".actions(" + list("Action", suggestion.getActions(), this::action) + ")"
+                + ".build()";
+    }
+
+    private String action(Action action) {
+        if (action == null) {
+            return "null";
+        }
+        UseTemplate resourceTemplate = action.getResourceTemplate();
+        return "Action.builder()"
+                + ".type(" + constant(action.getType()) + ")"
+                + ".description(" + string(action.getDescription()) + ")"
+                + ".resource(" + value(action.getResource()) + ")"
+                + ".resourceTemplate(" + (resourceTemplate == null ? "null" : "new UseTemplate(" + string(resourceTemplate.getTemplateId()) + ", "
+                + list("ExpressionItem", resourceTemplate.getAssignments(), this::expression) + ")") + ")"
+                + ".build()";
+    }
+
+    private String link(Link link) {
+        if (link == null) {
+            return "null";
+        }
+        return "Link.builder()"
+                + ".label(" + string(link.getLabel()) + ")"
+                + ".url(" + url(link.getUrl()) + ")"
+                + ".type(" + constant(link.getType()) + ")"
+                + ".labelReference(" + string(link.getLabelReference()) + ")"
+                + ".urlReference(" + string(link.getUrlReference()) + ")"
+                + ".build()";
+    }
+
+    private String ontology(GuideOntology ontology) {
+        return "new GuideOntology("
+                + map("TermDefinition", ontology.getTermDefinitions(), termDefinition -> termDefinition == null ? "null"
+                : method("termDefinition", "TermDefinition", termDefinition(termDefinition))) + ", "
+                + map("TermBinding", ontology.getTermBindings(), termBinding -> termBinding == null ? "null"
+                : method("termBinding", "TermBinding", termBinding(termBinding))) + ")";
+    }
+
+    private String termDefinition(TermDefinition termDefinition) {
+        return "new TermDefinition(" + string(termDefinition.getId()) + ", " + map("Term", termDefinition.getTerms(), this::term) + ")";
+    }
+
+    private String term(Term term) {
+        return term == null ? "null"
+                : "new Term(" + string(term.getId()) + ", " + string(term.getText()) + ", " + string(term.getDescription()) + ")";
+    }
+
+    private String termBinding(TermBinding termBinding) {
+        return "new TermBinding(" + string(termBinding.getId()) + ", " + map("Binding", termBinding.getBindings(), this::binding) + ")";
+    }
+
+    private String binding(Binding binding) {
+        return binding == null ? "null" : "new Binding(" + string(binding.getId()) + ", " + list("CodePhrase", binding.getCodes(), this::codePhrase)
+                + ", " + string(binding.getUri()) + ")";
+    }
+
+    private String testCase(TestCase testCase) {
+        return "new TestCase(" + string(testCase.getId()) + ", " + map("String", testCase.getInput(), this::string) + ", "
+                + map("String", testCase.getExpectedOutput(), this::string) + ")";
+    }
+
+    private String codePhrase(CodePhrase codePhrase) {
+        return codePhrase == null ? "null" : "new CodePhrase(" + string(codePhrase.getTerminology()) + ", " + string(codePhrase.getCode()) + ")";
+    }
+
+    private String codedText(DvCodedText codedText) {
+        return "new DvCodedText(" + string(codedText.getValue()) + ", " + codePhrase(codedText.getDefiningCode()) + ")";
+    }
+
+    private String expressions(String name, List<ExpressionItem> expressions) {
+        return expressions == null ? "null" : method(name, "List<ExpressionItem>", list("ExpressionItem", expressions, this::expression));
+    }
+
+    /*
+     * constructor calls building the same expression as parsed; constants from the text they were parsed from,
+     * which is part of their equality
+     */
+    private String expression(ExpressionItem item) {
+        if (item == null) {
+            return "null";
+        } else if (item instanceof ReferenceVariable) {
+            ReferenceVariable variable = (ReferenceVariable) item;
+            return "new ReferenceVariable(" + variable.getIndex() + ", " + string(variable.getAttribute()) + ")";
+        } else if (item.getClass() == Variable.class) {
+            Variable variable = (Variable) item;
+            return "new Variable(" + string(variable.getCode()) + ", " + string(variable.getName()) + ", " + string(variable.getPath()) + ", "
+                    + string(variable.getAttribute()) + ")";
+        } else if (item instanceof ConstantExpression) {
+            return constantExpression((ConstantExpression) item);
+        } else if (item instanceof UnaryExpression) {
+            UnaryExpression unary = (UnaryExpression) item;
+            return "new UnaryExpression(" + expression(unary.getOperand()) + ", " + constant(unary.getOperator()) + ")";
+        } else if (item instanceof BinaryExpression) {
+            BinaryExpression binary = (BinaryExpression) item;
+            return "BinaryExpression.create(" + expression(binary.getLeft()) + ", " + expression(binary.getRight()) + ", "
+                    + constant(binary.getOperator()) + ")";
+        } else if (item instanceof LongExpression) {
+            return "new LongExpression(" + list("LongExpression.OperandPair", ((LongExpression) item).getItems(), operandPair ->
+                    "new LongExpression.OperandPair(" + expression(operandPair.getExpressionItem()) + ", " + constant(operandPair.getOperator()) + ")")
+                    + ")";
+        } else if (item instanceof FunctionalExpression) {
+            FunctionalExpression functional = (FunctionalExpression) item;
+            return "FunctionalExpression.create(new Function(" + string(functional.getFunction().toString()) + "), "
+                    + list("ExpressionItem", functional.getItems(), this::expression) + ")";
+        } else if (item instanceof CreateInstanceExpression) {
+            CreateInstanceExpression createInstance = (CreateInstanceExpression) item;
+            return "new CreateInstanceExpression(" + expression(createInstance.getVariable()) + ", "
+                    + list("AssignmentExpression", createInstance.getAssignmentExpressions(), this::expression) + ")";
+        } else if (item.getClass() == AssignmentExpression.class) {
+            AssignmentExpression assignment = (AssignmentExpression) item;
+            return "new AssignmentExpression(" + expression(assignment.getVariable()) + ", " + expression(assignment.getAssignment()) + ")";
+        } else if (item instanceof MultipleAssignmentExpression) {
+            return "new MultipleAssignmentExpression(" + list("AssignmentExpression",
+                    ((MultipleAssignmentExpression) item).getAssignmentExpressions(), this::expression) + ")";
+        } else if (item instanceof UseTemplateExpression) {
+            UseTemplateExpression useTemplate = (UseTemplateExpression) item;
+            String inputVariableMap = "null";
+            if (useTemplate.getInputVariableMap() != null) {
+                List<String> entries = new ArrayList<>();
+                for (Map.Entry<Variable, List<Variable>> entry : useTemplate.getInputVariableMap().entrySet()) {
+                    entries.add(expression(entry.getKey()));
+                    entries.add(list("Variable", entry.getValue(), this::expression));
+                }
+                inputVariableMap = SUPPORT + ".<Variable, List<Variable>>map(" + String.join(", ", entries) + ")";
+            }
+            return "new UseTemplateExpression(" + String.join(", ",
+                    expression(useTemplate.getVariable()),
+                    list("AssignmentExpression", useTemplate.getAssignmentExpressions(), this::expression),
+                    list("Variable", useTemplate.getIfVariables(), this::expression),
+                    inputVariableMap) + ")";
+        } else if (item instanceof AnyExpression) {
+            AnyExpression any = (AnyExpression) item;
+            return "new AnyExpression(" + list("Variable", any.getInputVariables(), this::expression) + ", " + expression(any.getOperand()) + ")";
+        }
+        throw new IllegalArgumentException("Unsupported expression: " + item.getClass().getName());
+    }
+
+    private String constantExpression(ConstantExpression constant) {
+        if (constant instanceof StringConstant) {
+            return "new StringConstant(" + string(((StringConstant) constant).getString()) + ")";
+        } else if (constant instanceof IntegerConstant) {
+            return "new IntegerConstant(" + string(constant.getValue()) + ")";
+        } else if (constant instanceof DoubleConstant) {
+            return "new DoubleConstant(" + string(constant.getValue()) + ")";
+        } else if (constant instanceof DateTimeConstant) {
+            return "new DateTimeConstant(" + string(constant.getValue()) + ")";
+        } else if (constant instanceof QuantityConstant) {
+            DvQuantity quantity = ((QuantityConstant) constant).getQuantity();
+            return "new QuantityConstant(new DvQuantity(" + string(quantity.getUnit()) + ", " + doubleValue(quantity.getMagnitude()) + ", "
+                    + quantity.getPrecision() + "))";
+        } else if (constant instanceof CodedTextConstant) {
+            DvCodedText codedText = ((CodedTextConstant) constant).getCodedText();
+            return "new CodedTextConstant(" + string(codedText.getValue()) + ", " + codePhrase(codedText.getDefiningCode()) + ")";
+        } else if (constant instanceof CodePhraseConstant) {
+            return "new CodePhraseConstant(" + codePhrase(((CodePhraseConstant) constant).getCodePhrase()) + ")";
+        } else if (constant instanceof OrdinalConstant) {
+            return "new OrdinalConstant(new DvOrdinal(" + ((OrdinalConstant) constant).getOrdinal().getValue() + ", "
+                    + codedText(((OrdinalConstant) constant).getOrdinal().getSymbol()) + "))";
+        } else if (constant instanceof MathConstant) {
+            return "MathConstant.create(" + constant(((MathConstant) constant).getConstant()) + ")";
+        } else if (constant.getClass() == ConstantExpression.class) {
+            return "new ConstantExpression(" + string(constant.getValue()) + ")";
+        }
+        throw new IllegalArgumentException("Unsupported constant: " + constant.getClass().getName());
+    }
+
+    /*
+     * evaluators of the expressions the guideline compiler compiles from the definition, by the paths of their
+     * expression items from the definition of the guideline
+     */
+    private void evaluators(GuideDefinition definition) {
+        String path = "GUIDELINE.getDefinition()";
+        if (definition.getDataBindings() != null) {
+            for (Map.Entry<String, DataBinding> entry : definition.getDataBindings().entrySet()) {
+                List<ExpressionItem> predicates = entry.getValue() == null ? null : entry.getValue().getPredicates();
+                for (int index = 0; predicates != null && index < predicates.size(); index++) {
+                    if (isBooleanPredicate(predicates.get(index))) {
+                        evaluator(path + ".getDataBindings().get(" + string(entry.getKey()) + ").getPredicates().get(" + index + ")",
+                                predicates.get(index));
+                    }
+                }
+            }
+        }
+        expressionEvaluators(path + ".getPreConditions()", definition.getPreConditions());
+        statementEvaluators(path + ".getDefaultActions()", definition.getDefaultActions());
+        if (definition.getRules() != null) {
+            for (Map.Entry<String, Rule> entry : definition.getRules().entrySet()) {
+                if (entry.getValue() != null) {
+                    String rulePath = path + ".getRules().get(" + string(entry.getKey()) + ")";
+                    expressionEvaluators(rulePath + ".getWhen()", entry.getValue().getWhen());
+                    statementEvaluators(rulePath + ".getThen()", entry.getValue().getThen());
+                }
+            }
+        }
+    }
+
+    /*
+     * predicates the guideline compiler evaluates as boolean expressions, the others select data instances otherwise
+     */
+    private static boolean isBooleanPredicate(ExpressionItem predicate) {
+        ExpressionItem operator = GeneratedExpression.operator(predicate);
+        return operator instanceof BinaryExpression && ((BinaryExpression) operator).getLeft() instanceof Variable
+                && ((BinaryExpression) operator).getOperator() != OperatorKind.IS_A;
+    }
+
+    private void expressionEvaluators(String path, List<ExpressionItem> expressions) {
+        for (int index = 0; expressions != null && index < expressions.size(); index++) {
+            evaluator(path + ".get(" + index + ")", expressions.get(index));
+        }
+    }
+
+    /*
+     * values assigned by the statements, as compiled by the guideline compiler
+     */
+    private void statementEvaluators(String path, List<? extends ExpressionItem> statements) {
+        for (int index = 0; statements != null && index < statements.size(); index++) {
+            ExpressionItem statement = statements.get(index);
+            String statementPath = path + ".get(" + index + ")";
+            if (statement instanceof CreateInstanceExpression) {
+                statementEvaluators("((CreateInstanceExpression) " + statementPath + ").getAssignmentExpressions()",
+                        ((CreateInstanceExpression) statement).getAssignmentExpressions());
+            } else if (statement instanceof AssignmentExpression) {
+                evaluator("((AssignmentExpression) " + statementPath + ").getAssignment()", ((AssignmentExpression) statement).getAssignment());
+            } else if (statement instanceof UseTemplateExpression && ((UseTemplateExpression) statement).getAssignmentExpressions() != null) {
+                List<AssignmentExpression> assignments = ((UseTemplateExpression) statement).getAssignmentExpressions();
+                for (int assignment = 0; assignment < assignments.size(); assignment++) {
+                    evaluator("((UseTemplateExpression) " + statementPath + ").getAssignmentExpressions().get(" + assignment + ").getAssignment()",
+                            assignments.get(assignment).getAssignment());
+                }
+            }
+        }
+    }
+
+    /*
+     * a method evaluating the expression if it has an operator, its nodes numbered as by the generated expression
+     */
+    private void evaluator(String path, ExpressionItem expression) {
+        if (GeneratedExpression.operator(expression) == null) {
+            return;
+        }
+        String method = "evaluate" + methodCount++;
+        StringBuilder body = new StringBuilder();
+        node = 0;
+        local = 0;
+        String value = evaluation(expression, "        ", body);
+        methods.append('\n')
+                .append("    private static Object ").append(method).append("(GeneratedExpression e, EvaluationContext c) {\n")
+                .append(body)
+                .append("        return ").append(value).append(";\n")
+                .append("    }\n");
+        evaluators.add("evaluators.put(" + path + ", " + className + "::" + method + ");");
+    }
+
+    /*
+     * statements evaluating the node into a new local, which is returned; logical operators short-circuit as compiled
+     */
+    private String evaluation(ExpressionItem expression, String indent, StringBuilder body) {
+        int index = node++;
+        ExpressionItem operator = GeneratedExpression.operator(expression);
+        if (operator == null) {
+            return declare("e.operand(" + index + ", c)", indent, body);
+        } else if (operator instanceof UnaryExpression) {
+            return declare("GeneratedExpression.not(" + evaluation(((UnaryExpression) operator).getOperand(), indent, body) + ")", indent, body);
+        }
+        BinaryExpression binaryExpression = (BinaryExpression) operator;
+        OperatorKind operatorKind = binaryExpression.getOperator();
+        if (operatorKind == OperatorKind.AND || operatorKind == OperatorKind.OR) {
+            String shortCircuit = operatorKind == OperatorKind.AND ? "Boolean.FALSE" : "Boolean.TRUE";
+            String left = evaluation(binaryExpression.getLeft(), indent, body);
+            String value = "v" + local++;
+            body.append(indent).append("Object ").append(value).append(";\n")
+                    .append(indent).append("if (").append(shortCircuit).append(".equals(").append(left).append(")) {\n")
+                    .append(indent).append("    ").append(value).append(" = ").append(shortCircuit).append(";\n")
+                    .append(indent).append("} else {\n");
+            String right = evaluation(binaryExpression.getRight(), indent + "    ", body);
+            body.append(indent).append("    ").append(value).append(" = e.apply(").append(index).append(", ").append(left).append(", ")
+                    .append(right).append(", c);\n")
+                    .append(indent).append("}\n");
+            return value;
+        } else if (ARITHMETIC_OPERATORS.contains(operatorKind) || RELATIONAL_OPERATORS.contains(operatorKind)) {
+            return numericEvaluation(new NumericNode(index, binaryExpression, indent, body), indent, body);
+        }
+        String left = evaluation(binaryExpression.getLeft(), indent, body);
+        String right = evaluation(binaryExpression.getRight(), indent, body);
+        return declare("e.apply(" + index + ", " + left + ", " + right + ", c)", indent, body);
+    }
+
+    /*
+     * a chain of arithmetic operators, possibly below a comparison, computed on doubles if all its operands are
+     * numbers, otherwise by applying the compiled operators to the values of the operands
+     */
+    private String numericEvaluation(NumericNode chain, String indent, StringBuilder body) {
+        List<String> numbers = new ArrayList<>();
+        for (String operand : chain.operands(new ArrayList<>())) {
+            numbers.add("GeneratedExpression.isNumber(" + operand + ")");
+        }
+        String value = "v" + local++;
+        body.append(indent).append("Object ").append(value).append(";\n")
+                .append(indent).append("if (").append(String.join(" && ", numbers)).append(") {\n")
+                .append(indent).append("    ").append(value).append(" = ").append(chain.doubleExpression()).append(";\n")
+                .append(indent).append("} else {\n");
+        String objectValue = chain.objectEvaluation(indent + "    ", body);
+        body.append(indent).append("    ").append(value).append(" = ").append(objectValue).append(";\n")
+                .append(indent).append("}\n");
+        return value;
+    }
+
+    private String declare(String expression, String indent, StringBuilder body) {
+        String value = "v" + local++;
+        body.append(indent).append("Object ").append(value).append(" = ").append(expression).append(";\n");
+        return value;
+    }
+
+    /*
+     * operator of a numeric chain, its operands either operators of the chain or locals evaluated before the chain
+     */
+    private final class NumericNode {
+        private final int index;
+        private final OperatorKind operator;
+        private final Object left;
+        private final Object right;
+
+        NumericNode(int index, BinaryExpression binaryExpression, String indent, StringBuilder body) {
+            this.index = index;
+            this.operator = binaryExpression.getOperator();
+            this.left = operand(binaryExpression.getLeft(), indent, body);
+            this.right = operand(binaryExpression.getRight(), indent, body);
+        }
+
+        private Object operand(ExpressionItem expression, String indent, StringBuilder body) {
+            ExpressionItem operand = GeneratedExpression.operator(expression);
+            if (operand instanceof BinaryExpression && ARITHMETIC_OPERATORS.contains(((BinaryExpression) operand).getOperator())) {
+                return new NumericNode(node++, (BinaryExpression) operand, indent, body);
+            }
+            return evaluation(expression, indent, body);
+        }
+
+        List<String> operands(List<String> operands) {
+            for (Object operand : new Object[]{left, right}) {
+                if (operand instanceof NumericNode) {
+                    ((NumericNode) operand).operands(operands);
+                } else {
+                    operands.add((String) operand);
+                }
+            }
+            return operands;
+        }
+
+        String doubleExpression() {
+            String leftValue = doubleExpression(left);
+            String rightValue = doubleExpression(right);
+            switch (operator) {
+                case ADDITION:
+                    return "(" + leftValue + " + " + rightValue + ")";
+                case SUBTRACTION:
+                    return "(" + leftValue + " - " + rightValue + ")";
+                case MULTIPLICATION:
+                    return "(" + leftValue + " * " + rightValue + ")";
+                case DIVISION:
+                    return "(" + leftValue + " / " + rightValue + ")";
+                case EXPONENT:
+                    return "Math.pow(" + leftValue + ", " + rightValue + ")";
+                case GREATER_THAN:
+                    return leftValue + " > " + rightValue;
+                case GREATER_THAN_OR_EQUAL:
+                    return leftValue + " >= " + rightValue;
+                case LESS_THAN:
+                    return leftValue + " < " + rightValue;
+                case LESS_THAN_OR_EQUAL:
+                    return leftValue + " <= " + rightValue;
+                default:
+                    throw new IllegalStateException("Not a numeric operator: " + operator);
+            }
+        }
+
+        private String doubleExpression(Object operand) {
+            return operand instanceof NumericNode
+                    ? ((NumericNode) operand).doubleExpression() : "GeneratedExpression.toDouble(" + operand + ")";
+        }
+
+        String objectEvaluation(String indent, StringBuilder body) {
+            String leftValue = left instanceof NumericNode ? ((NumericNode) left).objectEvaluation(indent, body) : (String) left;
+            String rightValue = right instanceof NumericNode ? ((NumericNode) right).objectEvaluation(indent, body) : (String) right;
+            return declare("e.apply(" + index + ", " + leftValue + ", " + rightValue + ", c)", indent, body);
+        }
+    }
+
+    /*
+     * calls of methods putting the evaluators, a few hundred per method
+     */
+    private String evaluatorsMethods() {
+        StringBuilder calls = new StringBuilder();
+        for (int first = 0; first < evaluators.size(); first += EVALUATORS_PER_METHOD) {
+            String method = "evaluators" + methodCount++;
+            methods.append('\n')
+                    .append("    private static void ").append(method).append("(Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators) {\n");
+            for (String evaluator : evaluators.subList(first, Math.min(first + EVALUATORS_PER_METHOD, evaluators.size()))) {
+                methods.append("        ").append(evaluator).append('\n');
+            }
+            methods.append("    }\n");
+            calls.append("        ").append(method).append("(evaluators);\n");
+        }
+        return calls.toString();
+    }
+
+    /*
+     * value of a template object or a resource, unmodifiable as read from json
+     */
+    @SuppressWarnings("unchecked")
+    private String value(Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof String) {
+            return string((String) value);
+        } else if (value instanceof Double) {
+            return doubleValue((Double) value);
+        } else if (value instanceof Boolean) {
+            return value.toString();
+        } else if (value instanceof List) {
+            List<String> elements = new ArrayList<>();
+            for (Object element : (List<Object>) value) {
+                elements.add(value(element));
+            }
+            return SUPPORT + ".<Object>list(" + String.join(", ", elements) + ")";
+        } else if (value instanceof Map) {
+            List<String> entries = new ArrayList<>();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                entries.add(string(entry.getKey()));
+                entries.add(value(entry.getValue()));
+            }
+            return SUPPORT + ".<String, Object>map(" + String.join(", ", entries) + ")";
+        }
+        throw new IllegalArgumentException("Unsupported value: " + value.getClass().getName());
+    }
+
+    /*
+     * call of a new method returning the expression
+     */
+    private String method(String name, String type, String expression) {
+        String method = name + methodCount++;
+        methods.append('\n')
+                .append("    private static ").append(type).append(' ').append(method).append("() {\n")
+                .append("        return ").append(expression).append(";\n")
+                .append("    }\n");
+        return method + "()";
+    }
+
+    private <T> String list(String type, List<T> list, Function<T, String> element) {
+        return collection(type, "list", list, element);
+    }
+
+    private <T> String collection(String type, String factory, List<T> list, Function<T, String> element) {
+        if (list == null) {
+            return "null";
+        }
+        List<String> elements = new ArrayList<>(list.size());
+        for (T value : list) {
+            elements.add(element.apply(value));
+        }
+        return SUPPORT + ".<" + type + ">" + factory + "(" + String.join(",\n                ", elements) + ")";
+    }
+
+    private <T> String map(String type, Map<String, T> map, Function<T, String> value) {
+        if (map == null) {
+            return "null";
+        }
+        List<String> entries = new ArrayList<>(map.size());
+        for (Map.Entry<String, T> entry : map.entrySet()) {
+            entries.add("\n                " + string(entry.getKey()) + ", " + value.apply(entry.getValue()));
+        }
+        return SUPPORT + ".<String, " + type + ">map(" + String.join(",", entries) + ")";
+    }
+
+    private String url(java.net.URL url) {
+        return url == null ? "null" : SUPPORT + ".url(" + string(url.toString()) + ")";
+    }
+
+    private static String constant(Enum<?> constant) {
+        return constant == null ? "null" : constant.getDeclaringClass().getName().replaceFirst("^.*\\.", "").replace('$', '.') + "." + constant.name();
+    }
+
+    private static String doubleValue(double value) {
+        if (Double.isNaN(value)) {
+            return "Double.NaN";
+        } else if (Double.isInfinite(value)) {
+            return value > 0 ? "Double.POSITIVE_INFINITY" : "Double.NEGATIVE_INFINITY";
+        }
+        return Double.toString(value);
+    }
+
+    /*
+     * string literal with the characters outside printable ascii escaped; control characters as octal escapes, as
+     * unicode escapes of line breaks would end the literal
+     */
+    private String string(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+        for (int index = 0; index < value.length(); index++) {
+            char character = value.charAt(index);
+            if (character == '"' || character == '\\') {
+                literal.append('\\').append(character);
+            } else if (character < 0x20) {
+                literal.append(String.format(Locale.ROOT, "\\%03o", (int) character));
+            } else if (character >= 0x7f) {
+                literal.append(String.format(Locale.ROOT, "\\u%04x", (int) character));
+            } else {
+                literal.append(character);
+            }
+        }
+        return literal.append('"').toString();
+    }
+
+    private static String comment(String value) {
+        return value == null ? "without id" : value.replaceAll("[^A-Za-z0-9_.\\- ]", "_");
+    }
+}
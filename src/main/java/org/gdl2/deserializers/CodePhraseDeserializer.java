@@ -14,7 +14,14 @@ public class CodePhraseDeserializer implements JsonDeserializer<CodePhrase> {
         try {
             return CodePhrase.valueOf(json.getAsJsonPrimitive().getAsString());
         } catch (Exception exception) {
-            exception.printStackTrace();
+            throw new JsonParseException(exception);
+        }
+    }
+
+    static CodePhrase deserialize(String value) throws JsonParseException {
+        try {
+            return CodePhrase.valueOf(value);
+        } catch (Exception exception) {
             throw new JsonParseException(exception);
         }
     }
@@ -11,19 +11,34 @@ import java.io.StringReader;
 import java.lang.reflect.Type;
 
 public class ExpressionItemDeserializer implements JsonDeserializer<ExpressionItem> {
+    // one parser per thread, re-initialised for each expression instead of generating a new one
+    private static final ThreadLocal<ExpressionParser> PARSER = ThreadLocal.withInitial(() -> new ExpressionParser(new StringReader("")));
+
     public ExpressionItem deserialize(JsonElement json, Type type,
                                       JsonDeserializationContext context)
             throws JsonParseException {
         try {
             return parse(json.getAsJsonPrimitive().getAsString());
         } catch (Exception exception) {
-            exception.printStackTrace();
+            throw new JsonParseException(exception);
+        }
+    }
+
+    static ExpressionItem deserialize(String value) throws JsonParseException {
+        try {
+            return parseExpression(value);
+        } catch (Exception exception) {
             throw new JsonParseException(exception);
         }
     }
 
     public ExpressionItem parse(String value) throws Exception {
-        ExpressionParser parser = new ExpressionParser(new StringReader(value));
+        return parseExpression(value);
+    }
+
+    private static ExpressionItem parseExpression(String value) throws Exception {
+        ExpressionParser parser = PARSER.get();
+        parser.ReInit(new StringReader(value));
         return parser.parse();
     }
 }
\ No newline at end of file
@@ -0,0 +1,1113 @@
+package org.gdl2.deserializers;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.SerializedName;
+import com.google.gson.internal.JsonReaderInternalAccess;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.cdshooks.UseTemplate;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Element;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.GuideOntology;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.InternalVariable;
+import org.gdl2.model.Rule;
+import org.gdl2.model.Template;
+import org.gdl2.resources.Language;
+import org.gdl2.resources.Reference;
+import org.gdl2.resources.ResourceDescription;
+import org.gdl2.resources.ResourceDescriptionItem;
+import org.gdl2.resources.TranslationDetails;
+import org.gdl2.terminology.Binding;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermBinding;
+import org.gdl2.terminology.TermDefinition;
+import org.gdl2.test.TestCase;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Streaming type adapters reading guidelines in Gdl2 json format field by field, without reflection, with the same
+ * guidelines as the reflective Gson binding with lower case field names with underscores,
+ * {@link ExpressionItemDeserializer}, {@link CodePhraseDeserializer} and {@link UnmodifiableCollectionsAdapterFactory}.
+ *
+ * <p>Unknown fields are skipped, lists and maps are unmodifiable, texts may be written as numbers or booleans and
+ * the objects of templates and resources are read as maps, lists, strings, doubles and booleans, as by Gson. The
+ * adapters only read; guidelines are written by {@link org.gdl2.Gdl2#toGdl2(Guideline)}.
+ *
+ * <p>Lists of expressions, of rules, pre-conditions, default actions, predicates and template assignments, are read
+ * as {@link LazyExpressionList}s, parsed on first use.
+ */
+public final class Gdl2TypeAdapters {
+    public static final TypeAdapter<String> STRING = new ReadOnlyAdapter<String>() {
+        @Override
+        public String read(JsonReader in) throws IOException {
+            JsonToken token = in.peek();
+            if (token == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return token == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString();
+        }
+    };
+
+    public static final TypeAdapter<ExpressionItem> EXPRESSION_ITEM = new ReadOnlyAdapter<ExpressionItem>() {
+        @Override
+        public ExpressionItem read(JsonReader in) throws IOException {
+            String value = primitive(in);
+            return value == null ? null : ExpressionItemDeserializer.deserialize(value);
+        }
+    };
+
+    public static final TypeAdapter<CodePhrase> CODE_PHRASE = new ReadOnlyAdapter<CodePhrase>() {
+        @Override
+        public CodePhrase read(JsonReader in) throws IOException {
+            String value = primitive(in);
+            return value == null ? null : CodePhraseDeserializer.deserialize(value);
+        }
+    };
+
+    public static final TypeAdapter<Element> ELEMENT = new ReadOnlyAdapter<Element>() {
+        @Override
+        public Element read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            String path = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "path":
+                        path = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Element(id, path);
+        }
+    };
+
+    public static final TypeAdapter<DataBinding> DATA_BINDING = new ReadOnlyAdapter<DataBinding>() {
+        private final Map<String, DataBinding.Type> types = enumConstants(DataBinding.Type.class);
+
+        @Override
+        public DataBinding read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            DataBinding.Type type = null;
+            String modelId = null;
+            String templateId = null;
+            Map<String, Element> elements = null;
+            List<ExpressionItem> predicates = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "type":
+                        type = enumValue(in, types);
+                        break;
+                    case "model_id":
+                        modelId = STRING.read(in);
+                        break;
+                    case "template_id":
+                        templateId = STRING.read(in);
+                        break;
+                    case "elements":
+                        elements = map(in, ELEMENT);
+                        break;
+                    case "predicates":
+                        predicates = expressions(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new DataBinding(id, type, modelId, templateId, elements, predicates);
+        }
+    };
+
+    public static final TypeAdapter<InternalVariable> INTERNAL_VARIABLE = new ReadOnlyAdapter<InternalVariable>() {
+        private final Map<String, InternalVariable.DataType> dataTypes = enumConstants(InternalVariable.DataType.class);
+
+        @Override
+        public InternalVariable read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            InternalVariable.DataType dataType = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "data_type":
+                        dataType = enumValue(in, dataTypes);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new InternalVariable(id, dataType);
+        }
+    };
+
+    public static final TypeAdapter<ElementBinding> ELEMENT_BINDING = new ReadOnlyAdapter<ElementBinding>() {
+        @Override
+        public ElementBinding read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String path = null;
+            String type = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "path":
+                        path = STRING.read(in);
+                        break;
+                    case "type":
+                        type = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ElementBinding(path, type);
+        }
+    };
+
+    /**
+     * Values of template objects and resources: maps, lists, strings, doubles and booleans.
+     */
+    public static final TypeAdapter<Object> OBJECT = new ReadOnlyAdapter<Object>() {
+        @Override
+        public Object read(JsonReader in) throws IOException {
+            switch (in.peek()) {
+                case BEGIN_ARRAY:
+                    List<Object> list = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        list.add(read(in));
+                    }
+                    in.endArray();
+                    return list;
+                case BEGIN_OBJECT:
+                    Map<String, Object> map = new LinkedHashMap<>();
+                    in.beginObject();
+                    while (in.hasNext()) {
+                        map.put(in.nextName(), read(in));
+                    }
+                    in.endObject();
+                    return map;
+                case STRING:
+                    return in.nextString();
+                case NUMBER:
+                    return in.nextDouble();
+                case BOOLEAN:
+                    return in.nextBoolean();
+                case NULL:
+                    in.nextNull();
+                    return null;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    };
+
+    public static final TypeAdapter<Template> TEMPLATE = new ReadOnlyAdapter<Template>() {
+        @Override
+        @SuppressWarnings("unchecked")
+        public Template read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            String name = null;
+            String modelId = null;
+            String templateId = null;
+            Map<String, Object> object = null;
+            List<ElementBinding> elementBindings = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "name":
+                        name = STRING.read(in);
+                        break;
+                    case "model_id":
+                        modelId = STRING.read(in);
+                        break;
+                    case "template_id":
+                        templateId = STRING.read(in);
+                        break;
+                    case "object":
+                        object = (Map<String, Object>) UnmodifiableCollectionsAdapterFactory.unmodifiable(mutableMap(in, OBJECT));
+                        break;
+                    case "element_bindings":
+                        elementBindings = list(in, ELEMENT_BINDING);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Template(id, name, modelId, templateId, object, elementBindings);
+        }
+    };
+
+    public static final TypeAdapter<UseTemplate> USE_TEMPLATE = new ReadOnlyAdapter<UseTemplate>() {
+        @Override
+        public UseTemplate read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String templateId = null;
+            List<ExpressionItem> assignments = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "template_id":
+                        templateId = STRING.read(in);
+                        break;
+                    case "assignments":
+                        assignments = expressions(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new UseTemplate(templateId, assignments);
+        }
+    };
+
+    public static final TypeAdapter<Source> SOURCE = new ReadOnlyAdapter<Source>() {
+        @Override
+        public Source read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Source.SourceBuilder source = Source.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "label":
+                        source.label(STRING.read(in));
+                        break;
+                    case "url":
+                        source.url(url(in));
+                        break;
+                    case "icon":
+                        source.icon(url(in));
+                        break;
+                    case "label_reference":
+                        source.labelReference(STRING.read(in));
+                        break;
+                    case "url_reference":
+                        source.urlReference(STRING.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return source.build();
+        }
+    };
+
+    public static final TypeAdapter<Action> ACTION = new ReadOnlyAdapter<Action>() {
+        private final Map<String, Action.ActionType> types = enumConstants(Action.ActionType.class);
+
+        @Override
+        public Action read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Action.ActionBuilder action = Action.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "type":
+                        action.type(enumValue(in, types));
+                        break;
+                    case "description":
+                        action.description(STRING.read(in));
+                        break;
+                    case "resource":
+                        action.resource(OBJECT.read(in));
+                        break;
+                    case "resource_template":
+                        action.resourceTemplate(USE_TEMPLATE.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return action.build();
+        }
+    };
+
+    public static final TypeAdapter<Suggestion> SUGGESTION = new ReadOnlyAdapter<Suggestion>() {
+        @Override
+        public Suggestion read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Suggestion.SuggestionBuilder suggestion = Suggestion.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "uuid":
+                        suggestion.uuid(uuid(in));
+                        break;
+                    case "label":
+                        suggestion.label(STRING.read(in));
+                        break;
+                    case "actions":
+                        suggestion.actions(list(in, ACTION));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return suggestion.build();
+        }
+    };
+
+    public static final TypeAdapter<Link> LINK = new ReadOnlyAdapter<Link>() {
+        private final Map<String, Link.LinkType> types = enumConstants(Link.LinkType.class);
+
+        @Override
+        public Link read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Link.LinkBuilder link = Link.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "label":
+                        link.label(STRING.read(in));
+                        break;
+                    case "url":
+                        link.url(url(in));
+                        break;
+                    case "type":
+                        link.type(enumValue(in, types));
+                        break;
+                    case "label_reference":
+                        link.labelReference(STRING.read(in));
+                        break;
+                    case "url_reference":
+                        link.urlReference(STRING.read(in));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return link.build();
+        }
+    };
+
+    public static final TypeAdapter<Card> CARD = new ReadOnlyAdapter<Card>() {
+        private final Map<String, Card.IndicatorEnum> indicators = enumConstants(Card.IndicatorEnum.class);
+
+        @Override
+        public Card read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Card.CardBuilder card = Card.builder();
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "summary":
+                        card.summary(STRING.read(in));
+                        break;
+                    case "detail":
+                        card.detail(STRING.read(in));
+                        break;
+                    case "indicator":
+                        card.indicator(enumValue(in, indicators));
+                        break;
+                    case "source":
+                        card.source(SOURCE.read(in));
+                        break;
+                    case "suggestions":
+                        card.suggestions(list(in, SUGGESTION));
+                        break;
+                    case "links":
+                        card.links(list(in, LINK));
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return card.build();
+        }
+    };
+
+    public static final TypeAdapter<Rule> RULE = new ReadOnlyAdapter<Rule>() {
+        @Override
+        public Rule read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            List<ExpressionItem> when = null;
+            List<ExpressionItem> then = null;
+            List<Card> cards = null;
+            int priority = 0;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "when":
+                        when = expressions(in);
+                        break;
+                    case "then":
+                        then = expressions(in);
+                        break;
+                    case "cards":
+                        cards = list(in, CARD);
+                        break;
+                    case "priority":
+                        priority = intValue(in, priority);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Rule(id, when, then, cards, priority);
+        }
+    };
+
+    public static final TypeAdapter<GuideDefinition> GUIDE_DEFINITION = new ReadOnlyAdapter<GuideDefinition>() {
+        @Override
+        public GuideDefinition read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Map<String, DataBinding> dataBindings = null;
+            List<InternalVariable> internalVariables = null;
+            Map<String, Template> templates = null;
+            List<ExpressionItem> preConditions = null;
+            List<ExpressionItem> defaultActions = null;
+            Map<String, Rule> rules = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "data_bindings":
+                        dataBindings = map(in, DATA_BINDING);
+                        break;
+                    case "internal_variables":
+                        internalVariables = list(in, INTERNAL_VARIABLE);
+                        break;
+                    case "templates":
+                        templates = map(in, TEMPLATE);
+                        break;
+                    case "pre_conditions":
+                        preConditions = expressions(in);
+                        break;
+                    case "default_actions":
+                        defaultActions = expressions(in);
+                        break;
+                    case "rules":
+                        rules = map(in, RULE);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GuideDefinition(dataBindings, internalVariables, templates, preConditions, defaultActions, rules);
+        }
+    };
+
+    public static final TypeAdapter<Term> TERM = new ReadOnlyAdapter<Term>() {
+        @Override
+        public Term read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            String text = null;
+            String description = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "text":
+                        text = STRING.read(in);
+                        break;
+                    case "description":
+                        description = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Term(id, text, description);
+        }
+    };
+
+    public static final TypeAdapter<TermDefinition> TERM_DEFINITION = new ReadOnlyAdapter<TermDefinition>() {
+        @Override
+        public TermDefinition read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            Map<String, Term> terms = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "terms":
+                        terms = map(in, TERM);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new TermDefinition(id, terms);
+        }
+    };
+
+    public static final TypeAdapter<Binding> BINDING = new ReadOnlyAdapter<Binding>() {
+        @Override
+        public Binding read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            List<CodePhrase> codes = null;
+            String uri = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "codes":
+                        codes = list(in, CODE_PHRASE);
+                        break;
+                    case "uri":
+                        uri = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Binding(id, codes, uri);
+        }
+    };
+
+    public static final TypeAdapter<TermBinding> TERM_BINDING = new ReadOnlyAdapter<TermBinding>() {
+        @Override
+        public TermBinding read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            Map<String, Binding> bindings = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "bindings":
+                        bindings = map(in, BINDING);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new TermBinding(id, bindings);
+        }
+    };
+
+    public static final TypeAdapter<GuideOntology> GUIDE_ONTOLOGY = new ReadOnlyAdapter<GuideOntology>() {
+        @Override
+        public GuideOntology read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Map<String, TermDefinition> termDefinitions = null;
+            Map<String, TermBinding> termBindings = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "term_definitions":
+                        termDefinitions = map(in, TERM_DEFINITION);
+                        break;
+                    case "term_bindings":
+                        termBindings = map(in, TERM_BINDING);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new GuideOntology(termDefinitions, termBindings);
+        }
+    };
+
+    public static final TypeAdapter<TranslationDetails> TRANSLATION_DETAILS = new ReadOnlyAdapter<TranslationDetails>() {
+        @Override
+        public TranslationDetails read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            CodePhrase language = null;
+            Map<String, String> author = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "language":
+                        language = CODE_PHRASE.read(in);
+                        break;
+                    case "author":
+                        author = map(in, STRING);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new TranslationDetails(id, language, author);
+        }
+    };
+
+    public static final TypeAdapter<Language> LANGUAGE = new ReadOnlyAdapter<Language>() {
+        @Override
+        public Language read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            CodePhrase originalLanguage = null;
+            Map<String, TranslationDetails> translations = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "original_language":
+                        originalLanguage = CODE_PHRASE.read(in);
+                        break;
+                    case "translations":
+                        translations = map(in, TRANSLATION_DETAILS);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Language(originalLanguage, translations);
+        }
+    };
+
+    public static final TypeAdapter<ResourceDescriptionItem> RESOURCE_DESCRIPTION_ITEM = new ReadOnlyAdapter<ResourceDescriptionItem>() {
+        @Override
+        public ResourceDescriptionItem read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            CodePhrase language = null;
+            String purpose = null;
+            List<String> keywords = null;
+            String use = null;
+            String misuse = null;
+            String copyright = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "language":
+                        language = CODE_PHRASE.read(in);
+                        break;
+                    case "purpose":
+                        purpose = STRING.read(in);
+                        break;
+                    case "keywords":
+                        keywords = list(in, STRING);
+                        break;
+                    case "use":
+                        use = STRING.read(in);
+                        break;
+                    case "misuse":
+                        misuse = STRING.read(in);
+                        break;
+                    case "copyright":
+                        copyright = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ResourceDescriptionItem(id, language, purpose, keywords, use, misuse, copyright);
+        }
+    };
+
+    public static final TypeAdapter<Reference> REFERENCE = new ReadOnlyAdapter<Reference>() {
+        @Override
+        public Reference read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            String label = null;
+            String url = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "label":
+                        label = STRING.read(in);
+                        break;
+                    case "url":
+                        url = STRING.read(in);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Reference(id, label, url);
+        }
+    };
+
+    public static final TypeAdapter<ResourceDescription> RESOURCE_DESCRIPTION = new ReadOnlyAdapter<ResourceDescription>() {
+        @Override
+        public ResourceDescription read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            Map<String, String> originalAuthor = null;
+            List<String> otherContributors = null;
+            String lifecycleState = null;
+            String resourcePackageUri = null;
+            Map<String, ResourceDescriptionItem> details = null;
+            Map<String, String> otherDetails = null;
+            List<Reference> references = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "original_author":
+                        originalAuthor = map(in, STRING);
+                        break;
+                    case "other_contributors":
+                        otherContributors = list(in, STRING);
+                        break;
+                    case "lifecycle_state":
+                        lifecycleState = STRING.read(in);
+                        break;
+                    case "resource_package_uri":
+                        resourcePackageUri = STRING.read(in);
+                        break;
+                    case "details":
+                        details = map(in, RESOURCE_DESCRIPTION_ITEM);
+                        break;
+                    case "other_details":
+                        otherDetails = map(in, STRING);
+                        break;
+                    case "references":
+                        references = list(in, REFERENCE);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new ResourceDescription(originalAuthor, otherContributors, lifecycleState, resourcePackageUri, details, otherDetails,
+                    references);
+        }
+    };
+
+    public static final TypeAdapter<TestCase> TEST_CASE = new ReadOnlyAdapter<TestCase>() {
+        @Override
+        public TestCase read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            Map<String, String> input = null;
+            Map<String, String> expectedOutput = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "input":
+                        input = map(in, STRING);
+                        break;
+                    case "expected_output":
+                        expectedOutput = map(in, STRING);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new TestCase(id, input, expectedOutput);
+        }
+    };
+
+    public static final TypeAdapter<Guideline> GUIDELINE = new ReadOnlyAdapter<Guideline>() {
+        @Override
+        public Guideline read(JsonReader in) throws IOException {
+            if (!beginObject(in)) {
+                return null;
+            }
+            String id = null;
+            String gdlVersion = null;
+            String concept = null;
+            Language language = null;
+            ResourceDescription description = null;
+            GuideDefinition definition = null;
+            GuideOntology ontology = null;
+            List<TestCase> testCases = null;
+            while (in.hasNext()) {
+                switch (in.nextName()) {
+                    case "id":
+                        id = STRING.read(in);
+                        break;
+                    case "gdl_version":
+                        gdlVersion = STRING.read(in);
+                        break;
+                    case "concept":
+                        concept = STRING.read(in);
+                        break;
+                    case "language":
+                        language = LANGUAGE.read(in);
+                        break;
+                    case "description":
+                        description = RESOURCE_DESCRIPTION.read(in);
+                        break;
+                    case "definition":
+                        definition = GUIDE_DEFINITION.read(in);
+                        break;
+                    case "ontology":
+                        ontology = GUIDE_ONTOLOGY.read(in);
+                        break;
+                    case "test_cases":
+                        testCases = list(in, TEST_CASE);
+                        break;
+                    default:
+                        in.skipValue();
+                }
+            }
+            in.endObject();
+            return new Guideline(id, gdlVersion, concept, language, description, definition, ontology, testCases);
+        }
+    };
+
+    private Gdl2TypeAdapters() {
+    }
+
+    /*
+     * false after reading a null instead of the object
+     */
+    private static boolean beginObject(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return false;
+        }
+        in.beginObject();
+        return true;
+    }
+
+    /*
+     * text of a primitive as read by the deserializers of json elements, failing as they do for objects and arrays
+     */
+    private static String primitive(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        } else if (token == JsonToken.BEGIN_OBJECT || token == JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            throw new JsonParseException(new IllegalStateException("Not a JSON Primitive"));
+        }
+        return STRING.read(in);
+    }
+
+    private static int intValue(JsonReader in, int defaultValue) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return defaultValue;
+        }
+        try {
+            return in.nextInt();
+        } catch (NumberFormatException exception) {
+            throw new JsonSyntaxException(exception);
+        }
+    }
+
+    /*
+     * constants by their serialized names, or their names when not annotated
+     */
+    private static <E extends Enum<E>> Map<String, E> enumConstants(Class<E> enumClass) {
+        Map<String, E> constants = new HashMap<>();
+        for (E constant : enumClass.getEnumConstants()) {
+            try {
+                SerializedName serializedName = enumClass.getField(constant.name())
+                        .getAnnotation(SerializedName.class);
+                constants.put(serializedName == null ? constant.name() : serializedName.value(), constant);
+                if (serializedName != null) {
+                    for (String alternate : serializedName.alternate()) {
+                        constants.put(alternate, constant);
+                    }
+                }
+            } catch (NoSuchFieldException exception) {
+                throw new IllegalStateException(exception);
+            }
+        }
+        return Collections.unmodifiableMap(constants);
+    }
+
+    private static <E> E enumValue(JsonReader in, Map<String, E> constants) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return constants.get(in.nextString());
+    }
+
+    private static URL url(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        String value = in.nextString();
+        return "null".equals(value) ? null : new URL(value);
+    }
+
+    private static UUID uuid(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        return UUID.fromString(in.nextString());
+    }
+
+    private static <T> List<T> list(JsonReader in, TypeAdapter<T> elementAdapter) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<T> list = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            list.add(elementAdapter.read(in));
+        }
+        in.endArray();
+        return Collections.unmodifiableList(list);
+    }
+
+    /*
+     * list of expressions read as their sources, parsed on first use
+     */
+    private static List<ExpressionItem> expressions(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> sources = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            sources.add(primitive(in));
+        }
+        in.endArray();
+        return new LazyExpressionList(sources);
+    }
+
+    private static <T> Map<String, T> map(JsonReader in, TypeAdapter<T> valueAdapter) throws IOException {
+        Map<String, T> map = mutableMap(in, valueAdapter);
+        return map == null ? null : Collections.unmodifiableMap(map);
+    }
+
+    /*
+     * map written as an object or as an array of key and value pairs, failing on duplicate keys
+     */
+    private static <T> Map<String, T> mutableMap(JsonReader in, TypeAdapter<T> valueAdapter) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        Map<String, T> map = new LinkedHashMap<>();
+        if (token == JsonToken.BEGIN_ARRAY) {
+            in.beginArray();
+            while (in.hasNext()) {
+                in.beginArray();
+                putUnique(map, STRING.read(in), valueAdapter.read(in));
+                in.endArray();
+            }
+            in.endArray();
+        } else {
+            in.beginObject();
+            while (in.hasNext()) {
+                JsonReaderInternalAccess.INSTANCE.promoteNameToValue(in);
+                putUnique(map, STRING.read(in), valueAdapter.read(in));
+            }
+            in.endObject();
+        }
+        return map;
+    }
+
+    private static <T> void putUnique(Map<String, T> map, String key, T value) {
+        if (map.containsKey(key)) {
+            throw new JsonSyntaxException("duplicate key: " + key);
+        }
+        map.put(key, value);
+    }
+
+    /*
+     * adapter of types only read from Gdl2 json
+     */
+    private abstract static class ReadOnlyAdapter<T> extends TypeAdapter<T> {
+        @Override
+        public void write(JsonWriter out, T value) {
+            throw new UnsupportedOperationException("Guidelines are written by Gdl2.toGdl2");
+        }
+    }
+}
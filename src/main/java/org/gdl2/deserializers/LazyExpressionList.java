@@ -0,0 +1,82 @@
+package org.gdl2.deserializers;
+
+import com.google.gson.JsonParseException;
+import org.gdl2.expression.ExpressionItem;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Unmodifiable list of expressions kept as their Gdl2 source until an element is first read, when all of them are
+ * parsed once, whichever thread reads first. Guidelines loaded but never executed keep only the strings.
+ *
+ * <p>A source that does not parse fails every read with the {@link JsonParseException} loading would have thrown,
+ * the same exception for each read, without parsing the sources again.
+ */
+public final class LazyExpressionList extends AbstractList<ExpressionItem> implements RandomAccess {
+    private final int size;
+    private String[] sources;
+    private volatile List<ExpressionItem> expressions;
+    private JsonParseException failure;
+
+    LazyExpressionList(List<String> sources) {
+        this.size = sources.size();
+        this.sources = sources.toArray(new String[0]);
+    }
+
+    /**
+     * Parses the expressions of the list now if it is lazy, to fail on invalid expressions when loading.
+     *
+     * @param expressions list of expressions, possibly null
+     * @throws JsonParseException if an expression does not parse
+     */
+    public static void parse(List<ExpressionItem> expressions) throws JsonParseException {
+        if (expressions instanceof LazyExpressionList) {
+            ((LazyExpressionList) expressions).expressions();
+        }
+    }
+
+    @Override
+    public ExpressionItem get(int index) {
+        return expressions().get(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /*
+     * the parsed expressions, the sources dropped once parsed or failed to parse
+     */
+    private List<ExpressionItem> expressions() {
+        List<ExpressionItem> parsed = expressions;
+        if (parsed == null) {
+            synchronized (this) {
+                parsed = expressions;
+                if (parsed == null) {
+                    if (failure != null) {
+                        throw failure;
+                    }
+                    List<ExpressionItem> list = new ArrayList<>(size);
+                    try {
+                        for (String source : sources) {
+                            list.add(source == null ? null : ExpressionItemDeserializer.deserialize(source));
+                        }
+                    } catch (JsonParseException exception) {
+                        failure = exception;
+                        sources = null;
+                        throw exception;
+                    }
+                    parsed = Collections.unmodifiableList(list);
+                    expressions = parsed;
+                    sources = null;
+                }
+            }
+        }
+        return parsed;
+    }
+}
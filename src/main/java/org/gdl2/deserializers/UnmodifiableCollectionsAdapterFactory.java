@@ -0,0 +1,75 @@
+package org.gdl2.deserializers;
+
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Deserializes fields declared as List, Map, Set or Collection into unmodifiable collections, including the
+ * collections nested in them, so loaded guidelines can be shared between threads.
+ */
+public class UnmodifiableCollectionsAdapterFactory implements TypeAdapterFactory {
+
+    @Override
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        Class<? super T> rawType = type.getRawType();
+        if (rawType != List.class && rawType != Map.class && rawType != Set.class && rawType != Collection.class) {
+            return null;
+        }
+        TypeAdapter<T> delegate = gson.getDelegateAdapter(this, type);
+        return new TypeAdapter<T>() {
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                delegate.write(out, value);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T read(JsonReader in) throws IOException {
+                return (T) unmodifiable(delegate.read(in));
+            }
+        };
+    }
+
+    /**
+     * Returns an unmodifiable copy of the map, list or set and the ones nested in it, or the value itself.
+     *
+     * @param value value to copy
+     * @return unmodifiable copy of collections, otherwise the value
+     */
+    public static Object unmodifiable(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                map.put(entry.getKey(), unmodifiable(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(map);
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                list.add(unmodifiable(item));
+            }
+            return Collections.unmodifiableList(list);
+        } else if (value instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            for (Object item : (Set<?>) value) {
+                set.add(unmodifiable(item));
+            }
+            return Collections.unmodifiableSet(set);
+        }
+        return value;
+    }
+}
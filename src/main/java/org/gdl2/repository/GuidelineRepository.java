@@ -0,0 +1,426 @@
+package org.gdl2.repository;
+
+import lombok.Value;
+import org.gdl2.Gdl2;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.CompiledGuideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.GuidelineCompiler;
+import org.gdl2.runtime.Interpreter;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Guidelines of the {@code .gdl2.json} files of a directory, loaded and compiled in parallel and kept as immutable
+ * {@link Snapshot}s. An execution takes the current snapshot once and keeps executing it while the repository is
+ * reloaded, by {@link #reload()} or by {@link #watch(Consumer) watching} the directory in the background, and the
+ * next snapshot is swapped in at once.
+ *
+ * <p>Each guideline is kept with the SHA-256 hash of its file, and a file with the content of a guideline already
+ * loaded, e.g. touched, copied or renamed, is not parsed or compiled again. A file that fails to load is reported in
+ * {@link Snapshot#getFailures()}; on reload the guideline last loaded from it is kept, so a file saved half-written
+ * does not remove its guideline.
+ */
+public final class GuidelineRepository implements Closeable {
+    private static final String EXTENSION = ".gdl2.json";
+    private static final long QUIET_MILLIS = 100;
+
+    private final Path directory;
+    private final ExecutorService loader;
+    private final Object reloading = new Object();
+    private volatile Snapshot snapshot;
+    private WatchService watchService;
+    private Thread watcher;
+
+    private GuidelineRepository(Path directory, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        this.directory = directory;
+        this.loader = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "gdl2-repository-loader-" + threadCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.snapshot = new Snapshot(0, Collections.emptyMap(), Collections.emptyMap());
+    }
+
+    /**
+     * Loads the guidelines of a directory with as many threads as processors.
+     *
+     * @param directory directory of the guidelines, its sub-directories not included
+     * @return the repository
+     * @throws IOException if the directory cannot be listed
+     */
+    public static GuidelineRepository open(Path directory) throws IOException {
+        return open(directory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Loads the guidelines of a directory.
+     *
+     * @param directory directory of the guidelines, its sub-directories not included
+     * @param threads   number of threads loading and compiling guidelines
+     * @return the repository
+     * @throws IOException if the directory cannot be listed
+     */
+    public static GuidelineRepository open(Path directory, int threads) throws IOException {
+        if (directory == null) {
+            throw new IllegalArgumentException("Directory cannot be null.");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        GuidelineRepository repository = new GuidelineRepository(directory, threads);
+        try {
+            repository.reload();
+        } catch (IOException | RuntimeException exception) {
+            repository.close();
+            throw exception;
+        }
+        return repository;
+    }
+
+    /**
+     * The guidelines currently loaded, unchanged by later reloads.
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Reads and hashes every file of the directory and removes the guidelines of the files deleted. Only files whose
+     * content changed since the last reload are parsed and compiled; use {@link #watch(Consumer)} to read only the
+     * files changed.
+     *
+     * @return the new snapshot
+     * @throws IOException if the directory cannot be listed
+     */
+    public Snapshot reload() throws IOException {
+        Set<Path> files = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + EXTENSION)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        synchronized (reloading) {
+            Set<Path> changed = new TreeSet<>(files);
+            changed.addAll(snapshot.entriesByFile.keySet());
+            changed.addAll(snapshot.loadFailures.keySet());
+            changed.remove(directory);
+            return reloadFiles(changed);
+        }
+    }
+
+    /**
+     * Watches the directory and reloads the files changed in the background, once no change followed for a short
+     * time.
+     *
+     * @param listener called with each new snapshot on the watching thread
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void watch(Consumer<Snapshot> listener) throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("Already watching " + directory);
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        WatchService service = watchService;
+        watcher = new Thread(() -> watchChanges(service, listener), "gdl2-repository-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the directory and the loading threads. Snapshots taken stay executable.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        loader.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+            watcher.interrupt();
+        }
+    }
+
+    /*
+     * changes collected until none follows for the quiet time, the whole directory reloaded if events were lost
+     */
+    private void watchChanges(WatchService service, Consumer<Snapshot> listener) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Set<Path> changed = new TreeSet<>();
+                boolean overflow = false;
+                boolean valid = true;
+                while (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            overflow = true;
+                        } else if (event.context().toString().endsWith(EXTENSION)) {
+                            changed.add(directory.resolve((Path) event.context()));
+                        }
+                    }
+                    valid = key.reset();
+                    key = valid ? service.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS) : null;
+                }
+                if (overflow || !changed.isEmpty()) {
+                    listener.accept(overflow ? reloadOrFail() : reloadChanged(changed));
+                }
+                if (!valid) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException | RejectedExecutionException exception) {
+            // closed
+        }
+    }
+
+    private Snapshot reloadChanged(Set<Path> changed) {
+        synchronized (reloading) {
+            return reloadFiles(changed);
+        }
+    }
+
+    /*
+     * reload of the whole directory, a failure to list it reported as a failure of the directory
+     */
+    private Snapshot reloadOrFail() {
+        try {
+            return reload();
+        } catch (IOException exception) {
+            synchronized (reloading) {
+                Map<Path, Exception> failures = new TreeMap<>(snapshot.loadFailures);
+                failures.put(directory, exception);
+                snapshot = new Snapshot(snapshot.version + 1, snapshot.entriesByFile, failures);
+                return snapshot;
+            }
+        }
+    }
+
+    /*
+     * new snapshot with the changed files loaded in parallel, compiled guidelines reused for unchanged content
+     */
+    private Snapshot reloadFiles(Set<Path> changed) {
+        Snapshot previous = snapshot;
+        Map<String, Entry> entriesByHash = new HashMap<>();
+        for (Entry entry : previous.entriesByFile.values()) {
+            entriesByHash.put(entry.getContentHash(), entry);
+        }
+        List<Future<Loaded>> loads = new ArrayList<>(changed.size());
+        for (Path file : changed) {
+            Callable<Loaded> load = () -> load(file, entriesByHash);
+            loads.add(loader.submit(load));
+        }
+        Map<Path, Entry> entriesByFile = new TreeMap<>(previous.entriesByFile);
+        Map<Path, Exception> failures = new TreeMap<>(previous.loadFailures);
+        failures.remove(directory);
+        for (Future<Loaded> future : loads) {
+            Loaded loaded = result(future);
+            failures.remove(loaded.file);
+            if (loaded.failure != null) {
+                failures.put(loaded.file, loaded.failure);
+            } else if (loaded.entry != null) {
+                entriesByFile.put(loaded.file, loaded.entry);
+            } else {
+                entriesByFile.remove(loaded.file);
+            }
+        }
+        snapshot = new Snapshot(previous.version + 1, entriesByFile, failures);
+        return snapshot;
+    }
+
+    private static Loaded result(Future<Loaded> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException exception) {
+            throw new IllegalStateException("Loading guideline failed", exception.getCause());
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /*
+     * guideline of a file, null if the file was deleted, or the failure to read, parse or compile it
+     */
+    private static Loaded load(Path file, Map<String, Entry> entriesByHash) {
+        try {
+            byte[] content;
+            try {
+                content = Files.readAllBytes(file);
+            } catch (NoSuchFileException exception) {
+                return new Loaded(file, null, null);
+            }
+            String contentHash = sha256(content);
+            Entry cached = entriesByHash.get(contentHash);
+            if (cached != null) {
+                return new Loaded(file, new Entry(file, cached.getId(), contentHash, cached.getGuideline(), cached.getCompiledGuideline()), null);
+            }
+            Guideline guideline = Gdl2.fromGdl2(new ByteArrayInputStream(content));
+            if (guideline == null || guideline.getId() == null) {
+                throw new IllegalArgumentException("Not a guideline: " + file);
+            }
+            CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(guideline);
+            return new Loaded(file, new Entry(file, guideline.getId(), contentHash, guideline, compiledGuideline), null);
+        } catch (IOException | RuntimeException exception) {
+            return new Loaded(file, null, exception);
+        }
+    }
+
+    private static String sha256(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte value : digest.digest(content)) {
+            hex.append(Character.forDigit((value >> 4) & 0xf, 16)).append(Character.forDigit(value & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * Guideline loaded from a file, with the hash of its content and compiled.
+     */
+    @Value
+    public static class Entry {
+        private Path file;
+        private String id;
+        private String contentHash;
+        private Guideline guideline;
+        private CompiledGuideline compiledGuideline;
+    }
+
+    /**
+     * Immutable state of the repository after a load: the guidelines by id, in order of id, and the files that failed
+     * to load. Of guidelines with the same id, the one of the first file in order of name is kept and the others
+     * reported as failures.
+     */
+    public static final class Snapshot {
+        private final long version;
+        private final Map<Path, Entry> entriesByFile;
+        private final Map<Path, Exception> loadFailures;
+        private final Map<Path, Exception> failures;
+        private final Map<String, Entry> entries;
+        private final List<CompiledGuideline> compiledGuidelines;
+
+        Snapshot(long version, Map<Path, Entry> entriesByFile, Map<Path, Exception> loadFailures) {
+            Map<String, Entry> entriesById = new TreeMap<>();
+            Map<Path, Exception> allFailures = new TreeMap<>(loadFailures);
+            for (Entry entry : entriesByFile.values()) {
+                Entry first = entriesById.putIfAbsent(entry.getId(), entry);
+                if (first != null) {
+                    allFailures.put(entry.getFile(), new IllegalStateException("Guideline " + entry.getId() + " already loaded from " + first.getFile()));
+                }
+            }
+            List<CompiledGuideline> compiled = new ArrayList<>(entriesById.size());
+            for (Entry entry : entriesById.values()) {
+                compiled.add(entry.getCompiledGuideline());
+            }
+            this.version = version;
+            this.entriesByFile = Collections.unmodifiableMap(new TreeMap<>(entriesByFile));
+            this.loadFailures = Collections.unmodifiableMap(new TreeMap<>(loadFailures));
+            this.failures = Collections.unmodifiableMap(allFailures);
+            this.entries = Collections.unmodifiableMap(new LinkedHashMap<>(entriesById));
+            this.compiledGuidelines = Collections.unmodifiableList(compiled);
+        }
+
+        /**
+         * Number of loads, increasing with each reload.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * The guideline loaded with the id, or null.
+         */
+        public Entry get(String id) {
+            return entries.get(id);
+        }
+
+        public Collection<Entry> getEntries() {
+            return entries.values();
+        }
+
+        /**
+         * The compiled guidelines in order of id.
+         */
+        public List<CompiledGuideline> getCompiledGuidelines() {
+            return compiledGuidelines;
+        }
+
+        /**
+         * Files that failed to load, or the directory if it could not be listed, with their failure.
+         */
+        public Map<Path, Exception> getFailures() {
+            return failures;
+        }
+
+        public List<DataInstance> execute(Interpreter interpreter, List<DataInstance> inputDataInstances) {
+            return interpreter.executeCompiledGuidelines(compiledGuidelines, inputDataInstances);
+        }
+
+        public List<Card> executeCdsHooks(Interpreter interpreter, List<DataInstance> inputDataInstances) {
+            return interpreter.executeCompiledCdsHooksGuidelines(compiledGuidelines, inputDataInstances);
+        }
+    }
+
+    /*
+     * outcome of loading a file
+     */
+    private static final class Loaded {
+        private final Path file;
+        private final Entry entry;
+        private final Exception failure;
+
+        Loaded(Path file, Entry entry, Exception failure) {
+            this.file = file;
+            this.entry = entry;
+            this.failure = failure;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package org.gdl2.runtime;
+
+/**
+ * Reads an attribute of a data value, e.g. the magnitude of a DvQuantity for {@code $gt0003.magnitude}.
+ *
+ * <p>Custom data types can register accessors through an {@link AttributeAccessorProvider} or
+ * {@link RuntimeConfiguration#getAttributeAccessors()}, attributes without an accessor are read with their public getter.
+ */
+public interface AttributeAccessor {
+
+    /**
+     * Reads the attribute value.
+     *
+     * @param dataValue data value of the accessor's type, never null
+     * @return the attribute value
+     * @throws Exception if the attribute can not be read
+     */
+    Object get(Object dataValue) throws Exception;
+}
@@ -0,0 +1,20 @@
+package org.gdl2.runtime;
+
+import java.util.Map;
+
+/**
+ * Service provider registering accessors of the attributes of custom data types, e.g. {@code $gt0003.meanArterialPressure}.
+ *
+ * <p>Providers are found once by {@link java.util.ServiceLoader} through
+ * {@code META-INF/services/org.gdl2.runtime.AttributeAccessorProvider}. Their accessors take precedence over the
+ * built-in ones, accessors of {@link RuntimeConfiguration#getAttributeAccessors()} over both.
+ */
+public interface AttributeAccessorProvider {
+
+    /**
+     * Returns the accessors of the provider.
+     *
+     * @return accessors by data value type and attribute name
+     */
+    Map<Class<?>, Map<String, AttributeAccessor>> getAttributeAccessors();
+}
@@ -0,0 +1,197 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Collections.unmodifiableMap;
+
+/**
+ * Registry resolving (type, attribute) pairs to {@link AttributeAccessor}s once, instead of looking up
+ * the getter by reflection on each evaluation.
+ *
+ * <p>Accessors of the runtime configuration take precedence over those of {@link AttributeAccessorProvider}s, which
+ * take precedence over the built-in ones covering the types of {@code org.gdl2.datatypes}. Any other attribute is
+ * read by a method handle of its public getter, with the same failures as the reflective lookup it replaces.
+ *
+ * <p>Compiled variables keep the accessor they resolved last in a {@link Site}, so reading an attribute of the same
+ * type again looks nothing up.
+ */
+final class AttributeAccessors {
+    private static final Map<Class<?>, Map<String, AttributeAccessor>> BUILT_IN_ACCESSORS = withProviders(builtInAccessors());
+    private static final MethodType ACCESSOR_TYPE = MethodType.methodType(Object.class, Object.class);
+    private static final AttributeAccessors DEFAULT = new AttributeAccessors(BUILT_IN_ACCESSORS);
+
+    private final Map<Class<?>, Map<String, AttributeAccessor>> accessors;
+    private final ConcurrentMap<Class<?>, ConcurrentMap<String, AttributeAccessor>> resolved = new ConcurrentHashMap<>();
+
+    private AttributeAccessors(Map<Class<?>, Map<String, AttributeAccessor>> accessors) {
+        this.accessors = accessors;
+    }
+
+    /**
+     * Returns the registry of the built-in accessors plus the given ones.
+     *
+     * @param customAccessors accessors by type and attribute, may be null
+     * @return the registry
+     */
+    static AttributeAccessors of(Map<Class<?>, Map<String, AttributeAccessor>> customAccessors) {
+        if (customAccessors == null || customAccessors.isEmpty()) {
+            return DEFAULT;
+        }
+        return new AttributeAccessors(merge(BUILT_IN_ACCESSORS, customAccessors));
+    }
+
+    AttributeAccessor resolve(Class<?> type, String attribute) {
+        ConcurrentMap<String, AttributeAccessor> byAttribute = resolved.get(type);
+        if (byAttribute == null) {
+            byAttribute = resolved.computeIfAbsent(type, key -> new ConcurrentHashMap<>());
+        }
+        AttributeAccessor accessor = byAttribute.get(attribute);
+        if (accessor == null) {
+            AttributeAccessor looked = lookup(type, attribute);
+            AttributeAccessor previous = byAttribute.putIfAbsent(attribute, looked);
+            accessor = previous == null ? looked : previous;
+        }
+        return accessor;
+    }
+
+    private AttributeAccessor lookup(Class<?> type, String attribute) {
+        Map<String, AttributeAccessor> byAttribute = accessors.get(type);
+        if (byAttribute != null && byAttribute.containsKey(attribute)) {
+            return byAttribute.get(attribute);
+        }
+        return getterAccessor(type, attribute);
+    }
+
+    private static AttributeAccessor getterAccessor(Class<?> type, String attribute) {
+        String getterName = "get" + attribute.substring(0, 1).toUpperCase() + attribute.substring(1);
+        MethodHandle getter;
+        try {
+            getter = MethodHandles.publicLookup().unreflect(type.getMethod(getterName)).asType(ACCESSOR_TYPE);
+        } catch (ReflectiveOperationException exception) {
+            return dataValue -> {
+                throw exception;
+            };
+        }
+        return dataValue -> {
+            try {
+                return (Object) getter.invokeExact(dataValue);
+            } catch (Throwable throwable) {
+                throw new InvocationTargetException(throwable);
+            }
+        };
+    }
+
+    private static Map<Class<?>, Map<String, AttributeAccessor>> merge(Map<Class<?>, Map<String, AttributeAccessor>> accessors,
+                                                                       Map<Class<?>, Map<String, AttributeAccessor>> overriding) {
+        Map<Class<?>, Map<String, AttributeAccessor>> merged = new HashMap<>();
+        accessors.forEach((type, byAttribute) -> merged.put(type, new HashMap<>(byAttribute)));
+        overriding.forEach((type, byAttribute) -> merged.computeIfAbsent(type, key -> new HashMap<>()).putAll(byAttribute));
+        return unmodifiableMap(merged);
+    }
+
+    /*
+     * built-in accessors overridden by those of the service providers found
+     */
+    private static Map<Class<?>, Map<String, AttributeAccessor>> withProviders(Map<Class<?>, Map<String, AttributeAccessor>> builtIn) {
+        Map<Class<?>, Map<String, AttributeAccessor>> accessors = builtIn;
+        for (AttributeAccessorProvider provider : ServiceLoader.load(AttributeAccessorProvider.class, AttributeAccessors.class.getClassLoader())) {
+            Map<Class<?>, Map<String, AttributeAccessor>> provided = provider.getAttributeAccessors();
+            if (provided != null) {
+                accessors = merge(accessors, provided);
+            }
+        }
+        return accessors;
+    }
+
+    private static Map<Class<?>, Map<String, AttributeAccessor>> builtInAccessors() {
+        final Map<Class<?>, Map<String, AttributeAccessor>> accessors = new HashMap<>();
+        Map<String, AttributeAccessor> dvQuantity = new HashMap<>();
+        dvQuantity.put("magnitude", dataValue -> ((DvQuantity) dataValue).getMagnitude());
+        dvQuantity.put("unit", dataValue -> ((DvQuantity) dataValue).getUnit());
+        dvQuantity.put("precision", dataValue -> ((DvQuantity) dataValue).getPrecision());
+        accessors.put(DvQuantity.class, unmodifiableMap(dvQuantity));
+        Map<String, AttributeAccessor> dvCount = new HashMap<>();
+        dvCount.put("magnitude", dataValue -> ((DvCount) dataValue).getMagnitude());
+        accessors.put(DvCount.class, unmodifiableMap(dvCount));
+        Map<String, AttributeAccessor> dvOrdinal = new HashMap<>();
+        dvOrdinal.put("value", dataValue -> ((DvOrdinal) dataValue).getValue());
+        dvOrdinal.put("symbol", dataValue -> ((DvOrdinal) dataValue).getSymbol());
+        dvOrdinal.put("terminologyId", dataValue -> ((DvOrdinal) dataValue).getTerminologyId());
+        dvOrdinal.put("label", dataValue -> ((DvOrdinal) dataValue).getLabel());
+        accessors.put(DvOrdinal.class, unmodifiableMap(dvOrdinal));
+        Map<String, AttributeAccessor> dvCodedText = new HashMap<>();
+        dvCodedText.put("value", dataValue -> ((DvCodedText) dataValue).getValue());
+        dvCodedText.put("definingCode", dataValue -> ((DvCodedText) dataValue).getDefiningCode());
+        accessors.put(DvCodedText.class, unmodifiableMap(dvCodedText));
+        Map<String, AttributeAccessor> codePhrase = new HashMap<>();
+        codePhrase.put("terminology", dataValue -> ((CodePhrase) dataValue).getTerminology());
+        codePhrase.put("code", dataValue -> ((CodePhrase) dataValue).getCode());
+        accessors.put(CodePhrase.class, unmodifiableMap(codePhrase));
+        Map<String, AttributeAccessor> dvText = new HashMap<>();
+        dvText.put("value", dataValue -> ((DvText) dataValue).getValue());
+        accessors.put(DvText.class, unmodifiableMap(dvText));
+        Map<String, AttributeAccessor> dvBoolean = new HashMap<>();
+        dvBoolean.put("value", dataValue -> ((DvBoolean) dataValue).getValue());
+        accessors.put(DvBoolean.class, unmodifiableMap(dvBoolean));
+        Map<String, AttributeAccessor> dvDate = new HashMap<>();
+        dvDate.put("date", dataValue -> ((DvDate) dataValue).getDate());
+        accessors.put(DvDate.class, unmodifiableMap(dvDate));
+        Map<String, AttributeAccessor> dvDateTime = new HashMap<>();
+        dvDateTime.put("dateTime", dataValue -> ((DvDateTime) dataValue).getDateTime());
+        accessors.put(DvDateTime.class, unmodifiableMap(dvDateTime));
+        return unmodifiableMap(accessors);
+    }
+
+    /**
+     * Accessor of an attribute at one place reading it, resolved again only when the registry or the type of the
+     * data value differs from the last read.
+     */
+    static final class Site {
+        private final String attribute;
+        private volatile Resolved resolved;
+
+        Site(String attribute) {
+            this.attribute = attribute;
+        }
+
+        AttributeAccessor resolve(AttributeAccessors attributeAccessors, Class<?> type) {
+            Resolved current = resolved;
+            if (current != null && current.attributeAccessors == attributeAccessors && current.type == type) {
+                return current.accessor;
+            }
+            AttributeAccessor accessor = attributeAccessors.resolve(type, attribute);
+            resolved = new Resolved(attributeAccessors, type, accessor);
+            return accessor;
+        }
+    }
+
+    private static final class Resolved {
+        private final AttributeAccessors attributeAccessors;
+        private final Class<?> type;
+        private final AttributeAccessor accessor;
+
+        Resolved(AttributeAccessors attributeAccessors, Class<?> type, AttributeAccessor accessor) {
+            this.attributeAccessors = attributeAccessors;
+            this.type = type;
+            this.accessor = accessor;
+        }
+    }
+}
@@ -0,0 +1,289 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Maps the results of classic mode to cards field by field, with the same cards as writing the result as json and
+ * reading a {@link Card} from it.
+ *
+ * <p>Maps of strings, lists and maps, and cards, are mapped directly; enums by their json names, numbers of
+ * resources as doubles. A result with values of other types, such as numbers for texts, malformed urls and uuids
+ * or objects of other classes, is mapped through json, so its card and its failures stay those of the json reader.
+ */
+final class CardMapper {
+    private static final Object NOT_MAPPED = new Object();
+
+    private CardMapper() {
+    }
+
+    static Card toCard(Object root) {
+        Object card = root instanceof Card ? copy((Card) root) : root instanceof Map ? card((Map) root) : NOT_MAPPED;
+        if (card == NOT_MAPPED) {
+            Gson gson = new Gson();
+            return gson.fromJson(gson.toJson(root), Card.class);
+        }
+        return (Card) card;
+    }
+
+    /*
+     * copy of a card as read back from its json: lists copied, immutable links shared, resources of actions as read
+     * from json
+     */
+    private static Object copy(Card card) {
+        List<Object> suggestions = null;
+        if (card.getSuggestions() != null) {
+            suggestions = new ArrayList<>(card.getSuggestions().size());
+            for (Suggestion suggestion : card.getSuggestions()) {
+                Object copy = suggestion == null ? null : copy(suggestion);
+                if (copy == NOT_MAPPED) {
+                    return NOT_MAPPED;
+                }
+                suggestions.add(copy);
+            }
+        }
+        List<Object> links = null;
+        if (card.getLinks() != null) {
+            links = new ArrayList<>(card.getLinks());
+        }
+        return newCard(card.getSummary(), card.getDetail(), card.getIndicator(), card.getSource(), suggestions, links);
+    }
+
+    private static Object copy(Suggestion suggestion) {
+        List<Object> actions = null;
+        if (suggestion.getActions() != null) {
+            actions = new ArrayList<>(suggestion.getActions().size());
+            for (Action action : suggestion.getActions()) {
+                Object resource = action == null ? null : resource(action.getResource());
+                if (action != null && (action.getResourceTemplate() != null || resource == NOT_MAPPED)) {
+                    return NOT_MAPPED;
+                }
+                actions.add(action == null ? null : Action.builder()
+                        .type(action.getType())
+                        .description(action.getDescription())
+                        .resource(resource)
+                        .build());
+            }
+        }
+        return newSuggestion(suggestion.getUuid(), suggestion.getLabel(), actions);
+    }
+
+    private static Object card(Map map) {
+        Object summary = string(map.get("summary"));
+        Object detail = string(map.get("detail"));
+        Object indicator = enumValue(Card.IndicatorEnum.class, map.get("indicator"));
+        Object source = object(map.get("source"), CardMapper::source);
+        Object suggestions = list(map.get("suggestions"), CardMapper::suggestion);
+        Object links = list(map.get("links"), CardMapper::link);
+        if (summary == NOT_MAPPED || detail == NOT_MAPPED || indicator == NOT_MAPPED || source == NOT_MAPPED
+                || suggestions == NOT_MAPPED || links == NOT_MAPPED) {
+            return NOT_MAPPED;
+        }
+        return newCard(summary, detail, indicator, source, suggestions, links);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Card newCard(Object summary, Object detail, Object indicator, Object source, Object suggestions, Object links) {
+        return Card.builder()
+                .summary((String) summary)
+                .detail((String) detail)
+                .indicator((Card.IndicatorEnum) indicator)
+                .source((Source) source)
+                .suggestions((List<Suggestion>) suggestions)
+                .links((List<Link>) links)
+                .build();
+    }
+
+    private static Object source(Map map) {
+        Object label = string(map.get("label"));
+        Object url = url(map.get("url"));
+        Object icon = url(map.get("icon"));
+        Object labelReference = string(map.get("labelReference"));
+        Object urlReference = string(map.get("urlReference"));
+        if (label == NOT_MAPPED || url == NOT_MAPPED || icon == NOT_MAPPED || labelReference == NOT_MAPPED || urlReference == NOT_MAPPED) {
+            return NOT_MAPPED;
+        }
+        return Source.builder()
+                .label((String) label)
+                .url((URL) url)
+                .icon((URL) icon)
+                .labelReference((String) labelReference)
+                .urlReference((String) urlReference)
+                .build();
+    }
+
+    private static Object suggestion(Map map) {
+        Object uuid = uuid(map.get("uuid"));
+        Object label = string(map.get("label"));
+        Object actions = list(map.get("actions"), CardMapper::action);
+        if (uuid == NOT_MAPPED || label == NOT_MAPPED || actions == NOT_MAPPED) {
+            return NOT_MAPPED;
+        }
+        return newSuggestion(uuid, label, actions);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Suggestion newSuggestion(Object uuid, Object label, Object actions) {
+        return Suggestion.builder()
+                .uuid((UUID) uuid)
+                .label((String) label)
+                .actions((List<Action>) actions)
+                .build();
+    }
+
+    private static Object action(Map map) {
+        Object type = enumValue(Action.ActionType.class, map.get("type"));
+        Object description = string(map.get("description"));
+        Object resource = resource(map.get("resource"));
+        if (type == NOT_MAPPED || description == NOT_MAPPED || resource == NOT_MAPPED || map.get("resourceTemplate") != null) {
+            return NOT_MAPPED;
+        }
+        return Action.builder()
+                .type((Action.ActionType) type)
+                .description((String) description)
+                .resource(resource)
+                .build();
+    }
+
+    private static Object link(Map map) {
+        Object label = string(map.get("label"));
+        Object url = url(map.get("url"));
+        Object type = enumValue(Link.LinkType.class, map.get("type"));
+        Object labelReference = string(map.get("labelReference"));
+        Object urlReference = string(map.get("urlReference"));
+        if (label == NOT_MAPPED || url == NOT_MAPPED || type == NOT_MAPPED || labelReference == NOT_MAPPED || urlReference == NOT_MAPPED) {
+            return NOT_MAPPED;
+        }
+        return Link.builder()
+                .label((String) label)
+                .url((URL) url)
+                .type((Link.LinkType) type)
+                .labelReference((String) labelReference)
+                .urlReference((String) urlReference)
+                .build();
+    }
+
+    private static Object string(Object value) {
+        return value == null || value instanceof String ? value : NOT_MAPPED;
+    }
+
+    /*
+     * constant by its json name, the lower case name of the constants of the card enums; null for other names
+     */
+    private static <E extends Enum<E>> Object enumValue(Class<E> enumClass, Object value) {
+        if (value == null) {
+            return null;
+        } else if (!(value instanceof String)) {
+            return NOT_MAPPED;
+        }
+        for (E constant : enumClass.getEnumConstants()) {
+            if (constant.name().toLowerCase(Locale.ROOT).equals(value)) {
+                return constant;
+            }
+        }
+        return null;
+    }
+
+    private static Object url(Object value) {
+        // the json reader of urls reads the text null as no url
+        if (value == null || "null".equals(value)) {
+            return null;
+        } else if (!(value instanceof String)) {
+            return NOT_MAPPED;
+        }
+        try {
+            return new URL((String) value);
+        } catch (MalformedURLException exception) {
+            return NOT_MAPPED;
+        }
+    }
+
+    private static Object uuid(Object value) {
+        if (value == null) {
+            return null;
+        } else if (!(value instanceof String)) {
+            return NOT_MAPPED;
+        }
+        try {
+            return UUID.fromString((String) value);
+        } catch (IllegalArgumentException exception) {
+            return NOT_MAPPED;
+        }
+    }
+
+    private static Object object(Object value, Function<Map, Object> mapper) {
+        if (value == null) {
+            return null;
+        }
+        return value instanceof Map ? mapper.apply((Map) value) : NOT_MAPPED;
+    }
+
+    private static Object list(Object value, Function<Map, Object> mapper) {
+        if (value == null) {
+            return null;
+        } else if (!(value instanceof List)) {
+            return NOT_MAPPED;
+        }
+        List<Object> list = new ArrayList<>(((List) value).size());
+        for (Object element : (List) value) {
+            Object mapped = object(element, mapper);
+            if (mapped == NOT_MAPPED) {
+                return NOT_MAPPED;
+            }
+            list.add(mapped);
+        }
+        return list;
+    }
+
+    /*
+     * resource as read from json into an object: maps without null values, lists, strings, booleans and numbers as
+     * doubles
+     */
+    @SuppressWarnings("unchecked")
+    private static Object resource(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        } else if (value instanceof Double || value instanceof Integer || value instanceof Long) {
+            double number = ((Number) value).doubleValue();
+            return Double.isNaN(number) || Double.isInfinite(number) || (value instanceof Long && (long) number != (Long) value)
+                    ? NOT_MAPPED : number;
+        } else if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                Object element = resource(entry.getValue());
+                if (!(entry.getKey() instanceof String) || element == NOT_MAPPED) {
+                    return NOT_MAPPED;
+                }
+                if (element != null) {
+                    map.put((String) entry.getKey(), element);
+                }
+            }
+            return map;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>(((List) value).size());
+            for (Object element : (List<Object>) value) {
+                Object resource = resource(element);
+                if (resource == NOT_MAPPED) {
+                    return NOT_MAPPED;
+                }
+                list.add(resource);
+            }
+            return list;
+        }
+        return NOT_MAPPED;
+    }
+}
@@ -0,0 +1,258 @@
+package org.gdl2.runtime;
+
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.cdshooks.UseTemplate;
+import org.gdl2.expression.Variable;
+import org.gdl2.resources.ResourceDescription;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermDefinition;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Matcher;
+
+import static org.gdl2.cdshooks.Link.LinkType.ABSOLUTE;
+
+/**
+ * Card of a rule compiled for the term definition of one language, rendering the same cards as substituting the
+ * variables of the card texts and resolving its references each time the rule fires.
+ *
+ * <p>Texts are split into literal text and variables once, with the texts of terms looked up and the other
+ * variables compiled to slot reads of the guideline. Referenced sources and links are resolved once. A text with
+ * a value containing "$" or "\", or with terms of a missing term definition, is substituted by the interpreter to
+ * keep the treatment of replacement patterns and the failures.
+ */
+final class CardRenderer {
+    private final Text summary;
+    private final Text detail;
+    private final Card.IndicatorEnum indicator;
+    private final Source source;
+    private final SuggestionRenderer[] suggestions;
+    private final LinkRenderer[] links;
+
+    CardRenderer(Card card, ResourceDescription resourceDescription, TermDefinition termDefinition, ExpressionCompiler expressionCompiler) {
+        this.summary = new Text(card.getSummary(), termDefinition, expressionCompiler);
+        this.detail = new Text(card.getDetail(), termDefinition, expressionCompiler);
+        this.indicator = card.getIndicator();
+        this.source = card.getSource() == null || resourceDescription == null
+                ? card.getSource() : referencedSource(card.getSource(), resourceDescription);
+        List<Suggestion> cardSuggestions = card.getSuggestions();
+        this.suggestions = new SuggestionRenderer[cardSuggestions == null ? 0 : cardSuggestions.size()];
+        for (int index = 0; index < suggestions.length; index++) {
+            suggestions[index] = new SuggestionRenderer(cardSuggestions.get(index), termDefinition, expressionCompiler);
+        }
+        List<Link> cardLinks = card.getLinks();
+        this.links = new LinkRenderer[cardLinks == null ? 0 : cardLinks.size()];
+        for (int index = 0; index < links.length; index++) {
+            links[index] = new LinkRenderer(cardLinks.get(index), resourceDescription, termDefinition, expressionCompiler);
+        }
+    }
+
+    Card render(Interpreter interpreter, Map<String, List<Object>> input, CompiledGuideline compiledGuideline,
+                TermDefinition termDefinition) {
+        EvaluationContext context = new EvaluationContext(interpreter, input, null, null);
+        List<Suggestion> renderedSuggestions = new ArrayList<>(suggestions.length);
+        for (SuggestionRenderer suggestion : suggestions) {
+            renderedSuggestions.add(suggestion.render(context, compiledGuideline, termDefinition));
+        }
+        List<Link> renderedLinks = new ArrayList<>(links.length);
+        for (LinkRenderer link : links) {
+            renderedLinks.add(link.render(context, termDefinition));
+        }
+        return Card.builder()
+                .summary(summary.render(context, termDefinition))
+                .detail(detail.render(context, termDefinition))
+                .indicator(indicator)
+                .source(source)
+                .suggestions(renderedSuggestions)
+                .links(renderedLinks)
+                .build();
+    }
+
+    private static Source referencedSource(Source source, ResourceDescription resourceDescription) {
+        return Source.builder()
+                .label(referencedLabel(source.getLabelReference(), resourceDescription))
+                .url(referencedUrl(source.getUrlReference(), resourceDescription))
+                .build();
+    }
+
+    private static String referencedLabel(String labelReference, ResourceDescription resourceDescription) {
+        String label = "";
+        if (labelReference != null && labelReference.startsWith("$ref[") && labelReference.endsWith("].label")) {
+            int index = Integer.parseInt(labelReference.substring(5, labelReference.indexOf("]"))) - 1;
+            if (index < resourceDescription.getReferences().size()) {
+                label = resourceDescription.getReferences().get(index).getLabel();
+            }
+        }
+        return label;
+    }
+
+    private static URL referencedUrl(String urlReference, ResourceDescription resourceDescription) {
+        URL url = null;
+        if (urlReference != null && urlReference.startsWith("$ref[") && urlReference.endsWith("].url")) {
+            int index = Integer.parseInt(urlReference.substring(5, urlReference.indexOf("]"))) - 1;
+            if (index < resourceDescription.getReferences().size()) {
+                try {
+                    url = new URL(resourceDescription.getReferences().get(index).getUrl());
+                } catch (MalformedURLException murle) {
+                    // ignore
+                }
+            }
+        }
+        return url;
+    }
+
+    private static final class SuggestionRenderer {
+        private final UUID uuid;
+        private final Text label;
+        private final Text[] descriptions;
+        private final Action.ActionType[] types;
+        private final UseTemplate[] resourceTemplates;
+
+        SuggestionRenderer(Suggestion suggestion, TermDefinition termDefinition, ExpressionCompiler expressionCompiler) {
+            this.uuid = suggestion.getUuid();
+            this.label = new Text(suggestion.getLabel(), termDefinition, expressionCompiler);
+            List<Action> actions = suggestion.getActions();
+            int size = actions == null ? 0 : actions.size();
+            this.descriptions = new Text[size];
+            this.types = new Action.ActionType[size];
+            this.resourceTemplates = new UseTemplate[size];
+            for (int index = 0; index < size; index++) {
+                Action action = actions.get(index);
+                descriptions[index] = new Text(action.getDescription(), termDefinition, expressionCompiler);
+                types[index] = action.getType();
+                resourceTemplates[index] = action.getResourceTemplate();
+            }
+        }
+
+        Suggestion render(EvaluationContext context, CompiledGuideline compiledGuideline, TermDefinition termDefinition) {
+            List<Action> actions = new ArrayList<>(descriptions.length);
+            for (int index = 0; index < descriptions.length; index++) {
+                Action.ActionBuilder actionBuilder = Action.builder()
+                        .description(descriptions[index].render(context, termDefinition))
+                        .type(types[index]);
+                if (resourceTemplates[index] != null) {
+                    actionBuilder.resource(context.getInterpreter().processUseTemplate(resourceTemplates[index], context.getInput(), compiledGuideline));
+                }
+                actions.add(actionBuilder.build());
+            }
+            return Suggestion.builder().actions(actions)
+                    .label(label.render(context, termDefinition))
+                    .uuid(uuid)
+                    .build();
+        }
+    }
+
+    /*
+     * link with a referenced label and url when it is absolute and the guideline has references, built once as links
+     * are immutable, else with its label rendered
+     */
+    private static final class LinkRenderer {
+        private final Text label;
+        private final Link referencedLink;
+        private final URL url;
+        private final Link.LinkType type;
+
+        LinkRenderer(Link link, ResourceDescription resourceDescription, TermDefinition termDefinition, ExpressionCompiler expressionCompiler) {
+            if (ABSOLUTE.equals(link.getType()) && resourceDescription != null) {
+                this.label = null;
+                this.url = referencedUrl(link.getUrlReference(), resourceDescription);
+                this.type = ABSOLUTE;
+                this.referencedLink = Link.builder()
+                        .label(referencedLabel(link.getLabelReference(), resourceDescription))
+                        .url(url)
+                        .type(type)
+                        .build();
+            } else {
+                this.label = new Text(link.getLabel(), termDefinition, expressionCompiler);
+                this.referencedLink = null;
+                this.url = link.getUrl();
+                this.type = link.getType();
+            }
+        }
+
+        Link render(EvaluationContext context, TermDefinition termDefinition) {
+            if (referencedLink != null) {
+                return referencedLink;
+            }
+            return Link.builder()
+                    .label(label.render(context, termDefinition))
+                    .url(url)
+                    .type(type)
+                    .build();
+        }
+    }
+
+    /*
+     * literal text between variables, as found by the variable regex of the interpreter; a variable without value is
+     * kept as it is
+     */
+    private static final class Text {
+        private final String source;
+        private final String[] texts;
+        private final String[] variables;
+        // text of the term, or the compiled value of other variables
+        private final Object[] values;
+        private final boolean interpreted;
+
+        Text(String source, TermDefinition termDefinition, ExpressionCompiler expressionCompiler) {
+            this.source = source;
+            List<String> literalTexts = new ArrayList<>();
+            List<String> variableTexts = new ArrayList<>();
+            List<Object> variableValues = new ArrayList<>();
+            boolean missingTerms = false;
+            Matcher matcher = source == null ? null : Interpreter.VARIABLE_REGEX.matcher(source);
+            int end = 0;
+            while (matcher != null && matcher.find()) {
+                String text = matcher.group();
+                Variable variable = Interpreter.parseVariable(text.substring(1, text.length() - 1));
+                if (Interpreter.TERM.equals(variable.getAttribute())) {
+                    missingTerms = missingTerms || termDefinition == null || termDefinition.getTerms() == null;
+                    Term term = missingTerms ? null : termDefinition.getTerms().get(variable.getCode());
+                    variableValues.add(term == null ? null : term.getText());
+                } else {
+                    variableValues.add(expressionCompiler.compile(variable));
+                }
+                literalTexts.add(source.substring(end, matcher.start()));
+                variableTexts.add(text);
+                end = matcher.end();
+            }
+            literalTexts.add(source == null ? null : source.substring(end));
+            this.texts = literalTexts.toArray(new String[0]);
+            this.variables = variableTexts.toArray(new String[0]);
+            this.values = variableValues.toArray();
+            this.interpreted = missingTerms;
+        }
+
+        String render(EvaluationContext context, TermDefinition termDefinition) {
+            if (source == null || variables.length == 0) {
+                return source;
+            } else if (interpreted) {
+                return context.getInterpreter().replaceVariablesWithValues(source, context.getInput(), termDefinition);
+            }
+            StringBuilder text = new StringBuilder(source.length() + 16);
+            for (int index = 0; index < variables.length; index++) {
+                text.append(texts[index]);
+                Object value = values[index] instanceof CompiledExpression ? ((CompiledExpression) values[index]).evaluate(context) : values[index];
+                if (value == null) {
+                    text.append(variables[index]);
+                    continue;
+                }
+                String replacement = value.toString();
+                if (replacement.indexOf('$') >= 0 || replacement.indexOf('\\') >= 0) {
+                    return context.getInterpreter().replaceVariablesWithValues(source, context.getInput(), termDefinition);
+                }
+                text.append(replacement);
+            }
+            return text.append(texts[variables.length]).toString();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.Variable;
+
+import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Data binding predicate comparing the value at a path with a value not depending on the data instance,
+ * like {@code /data/events/time >= $currentDateTime - 12,mo}, evaluated column-wise.
+ *
+ * <p>The values at the path are converted once to a {@code double[]} column the way the interpreter compares
+ * them, with NaN for missing values, which like the missing value itself never compare true. The other side is
+ * evaluated once, and the column is filtered by a loop collecting the positions of the selected instances.
+ *
+ * <p>Values the interpreter does not compare as plain doubles, e.g. quantities with units of time or strings
+ * that are not numbers, are left to the interpreter by returning null from {@link #filter}.
+ *
+ * <p>Given a {@link TimeIndex} of the path whose values are all date times, the column is not built and the
+ * selected instances are found by binary search in the index instead.
+ */
+final class ColumnarPredicate {
+    private final Variable variable;
+    private final String key;
+    private final OperatorKind operator;
+    private final Comparison comparison;
+    private final CompiledExpression operand;
+    private final AttributeAccessors.Site attributeSite;
+
+    private ColumnarPredicate(Variable variable, OperatorKind operator, Comparison comparison, CompiledExpression operand) {
+        this.variable = variable;
+        this.key = Interpreter.valueKey(variable);
+        this.operator = operator;
+        this.comparison = comparison;
+        this.operand = operand;
+        this.attributeSite = variable.getAttribute() == null ? null : new AttributeAccessors.Site(variable.getAttribute());
+    }
+
+    /**
+     * Returns the columnar form of a relational predicate of a plain path and a value not depending on the
+     * data instance, otherwise null.
+     */
+    static ColumnarPredicate of(BinaryExpression binaryExpression, ExpressionCompiler expressionCompiler) {
+        if (!(binaryExpression.getLeft() instanceof Variable) || !isInstanceIndependent(binaryExpression.getRight())) {
+            return null;
+        }
+        Variable variable = (Variable) binaryExpression.getLeft();
+        Comparison comparison = comparison(binaryExpression.getOperator());
+        if (variable.getCode() != null || variable.getPath() == null || variable.getAttribute() != null || comparison == null) {
+            return null;
+        }
+        return new ColumnarPredicate(variable, binaryExpression.getOperator(), comparison, expressionCompiler.compile(binaryExpression.getRight()));
+    }
+
+    /**
+     * Path of the data instance value compared, without any trailing /value/value.
+     */
+    String getKey() {
+        return key;
+    }
+
+    /**
+     * Selects the data instances for which the predicate is true.
+     *
+     * @param dataInstances data instances of the data binding
+     * @param context       context without input, in which the other side of the comparison is evaluated
+     * @return the selected data instances in the given order, or null if the interpreter has to evaluate the predicate
+     */
+    List<DataInstance> filter(List<DataInstance> dataInstances, EvaluationContext context) {
+        return filter(dataInstances, context, null);
+    }
+
+    /**
+     * Selects the data instances for which the predicate is true, using the time index of the path if its values
+     * are all date times.
+     *
+     * @param dataInstances data instances of the data binding, a subsequence of the instances of the time index
+     * @param context       context without input, in which the other side of the comparison is evaluated
+     * @param timeIndex     time index of the path, or null
+     * @return the selected data instances in the given order, or null if the interpreter has to evaluate the predicate
+     */
+    List<DataInstance> filter(List<DataInstance> dataInstances, EvaluationContext context, TimeIndex timeIndex) {
+        if (dataInstances.isEmpty()) {
+            return dataInstances;
+        }
+        Interpreter interpreter = context.getInterpreter();
+        Object value = operand.evaluate(context.withInput(Collections.emptyMap()));
+        if (value == null) {
+            // compared with null, the interpreter evaluates every comparison to null
+            return new ArrayList<>();
+        }
+        if (value instanceof TemporalAmount || value instanceof DvQuantity) {
+            return null;
+        }
+        double right;
+        try {
+            right = interpreter.convertObjectValueToDouble(value);
+        } catch (NumberFormatException exception) {
+            return null;
+        }
+        if (timeIndex != null && timeIndex.isTimesOnly()) {
+            return timeIndex.range(dataInstances, operator, right);
+        }
+        double[] column = column(dataInstances, interpreter);
+        if (column == null) {
+            return null;
+        }
+        int[] selection = new int[column.length];
+        int selected = 0;
+        for (int position = 0; position < column.length; position++) {
+            if (comparison.test(column[position], right)) {
+                selection[selected++] = position;
+            }
+        }
+        List<DataInstance> result = new ArrayList<>(selected);
+        for (int index = 0; index < selected; index++) {
+            result.add(dataInstances.get(selection[index]));
+        }
+        return result;
+    }
+
+    /*
+     * values at the path as the interpreter converts them to compare, null if one of them is not converted to a double
+     */
+    private double[] column(List<DataInstance> dataInstances, Interpreter interpreter) {
+        double[] column = new double[dataInstances.size()];
+        for (int position = 0; position < column.length; position++) {
+            Object value = interpreter.retrieveAttributeValue(variable, key, dataInstances.get(position).get(key), attributeSite);
+            if (value == null) {
+                column[position] = Double.NaN;
+            } else if (value instanceof TemporalAmount) {
+                return null;
+            } else {
+                try {
+                    column[position] = interpreter.convertObjectValueToDouble(value);
+                } catch (NumberFormatException exception) {
+                    return null;
+                }
+            }
+        }
+        return column;
+    }
+
+    private static boolean isInstanceIndependent(ExpressionItem expressionItem) {
+        if (expressionItem instanceof ConstantExpression) {
+            return true;
+        } else if (expressionItem instanceof Variable) {
+            String code = ((Variable) expressionItem).getCode();
+            return Interpreter.CURRENT_DATETIME.equals(code) || Interpreter.CURRENT_DATE.equals(code);
+        } else if (expressionItem instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expressionItem;
+            return isInstanceIndependent(binaryExpression.getLeft()) && isInstanceIndependent(binaryExpression.getRight());
+        }
+        return false;
+    }
+
+    private static Comparison comparison(OperatorKind operator) {
+        switch (operator) {
+            case GREATER_THAN:
+                return (left, right) -> left > right;
+            case GREATER_THAN_OR_EQUAL:
+                return (left, right) -> left >= right;
+            case LESS_THAN:
+                return (left, right) -> left < right;
+            case LESS_THAN_OR_EQUAL:
+                return (left, right) -> left <= right;
+            default:
+                return null;
+        }
+    }
+
+    private interface Comparison {
+        boolean test(double left, double right);
+    }
+}
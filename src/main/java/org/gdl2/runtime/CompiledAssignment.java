@@ -0,0 +1,33 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.ExpressionItem;
+
+import java.util.List;
+
+/**
+ * Then-statement or default action with its assigned value compiled. Create-instance and use-template
+ * statements keep their nested assignments instead of a value.
+ */
+final class CompiledAssignment {
+    private final ExpressionItem statement;
+    private final CompiledExpression value;
+    private final List<CompiledAssignment> assignments;
+
+    CompiledAssignment(ExpressionItem statement, CompiledExpression value, List<CompiledAssignment> assignments) {
+        this.statement = statement;
+        this.value = value;
+        this.assignments = assignments;
+    }
+
+    ExpressionItem getStatement() {
+        return statement;
+    }
+
+    CompiledExpression getValue() {
+        return value;
+    }
+
+    List<CompiledAssignment> getAssignments() {
+        return assignments;
+    }
+}
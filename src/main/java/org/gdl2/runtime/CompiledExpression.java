@@ -0,0 +1,58 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCount;
+
+/**
+ * Expression item pre-resolved by {@link ExpressionCompiler} into a tree of evaluator nodes.
+ */
+abstract class CompiledExpression {
+
+    abstract Object evaluate(EvaluationContext context);
+
+    boolean evaluateBoolean(EvaluationContext context) {
+        Object value = evaluate(context);
+        return value instanceof Boolean && (Boolean) value;
+    }
+
+    /**
+     * Evaluates the expression as an unboxed double, for numeric operators whose operands are all numbers.
+     *
+     * @throws NotNumeric if the value is not a number, in which case the operator at the root of the chain evaluates
+     *                    the chain once more as objects
+     */
+    double evaluateDouble(EvaluationContext context) {
+        return toDouble(evaluate(context));
+    }
+
+    /**
+     * Whether evaluating the expression again is cheap and has no side effects, so that an operator may first try
+     * evaluating it as a double and evaluate it once more as an object if it is not a number.
+     */
+    boolean isRepeatable() {
+        return false;
+    }
+
+    /*
+     * values the interpreter converts to the same double, everything else is left to the interpreter
+     */
+    static double toDouble(Object value) {
+        if (value instanceof Double || value instanceof Integer || value instanceof Long) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof DvCount) {
+            return ((DvCount) value).getMagnitude();
+        }
+        throw NotNumeric.INSTANCE;
+    }
+
+    /**
+     * Signals a value that is not a number while evaluating doubles, preallocated and without stack trace.
+     */
+    static final class NotNumeric extends RuntimeException {
+        static final NotNumeric INSTANCE = new NotNumeric();
+        private static final long serialVersionUID = 1L;
+
+        private NotNumeric() {
+            super("Not a numeric value", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable, executable form of a guideline created by {@link GuidelineCompiler}.
+ *
+ * <p>All metadata derived from the guideline model (rule order, assignable variables, element
+ * bindings per data binding etc.) is computed once, so the same instance can be executed
+ * any number of times by {@link Interpreter#execute(CompiledGuideline, List)}.
+ */
+public final class CompiledGuideline {
+    private final Guideline guideline;
+    private final List<CompiledRule> rules;
+    private final RuleNetwork ruleNetwork;
+    private final List<CompiledExpression> preConditions;
+    private final List<CompiledAssignment> defaultActions;
+    private final Map<String, List<CompiledPredicate>> predicatesByBindingId;
+    private final Map<String, List<String>> requiredPathsByBindingId;
+    private final Set<String> assignableCodes;
+    private final Map<String, Map<String, String>> pathToCodeByBindingId;
+    private final SlotLayout slotLayout;
+    private final Map<String, TemplateProgram> templatePrograms;
+    private final boolean usingCards;
+
+    CompiledGuideline(Guideline guideline, List<CompiledRule> rules, List<CompiledExpression> preConditions,
+                      List<CompiledAssignment> defaultActions, Map<String, List<CompiledPredicate>> predicatesByBindingId,
+                      Set<String> assignableCodes, Map<String, Map<String, String>> pathToCodeByBindingId, SlotLayout slotLayout,
+                      Map<String, TemplateProgram> templatePrograms, boolean usingCards) {
+        this.guideline = guideline;
+        this.rules = rules;
+        this.ruleNetwork = RuleNetwork.build(rules);
+        this.preConditions = preConditions;
+        this.defaultActions = defaultActions;
+        this.predicatesByBindingId = predicatesByBindingId;
+        this.requiredPathsByBindingId = requiredPaths(predicatesByBindingId);
+        this.assignableCodes = assignableCodes;
+        this.pathToCodeByBindingId = pathToCodeByBindingId;
+        this.slotLayout = slotLayout;
+        this.templatePrograms = templatePrograms;
+        this.usingCards = usingCards;
+    }
+
+    public Guideline getGuideline() {
+        return guideline;
+    }
+
+    public String getId() {
+        return guideline.getId();
+    }
+
+    /**
+     * Rules sorted by priority, highest priority first.
+     */
+    List<CompiledRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Shared when-statements of the rules, see {@link RuntimeConfiguration#isRuleNetworkEnabled()}.
+     */
+    RuleNetwork getRuleNetwork() {
+        return ruleNetwork;
+    }
+
+    List<CompiledExpression> getPreConditions() {
+        return preConditions;
+    }
+
+    List<CompiledAssignment> getDefaultActions() {
+        return defaultActions;
+    }
+
+    /**
+     * Predicates of the data binding, with max and min predicates last.
+     */
+    List<CompiledPredicate> getPredicates(String dataBindingKey) {
+        return predicatesByBindingId.get(dataBindingKey);
+    }
+
+    /**
+     * Paths at which the data instances selected by the predicates of the data binding must have a value,
+     * i.e. the paths of its leading is_a predicates and a following max/min predicate of a plain path.
+     */
+    List<String> getRequiredPaths(String dataBindingKey) {
+        return requiredPathsByBindingId.getOrDefault(dataBindingKey, Collections.emptyList());
+    }
+
+    Set<String> getAssignableCodes() {
+        return assignableCodes;
+    }
+
+    Map<String, String> getPathToCode(String dataBindingKey) {
+        return pathToCodeByBindingId.get(dataBindingKey);
+    }
+
+    /**
+     * Layout of the frames holding the values of an execution.
+     */
+    SlotLayout getSlotLayout() {
+        return slotLayout;
+    }
+
+    /**
+     * Program of the template with the key in the templates of the guideline, null if there is no such template.
+     */
+    TemplateProgram getTemplateProgram(String templateKey) {
+        return templatePrograms.get(templateKey);
+    }
+
+    boolean isUsingCards() {
+        return usingCards;
+    }
+
+    private static Map<String, List<String>> requiredPaths(Map<String, List<CompiledPredicate>> predicatesByBindingId) {
+        Map<String, List<String>> requiredPathsByBindingId = new HashMap<>();
+        predicatesByBindingId.forEach((dataBindingKey, predicates) -> {
+            List<String> requiredPaths = new ArrayList<>();
+            // only up to the first predicate that is not a plain is_a, so no instance is skipped that an earlier
+            // predicate would have failed on or selected instead, and max/min selects from the same instances
+            for (CompiledPredicate predicate : predicates) {
+                if (predicate.getPath() == null || predicate.getKind() == CompiledPredicate.Kind.BOOLEAN
+                        || predicate.getKind() == CompiledPredicate.Kind.INTERPRETED) {
+                    break;
+                }
+                if (!requiredPaths.contains(predicate.getPath())) {
+                    requiredPaths.add(predicate.getPath());
+                }
+                if (predicate.getKind() != CompiledPredicate.Kind.IS_A) {
+                    break;
+                }
+            }
+            if (!requiredPaths.isEmpty()) {
+                requiredPathsByBindingId.put(dataBindingKey, Collections.unmodifiableList(requiredPaths));
+            }
+        });
+        return requiredPathsByBindingId;
+    }
+}
@@ -0,0 +1,94 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Guidelines compiled once per guideline instance, for the entry points of {@link Interpreter} taking guidelines
+ * instead of compiled guidelines, so repeated executions of the same guidelines do not compile them again.
+ *
+ * <p>Guidelines are looked up by identity, not equality, as loaded guidelines are unmodifiable; a guideline changed
+ * after its first execution keeps executing as compiled then. Guidelines are held weakly and their compiled forms
+ * softly, so neither is kept in memory by the cache alone.
+ */
+final class CompiledGuidelineCache {
+    private final GuidelineCompiler guidelineCompiler;
+    private final ConcurrentHashMap<Key, SoftReference<CompiledGuideline>> compiledGuidelines = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Guideline> collected = new ReferenceQueue<>();
+
+    CompiledGuidelineCache(GuidelineCompiler guidelineCompiler) {
+        this.guidelineCompiler = guidelineCompiler;
+    }
+
+    CompiledGuideline get(Guideline guideline) {
+        if (guideline == null) {
+            throw new IllegalArgumentException("Guideline cannot be null.");
+        }
+        removeCollected();
+        SoftReference<CompiledGuideline> cached = compiledGuidelines.get(new Key(guideline, null));
+        CompiledGuideline compiledGuideline = cached == null ? null : cached.get();
+        if (compiledGuideline == null) {
+            compiledGuideline = guidelineCompiler.compile(guideline);
+            compiledGuidelines.put(new Key(guideline, collected), new SoftReference<>(compiledGuideline));
+        }
+        return compiledGuideline;
+    }
+
+    List<CompiledGuideline> get(List<Guideline> guidelines) {
+        if (guidelines == null) {
+            throw new IllegalArgumentException("List<Guideline> cannot be null.");
+        }
+        List<CompiledGuideline> compiled = new ArrayList<>(guidelines.size());
+        for (Guideline guideline : guidelines) {
+            compiled.add(get(guideline));
+        }
+        return compiled;
+    }
+
+    int size() {
+        removeCollected();
+        return compiledGuidelines.size();
+    }
+
+    private void removeCollected() {
+        for (Reference<? extends Guideline> key = collected.poll(); key != null; key = collected.poll()) {
+            compiledGuidelines.remove(key);
+        }
+    }
+
+    /*
+     * weak reference to a guideline, equal to references to the same instance
+     */
+    private static final class Key extends WeakReference<Guideline> {
+        private final int hash;
+
+        Key(Guideline guideline, ReferenceQueue<Guideline> queue) {
+            super(guideline, queue);
+            this.hash = System.identityHashCode(guideline);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Guideline guideline = get();
+            return guideline != null && guideline == ((Key) other).get();
+        }
+    }
+}
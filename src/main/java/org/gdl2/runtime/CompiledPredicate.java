@@ -0,0 +1,60 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.ExpressionItem;
+
+/**
+ * Data binding predicate classified once by {@link ExpressionCompiler}.
+ */
+final class CompiledPredicate {
+    private final Kind kind;
+    private final ExpressionItem predicate;
+    private final String path;
+    private final CompiledExpression expression;
+    private final ColumnarPredicate columnar;
+
+    CompiledPredicate(Kind kind, ExpressionItem predicate, String path, CompiledExpression expression) {
+        this(kind, predicate, path, expression, null);
+    }
+
+    CompiledPredicate(Kind kind, ExpressionItem predicate, String path, CompiledExpression expression, ColumnarPredicate columnar) {
+        this.kind = kind;
+        this.predicate = predicate;
+        this.path = path;
+        this.expression = expression;
+        this.columnar = columnar;
+    }
+
+    Kind getKind() {
+        return kind;
+    }
+
+    ExpressionItem getPredicate() {
+        return predicate;
+    }
+
+    /**
+     * Path of the data instance value tested by an is_a predicate, or compared by a max/min predicate
+     * of a plain path. Instances without a value at the path are never selected by these predicates.
+     */
+    String getPath() {
+        return path;
+    }
+
+    /**
+     * Operand of max/min, right-hand side of is_a or the whole predicate otherwise.
+     */
+    CompiledExpression getExpression() {
+        return expression;
+    }
+
+    /**
+     * Column-wise form of a boolean predicate, null if the predicate is not supported by {@link ColumnarPredicate}.
+     */
+    ColumnarPredicate getColumnar() {
+        return columnar;
+    }
+
+    enum Kind {
+        MAX, MIN, IS_A, BOOLEAN, INTERPRETED
+    }
+}
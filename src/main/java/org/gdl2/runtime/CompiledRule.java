@@ -0,0 +1,66 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Rule;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rule together with the metadata the interpreter needs each time the rule fires.
+ */
+final class CompiledRule {
+    private final Rule rule;
+    private final List<CompiledExpression> when;
+    private final List<CompiledAssignment> then;
+    private final Map<String, Class> typeMap;
+    private final boolean continuousAssignments;
+    private final boolean usingCards;
+    private final Map<String, List<CardRenderer>> cardRenderers;
+
+    CompiledRule(Rule rule, List<CompiledExpression> when, List<CompiledAssignment> then, Map<String, Class> typeMap,
+                 boolean continuousAssignments, boolean usingCards, Map<String, List<CardRenderer>> cardRenderers) {
+        this.rule = rule;
+        this.when = when;
+        this.then = then;
+        this.typeMap = typeMap;
+        this.continuousAssignments = continuousAssignments;
+        this.usingCards = usingCards;
+        this.cardRenderers = cardRenderers;
+    }
+
+    Rule getRule() {
+        return rule;
+    }
+
+    String getId() {
+        return rule.getId();
+    }
+
+    List<CompiledExpression> getWhen() {
+        return when;
+    }
+
+    List<CompiledAssignment> getThen() {
+        return then;
+    }
+
+    Map<String, Class> getTypeMap() {
+        return typeMap;
+    }
+
+    boolean hasContinuousAssignments() {
+        return continuousAssignments;
+    }
+
+    boolean hasCards() {
+        return usingCards;
+    }
+
+    /**
+     * Renderers of the cards of the rule for the term definition of the language, null as language for the rule
+     * rendered without term definition.
+     */
+    List<CardRenderer> getCardRenderers(String language) {
+        return cardRenderers.get(language);
+    }
+}
@@ -7,6 +7,9 @@ import java.util.*;
 /**
  * A simple data structure that matches the ArchetypeBinding in the instance space both as input
  * and output of GDL guideline executions.
+ *
+ * <p>Values are kept in a hash map by path, or by column of a {@link DataInstanceSchema} shared by the
+ * instances of a model id, see {@link Builder#Builder(DataInstanceSchema)} and {@link DataInstanceTable}.
  */
 public class DataInstance {
     public static final String ROOT = "/";
@@ -23,6 +26,27 @@ public class DataInstance {
         this.modelId = modelId;
     }
 
+    DataInstance(String id, String modelId, Map<String, Object> values) {
+        this.id = id;
+        this.modelId = modelId;
+        this.values = values;
+    }
+
+    /**
+     * Data instance reading its values from the given map, used as is without copying, e.g. a view decoding
+     * the values of a stored instance on demand.
+     *
+     * @param id       data binding id or null
+     * @param modelId  not null
+     * @param values   values indexed by path, not null
+     * @return the data instance
+     */
+    public static DataInstance of(String id, String modelId, Map<String, Object> values) {
+        assertNotNull(modelId, "Null modelId");
+        assertNotNull(values, "Null values");
+        return new DataInstance(id, modelId, values);
+    }
+
     private static void assertNotNull(Object object, String message) {
         if (object == null) {
             throw new IllegalArgumentException(message);
@@ -153,7 +177,19 @@ public class DataInstance {
     }
 
     public static class Builder {
-        private DataInstance dataInstance = new DataInstance();
+        private DataInstance dataInstance;
+
+        public Builder() {
+            dataInstance = new DataInstance();
+        }
+
+        /**
+         * Builder of an instance of the model id of the schema, storing its values by column of the schema.
+         */
+        public Builder(DataInstanceSchema schema) {
+            assertNotNull(schema, "Null schema");
+            dataInstance = new DataInstance(null, schema.getModelId(), new SchemaValues.Row(schema));
+        }
 
         public Builder id(String id) {
             assertNotNull(id, "Null id");
@@ -163,6 +199,8 @@ public class DataInstance {
 
         public Builder modelId(String modelId) {
             assertNotNull(modelId, "Null modelId");
+            assertTrue(!(dataInstance.values instanceof SchemaValues) || modelId.equals(dataInstance.modelId),
+                    "modelId differs from schema: " + modelId);
             dataInstance.modelId = modelId;
             return this;
         }
@@ -0,0 +1,154 @@
+package org.gdl2.runtime;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Input data instances of one execution bucketed by model id, so selecting the instances of a data binding
+ * does not scan the whole input.
+ *
+ * <p>For each model id and path, a presence bitmap of the instances having a value at the path is built the
+ * first time it is needed and kept for the rest of the execution. All guidelines of an execution query the
+ * index of the input, extended with the results of the guidelines before them by {@link #with(List)}.
+ *
+ * <p>Likewise, a {@link TimeIndex} of the instances of a model id by the date time at a path is built the first
+ * time a max/min or time range predicate needs it. An extension without instances of the model id shares the
+ * time index of its parent, so guidelines not adding instances of the model id reuse it.
+ */
+final class DataInstanceIndex {
+    private static final DataInstanceIndex EMPTY = new DataInstanceIndex(null, Collections.emptyMap());
+
+    private final DataInstanceIndex parent;
+    private final Map<String, List<DataInstance>> dataInstancesByModelId;
+    private final ConcurrentMap<String, ConcurrentMap<String, BitSet>> presenceByModelId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, TimeIndex>> timeIndexByModelId = new ConcurrentHashMap<>();
+
+    private DataInstanceIndex(DataInstanceIndex parent, Map<String, List<DataInstance>> dataInstancesByModelId) {
+        this.parent = parent;
+        this.dataInstancesByModelId = dataInstancesByModelId;
+    }
+
+    /**
+     * Indexes the data instances, keeping their order within each model id.
+     */
+    static DataInstanceIndex of(Collection<DataInstance> dataInstances) {
+        return dataInstances.isEmpty() ? EMPTY : new DataInstanceIndex(null, bucket(dataInstances));
+    }
+
+    /**
+     * Index of the data instances of this index followed by the given ones, sharing the buckets and presence
+     * bitmaps of this index.
+     */
+    DataInstanceIndex with(List<DataInstance> dataInstances) {
+        return dataInstances.isEmpty() ? this : new DataInstanceIndex(this, bucket(dataInstances));
+    }
+
+    /**
+     * Data instances of the model id, in input order.
+     */
+    List<DataInstance> select(String modelId) {
+        List<DataInstance> own = dataInstancesByModelId.getOrDefault(modelId, Collections.emptyList());
+        if (parent == null) {
+            return own;
+        }
+        List<DataInstance> inherited = parent.select(modelId);
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        List<DataInstance> selected = new ArrayList<>(inherited.size() + own.size());
+        selected.addAll(inherited);
+        selected.addAll(own);
+        return selected;
+    }
+
+    /**
+     * Data instances of the model id having a value at each of the paths, in input order.
+     */
+    List<DataInstance> select(String modelId, Collection<String> requiredPaths) {
+        if (requiredPaths.isEmpty()) {
+            return select(modelId);
+        }
+        List<DataInstance> own = selectOwn(modelId, requiredPaths);
+        if (parent == null) {
+            return own;
+        }
+        List<DataInstance> inherited = parent.select(modelId, requiredPaths);
+        if (own.isEmpty()) {
+            return inherited;
+        }
+        List<DataInstance> selected = new ArrayList<>(inherited.size() + own.size());
+        selected.addAll(inherited);
+        selected.addAll(own);
+        return selected;
+    }
+
+    /**
+     * Bitmap of the positions in the model id bucket of this index whose instances have a value at the path.
+     */
+    BitSet presence(String modelId, String path) {
+        List<DataInstance> bucket = dataInstancesByModelId.getOrDefault(modelId, Collections.emptyList());
+        return presenceByModelId.computeIfAbsent(modelId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(path, key -> {
+                    BitSet presence = new BitSet(bucket.size());
+                    for (int position = 0; position < bucket.size(); position++) {
+                        if (bucket.get(position).get(path) != null) {
+                            presence.set(position);
+                        }
+                    }
+                    return presence;
+                });
+    }
+
+    /**
+     * Time index of the data instances of the model id, as returned by {@link #select(String)}, by the date time at the path.
+     */
+    TimeIndex timeIndex(String modelId, String path) {
+        if (parent != null && !dataInstancesByModelId.containsKey(modelId)) {
+            return parent.timeIndex(modelId, path);
+        }
+        return timeIndexByModelId.computeIfAbsent(modelId, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(path, key -> TimeIndex.of(select(modelId), path));
+    }
+
+    private List<DataInstance> selectOwn(String modelId, Collection<String> requiredPaths) {
+        List<DataInstance> bucket = dataInstancesByModelId.getOrDefault(modelId, Collections.emptyList());
+        if (bucket.isEmpty()) {
+            return bucket;
+        }
+        BitSet selection = null;
+        for (String path : requiredPaths) {
+            BitSet presence = presence(modelId, path);
+            if (selection == null) {
+                selection = (BitSet) presence.clone();
+            } else {
+                selection.and(presence);
+            }
+        }
+        if (selection.cardinality() == bucket.size()) {
+            return bucket;
+        }
+        List<DataInstance> selected = new ArrayList<>(selection.cardinality());
+        for (int position = selection.nextSetBit(0); position >= 0; position = selection.nextSetBit(position + 1)) {
+            selected.add(bucket.get(position));
+        }
+        return selected;
+    }
+
+    private static Map<String, List<DataInstance>> bucket(Collection<DataInstance> dataInstances) {
+        Map<String, List<DataInstance>> dataInstancesByModelId = new HashMap<>();
+        for (DataInstance dataInstance : dataInstances) {
+            if (dataInstance.modelId() != null) {
+                dataInstancesByModelId.computeIfAbsent(dataInstance.modelId(), key -> new ArrayList<>()).add(dataInstance);
+            }
+        }
+        dataInstancesByModelId.replaceAll((modelId, bucket) -> Collections.unmodifiableList(bucket));
+        return dataInstancesByModelId;
+    }
+}
@@ -0,0 +1,78 @@
+package org.gdl2.runtime;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Paths of the data instances of a model id, numbered as columns shared by all instances built with the schema.
+ *
+ * <p>Instances built by {@link DataInstance.Builder#Builder(DataInstanceSchema)} store their values in an array
+ * indexed by column, and instances added to a {@link DataInstanceTable} in one array per column, instead of a
+ * hash map keyed by path per instance. Each path string is kept once by the schema, and the accessors of
+ * {@link DataInstance} keep working through map views of the arrays.
+ *
+ * <p>Columns are added the first time a path is set, and never removed. A schema can be shared by threads.
+ */
+public final class DataInstanceSchema {
+    private final String modelId;
+    private volatile String[] paths = new String[0];
+    private volatile Map<String, Integer> columnsByPath = Collections.emptyMap();
+
+    public DataInstanceSchema(String modelId) {
+        if (modelId == null) {
+            throw new IllegalArgumentException("Null modelId");
+        }
+        this.modelId = modelId;
+    }
+
+    public String getModelId() {
+        return modelId;
+    }
+
+    /**
+     * Number of columns, one per path set so far.
+     */
+    public int size() {
+        return paths.length;
+    }
+
+    /**
+     * Column of the path, or -1 if no instance of the schema has a value at the path.
+     */
+    int columnOf(String path) {
+        Integer column = columnsByPath.get(path);
+        return column == null ? -1 : column;
+    }
+
+    /**
+     * Column of the path, added if missing.
+     */
+    int column(String path) {
+        int column = columnOf(path);
+        return column >= 0 ? column : addColumn(path);
+    }
+
+    String path(int column) {
+        return paths[column];
+    }
+
+    /*
+     * copy on write, so looking up columns takes no lock; paths are published before the columns referring to them
+     */
+    private synchronized int addColumn(String path) {
+        Integer existing = columnsByPath.get(path);
+        if (existing != null) {
+            return existing;
+        }
+        int column = paths.length;
+        String[] extendedPaths = Arrays.copyOf(paths, column + 1);
+        extendedPaths[column] = path;
+        Map<String, Integer> extendedColumns = new HashMap<>(columnsByPath);
+        extendedColumns.put(path, column);
+        paths = extendedPaths;
+        columnsByPath = extendedColumns;
+        return column;
+    }
+}
@@ -0,0 +1,132 @@
+package org.gdl2.runtime;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data instances of one model id arriving in bulk, stored in one array per column of a shared
+ * {@link DataInstanceSchema}, so the values at a path of all instances are next to each other.
+ *
+ * <p>The instances returned are views of their row, with the accessors of any other {@link DataInstance}.
+ * Adding instances or setting values is not thread-safe, reading them once added is.
+ */
+public final class DataInstanceTable {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final DataInstanceSchema schema;
+    private final List<DataInstance> dataInstances = new ArrayList<>();
+    private Object[][] columns = new Object[0][];
+    private int capacity = INITIAL_CAPACITY;
+
+    public DataInstanceTable(DataInstanceSchema schema) {
+        if (schema == null) {
+            throw new IllegalArgumentException("Null schema");
+        }
+        this.schema = schema;
+    }
+
+    public DataInstanceSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Adds a row with the values by path, null values ignored.
+     *
+     * @return the data instance of the row
+     */
+    public DataInstance add(Map<String, Object> values) {
+        return addRow(null, values);
+    }
+
+    /**
+     * Adds a row for each data instance, with its id and values.
+     *
+     * @param dataInstances instances of the model id of the schema
+     * @return the data instances of the rows, in the given order
+     */
+    public List<DataInstance> addAll(Collection<DataInstance> dataInstances) {
+        List<DataInstance> added = new ArrayList<>(dataInstances.size());
+        for (DataInstance dataInstance : dataInstances) {
+            if (!schema.getModelId().equals(dataInstance.modelId())) {
+                throw new IllegalArgumentException("Unexpected modelId: " + dataInstance.modelId());
+            }
+            added.add(addRow(dataInstance.id(), dataInstance.values()));
+        }
+        return added;
+    }
+
+    /**
+     * Data instances of the rows, in the order added.
+     */
+    public List<DataInstance> getDataInstances() {
+        return Collections.unmodifiableList(dataInstances);
+    }
+
+    public int size() {
+        return dataInstances.size();
+    }
+
+    /**
+     * Values at the path of all rows in the order added, null where a row has no value, read from the array of
+     * the column without going through the data instances.
+     */
+    public List<Object> column(String path) {
+        int column = schema.columnOf(path);
+        int rows = dataInstances.size();
+        Object[] values = column >= 0 && column < columns.length ? columns[column] : null;
+        return new AbstractList<Object>() {
+            @Override
+            public Object get(int row) {
+                if (row < 0 || row >= rows) {
+                    throw new IndexOutOfBoundsException("Row: " + row);
+                }
+                return values == null ? null : values[row];
+            }
+
+            @Override
+            public int size() {
+                return rows;
+            }
+        };
+    }
+
+    Object value(int column, int row) {
+        Object[][] current = columns;
+        return column < current.length && current[column] != null ? current[column][row] : null;
+    }
+
+    void setValue(int column, int row, Object value) {
+        if (column >= columns.length) {
+            columns = Arrays.copyOf(columns, Math.max(column + 1, schema.size()));
+        }
+        if (columns[column] == null) {
+            columns[column] = new Object[capacity];
+        }
+        columns[column][row] = value;
+    }
+
+    private DataInstance addRow(String id, Map<String, Object> values) {
+        int row = dataInstances.size();
+        if (row == capacity) {
+            capacity *= 2;
+            for (int column = 0; column < columns.length; column++) {
+                if (columns[column] != null) {
+                    columns[column] = Arrays.copyOf(columns[column], capacity);
+                }
+            }
+        }
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            if (entry.getValue() != null) {
+                setValue(schema.column(entry.getKey()), row, entry.getValue());
+            }
+        }
+        DataInstance dataInstance = new DataInstance(id, schema.getModelId(), new SchemaValues.TableRow(this, row));
+        dataInstances.add(dataInstance);
+        return dataInstance;
+    }
+}
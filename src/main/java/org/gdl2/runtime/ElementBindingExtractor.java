@@ -0,0 +1,233 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import com.jayway.jsonpath.JsonPath;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.Template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Element bindings of an output template compiled into accessors navigating the maps and lists of the filled
+ * template object, with the values found as reading the template object written as json by the json path of the
+ * element binding.
+ *
+ * <p>Values are taken directly when they are strings, booleans, numbers and maps and lists of those, converted
+ * the way the json path reader parses them. A path the accessors can not follow, for instance through a value
+ * without a value or of another type, and a value of another type, are read by json path from the json of the
+ * object, so the results and the failures stay those of json path.
+ */
+final class ElementBindingExtractor {
+    private static final String ROOT = "/";
+    private static final String DV_CODED_TEXT = "DV_CODED_TEXT";
+    private static final String DV_TEXT = "DV_TEXT";
+    private static final String DEFINING_CODE = "definingCode";
+    private static final Pattern SEGMENT = Pattern.compile("([A-Za-z_][A-Za-z0-9_]*)((?:\\[\\d{1,9}])*)");
+    private static final Pattern INDEX = Pattern.compile("\\[(\\d+)]");
+    // longest number text json path reads as a double rather than a big decimal
+    private static final int MAX_DOUBLE_LENGTH = 18;
+    private static final Object NOT_FOUND = new Object();
+
+    private final Template template;
+    private final Binding[] bindings;
+
+    ElementBindingExtractor(Template template) {
+        this.template = template;
+        List<ElementBinding> elementBindings = template.getElementBindings();
+        this.bindings = elementBindings == null ? null : new Binding[elementBindings.size()];
+        for (int index = 0; bindings != null && index < bindings.length; index++) {
+            ElementBinding elementBinding = elementBindings.get(index);
+            bindings[index] = new Binding(elementBinding.getPath(), elementBinding.getType());
+        }
+    }
+
+    /**
+     * Data instance of the object filled from the template, with the whole object at the root path and the values
+     * of the element bindings at their paths.
+     */
+    DataInstance extract(Object object) {
+        DataInstance dataInstance = new DataInstance.Builder()
+                .id(template.getId())
+                .modelId(template.getModelId())
+                .addValue(ROOT, object)
+                .build();
+        if (bindings == null) {
+            return dataInstance;
+        }
+        Object named = template.getName() == null ? object : ((Map) object).get(template.getName());
+        String json = null;
+        for (Binding binding : bindings) {
+            Object value = binding.read(named);
+            if (value == NOT_FOUND) {
+                if (json == null) {
+                    json = new Gson().toJson(named);
+                }
+                value = binding.readJson(json);
+            }
+            if (value != null) {
+                dataInstance.setValue(binding.path, value);
+            }
+        }
+        return dataInstance;
+    }
+
+    /*
+     * value as json path reads it from the json of the value, or NOT_FOUND for values of other types
+     */
+    @SuppressWarnings("unchecked")
+    private static Object jsonValue(Object value) {
+        if (value instanceof String || value instanceof Boolean || value instanceof Integer) {
+            return value;
+        } else if (value instanceof Double) {
+            Double number = (Double) value;
+            return !number.isNaN() && !number.isInfinite() && number.toString().length() <= MAX_DOUBLE_LENGTH ? number : NOT_FOUND;
+        } else if (value instanceof Long) {
+            long number = (Long) value;
+            return number >= Integer.MIN_VALUE && number <= Integer.MAX_VALUE ? Integer.valueOf((int) number) : value;
+        } else if (value instanceof Map) {
+            Map<String, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<Object, Object> entry : ((Map<Object, Object>) value).entrySet()) {
+                if (!(entry.getKey() instanceof String)) {
+                    return NOT_FOUND;
+                }
+                if (entry.getValue() != null) {
+                    Object element = jsonValue(entry.getValue());
+                    if (element == NOT_FOUND) {
+                        return NOT_FOUND;
+                    }
+                    map.put((String) entry.getKey(), element);
+                }
+            }
+            return map;
+        } else if (value instanceof List) {
+            List<Object> list = new ArrayList<>();
+            for (Object element : (List<Object>) value) {
+                Object jsonElement = element == null ? null : jsonValue(element);
+                if (jsonElement == NOT_FOUND) {
+                    return NOT_FOUND;
+                }
+                list.add(jsonElement);
+            }
+            return list;
+        }
+        return NOT_FOUND;
+    }
+
+    /*
+     * same as reading the json of a DvCodedText: a map of strings, or the DvCodedText itself
+     */
+    private static Object codedText(Object value) {
+        if (value instanceof DvCodedText) {
+            return value;
+        } else if (!(value instanceof Map)) {
+            return NOT_FOUND;
+        }
+        Map map = (Map) value;
+        Object text = map.get("value");
+        Object definingCode = map.get(DEFINING_CODE);
+        if ((text != null && !(text instanceof String)) || (definingCode != null && !(definingCode instanceof Map))) {
+            return NOT_FOUND;
+        }
+        CodePhrase codePhrase = null;
+        if (definingCode != null) {
+            Object terminology = ((Map) definingCode).get("terminology");
+            Object code = ((Map) definingCode).get("code");
+            if ((terminology != null && !(terminology instanceof String)) || (code != null && !(code instanceof String))) {
+                return NOT_FOUND;
+            }
+            codePhrase = new CodePhrase((String) terminology, (String) code);
+        }
+        return new DvCodedText((String) text, codePhrase);
+    }
+
+    private static final class Binding {
+        private final String path;
+        private final String type;
+        private final String jsonPath;
+        // map keys and list indexes, null for paths read by json path only
+        private final Object[] segments;
+
+        Binding(String path, String type) {
+            this.path = path;
+            this.type = type;
+            this.jsonPath = "$" + path.replaceAll("/", ".");
+            this.segments = compile(path);
+        }
+
+        private static Object[] compile(String path) {
+            if (path.isEmpty()) {
+                return new Object[0];
+            } else if (!path.startsWith("/")) {
+                return null;
+            }
+            List<Object> segments = new ArrayList<>();
+            for (String segment : path.substring(1).split("/", -1)) {
+                Matcher matcher = SEGMENT.matcher(segment);
+                if (!matcher.matches()) {
+                    return null;
+                }
+                segments.add(matcher.group(1));
+                Matcher index = INDEX.matcher(matcher.group(2));
+                while (index.find()) {
+                    segments.add(Integer.valueOf(index.group(1)));
+                }
+            }
+            return segments.toArray();
+        }
+
+        /*
+         * value of the element binding, or NOT_FOUND when it is to be read by json path
+         */
+        Object read(Object object) {
+            if (segments == null) {
+                return NOT_FOUND;
+            }
+            Object current = object;
+            for (Object segment : segments) {
+                if (segment instanceof String && current instanceof Map) {
+                    current = ((Map) current).get(segment);
+                } else if (segment instanceof Integer && current instanceof List && (Integer) segment < ((List) current).size()) {
+                    current = ((List) current).get((Integer) segment);
+                } else {
+                    return NOT_FOUND;
+                }
+                if (current == null) {
+                    return NOT_FOUND;
+                }
+            }
+            return convert(current);
+        }
+
+        private Object convert(Object value) {
+            if (DV_CODED_TEXT.equals(type)) {
+                return codedText(value);
+            }
+            Object jsonValue = jsonValue(value);
+            if (DV_TEXT.equals(type)) {
+                // json path prints its lists as json, so only texts of single values are taken directly
+                return jsonValue == NOT_FOUND || jsonValue instanceof Map || jsonValue instanceof List
+                        ? NOT_FOUND : DvText.valueOf(jsonValue.toString());
+            }
+            return jsonValue;
+        }
+
+        Object readJson(String json) {
+            Object value = JsonPath.read(json, jsonPath);
+            if (DV_CODED_TEXT.equals(type)) {
+                Gson gson = new Gson();
+                return gson.fromJson(gson.toJson(value), DvCodedText.class);
+            } else if (DV_TEXT.equals(type)) {
+                return DvText.valueOf(value.toString());
+            }
+            return value;
+        }
+    }
+}
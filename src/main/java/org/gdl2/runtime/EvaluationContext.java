@@ -0,0 +1,46 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * State a {@link CompiledExpression} is evaluated against: the interpreter providing runtime configuration
+ * and value operations, the current values, and the guideline and fired rules when available. Public for
+ * {@link GeneratedExpression}s, which only pass it on.
+ */
+public final class EvaluationContext {
+    private final Interpreter interpreter;
+    private final Map<String, List<Object>> input;
+    private final Guideline guideline;
+    private final Set<String> firedRules;
+
+    EvaluationContext(Interpreter interpreter, Map<String, List<Object>> input, Guideline guideline, Set<String> firedRules) {
+        this.interpreter = interpreter;
+        this.input = input;
+        this.guideline = guideline;
+        this.firedRules = firedRules;
+    }
+
+    EvaluationContext withInput(Map<String, List<Object>> otherInput) {
+        return new EvaluationContext(interpreter, otherInput, guideline, firedRules);
+    }
+
+    Interpreter getInterpreter() {
+        return interpreter;
+    }
+
+    Map<String, List<Object>> getInput() {
+        return input;
+    }
+
+    Guideline getGuideline() {
+        return guideline;
+    }
+
+    Set<String> getFiredRules() {
+        return firedRules;
+    }
+}
@@ -0,0 +1,20 @@
+package org.gdl2.runtime;
+
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * Values of a single execution that override those of the {@link RuntimeConfiguration} of the interpreter,
+ * so one interpreter can be shared by requests with e.g. different current date times or languages.
+ * Values left null are taken from the runtime configuration.
+ */
+@Value
+@Builder
+public class ExecutionContext {
+    private ZonedDateTime currentDateTime;
+    private String language;
+    private ZoneId timezoneId;
+}
@@ -0,0 +1,215 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.Template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.gdl2.model.DataBinding.Type.INPUT;
+
+/**
+ * Order and stages in which {@link Interpreter#executeGuidelines(List, List)} executes guidelines.
+ *
+ * <p>A guideline reads the data instances of the model ids of its data bindings and writes those of its
+ * templates and output data bindings. Guidelines writing a model id read by others are moved before them,
+ * otherwise the given order is kept, also for guidelines depending on each other both ways.
+ *
+ * <p>Each stage holds guidelines not sharing a model id that one of them writes, so their input does not
+ * depend on each other and they can be executed in parallel.
+ */
+final class ExecutionPlan {
+    private final List<CompiledGuideline> plannedGuidelines;
+    private final List<CompiledGuideline> guidelines;
+    private final List<int[]> stages;
+
+    private ExecutionPlan(List<CompiledGuideline> plannedGuidelines, List<CompiledGuideline> guidelines,
+                          List<int[]> stages) {
+        this.plannedGuidelines = plannedGuidelines;
+        this.guidelines = guidelines;
+        this.stages = stages;
+    }
+
+    /**
+     * Plans the execution of the guidelines.
+     *
+     * @param compiledGuidelines          guidelines in the given order
+     * @param includingInputWithPredicate whether input data bindings with predicates are part of the result,
+     *                                    see {@link RuntimeConfiguration#isIncludingInputWithPredicate()}
+     * @return the plan
+     */
+    static ExecutionPlan of(List<CompiledGuideline> compiledGuidelines, boolean includingInputWithPredicate) {
+        int size = compiledGuidelines.size();
+        List<Set<String>> reads = new ArrayList<>(size);
+        List<Set<String>> writes = new ArrayList<>(size);
+        for (CompiledGuideline compiledGuideline : compiledGuidelines) {
+            GuideDefinition guideDefinition = compiledGuideline.getGuideline().getDefinition();
+            reads.add(readModelIds(guideDefinition));
+            writes.add(writtenModelIds(guideDefinition, includingInputWithPredicate));
+        }
+        boolean[][] conflicting = new boolean[size][size];
+        List<List<Integer>> successors = new ArrayList<>(size);
+        int[] predecessorCount = new int[size];
+        for (int index = 0; index < size; index++) {
+            successors.add(new ArrayList<>());
+        }
+        for (int first = 0; first < size; first++) {
+            for (int second = first + 1; second < size; second++) {
+                boolean secondReadsFirst = intersect(writes.get(first), reads.get(second));
+                boolean firstReadsSecond = intersect(writes.get(second), reads.get(first));
+                if (!secondReadsFirst && !firstReadsSecond && !intersect(writes.get(first), writes.get(second))) {
+                    continue;
+                }
+                conflicting[first][second] = true;
+                conflicting[second][first] = true;
+                if (firstReadsSecond && !secondReadsFirst) {
+                    successors.get(second).add(first);
+                    predecessorCount[first]++;
+                } else {
+                    successors.get(first).add(second);
+                    predecessorCount[second]++;
+                }
+            }
+        }
+        int[] order = sortTopologically(successors, predecessorCount);
+        List<CompiledGuideline> guidelines = new ArrayList<>(size);
+        for (int index : order) {
+            guidelines.add(compiledGuidelines.get(index));
+        }
+        return new ExecutionPlan(new ArrayList<>(compiledGuidelines), Collections.unmodifiableList(guidelines),
+                stages(order, conflicting));
+    }
+
+    /**
+     * Whether this is the plan of the same guideline instances in the same given order.
+     */
+    boolean isPlanOf(List<CompiledGuideline> compiledGuidelines) {
+        if (compiledGuidelines.size() != plannedGuidelines.size()) {
+            return false;
+        }
+        for (int index = 0; index < compiledGuidelines.size(); index++) {
+            if (compiledGuidelines.get(index) != plannedGuidelines.get(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Guidelines in execution order.
+     */
+    List<CompiledGuideline> getGuidelines() {
+        return guidelines;
+    }
+
+    /**
+     * Positions in {@link #getGuidelines()} of the guidelines of each stage, in ascending order.
+     */
+    List<int[]> getStages() {
+        return stages;
+    }
+
+    /*
+     * Kahn's algorithm taking the lowest given index first, a cycle is broken at its lowest index
+     */
+    private static int[] sortTopologically(List<List<Integer>> successors, int[] predecessorCount) {
+        int size = predecessorCount.length;
+        int[] order = new int[size];
+        boolean[] sorted = new boolean[size];
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int index = 0; index < size; index++) {
+            if (predecessorCount[index] == 0) {
+                ready.add(index);
+            }
+        }
+        for (int position = 0; position < size; position++) {
+            int next;
+            if (ready.isEmpty()) {
+                next = 0;
+                while (sorted[next]) {
+                    next++;
+                }
+            } else {
+                next = ready.poll();
+            }
+            sorted[next] = true;
+            order[position] = next;
+            for (int successor : successors.get(next)) {
+                if (--predecessorCount[successor] == 0 && !sorted[successor]) {
+                    ready.add(successor);
+                }
+            }
+        }
+        return order;
+    }
+
+    /*
+     * each guideline goes one stage after the last guideline before it in the order that it conflicts with
+     */
+    private static List<int[]> stages(int[] order, boolean[][] conflicting) {
+        int[] stageOfPosition = new int[order.length];
+        int stageCount = 0;
+        for (int position = 0; position < order.length; position++) {
+            int stage = 0;
+            for (int previous = 0; previous < position; previous++) {
+                if (conflicting[order[previous]][order[position]]) {
+                    stage = Math.max(stage, stageOfPosition[previous] + 1);
+                }
+            }
+            stageOfPosition[position] = stage;
+            stageCount = Math.max(stageCount, stage + 1);
+        }
+        List<int[]> stages = new ArrayList<>(stageCount);
+        for (int stage = 0; stage < stageCount; stage++) {
+            final int current = stage;
+            stages.add(IntStream.range(0, order.length)
+                    .filter(position -> stageOfPosition[position] == current)
+                    .toArray());
+        }
+        return Collections.unmodifiableList(stages);
+    }
+
+    private static Set<String> readModelIds(GuideDefinition guideDefinition) {
+        Set<String> modelIds = new HashSet<>();
+        if (guideDefinition.getDataBindings() != null) {
+            for (DataBinding dataBinding : guideDefinition.getDataBindings().values()) {
+                modelIds.add(dataBinding.getModelId());
+            }
+        }
+        return modelIds;
+    }
+
+    private static Set<String> writtenModelIds(GuideDefinition guideDefinition, boolean includingInputWithPredicate) {
+        Set<String> modelIds = new HashSet<>();
+        if (guideDefinition.getTemplates() != null) {
+            for (Template template : guideDefinition.getTemplates().values()) {
+                modelIds.add(template.getModelId());
+            }
+        }
+        if (guideDefinition.getDataBindings() != null) {
+            for (DataBinding dataBinding : guideDefinition.getDataBindings().values()) {
+                boolean inputInResult = includingInputWithPredicate
+                        && dataBinding.getPredicates() != null && !dataBinding.getPredicates().isEmpty();
+                if (!INPUT.equals(dataBinding.getType()) || inputInResult) {
+                    modelIds.add(dataBinding.getModelId());
+                }
+            }
+        }
+        return modelIds;
+    }
+
+    private static boolean intersect(Set<String> first, Set<String> second) {
+        for (String modelId : first) {
+            if (second.contains(modelId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,726 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.AnyExpression;
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.FunctionalExpression;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.QuantityConstant;
+import org.gdl2.expression.ReferenceVariable;
+import org.gdl2.expression.UnaryExpression;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+
+import java.time.DateTimeException;
+import java.time.temporal.TemporalAmount;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleFunction;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Compiles expression items into trees of {@link CompiledExpression} nodes, so that operator dispatch,
+ * constant conversion and flattening of long expressions happen once per guideline instead of on
+ * each evaluation.
+ *
+ * <p>Nodes delegate to the same value operations of {@link Interpreter} as the tree-walking evaluation.
+ * Expressions that cannot be compiled are left to the interpreter, which also keeps reporting
+ * malformed expressions at evaluation time.
+ */
+final class ExpressionCompiler {
+    private static final CompiledExpression NULL_VALUE = new Constant(null);
+
+    private final SlotLayout slotLayout;
+    private final Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators;
+
+    ExpressionCompiler() {
+        this(null);
+    }
+
+    /**
+     * Creates a compiler resolving variables to slots of the layout, which is extended by variables not in it yet.
+     *
+     * @param slotLayout layout of the guideline, null to always look up variables by key
+     */
+    ExpressionCompiler(SlotLayout slotLayout) {
+        this(slotLayout, emptyMap());
+    }
+
+    /**
+     * Creates a compiler evaluating the expression items of the evaluators, by identity, by their generated code.
+     *
+     * @param slotLayout layout of the guideline, null to always look up variables by key
+     * @param evaluators generated evaluators of expression items, e.g. when conditions and assigned values
+     */
+    ExpressionCompiler(SlotLayout slotLayout, Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators) {
+        this.slotLayout = slotLayout;
+        this.evaluators = evaluators;
+    }
+
+    CompiledExpression compile(ExpressionItem expressionItem) {
+        GeneratedExpression.Evaluator evaluator = evaluators.get(expressionItem);
+        return evaluator == null ? compileExpressionItem(expressionItem) : GeneratedExpression.of(expressionItem, evaluator, this);
+    }
+
+    List<CompiledExpression> compile(List<ExpressionItem> expressionItems) {
+        if (expressionItems == null) {
+            return emptyList();
+        }
+        List<CompiledExpression> compiledExpressions = new ArrayList<>(expressionItems.size());
+        for (ExpressionItem expressionItem : expressionItems) {
+            compiledExpressions.add(compile(expressionItem));
+        }
+        return unmodifiableList(compiledExpressions);
+    }
+
+    static CompiledExpression interpreted(ExpressionItem expressionItem) {
+        return new Interpreted(expressionItem);
+    }
+
+    List<CompiledAssignment> compileStatements(List<? extends ExpressionItem> statements) {
+        if (statements == null) {
+            return emptyList();
+        }
+        List<CompiledAssignment> compiledAssignments = new ArrayList<>(statements.size());
+        for (ExpressionItem statement : statements) {
+            compiledAssignments.add(compileStatement(statement));
+        }
+        return unmodifiableList(compiledAssignments);
+    }
+
+    private CompiledAssignment compileStatement(ExpressionItem statement) {
+        if (statement instanceof CreateInstanceExpression) {
+            return new CompiledAssignment(statement, null,
+                    compileStatements(((CreateInstanceExpression) statement).getAssignmentExpressions()));
+        } else if (statement instanceof AssignmentExpression) {
+            ExpressionItem assignment = ((AssignmentExpression) statement).getAssignment();
+            CompiledExpression value = assignment instanceof QuantityConstant
+                    ? new Constant(((QuantityConstant) assignment).getQuantity()) : compile(assignment);
+            return new CompiledAssignment(statement, value, emptyList());
+        } else if (statement instanceof UseTemplateExpression) {
+            // template assignments are evaluated as plain values, without the quantity constant special case
+            List<CompiledAssignment> templateAssignments = new ArrayList<>();
+            for (AssignmentExpression assignmentExpression : ((UseTemplateExpression) statement).getAssignmentExpressions()) {
+                templateAssignments.add(new CompiledAssignment(assignmentExpression, compile(assignmentExpression.getAssignment()), emptyList()));
+            }
+            return new CompiledAssignment(statement, null, unmodifiableList(templateAssignments));
+        }
+        return new CompiledAssignment(statement, null, emptyList());
+    }
+
+    /**
+     * Compiles data binding predicates, with max and min predicates moved last as the interpreter does.
+     */
+    List<CompiledPredicate> compilePredicates(List<ExpressionItem> predicateStatements) {
+        if (predicateStatements == null) {
+            return emptyList();
+        }
+        List<CompiledPredicate> compiledPredicates = new ArrayList<>();
+        List<CompiledPredicate> maxOrMinPredicates = new ArrayList<>();
+        for (ExpressionItem predicateStatement : predicateStatements) {
+            CompiledPredicate compiledPredicate = compilePredicate(predicateStatement);
+            if (compiledPredicate.getKind() == CompiledPredicate.Kind.MAX || compiledPredicate.getKind() == CompiledPredicate.Kind.MIN) {
+                maxOrMinPredicates.add(compiledPredicate);
+            } else {
+                compiledPredicates.add(compiledPredicate);
+            }
+        }
+        compiledPredicates.addAll(maxOrMinPredicates);
+        return unmodifiableList(compiledPredicates);
+    }
+
+    private CompiledPredicate compilePredicate(ExpressionItem predicateStatement) {
+        if (predicateStatement instanceof UnaryExpression) {
+            UnaryExpression unaryExpression = (UnaryExpression) predicateStatement;
+            if (OperatorKind.MAX == unaryExpression.getOperator()) {
+                return new CompiledPredicate(CompiledPredicate.Kind.MAX, predicateStatement, valuePath(unaryExpression.getOperand()),
+                        compile(unaryExpression.getOperand()));
+            } else if (OperatorKind.MIN == unaryExpression.getOperator()) {
+                return new CompiledPredicate(CompiledPredicate.Kind.MIN, predicateStatement, valuePath(unaryExpression.getOperand()),
+                        compile(unaryExpression.getOperand()));
+            }
+        } else if (predicateStatement instanceof BinaryExpression) {
+            return compileBinaryPredicate(predicateStatement, (BinaryExpression) predicateStatement);
+        } else if (predicateStatement instanceof LongExpression) {
+            BinaryExpression binaryExpression = toBinaryExpression((LongExpression) predicateStatement);
+            if (binaryExpression != null) {
+                return compileBinaryPredicate(predicateStatement, binaryExpression);
+            }
+        }
+        return new CompiledPredicate(CompiledPredicate.Kind.INTERPRETED, predicateStatement, null, null);
+    }
+
+    /*
+     * path of an operand reading the data instance value at the path as it is, otherwise null
+     */
+    private static String valuePath(ExpressionItem operand) {
+        if (!(operand instanceof Variable)) {
+            return null;
+        }
+        Variable variable = (Variable) operand;
+        return variable.getCode() == null && variable.getPath() != null && variable.getAttribute() == null
+                ? Interpreter.valueKey(variable) : null;
+    }
+
+    private CompiledPredicate compileBinaryPredicate(ExpressionItem predicateStatement, BinaryExpression binaryExpression) {
+        if (!(binaryExpression.getLeft() instanceof Variable)) {
+            return new CompiledPredicate(CompiledPredicate.Kind.INTERPRETED, predicateStatement, null, null);
+        }
+        String path = ((Variable) binaryExpression.getLeft()).getPath();
+        if (OperatorKind.IS_A == binaryExpression.getOperator()) {
+            return new CompiledPredicate(CompiledPredicate.Kind.IS_A, predicateStatement, path, compile(binaryExpression.getRight()));
+        }
+        GeneratedExpression.Evaluator evaluator = evaluators.get(predicateStatement);
+        CompiledExpression compiledExpression = evaluator == null
+                ? compile(binaryExpression) : GeneratedExpression.of(predicateStatement, evaluator, this);
+        return new CompiledPredicate(CompiledPredicate.Kind.BOOLEAN, predicateStatement, path, compiledExpression,
+                ColumnarPredicate.of(binaryExpression, this));
+    }
+
+    private CompiledExpression compileExpressionItem(ExpressionItem expressionItem) {
+        if (expressionItem instanceof ConstantExpression) {
+            return compileConstant(expressionItem);
+        } else if (expressionItem instanceof ReferenceVariable) {
+            return interpreted(expressionItem);
+        } else if (expressionItem instanceof Variable) {
+            return compileVariable((Variable) expressionItem);
+        } else if (expressionItem instanceof BinaryExpression) {
+            return compileBinaryExpression((BinaryExpression) expressionItem);
+        } else if (expressionItem instanceof UnaryExpression) {
+            return compileUnaryExpression((UnaryExpression) expressionItem);
+        } else if (expressionItem instanceof AnyExpression) {
+            AnyExpression anyExpression = (AnyExpression) expressionItem;
+            if (slotLayout != null) {
+                for (Variable variable : anyExpression.getInputVariables()) {
+                    slotLayout.addSlot(variable.getCode());
+                }
+            }
+            return new Any(anyExpression.getInputVariables(), compile(anyExpression.getOperand()));
+        } else if (expressionItem instanceof FunctionalExpression) {
+            return compileFunctionalExpression((FunctionalExpression) expressionItem);
+        } else if (expressionItem instanceof LongExpression) {
+            BinaryExpression binaryExpression = toBinaryExpression((LongExpression) expressionItem);
+            return binaryExpression == null ? interpreted(expressionItem) : compileBinaryExpression(binaryExpression);
+        }
+        return interpreted(expressionItem);
+    }
+
+    /*
+     * constants with values not converting, e.g. a malformed date time, fail on evaluation as interpreted
+     */
+    private static CompiledExpression compileConstant(ExpressionItem expressionItem) {
+        try {
+            return new Constant(Interpreter.evaluateConstantExpression(expressionItem));
+        } catch (NullPointerException | DateTimeException | UnsupportedOperationException exception) {
+            return interpreted(expressionItem);
+        }
+    }
+
+    /*
+     * the long expression as binary expressions, null if its operands and operators do not form one
+     */
+    static BinaryExpression toBinaryExpression(LongExpression longExpression) {
+        try {
+            return longExpression.toBinaryExpression();
+        } catch (ClassCastException | IndexOutOfBoundsException exception) {
+            return null;
+        }
+    }
+
+    private CompiledExpression compileVariable(Variable variable) {
+        String attribute = variable.getAttribute();
+        if (Interpreter.TERM.equals(attribute) || Interpreter.COUNT.equals(attribute) || Interpreter.SUM.equals(attribute)) {
+            return interpreted(variable);
+        }
+        String key = Interpreter.valueKey(variable);
+        if (slotLayout == null || Interpreter.CURRENT_DATETIME.equals(variable.getCode()) || Interpreter.CURRENT_DATE.equals(variable.getCode())) {
+            return new VariableValue(variable, key, null, SlotLayout.NO_SLOT);
+        }
+        return new VariableValue(variable, key, slotLayout, slotLayout.addSlot(key));
+    }
+
+    private CompiledExpression compileUnaryExpression(UnaryExpression unaryExpression) {
+        OperatorKind operator = unaryExpression.getOperator();
+        if ((operator == OperatorKind.FIRED || operator == OperatorKind.NOT_FIRED) && unaryExpression.getOperand() instanceof Variable) {
+            return new Fired(((Variable) unaryExpression.getOperand()).getCode(), operator == OperatorKind.FIRED);
+        } else if (operator == OperatorKind.NOT) {
+            return new Not(compile(unaryExpression.getOperand()));
+        }
+        return interpreted(unaryExpression);
+    }
+
+    private CompiledExpression compileFunctionalExpression(FunctionalExpression functionalExpression) {
+        DoubleFunction<Object> function = functionalExpression.getFunction() == null
+                ? null : Interpreter.mathFunction(functionalExpression.getFunction().toString());
+        List<ExpressionItem> items = functionalExpression.getItems();
+        if (function == null || items == null || items.isEmpty()) {
+            return interpreted(functionalExpression);
+        }
+        return new MathFunction(function, compile(items.get(0)));
+    }
+
+    private CompiledExpression compileBinaryExpression(BinaryExpression binaryExpression) {
+        CompiledExpression left = binaryExpression.getLeft() == null ? NULL_VALUE : compile(binaryExpression.getLeft());
+        CompiledExpression right = binaryExpression.getRight() == null ? NULL_VALUE : compile(binaryExpression.getRight());
+        return compileBinaryExpression(binaryExpression, left, right);
+    }
+
+    private Binary compileBinaryExpression(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right) {
+        OperatorKind operator = binaryExpression.getOperator();
+        switch (operator) {
+            case AND:
+                return new And(binaryExpression, left, right);
+            case OR:
+                return new Or(binaryExpression, left, right);
+            case ADDITION:
+                return new Arithmetic(binaryExpression, left, right, (first, second) -> first + second);
+            case SUBTRACTION:
+                return new Arithmetic(binaryExpression, left, right, (first, second) -> first - second);
+            case MULTIPLICATION:
+                return new Arithmetic(binaryExpression, left, right, (first, second) -> first * second);
+            case DIVISION:
+                return new Arithmetic(binaryExpression, left, right, (first, second) -> first / second);
+            case EXPONENT:
+                return new Arithmetic(binaryExpression, left, right, Math::pow);
+            case GREATER_THAN:
+                return new Relational(binaryExpression, left, right, (first, second) -> first > second);
+            case GREATER_THAN_OR_EQUAL:
+                return new Relational(binaryExpression, left, right, (first, second) -> first >= second);
+            case LESS_THAN:
+                return new Relational(binaryExpression, left, right, (first, second) -> first < second);
+            case LESS_THAN_OR_EQUAL:
+                return new Relational(binaryExpression, left, right, (first, second) -> first <= second);
+            case EQUALITY:
+                return new Equality(binaryExpression, left, right, true);
+            case UNEQUAL:
+                return new Equality(binaryExpression, left, right, false);
+            case IS_A:
+                return new IsA(binaryExpression, left, right, true);
+            case IS_NOT_A:
+                return new IsA(binaryExpression, left, right, false);
+            default:
+                return new UnsupportedOperator(binaryExpression, left, right);
+        }
+    }
+
+    /*
+     * operator of a generated expression, only applied to the values of its operands evaluated by the generated code
+     */
+    Binary compileOperator(BinaryExpression binaryExpression) {
+        return compileBinaryExpression(binaryExpression, NULL_VALUE, NULL_VALUE);
+    }
+
+    /*
+     * values converted to double without loss by Interpreter#convertObjectValueToDouble
+     */
+    static boolean isPlainNumber(Object value) {
+        return value instanceof Double || value instanceof Integer || value instanceof Long;
+    }
+
+    /*
+     * value of an operand, evaluating arithmetic as objects without first trying doubles
+     */
+    private static Object objectValue(CompiledExpression operand, EvaluationContext context) {
+        return operand instanceof Arithmetic ? ((Arithmetic) operand).evaluateObjects(context) : operand.evaluate(context);
+    }
+
+    private interface DoubleOperator {
+        double apply(double left, double right);
+    }
+
+    private interface DoubleComparison {
+        boolean test(double left, double right);
+    }
+
+    private static final class Constant extends CompiledExpression {
+        private final Object value;
+        private final boolean numeric;
+        private final double doubleValue;
+
+        Constant(Object value) {
+            this.value = value;
+            this.numeric = isPlainNumber(value);
+            this.doubleValue = numeric ? ((Number) value).doubleValue() : Double.NaN;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            return value;
+        }
+
+        @Override
+        double evaluateDouble(EvaluationContext context) {
+            if (!numeric) {
+                throw NotNumeric.INSTANCE;
+            }
+            return doubleValue;
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return true;
+        }
+    }
+
+    private static final class Interpreted extends CompiledExpression {
+        private final ExpressionItem expressionItem;
+
+        Interpreted(ExpressionItem expressionItem) {
+            this.expressionItem = expressionItem;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            return context.getInterpreter().evaluateExpressionItem(expressionItem, context.getInput(),
+                    context.getGuideline(), context.getFiredRules());
+        }
+    }
+
+    private static final class VariableValue extends CompiledExpression {
+        private final Variable variable;
+        private final String key;
+        private final SlotLayout slotLayout;
+        private final int slot;
+        private final AttributeAccessors.Site attributeSite;
+
+        VariableValue(Variable variable, String key, SlotLayout slotLayout, int slot) {
+            this.variable = variable;
+            this.key = key;
+            this.slotLayout = slotLayout;
+            this.slot = slot;
+            this.attributeSite = variable.getAttribute() == null ? null : new AttributeAccessors.Site(variable.getAttribute());
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            Map<String, List<Object>> input = context.getInput();
+            if (slot != SlotLayout.NO_SLOT && input instanceof SlotFrame && ((SlotFrame) input).getLayout() == slotLayout) {
+                SlotFrame frame = (SlotFrame) input;
+                List<Object> valueList = frame.valueList(slot);
+                if (valueList == null) {
+                    return null;
+                }
+                return context.getInterpreter().retrieveAttributeValue(variable, key, frame.currentValue(slot, valueList), attributeSite);
+            }
+            return context.getInterpreter().retrieveValueFromValueMap(variable, key, input, attributeSite);
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return true;
+        }
+    }
+
+    private static final class Fired extends CompiledExpression {
+        private final String ruleId;
+        private final boolean fired;
+
+        Fired(String ruleId, boolean fired) {
+            this.ruleId = ruleId;
+            this.fired = fired;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            return context.getFiredRules().contains(ruleId) == fired;
+        }
+    }
+
+    private static final class Not extends CompiledExpression {
+        private final CompiledExpression operand;
+
+        Not(CompiledExpression operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            return BooleanEvaluator.getInstance().logicNot((Boolean) operand.evaluate(context));
+        }
+    }
+
+    private static final class MathFunction extends CompiledExpression {
+        private final DoubleFunction<Object> function;
+        private final CompiledExpression operand;
+
+        MathFunction(DoubleFunction<Object> function, CompiledExpression operand) {
+            this.function = function;
+            this.operand = operand;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            Object value = operand.evaluate(context);
+            return function.apply(value instanceof Double ? (Double) value : Double.valueOf(value.toString()));
+        }
+
+        @Override
+        double evaluateDouble(EvaluationContext context) {
+            if (!operand.isRepeatable()) {
+                return toDouble(evaluate(context));
+            }
+            double value;
+            try {
+                value = operand.evaluateDouble(context);
+            } catch (NotNumeric notNumeric) {
+                return toDouble(evaluate(context));
+            }
+            return toDouble(function.apply(value));
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return operand.isRepeatable();
+        }
+    }
+
+    private static final class Any extends CompiledExpression {
+        private final List<String> idList;
+        private final CompiledExpression operand;
+
+        Any(List<Variable> inputVariables, CompiledExpression operand) {
+            List<String> ids = new ArrayList<>();
+            for (Variable variable : inputVariables) {
+                ids.add(variable.getCode());
+            }
+            this.idList = unmodifiableList(ids);
+            this.operand = operand;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object evaluate(EvaluationContext context) {
+            Interpreter interpreter = context.getInterpreter();
+            Map<String, List<Object>> input = context.getInput();
+            int maxListSize = interpreter.maxValueListSize(input, idList);
+            if (!input.containsKey(Interpreter.CURRENT_INDEX)) {
+                input.put(Interpreter.CURRENT_INDEX, singletonList(new HashMap<>()));
+            }
+            Map<String, Integer> indexMap = (Map) input.get(Interpreter.CURRENT_INDEX).get(0);
+            for (int i = 0; i < maxListSize; i++) {
+                Map<String, List<Object>> singletonListValueMap = interpreter.createSingletonListByIndex(idList, input, i);
+                if (Boolean.valueOf(operand.evaluate(context.withInput(singletonListValueMap)).toString())) {
+                    for (String id : idList) {
+                        indexMap.put(id, i);
+                    }
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    abstract static class Binary extends CompiledExpression {
+        final BinaryExpression binaryExpression;
+        final CompiledExpression left;
+        final CompiledExpression right;
+
+        Binary(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right) {
+            this.binaryExpression = binaryExpression;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            return evaluate(context, left.evaluate(context));
+        }
+
+        Object evaluate(EvaluationContext context, Object leftValue) {
+            return evaluate(context, leftValue, right.evaluate(context));
+        }
+
+        Object evaluate(EvaluationContext context, Object leftValue, Object rightValue) {
+            if (leftValue instanceof TemporalAmount || rightValue instanceof TemporalAmount) {
+                return context.getInterpreter().evaluateDateTimeExpression(binaryExpression.getOperator(), leftValue, rightValue);
+            }
+            return apply(context, leftValue, rightValue);
+        }
+
+        /*
+         * evaluates the operands as objects, including operators below them that would first try doubles
+         */
+        Object evaluateObjects(EvaluationContext context) {
+            Object leftValue = objectValue(left, context);
+            return evaluate(context, leftValue, objectValue(right, context));
+        }
+
+        abstract Object apply(EvaluationContext context, Object leftValue, Object rightValue);
+    }
+
+    private static final class And extends Binary {
+        And(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right) {
+            super(binaryExpression, left, right);
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            Object leftValue = left.evaluate(context);
+            if (Boolean.FALSE.equals(leftValue)) {
+                return Boolean.FALSE;
+            }
+            return evaluate(context, leftValue);
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            return BooleanEvaluator.getInstance().logicAnd((Boolean) leftValue, (Boolean) rightValue);
+        }
+    }
+
+    private static final class Or extends Binary {
+        Or(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right) {
+            super(binaryExpression, left, right);
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            Object leftValue = left.evaluate(context);
+            if (Boolean.TRUE.equals(leftValue)) {
+                return Boolean.TRUE;
+            }
+            return evaluate(context, leftValue);
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            return BooleanEvaluator.getInstance().logicOr((Boolean) leftValue, (Boolean) rightValue);
+        }
+    }
+
+    private static final class Arithmetic extends Binary {
+        private final DoubleOperator operator;
+
+        private final boolean repeatable;
+
+        Arithmetic(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right, DoubleOperator operator) {
+            super(binaryExpression, left, right);
+            this.operator = operator;
+            this.repeatable = left.isRepeatable() && right.isRepeatable();
+        }
+
+        /*
+         * the whole chain of numeric operators is evaluated on doubles, boxing only the result; if a value is not
+         * a number, only this root of the chain evaluates it again, as objects
+         */
+        @Override
+        Object evaluate(EvaluationContext context) {
+            if (!repeatable) {
+                return evaluateObjects(context);
+            }
+            try {
+                return evaluateDouble(context);
+            } catch (NotNumeric notNumeric) {
+                return evaluateObjects(context);
+            }
+        }
+
+        @Override
+        double evaluateDouble(EvaluationContext context) {
+            if (!repeatable) {
+                return toDouble(evaluateObjects(context));
+            }
+            double leftValue = left.evaluateDouble(context);
+            return operator.apply(leftValue, right.evaluateDouble(context));
+        }
+
+        @Override
+        boolean isRepeatable() {
+            return repeatable;
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            if (isPlainNumber(leftValue) && isPlainNumber(rightValue)) {
+                return operator.apply(((Number) leftValue).doubleValue(), ((Number) rightValue).doubleValue());
+            }
+            return context.getInterpreter().evaluateArithmeticExpression(binaryExpression.getOperator(), leftValue, rightValue, binaryExpression);
+        }
+    }
+
+    private static final class Relational extends Binary {
+        private final DoubleComparison comparison;
+
+        private final boolean repeatable;
+
+        Relational(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right, DoubleComparison comparison) {
+            super(binaryExpression, left, right);
+            this.comparison = comparison;
+            this.repeatable = left.isRepeatable() && right.isRepeatable();
+        }
+
+        @Override
+        Object evaluate(EvaluationContext context) {
+            if (!repeatable) {
+                return evaluateObjects(context);
+            }
+            double leftValue;
+            double rightValue;
+            try {
+                leftValue = left.evaluateDouble(context);
+                rightValue = right.evaluateDouble(context);
+            } catch (NotNumeric notNumeric) {
+                return evaluateObjects(context);
+            }
+            return comparison.test(leftValue, rightValue);
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            if (isPlainNumber(leftValue) && isPlainNumber(rightValue)) {
+                return comparison.test(((Number) leftValue).doubleValue(), ((Number) rightValue).doubleValue());
+            }
+            return context.getInterpreter().evaluateRelationalExpression(binaryExpression.getOperator(), leftValue, rightValue, binaryExpression);
+        }
+    }
+
+    private static final class Equality extends Binary {
+        private final boolean equal;
+
+        Equality(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right, boolean equal) {
+            super(binaryExpression, left, right);
+            this.equal = equal;
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            return context.getInterpreter().evaluateEqualityExpression(leftValue, rightValue) == equal;
+        }
+    }
+
+    private static final class IsA extends Binary {
+        private final boolean isA;
+
+        IsA(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right, boolean isA) {
+            super(binaryExpression, left, right);
+            this.isA = isA;
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            return context.getInterpreter().evaluateIsARelationship(leftValue, rightValue, context.getGuideline().getOntology()) == isA;
+        }
+    }
+
+    private static final class UnsupportedOperator extends Binary {
+        UnsupportedOperator(BinaryExpression binaryExpression, CompiledExpression left, CompiledExpression right) {
+            super(binaryExpression, left, right);
+        }
+
+        @Override
+        Object apply(EvaluationContext context, Object leftValue, Object rightValue) {
+            throw new IllegalArgumentException("Unsupported operator in expressionItem: " + binaryExpression
+                    + ", leftValue: " + leftValue + ", rightValue: " + rightValue);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.UnaryExpression;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Expression evaluated by generated code, e.g. by the classes of {@code GuidelineSourceGenerator}, passed to
+ * {@link GuidelineCompiler#compile(org.gdl2.model.Guideline, java.util.Map)} for when conditions, assigned values and
+ * predicates.
+ *
+ * <p>The generated code evaluates the operators of the expression; its other nodes, e.g. variables, constants and
+ * functions, are operands evaluated by their compiled nodes. Nodes are numbered in pre-order of the expression, with
+ * operators found by {@link #operator(ExpressionItem)}, so the generated code and the compiler agree on them.
+ */
+public final class GeneratedExpression extends CompiledExpression {
+    private static final Set<OperatorKind> BINARY_OPERATORS = EnumSet.of(OperatorKind.AND, OperatorKind.OR,
+            OperatorKind.ADDITION, OperatorKind.SUBTRACTION, OperatorKind.MULTIPLICATION, OperatorKind.DIVISION, OperatorKind.EXPONENT,
+            OperatorKind.GREATER_THAN, OperatorKind.GREATER_THAN_OR_EQUAL, OperatorKind.LESS_THAN, OperatorKind.LESS_THAN_OR_EQUAL,
+            OperatorKind.EQUALITY, OperatorKind.UNEQUAL, OperatorKind.IS_A, OperatorKind.IS_NOT_A);
+
+    private final Evaluator evaluator;
+    private final CompiledExpression[] nodes;
+
+    private GeneratedExpression(Evaluator evaluator, CompiledExpression[] nodes) {
+        this.evaluator = evaluator;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Generated evaluation of an expression.
+     */
+    public interface Evaluator {
+        Object evaluate(GeneratedExpression expression, EvaluationContext context);
+    }
+
+    /**
+     * The operator of an expression node: the binary expression of binary and long expressions with an operator
+     * evaluated by generated code, or the unary expression of a not. Null for nodes evaluated as operands.
+     */
+    public static ExpressionItem operator(ExpressionItem expressionItem) {
+        if (expressionItem instanceof UnaryExpression) {
+            UnaryExpression unaryExpression = (UnaryExpression) expressionItem;
+            return unaryExpression.getOperator() == OperatorKind.NOT && unaryExpression.getOperand() != null ? unaryExpression : null;
+        }
+        BinaryExpression binaryExpression = expressionItem instanceof LongExpression
+                ? ExpressionCompiler.toBinaryExpression((LongExpression) expressionItem)
+                : expressionItem instanceof BinaryExpression ? (BinaryExpression) expressionItem : null;
+        if (binaryExpression == null || binaryExpression.getLeft() == null || binaryExpression.getRight() == null
+                || !BINARY_OPERATORS.contains(binaryExpression.getOperator())) {
+            return null;
+        }
+        return binaryExpression;
+    }
+
+    /*
+     * nodes of the expression in pre-order: operands compiled, binary operators as compiled operators applied to
+     * values of the generated code, nots evaluated by the generated code
+     */
+    static GeneratedExpression of(ExpressionItem expressionItem, Evaluator evaluator, ExpressionCompiler expressionCompiler) {
+        List<CompiledExpression> nodes = new ArrayList<>();
+        addNodes(expressionItem, nodes, expressionCompiler);
+        return new GeneratedExpression(evaluator, nodes.toArray(new CompiledExpression[0]));
+    }
+
+    private static void addNodes(ExpressionItem expressionItem, List<CompiledExpression> nodes, ExpressionCompiler expressionCompiler) {
+        ExpressionItem operator = operator(expressionItem);
+        if (operator instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) operator;
+            nodes.add(expressionCompiler.compileOperator(binaryExpression));
+            addNodes(binaryExpression.getLeft(), nodes, expressionCompiler);
+            addNodes(binaryExpression.getRight(), nodes, expressionCompiler);
+        } else if (operator != null) {
+            nodes.add(null);
+            addNodes(((UnaryExpression) operator).getOperand(), nodes, expressionCompiler);
+        } else {
+            nodes.add(expressionCompiler.compile(expressionItem));
+        }
+    }
+
+    @Override
+    Object evaluate(EvaluationContext context) {
+        return evaluator.evaluate(this, context);
+    }
+
+    /**
+     * Value of an operand node.
+     */
+    public Object operand(int node, EvaluationContext context) {
+        return nodes[node].evaluate(context);
+    }
+
+    /**
+     * Value of a binary operator node applied to the values of its operands, as the compiled operator evaluates
+     * values that are not both numbers.
+     */
+    public Object apply(int node, Object leftValue, Object rightValue, EvaluationContext context) {
+        return ((ExpressionCompiler.Binary) nodes[node]).evaluate(context, leftValue, rightValue);
+    }
+
+    /**
+     * Whether numeric operators may compute the value as a double, giving the same result as on the value itself.
+     */
+    public static boolean isNumber(Object value) {
+        return ExpressionCompiler.isPlainNumber(value) || value instanceof DvCount;
+    }
+
+    public static double toDouble(Object value) {
+        return CompiledExpression.toDouble(value);
+    }
+
+    public static Object not(Object value) {
+        return BooleanEvaluator.getInstance().logicNot((Boolean) value);
+    }
+}
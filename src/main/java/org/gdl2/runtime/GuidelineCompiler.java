@@ -0,0 +1,259 @@
+package org.gdl2.runtime;
+
+import org.gdl2.cdshooks.Card;
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Element;
+import org.gdl2.model.GuideDefinition;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.Rule;
+import org.gdl2.terminology.TermDefinition;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Collections.unmodifiableSet;
+
+/**
+ * Turns guidelines into {@link CompiledGuideline}s, i.e. pre-computes everything the interpreter
+ * derives from the guideline model so it is not repeated on each execution.
+ */
+public class GuidelineCompiler {
+
+    public CompiledGuideline compile(Guideline guideline) {
+        return compile(guideline, emptyMap());
+    }
+
+    /**
+     * Compiles the guideline with expressions evaluated by generated code.
+     *
+     * @param guideline  the guideline
+     * @param evaluators generated evaluators of when conditions, assigned values, pre-conditions and data binding
+     *                   predicates of the guideline, by identity of their expression items
+     * @return the compiled guideline
+     */
+    public CompiledGuideline compile(Guideline guideline, Map<ExpressionItem, GeneratedExpression.Evaluator> evaluators) {
+        if (guideline == null) {
+            throw new IllegalArgumentException("Guideline cannot be null.");
+        }
+        if (evaluators == null) {
+            throw new IllegalArgumentException("Map<ExpressionItem, Evaluator> cannot be null.");
+        }
+        GuideDefinition guideDefinition = guideline.getDefinition();
+        SlotLayout slotLayout = slotLayout(guideDefinition);
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(slotLayout, evaluators);
+        List<CompiledRule> compiledRules = new ArrayList<>();
+        boolean usingCards = false;
+        for (Rule rule : sortRulesByPriority(guideDefinition.getRules().values())) {
+            CompiledRule compiledRule = compileRule(guideline, rule, expressionCompiler);
+            usingCards = usingCards || compiledRule.hasCards();
+            compiledRules.add(compiledRule);
+        }
+        return new CompiledGuideline(guideline,
+                unmodifiableList(compiledRules),
+                expressionCompiler.compile(guideDefinition.getPreConditions()),
+                expressionCompiler.compileStatements(guideDefinition.getDefaultActions()),
+                unmodifiableMap(predicatesByBindingId(guideDefinition, expressionCompiler)),
+                unmodifiableSet(getCodesForAssignableVariables(guideDefinition)),
+                unmodifiableMap(pathToCodeByBindingId(guideDefinition)),
+                slotLayout,
+                unmodifiableMap(templatePrograms(guideDefinition)),
+                usingCards);
+    }
+
+    public List<CompiledGuideline> compile(List<Guideline> guidelines) {
+        if (guidelines == null) {
+            throw new IllegalArgumentException("List<Guideline> cannot be null.");
+        }
+        List<CompiledGuideline> compiledGuidelines = new ArrayList<>(guidelines.size());
+        for (Guideline guideline : guidelines) {
+            compiledGuidelines.add(compile(guideline));
+        }
+        return compiledGuidelines;
+    }
+
+    private CompiledRule compileRule(Guideline guideline, Rule rule, ExpressionCompiler expressionCompiler) {
+        Map<String, Class> typeMap = rule.getThen() == null
+                ? emptyMap() : unmodifiableMap(typeBindingThroughAssignmentStatements(rule.getThen()));
+        boolean usingCards = rule.getCards() != null && !rule.getCards().isEmpty();
+        return new CompiledRule(rule,
+                expressionCompiler.compile(rule.getWhen()),
+                expressionCompiler.compileStatements(rule.getThen()),
+                typeMap,
+                hasContinuousAssignments(rule),
+                usingCards,
+                usingCards ? cardRenderers(guideline, rule.getCards(), expressionCompiler) : emptyMap());
+    }
+
+    /*
+     * renderers of the cards for each language of the term definitions, and for no term definition under null
+     */
+    private Map<String, List<CardRenderer>> cardRenderers(Guideline guideline, List<Card> cards, ExpressionCompiler expressionCompiler) {
+        Map<String, TermDefinition> termDefinitions = guideline.getOntology() == null || guideline.getOntology().getTermDefinitions() == null
+                ? emptyMap() : guideline.getOntology().getTermDefinitions();
+        Map<String, List<CardRenderer>> result = new HashMap<>();
+        result.put(null, cardRenderers(guideline, cards, null, expressionCompiler));
+        termDefinitions.forEach((language, termDefinition) ->
+                result.put(language, cardRenderers(guideline, cards, termDefinition, expressionCompiler)));
+        return unmodifiableMap(result);
+    }
+
+    private List<CardRenderer> cardRenderers(Guideline guideline, List<Card> cards, TermDefinition termDefinition,
+                                             ExpressionCompiler expressionCompiler) {
+        List<CardRenderer> cardRenderers = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            cardRenderers.add(new CardRenderer(card, guideline.getDescription(), termDefinition, expressionCompiler));
+        }
+        return unmodifiableList(cardRenderers);
+    }
+
+    /*
+     * slots of the values bound to the guideline, variables referenced by expressions are added as they are compiled
+     */
+    private SlotLayout slotLayout(GuideDefinition guideDefinition) {
+        SlotLayout slotLayout = new SlotLayout();
+        if (guideDefinition.getDataBindings() != null) {
+            for (DataBinding dataBinding : guideDefinition.getDataBindings().values()) {
+                slotLayout.addSlot(dataBinding.getId());
+                if (dataBinding.getElements() != null) {
+                    dataBinding.getElements().values().forEach(element -> slotLayout.addSlot(element.getId()));
+                }
+            }
+        }
+        if (guideDefinition.getInternalVariables() != null) {
+            guideDefinition.getInternalVariables().forEach(internalVariable -> slotLayout.addSlot(internalVariable.getId()));
+        }
+        if (guideDefinition.getTemplates() != null) {
+            guideDefinition.getTemplates().values().forEach(template -> slotLayout.addSlot(template.getId()));
+        }
+        getCodesForAssignableVariables(guideDefinition).forEach(slotLayout::addSlot);
+        return slotLayout;
+    }
+
+    private List<Rule> sortRulesByPriority(Iterable<Rule> rules) {
+        List<Rule> sortedRules = new ArrayList<>();
+        rules.forEach(sortedRules::add);
+        sortedRules.sort(new RuleComparator());
+        return sortedRules;
+    }
+
+    private Map<String, TemplateProgram> templatePrograms(GuideDefinition guideDefinition) {
+        Map<String, TemplateProgram> result = new HashMap<>();
+        if (guideDefinition.getTemplates() != null) {
+            guideDefinition.getTemplates().forEach((key, template) -> {
+                if (template != null) {
+                    result.put(key, new TemplateProgram(template));
+                }
+            });
+        }
+        return result;
+    }
+
+    private Map<String, Map<String, String>> pathToCodeByBindingId(GuideDefinition guideDefinition) {
+        if (guideDefinition.getDataBindings() == null) {
+            return emptyMap();
+        }
+        Map<String, Map<String, String>> result = new HashMap<>();
+        for (Map.Entry<String, DataBinding> entry : guideDefinition.getDataBindings().entrySet()) {
+            result.put(entry.getKey(), unmodifiableMap(pathToCode(entry.getValue())));
+        }
+        return result;
+    }
+
+    private Map<String, List<CompiledPredicate>> predicatesByBindingId(GuideDefinition guideDefinition,
+                                                                       ExpressionCompiler expressionCompiler) {
+        if (guideDefinition.getDataBindings() == null) {
+            return emptyMap();
+        }
+        Map<String, List<CompiledPredicate>> result = new HashMap<>();
+        for (Map.Entry<String, DataBinding> entry : guideDefinition.getDataBindings().entrySet()) {
+            result.put(entry.getKey(), expressionCompiler.compilePredicates(entry.getValue().getPredicates()));
+        }
+        return result;
+    }
+
+    private Map<String, String> pathToCode(DataBinding dataBinding) {
+        if (dataBinding.getElements() == null) {
+            return emptyMap();
+        }
+        return dataBinding.getElements().values().stream()
+                .collect(Collectors.toMap(Element::getPath, Element::getId));
+    }
+
+    private Set<String> getCodesForAssignableVariables(GuideDefinition guideDefinition) {
+        Set<String> codesFromAssignments = guideDefinition.getRules().entrySet().stream()
+                .filter(s -> (s.getValue().getThen() != null))
+                .flatMap(entry -> entry.getValue().getThen().stream())
+                .filter(s -> !(s instanceof CreateInstanceExpression))
+                .filter(s -> !(s instanceof UseTemplateExpression))
+                .map(assignmentExpression -> ((AssignmentExpression) assignmentExpression).getVariable().getCode())
+                .collect(Collectors.toSet());
+        Set<String> codesFromCreateStatements = guideDefinition.getRules().entrySet().stream()
+                .filter(s -> (s.getValue().getThen() != null))
+                .flatMap(entry -> entry.getValue().getThen().stream())
+                .filter(s -> s instanceof CreateInstanceExpression)
+                .flatMap(createInstanceExpression -> ((CreateInstanceExpression) createInstanceExpression).getAssignmentExpressions().stream())
+                .map(assignmentExpression -> assignmentExpression.getVariable().getCode())
+                .collect(Collectors.toSet());
+        if (guideDefinition.getDefaultActions() != null) {
+            Set<String> codesFromDefaultActions = guideDefinition.getDefaultActions().stream()
+                    .map(assignmentExpression -> ((AssignmentExpression) assignmentExpression).getVariable().getCode())
+                    .collect(Collectors.toSet());
+            codesFromAssignments.addAll(codesFromDefaultActions);
+        }
+        codesFromAssignments.addAll(codesFromCreateStatements);
+        return codesFromAssignments;
+    }
+
+    /*
+     * continuous assignments are more than one thenStatements assigning values to the same variable of a given rule
+     */
+    private boolean hasContinuousAssignments(Rule rule) {
+        List<ExpressionItem> assignmentExpressions = rule.getThen();
+        if (assignmentExpressions == null || assignmentExpressions.size() <= 1) {
+            return false;
+        }
+        Set<String> variableIds = new HashSet<>();
+        for (ExpressionItem expressionItem : assignmentExpressions) {
+            if (!(expressionItem instanceof AssignmentExpression)) {
+                continue;
+            }
+            AssignmentExpression assignmentExpression = (AssignmentExpression) expressionItem;
+            String code = assignmentExpression.getVariable().getCode();
+            if (variableIds.contains(code)) {
+                return true;
+            } else {
+                variableIds.add(code);
+            }
+        }
+        return false;
+    }
+
+    // mainly to resolve ambiguity between DvCount and DvQuantity
+    static Map<String, Class> typeBindingThroughAssignmentStatements(List<ExpressionItem> assignmentExpressions) {
+        Map<String, Set<String>> attributesMap = new HashMap<>();
+        for (ExpressionItem expressionItem : assignmentExpressions) {
+            if (expressionItem instanceof AssignmentExpression) {
+                Variable variable = ((AssignmentExpression) expressionItem).getVariable();
+                attributesMap
+                        .computeIfAbsent(variable.getCode(), key -> new HashSet<>())
+                        .add(variable.getAttribute());
+            }
+        }
+        TypeBinding typeBinding = new TypeBinding();
+        return attributesMap.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, s -> typeBinding.possibleType(s.getValue())));
+    }
+}
@@ -1,7 +1,6 @@
 package org.gdl2.runtime;
 
-import com.google.gson.Gson;
-import com.jayway.jsonpath.JsonPath;
+import com.google.gson.JsonParseException;
 import lombok.NonNull;
 import org.gdl2.cdshooks.*;
 import org.gdl2.datatypes.*;
@@ -11,9 +10,6 @@ import org.gdl2.resources.Reference;
 import org.gdl2.resources.ResourceDescription;
 import org.gdl2.terminology.*;
 
-import java.lang.reflect.Method;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.*;
@@ -21,27 +17,39 @@ import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.time.temporal.TemporalAmount;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiFunction;
+import java.util.function.DoubleFunction;
+import java.util.function.Function;
+import java.util.function.ObjIntConsumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static java.util.Collections.*;
-import static org.gdl2.cdshooks.Link.LinkType.ABSOLUTE;
 import static org.gdl2.expression.OperatorKind.*;
 import static org.gdl2.model.DataBinding.Type.INPUT;
 
 /**
  * Java interpreter of GDL2 guidelines.
+ *
+ * <p>Instances are immutable and thread-safe, so one interpreter can be shared by all requests together with
+ * their compiled guidelines. Values of a single request, like the current date time, are passed as an
+ * {@link ExecutionContext}.
  */
 public class Interpreter {
     static final String CURRENT_DATETIME = "currentDateTime";
-    private static final String CURRENT_DATE = "currentDate";
-    private static final Pattern VARIABLE_REGEX = Pattern.compile("\\{\\$gt([0-9.])+[a-zA-Z_0-9]*}");
-    private static final String COUNT = "count";
-    private static final String SUM = "sum";
+    static final String CURRENT_DATE = "currentDate";
+    static final Pattern VARIABLE_REGEX = Pattern.compile("\\{\\$gt([0-9.])+[a-zA-Z_0-9]*}");
+    static final String COUNT = "count";
+    static final String SUM = "sum";
+    private static final int BATCH_PATIENTS_PER_WORKER = 4;
     private static final String REFERENCE_NOT_FOUND = "Reference not found";
     private static final String ENGLISH_LANGUAGE = "en";
-    private static final String TERM = "term";
+    static final String TERM = "term";
     private static final String LOCAL = "local";
     private static final String GT = "gt";
     private static final String ABS = "abs";
@@ -56,26 +64,48 @@ public class Interpreter {
     private static final String SIN = "sin";
     private static final String COS = "cos";
     private static final String TAN = "tan";
-    private static final String ROOT = "/";
-    private static final String CURRENT_INDEX = "current-index";
+    static final String CURRENT_INDEX = "current-index";
     private static final String YEAR = "a";
     private static final String MONTH = "mo";
     private static final String WEEK = "wk";
     private static final String DAY = "d";
     private static final String HOUR = "h";
     private static List TIME_PERIOD_UNITS_LIST = Arrays.asList(YEAR, MONTH, WEEK, DAY, HOUR);
-
-    private RuntimeConfiguration runtimeConfiguration;
-    private static final TemplateFiller templateFiller = new TemplateFiller();
+    private static final Map<String, DoubleFunction<Object>> MATH_FUNCTIONS = new HashMap<>();
+
+    static {
+        MATH_FUNCTIONS.put(ABS, Math::abs);
+        MATH_FUNCTIONS.put(CEIL, Math::ceil);
+        MATH_FUNCTIONS.put(EXP, Math::exp);
+        MATH_FUNCTIONS.put(FLOOR, Math::floor);
+        MATH_FUNCTIONS.put(LOG, Math::log);
+        MATH_FUNCTIONS.put(LOG10, Math::log10);
+        MATH_FUNCTIONS.put(LOG1P, Math::log1p);
+        MATH_FUNCTIONS.put(ROUND, Math::round);
+        MATH_FUNCTIONS.put(SQRT, Math::sqrt);
+        MATH_FUNCTIONS.put(SIN, Math::sin);
+        MATH_FUNCTIONS.put(COS, Math::cos);
+        MATH_FUNCTIONS.put(TAN, Math::tan);
+    }
+
+    private final RuntimeConfiguration runtimeConfiguration;
+    private final AttributeAccessors attributeAccessors;
+    // plan of the guidelines executed last, reused while the same guidelines are executed again, e.g. per patient
+    private final AtomicReference<ExecutionPlan> lastExecutionPlan;
+    private static final CompiledGuidelineCache compiledGuidelineCache = new CompiledGuidelineCache(new GuidelineCompiler());
     private static final SubsumptionEvaluator defaultSubsumptionEvaluator = new DefaultSubsumptionEvaluator();
 
     public Interpreter() {
         this.runtimeConfiguration = defaultRuntimeConfiguration();
+        this.attributeAccessors = AttributeAccessors.of(this.runtimeConfiguration.getAttributeAccessors());
+        this.lastExecutionPlan = new AtomicReference<>();
     }
 
     public Interpreter(RuntimeConfiguration runtimeConfiguration) {
         assertNotNull(runtimeConfiguration, "runtimeConfiguration can not be null");
         this.runtimeConfiguration = setDefaultRuntimeConfigurationIfMissing(runtimeConfiguration);
+        this.attributeAccessors = AttributeAccessors.of(this.runtimeConfiguration.getAttributeAccessors());
+        this.lastExecutionPlan = new AtomicReference<>();
     }
 
     public Interpreter(ZonedDateTime currentDateTime) {
@@ -86,6 +116,8 @@ public class Interpreter {
                 .objectCreatorPlugin(new DefaultObjectCreator())
                 .terminologySubsumptionEvaluators(Collections.emptyMap())
                 .build();
+        this.attributeAccessors = AttributeAccessors.of(this.runtimeConfiguration.getAttributeAccessors());
+        this.lastExecutionPlan = new AtomicReference<>();
     }
 
     public Interpreter(ZonedDateTime currentDateTime, String language) {
@@ -97,6 +129,33 @@ public class Interpreter {
                 .objectCreatorPlugin(new DefaultObjectCreator())
                 .terminologySubsumptionEvaluators(Collections.emptyMap())
                 .build();
+        this.attributeAccessors = AttributeAccessors.of(this.runtimeConfiguration.getAttributeAccessors());
+        this.lastExecutionPlan = new AtomicReference<>();
+    }
+
+    private Interpreter(RuntimeConfiguration runtimeConfiguration, AttributeAccessors attributeAccessors,
+                        AtomicReference<ExecutionPlan> lastExecutionPlan) {
+        this.runtimeConfiguration = runtimeConfiguration;
+        this.attributeAccessors = attributeAccessors;
+        this.lastExecutionPlan = lastExecutionPlan;
+    }
+
+    /*
+     * interpreter for a single execution, sharing the accessors resolved so far and the last execution plan
+     */
+    private Interpreter withExecutionContext(ExecutionContext executionContext) {
+        assertNotNull(executionContext, "ExecutionContext cannot be null.");
+        RuntimeConfiguration.RuntimeConfigurationBuilder runtimeConfigurationBuilder = this.runtimeConfiguration.toBuilder();
+        if (executionContext.getCurrentDateTime() != null) {
+            runtimeConfigurationBuilder.currentDateTime(executionContext.getCurrentDateTime());
+        }
+        if (executionContext.getLanguage() != null) {
+            runtimeConfigurationBuilder.language(executionContext.getLanguage());
+        }
+        if (executionContext.getTimezoneId() != null) {
+            runtimeConfigurationBuilder.timezoneId(executionContext.getTimezoneId());
+        }
+        return new Interpreter(runtimeConfigurationBuilder.build(), this.attributeAccessors, this.lastExecutionPlan);
     }
 
     public Interpreter(String language) {
@@ -106,6 +165,8 @@ public class Interpreter {
                 .objectCreatorPlugin(new DefaultObjectCreator())
                 .terminologySubsumptionEvaluators(Collections.emptyMap())
                 .build();
+        this.attributeAccessors = AttributeAccessors.of(this.runtimeConfiguration.getAttributeAccessors());
+        this.lastExecutionPlan = new AtomicReference<>();
     }
 
     private RuntimeConfiguration defaultRuntimeConfiguration() {
@@ -125,7 +186,12 @@ public class Interpreter {
                 .terminologySubsumptionEvaluators(
                         runtimeConfiguration.getTerminologySubsumptionEvaluators() == null
                                 ? Collections.emptyMap() : runtimeConfiguration.getTerminologySubsumptionEvaluators())
-                .dateTimeFormatPattern(runtimeConfiguration.getDateTimeFormatPattern());
+                .dateTimeFormatPattern(runtimeConfiguration.getDateTimeFormatPattern())
+                .ruleNetworkEnabled(runtimeConfiguration.isRuleNetworkEnabled())
+                .parallelGuidelineExecution(runtimeConfiguration.isParallelGuidelineExecution())
+                .batchForkJoinPool(runtimeConfiguration.getBatchForkJoinPool())
+                .batchPatientsInFlight(runtimeConfiguration.getBatchPatientsInFlight())
+                .attributeAccessors(runtimeConfiguration.getAttributeAccessors());
         if (runtimeConfiguration.getTimezoneId() != null) {
             runtimeConfigurationBuilder.timezoneId(runtimeConfiguration.getTimezoneId());
         }
@@ -138,24 +204,75 @@ public class Interpreter {
         }
     }
 
+    /**
+     * Executes the guidelines on the input data, compiling each guideline on its first execution only.
+     *
+     * <p>Compiled guidelines are reused by guideline instance, not by content: a guideline modified after its first
+     * execution keeps executing as compiled then. Guidelines that change should be compiled again by
+     * {@link GuidelineCompiler} and executed by {@link #executeCompiledGuidelines(List, List)}.
+     *
+     * @param guidelines         guidelines to execute
+     * @param inputDataInstances input data
+     * @return result data instances
+     */
     public List<DataInstance> executeGuidelines(List<Guideline> guidelines, List<DataInstance> inputDataInstances) {
-        return executeGuidelinesWithCards(guidelines, inputDataInstances, new ArrayList<>()).getResult();
+        return executeCompiledGuidelines(compiledGuidelineCache.get(guidelines), inputDataInstances);
     }
 
+    public List<DataInstance> executeGuidelines(List<Guideline> guidelines, List<DataInstance> inputDataInstances,
+                                                ExecutionContext executionContext) {
+        return withExecutionContext(executionContext).executeGuidelines(guidelines, inputDataInstances);
+    }
+
+    /**
+     * Same as {@link #executeGuidelines(List, List)} but using guidelines compiled beforehand,
+     * which avoids re-deriving guideline metadata on each execution.
+     *
+     * @param compiledGuidelines guidelines compiled by {@link GuidelineCompiler}
+     * @param inputDataInstances input data
+     * @return result data instances
+     */
+    public List<DataInstance> executeCompiledGuidelines(List<CompiledGuideline> compiledGuidelines,
+                                                        List<DataInstance> inputDataInstances) {
+        return executeGuidelinesWithCards(compiledGuidelines, inputDataInstances, new ArrayList<>()).getResult();
+    }
+
+    public List<DataInstance> executeCompiledGuidelines(List<CompiledGuideline> compiledGuidelines,
+                                                        List<DataInstance> inputDataInstances,
+                                                        ExecutionContext executionContext) {
+        return withExecutionContext(executionContext).executeCompiledGuidelines(compiledGuidelines, inputDataInstances);
+    }
+
+    /**
+     * Executes the CDS Hooks guidelines and returns their cards, reusing compiled guidelines by instance as
+     * {@link #executeGuidelines(List, List)} does.
+     */
     public List<Card> executeCdsHooksGuidelines(List<Guideline> guidelines, List<DataInstance> inputDataInstances) {
+        return executeCompiledCdsHooksGuidelines(compiledGuidelineCache.get(guidelines), inputDataInstances);
+    }
+
+    public List<Card> executeCompiledCdsHooksGuidelines(List<CompiledGuideline> compiledGuidelines,
+                                                        List<DataInstance> inputDataInstances) {
         List<Card> cardList = new ArrayList<>();
 
-        if (useCardsInRules(guidelines)) {
-            executeGuidelinesWithCards(guidelines, inputDataInstances, cardList);
+        if (useCardsInRules(compiledGuidelines)) {
+            executeGuidelinesWithCards(compiledGuidelines, inputDataInstances, cardList);
         } else {
-            cardList = executeCdsHooksGuidelinesClassicMode(guidelines, inputDataInstances);
+            cardList = executeCdsHooksGuidelinesClassicMode(compiledGuidelines, inputDataInstances);
         }
         return cardList;
     }
 
-    private List<Card> executeCdsHooksGuidelinesClassicMode(List<Guideline> guidelines, List<DataInstance> inputDataInstances) {
+    public List<Card> executeCompiledCdsHooksGuidelines(List<CompiledGuideline> compiledGuidelines,
+                                                        List<DataInstance> inputDataInstances,
+                                                        ExecutionContext executionContext) {
+        return withExecutionContext(executionContext).executeCompiledCdsHooksGuidelines(compiledGuidelines, inputDataInstances);
+    }
+
+    private List<Card> executeCdsHooksGuidelinesClassicMode(List<CompiledGuideline> compiledGuidelines,
+                                                            List<DataInstance> inputDataInstances) {
         List<Card> cardList = new ArrayList<>();
-        List<DataInstance> dataInstances = executeGuidelines(guidelines, inputDataInstances);
+        List<DataInstance> dataInstances = executeCompiledGuidelines(compiledGuidelines, inputDataInstances);
         for (DataInstance dataInstance : dataInstances) {
             Card card = fetchCardFromDataInstance(dataInstance);
             if (card.getSummary() != null) {
@@ -166,67 +283,232 @@ public class Interpreter {
     }
 
     private Card fetchCardFromDataInstance(DataInstance dataInstance) {
-        Gson gson = new Gson();
-        String json = new Gson().toJson(dataInstance.getRoot());
-        return gson.fromJson(json, Card.class);
+        return CardMapper.toCard(dataInstance.getRoot());
     }
 
-    private boolean useCardsInRules(List<Guideline> guidelines) {
-        for (Guideline guideline : guidelines) {
-            for (Rule rule : guideline.getDefinition().getRules().values()) {
-                if (rule.getCards() != null && !rule.getCards().isEmpty()) {
-                    return true;
-                }
+    /*
+     * card at the root of a result, null if the root is not a card, so cards can be fetched from the results of
+     * guidelines not creating cards too
+     */
+    private Card fetchCardFromResult(DataInstance dataInstance) {
+        if (dataInstance.getRoot() == null) {
+            return null;
+        }
+        try {
+            return fetchCardFromDataInstance(dataInstance);
+        } catch (JsonParseException exception) {
+            return null;
+        }
+    }
+
+    private boolean useCardsInRules(List<CompiledGuideline> compiledGuidelines) {
+        for (CompiledGuideline compiledGuideline : compiledGuidelines) {
+            if (compiledGuideline.isUsingCards()) {
+                return true;
             }
         }
         return false;
     }
 
-    // xxxxGetFiredRules methods are for gdl2-editor and guideline testing tools
+    // xxxxGetFiredRules methods are for gdl2-editor and guideline testing tools; like executeGuidelines, they reuse
+    // compiled guidelines by instance, so a guideline modified after its first execution keeps executing as compiled then
     public ExecutionOutput executeGuidelinesAndGetFiredRules(List<Guideline> guidelines, List<DataInstance> inputDataInstances) {
-        return executeGuidelinesWithCards(guidelines, inputDataInstances, new ArrayList<>());
+        return executeGuidelinesWithCards(compiledGuidelineCache.get(guidelines), inputDataInstances, new ArrayList<>());
     }
 
     public ExecutionOutputCards executeCdsHooksGuidelinesAndGetFiredRules(List<Guideline> guidelines, List<DataInstance> inputDataInstances) {
         List<Card> cardList = new ArrayList<>();
-        ExecutionOutput executionOutput = executeGuidelinesWithCards(guidelines, inputDataInstances, cardList);
+        ExecutionOutput executionOutput = executeGuidelinesWithCards(compiledGuidelineCache.get(guidelines), inputDataInstances, cardList);
         return new ExecutionOutputCards(executionOutput.getFiredRules(), cardList);
     }
 
-    // TODO sort guidelines according to dependency
-    private ExecutionOutput executeGuidelinesWithCards(List<Guideline> guidelines,
+    /**
+     * Executes the guidelines once for each patient, as {@link #executeGuidelines(List, List)} does, and returns
+     * the results in the order of the patients.
+     *
+     * <p>The guidelines are compiled and planned once for the whole batch. Patients are executed in parallel on
+     * {@link RuntimeConfiguration#getBatchForkJoinPool()}, where idle workers take the next patients while others
+     * are busy with patients having long histories.
+     *
+     * @param guidelines guidelines to execute
+     * @param patients   input data of each patient
+     * @return result data instances of each patient
+     */
+    public List<List<DataInstance>> executeGuidelinesBatch(List<Guideline> guidelines, Iterable<List<DataInstance>> patients) {
+        List<List<DataInstance>> results = new ArrayList<>();
+        executeGuidelinesBatch(guidelines, patients, (result, index) -> results.add(result));
+        return results;
+    }
+
+    /**
+     * Same as {@link #executeGuidelinesBatch(List, Iterable)} but passing the result of each patient to the consumer,
+     * so the patients and results of large cohorts do not have to be kept in memory.
+     *
+     * @param guidelines     guidelines to execute
+     * @param patients       input data of each patient, read while executing
+     * @param resultConsumer called on the calling thread with the result and the index of each patient, in order
+     */
+    public void executeGuidelinesBatch(List<Guideline> guidelines, Iterable<List<DataInstance>> patients,
+                                       ObjIntConsumer<List<DataInstance>> resultConsumer) {
+        executeBatch(guidelines, patients, (executionPlan, patient) -> executePlanWithCards(executionPlan, patient, new ArrayList<>()).getResult(),
+                resultConsumer);
+    }
+
+    /**
+     * Same as {@link #executeGuidelinesBatch(List, Iterable, ObjIntConsumer)} but passing the fired rules and the
+     * cards of each patient with its result data instances. The cards are those of the rules of guidelines using
+     * cards, or else those of CDS Hooks guidelines creating cards as their results.
+     *
+     * @param guidelines     guidelines to execute
+     * @param patients       input data of each patient, read while executing
+     * @param outputConsumer called on the calling thread with the output and the index of each patient, in order
+     */
+    public void executeGuidelinesBatchAndGetFiredRules(List<Guideline> guidelines, Iterable<List<DataInstance>> patients,
+                                                       ObjIntConsumer<BatchExecutionOutput> outputConsumer) {
+        executeBatch(guidelines, patients, this::executePlanAndGetFiredRules, outputConsumer);
+    }
+
+    /**
+     * Compiles and plans the guidelines once for executions of one patient at a time, each giving the same output as
+     * {@link #executeGuidelinesBatchAndGetFiredRules}, e.g. for executors scheduling the patients of a batch themselves.
+     * The returned function can be applied by several threads.
+     *
+     * @param guidelines guidelines to execute
+     * @return execution of the guidelines for the input data of a patient
+     */
+    public Function<List<DataInstance>, BatchExecutionOutput> compileGuidelinesBatch(List<Guideline> guidelines) {
+        assertNotNull(guidelines, "List<Guideline> cannot be null.");
+        ExecutionPlan executionPlan = executionPlan(compiledGuidelineCache.get(guidelines));
+        return patient -> {
+            assertNotNull(patient, "List<DataInstance> cannot be null.");
+            return executePlanAndGetFiredRules(executionPlan, patient);
+        };
+    }
+
+    private BatchExecutionOutput executePlanAndGetFiredRules(ExecutionPlan executionPlan, List<DataInstance> patient) {
+        List<Card> cards = new ArrayList<>();
+        ExecutionOutput executionOutput = executePlanWithCards(executionPlan, patient, cards);
+        if (!useCardsInRules(executionPlan.getGuidelines())) {
+            cards = executionOutput.getResult().stream()
+                    .map(this::fetchCardFromResult)
+                    .filter(card -> card != null && card.getSummary() != null)
+                    .collect(Collectors.toList());
+        }
+        return new BatchExecutionOutput(executionOutput.getFiredRules(), executionOutput.getResult(), cards);
+    }
+
+    private <T> void executeBatch(List<Guideline> guidelines, Iterable<List<DataInstance>> patients,
+                                  BiFunction<ExecutionPlan, List<DataInstance>, T> execution, ObjIntConsumer<T> consumer) {
+        assertNotNull(guidelines, "List<Guideline> cannot be null.");
+        assertNotNull(patients, "Iterable<List<DataInstance>> cannot be null.");
+        assertNotNull(consumer, "Result consumer cannot be null.");
+
+        ExecutionPlan executionPlan = executionPlan(compiledGuidelineCache.get(guidelines));
+        ForkJoinPool forkJoinPool = this.runtimeConfiguration.getBatchForkJoinPool() != null
+                ? this.runtimeConfiguration.getBatchForkJoinPool() : ForkJoinPool.commonPool();
+        // a few patients per worker are in flight, so workers never wait for the next patient while the
+        // patients and results kept in memory stay bounded
+        int maxInFlight = this.runtimeConfiguration.getBatchPatientsInFlight() > 0
+                ? this.runtimeConfiguration.getBatchPatientsInFlight() : BATCH_PATIENTS_PER_WORKER * forkJoinPool.getParallelism();
+        Deque<ForkJoinTask<T>> inFlight = new ArrayDeque<>(maxInFlight);
+        int index = 0;
+        try {
+            for (List<DataInstance> patient : patients) {
+                assertNotNull(patient, "List<DataInstance> cannot be null.");
+                if (inFlight.size() == maxInFlight) {
+                    consumer.accept(inFlight.poll().join(), index++);
+                }
+                inFlight.add(forkJoinPool.submit(() -> execution.apply(executionPlan, patient)));
+            }
+            while (!inFlight.isEmpty()) {
+                consumer.accept(inFlight.poll().join(), index++);
+            }
+        } finally {
+            for (ForkJoinTask<T> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /*
+     * executes the guidelines stage by stage as planned by ExecutionPlan, the results of a stage are merged into
+     * the input of the next guidelines in execution order, i.e. as if the guidelines were executed one by one
+     */
+    private ExecutionOutput executeGuidelinesWithCards(List<CompiledGuideline> compiledGuidelines,
                                                        List<DataInstance> inputDataInstances,
                                                        List<Card> cards) {
-        assertNotNull(guidelines, "List<Guideline> cannot be null.");
+        assertNotNull(compiledGuidelines, "List<Guideline> cannot be null.");
         assertNotNull(inputDataInstances, "List<DataInstance> cannot be null.");
 
+        ExecutionPlan executionPlan = executionPlan(compiledGuidelines);
+        return executePlanWithCards(executionPlan, inputDataInstances, cards);
+    }
+
+    private ExecutionOutput executePlanWithCards(ExecutionPlan executionPlan, List<DataInstance> inputDataInstances, List<Card> cards) {
+        List<CompiledGuideline> guidelines = executionPlan.getGuidelines();
+        ExecutionOutput[] outputs = new ExecutionOutput[guidelines.size()];
+        List<List<Card>> cardsPerGuideline = new ArrayList<>(guidelines.size());
+        List<List<DataInstance>> objectsCreatedPerGuideline = new ArrayList<>(guidelines.size());
+        for (int position = 0; position < guidelines.size(); position++) {
+            cardsPerGuideline.add(new ArrayList<>());
+            objectsCreatedPerGuideline.add(null);
+        }
         Map<String, DataInstance> allResults = new HashMap<>();
-        List<DataInstance> input = new ArrayList<>(inputDataInstances);
         List<DataInstance> objectsCreatedByUseTemplate = new ArrayList<>();
-        List<DataInstance> totalResult = new ArrayList<>();
-        Map<String, Set<String>> firedRules = new LinkedHashMap<>();
-        for (Guideline guide : guidelines) {
-            ExecutionOutput resultPerExecution = executeSingleGuidelineWithCards(guide, input, cards);
-            input = new ArrayList<>(inputDataInstances);
-            for (DataInstance dataInstance : resultPerExecution.getResult()) {
-                DataInstance existing = allResults.get(dataInstance.modelId());
-                if (existing == null || isInputData(dataInstance, guide)) {
-                    allResults.put(dataInstance.modelId(), dataInstance);
-                } else if (isOutputTemplateData(dataInstance, guide)) {
-                    input.add(dataInstance);
-                    objectsCreatedByUseTemplate.add(dataInstance);
-                } else {
-                    existing.merge(dataInstance);
+        DataInstanceIndex inputIndex = DataInstanceIndex.of(inputDataInstances);
+        for (int[] stage : executionPlan.getStages()) {
+            List<DataInstanceIndex> inputs = new ArrayList<>(stage.length);
+            for (int position : stage) {
+                List<DataInstance> input = new ArrayList<>();
+                if (position > 0 && objectsCreatedPerGuideline.get(position - 1) != null) {
+                    input.addAll(objectsCreatedPerGuideline.get(position - 1));
+                }
+                input.addAll(allResults.values());
+                input.addAll(objectsCreatedByUseTemplate);
+                inputs.add(inputIndex.with(input));
+            }
+            IntStream stageIndexes = IntStream.range(0, stage.length);
+            if (this.runtimeConfiguration.isParallelGuidelineExecution()) {
+                stageIndexes = stageIndexes.parallel();
+            }
+            stageIndexes.forEach(index -> outputs[stage[index]] = executeSingleGuidelineWithCards(
+                    guidelines.get(stage[index]), inputs.get(index), cardsPerGuideline.get(stage[index])));
+            for (int position : stage) {
+                Guideline guide = guidelines.get(position).getGuideline();
+                List<DataInstance> objectsCreated = new ArrayList<>();
+                for (DataInstance dataInstance : outputs[position].getResult()) {
+                    DataInstance existing = allResults.get(dataInstance.modelId());
+                    if (existing == null || isInputData(dataInstance, guide)) {
+                        allResults.put(dataInstance.modelId(), dataInstance);
+                    } else if (isOutputTemplateData(dataInstance, guide)) {
+                        objectsCreated.add(dataInstance);
+                    } else {
+                        existing.merge(dataInstance);
+                    }
                 }
+                objectsCreatedByUseTemplate.addAll(objectsCreated);
+                objectsCreatedPerGuideline.set(position, objectsCreated);
             }
-            input.addAll(allResults.values());
-            input.addAll(objectsCreatedByUseTemplate);
-            totalResult.addAll(resultPerExecution.result);
-            firedRules.putAll(resultPerExecution.getFiredRules());
+        }
+        List<DataInstance> totalResult = new ArrayList<>();
+        Map<String, Set<String>> firedRules = new LinkedHashMap<>();
+        for (int position = 0; position < guidelines.size(); position++) {
+            totalResult.addAll(outputs[position].getResult());
+            firedRules.putAll(outputs[position].getFiredRules());
+            cards.addAll(cardsPerGuideline.get(position));
         }
         return new ExecutionOutput(firedRules, totalResult);
     }
 
+    ExecutionPlan executionPlan(List<CompiledGuideline> compiledGuidelines) {
+        ExecutionPlan executionPlan = lastExecutionPlan.get();
+        if (executionPlan == null || !executionPlan.isPlanOf(compiledGuidelines)) {
+            executionPlan = ExecutionPlan.of(compiledGuidelines, this.runtimeConfiguration.isIncludingInputWithPredicate());
+            lastExecutionPlan.set(executionPlan);
+        }
+        return executionPlan;
+    }
+
     private boolean isOutputTemplateData(DataInstance dataInstance, Guideline guideline) {
         if (guideline.getDefinition().getTemplates() == null) {
             return false;
@@ -239,80 +521,90 @@ public class Interpreter {
             return false;
         }
         return guideline.getDefinition().getDataBindings().containsKey(dataInstance.id())
-                && guideline.getDefinition().getDataBindings().get(dataInstance.id()).getType().equals(INPUT);
+                && INPUT.equals(guideline.getDefinition().getDataBindings().get(dataInstance.id()).getType());
     }
 
+    /**
+     * Executes a single guideline, reusing its compiled form by instance as {@link #executeGuidelines(List, List)} does.
+     */
     public List<DataInstance> executeSingleGuideline(Guideline guide, List<DataInstance> dataInstances) {
-        return executeSingleGuidelineWithCards(guide, dataInstances, null).getResult();
+        return executeSingleGuidelineWithCards(compiledGuidelineCache.get(guide), dataInstances, null).getResult();
     }
 
-    private ExecutionOutput executeSingleGuidelineWithCards(Guideline guide, List<DataInstance> dataInstances,
+    private ExecutionOutput executeSingleGuidelineWithCards(CompiledGuideline compiledGuideline, List<DataInstance> dataInstances,
                                                             List<Card> cards) {
-        InternalOutput internalOutput = execute(guide, dataInstances, cards);
-        List<DataInstance> resultDataInstances = collectDataInstancesFromValueListMap(internalOutput.getResult(), guide.getDefinition());
-        return new ExecutionOutput(internalOutput.firedRules, resultDataInstances);
+        assertNotNull(dataInstances, "List<DataInstance> cannot be null.");
+        return executeSingleGuidelineWithCards(compiledGuideline, DataInstanceIndex.of(dataInstances), cards);
     }
 
-    private Set<String> getCodesForAssignableVariables(GuideDefinition guideDefinition) {
-        Set<String> codesFromAssignments = guideDefinition.getRules().entrySet().stream()
-                .filter(s -> (s.getValue().getThen() != null))
-                .flatMap(entry -> entry.getValue().getThen().stream())
-                .filter(s -> !(s instanceof CreateInstanceExpression))
-                .filter(s -> !(s instanceof UseTemplateExpression))
-                .map(assignmentExpression -> ((AssignmentExpression) assignmentExpression).getVariable().getCode())
-                .collect(Collectors.toSet());
-        Set<String> codesFromCreateStatements = guideDefinition.getRules().entrySet().stream()
-                .filter(s -> (s.getValue().getThen() != null))
-                .flatMap(entry -> entry.getValue().getThen().stream())
-                .filter(s -> s instanceof CreateInstanceExpression)
-                .flatMap(createInstanceExpression -> ((CreateInstanceExpression) createInstanceExpression).getAssignmentExpressions().stream())
-                .map(assignmentExpression -> assignmentExpression.getVariable().getCode())
-                .collect(Collectors.toSet());
-        if (guideDefinition.getDefaultActions() != null) {
-            Set<String> codesFromDefaultActions = guideDefinition.getDefaultActions().stream()
-                    .map(assignmentExpression -> ((AssignmentExpression) assignmentExpression).getVariable().getCode())
-                    .collect(Collectors.toSet());
-            codesFromAssignments.addAll(codesFromDefaultActions);
-        }
-        codesFromAssignments.addAll(codesFromCreateStatements);
-        return codesFromAssignments;
+    private ExecutionOutput executeSingleGuidelineWithCards(CompiledGuideline compiledGuideline, DataInstanceIndex dataInstanceIndex,
+                                                            List<Card> cards) {
+        InternalOutput internalOutput = execute(compiledGuideline, dataInstanceIndex, cards);
+        List<DataInstance> resultDataInstances = collectDataInstancesFromValueListMap(internalOutput.getResult(), compiledGuideline);
+        return new ExecutionOutput(internalOutput.firedRules, resultDataInstances);
     }
 
     /*Only used in testing*/
     InternalOutput execute(Guideline guideline, List<DataInstance> dataInstances) {
-        return execute(guideline, dataInstances, null);
+        return execute(compiledGuidelineCache.get(guideline), dataInstances, (List<Card>) null);
+    }
+
+    /**
+     * Executes a single compiled guideline.
+     *
+     * @param compiledGuideline guideline compiled by {@link GuidelineCompiler}
+     * @param dataInstances     input data
+     * @return fired rules and result data instances
+     */
+    public ExecutionOutput execute(CompiledGuideline compiledGuideline, List<DataInstance> dataInstances) {
+        assertNotNull(compiledGuideline, "CompiledGuideline cannot be null.");
+        return executeSingleGuidelineWithCards(compiledGuideline, dataInstances, new ArrayList<>());
+    }
+
+    /**
+     * Executes a single compiled guideline with values of the execution context instead of the runtime configuration.
+     *
+     * @param compiledGuideline guideline compiled by {@link GuidelineCompiler}
+     * @param dataInstances     input data
+     * @param executionContext  current date time, language and timezone of this execution
+     * @return fired rules and result data instances
+     */
+    public ExecutionOutput execute(CompiledGuideline compiledGuideline, List<DataInstance> dataInstances, ExecutionContext executionContext) {
+        return withExecutionContext(executionContext).execute(compiledGuideline, dataInstances);
     }
 
-    private InternalOutput execute(Guideline guideline, List<DataInstance> dataInstances, List<Card> cards) {
-        assertNotNull(guideline, "Guideline cannot not be null.");
+    private InternalOutput execute(CompiledGuideline compiledGuideline, List<DataInstance> dataInstances, List<Card> cards) {
         assertNotNull(dataInstances, "List<DataInstance> cannot be null.");
-        Map<String, List<Object>> selectedInput = selectDataInstancesUsingPredicatesAndSortWithElementBindingCode(
-                dataInstances, guideline);
+        return execute(compiledGuideline, DataInstanceIndex.of(dataInstances), cards);
+    }
+
+    private InternalOutput execute(CompiledGuideline compiledGuideline, DataInstanceIndex dataInstanceIndex, List<Card> cards) {
+        assertNotNull(compiledGuideline, "Guideline cannot not be null.");
+        Guideline guideline = compiledGuideline.getGuideline();
+        SlotFrame selectedInput = selectDataInstancesUsingPredicatesAndSortWithElementBindingCode(
+                dataInstanceIndex, compiledGuideline);
         Map<String, Set<String>> guidelineFiredRules = new LinkedHashMap<>();
         Map<String, Object> resultDefaultRuleExecution = new HashMap<>();
         Map<String, Class> typeMap = new HashMap<>();
         Set<String> firedRules = new LinkedHashSet<>();
-        boolean allPreconditionsAreTrue = true;
-        if (guideline.getDefinition().getPreConditions() != null) {
-            allPreconditionsAreTrue = guideline.getDefinition().getPreConditions().stream()
-                    .allMatch(expressionItem -> evaluateBooleanExpression(expressionItem, selectedInput, guideline, null));
-        }
+        EvaluationContext preConditionContext = new EvaluationContext(this, selectedInput, guideline, null);
+        boolean allPreconditionsAreTrue = compiledGuideline.getPreConditions().stream()
+                .allMatch(preCondition -> preCondition.evaluateBoolean(preConditionContext));
         if (!allPreconditionsAreTrue) {
             guidelineFiredRules.put(guideline.getId(), firedRules);
             return new InternalOutput(guidelineFiredRules, selectedInput);
         }
-        if (guideline.getDefinition().getDefaultActions() != null) {
-            for (ExpressionItem assignmentExpression : guideline.getDefinition().getDefaultActions()) {
-                performAssignmentStatements((AssignmentExpression) assignmentExpression, selectedInput, typeMap,
-                        resultDefaultRuleExecution, guideline);
-                mergeValueMapIntoListValueMap(resultDefaultRuleExecution, selectedInput);
-            }
-        }
-        List<Rule> sortedRules = sortRulesByPriority(guideline.getDefinition().getRules().values());
-
-        Map<String, List<Object>> inputAndResult = new HashMap<>(selectedInput);
-        for (Rule rule : sortedRules) {
-            Map<String, List<Object>> resultPerRuleExecution = evaluateRule(rule, inputAndResult, guideline, firedRules, cards);
+        for (CompiledAssignment defaultAction : compiledGuideline.getDefaultActions()) {
+            performAssignmentStatements(defaultAction, preConditionContext, typeMap, resultDefaultRuleExecution);
+            mergeValueMapIntoListValueMap(resultDefaultRuleExecution, selectedInput);
+        }
+        SlotFrame inputAndResult = selectedInput.copy();
+        RuleNetwork.Memory networkMemory = this.runtimeConfiguration.isRuleNetworkEnabled()
+                ? compiledGuideline.getRuleNetwork().newMemory() : null;
+        List<CompiledRule> compiledRules = compiledGuideline.getRules();
+        for (int ruleIndex = 0; ruleIndex < compiledRules.size(); ruleIndex++) {
+            Map<String, List<Object>> resultPerRuleExecution = evaluateRule(compiledRules.get(ruleIndex), ruleIndex, networkMemory,
+                    inputAndResult, compiledGuideline, firedRules, cards);
             mergeListValueMaps(resultPerRuleExecution, inputAndResult);
         }
         guidelineFiredRules.put(guideline.getId(), firedRules);
@@ -333,16 +625,18 @@ public class Interpreter {
     }
 
     private List<DataInstance> collectDataInstancesFromValueListMap(Map<String, List<Object>> valueListMap,
-                                                                    GuideDefinition guideDefinition) {
+                                                                    CompiledGuideline compiledGuideline) {
         List<DataInstance> dataInstances = new ArrayList<>();
-        Set<String> assignableCodes = getCodesForAssignableVariables(guideDefinition);
+        GuideDefinition guideDefinition = compiledGuideline.getGuideline().getDefinition();
+        Set<String> assignableCodes = compiledGuideline.getAssignableCodes();
         if (guideDefinition.getTemplates() != null) {
             for (Map.Entry<String, Template> entry : guideDefinition.getTemplates().entrySet()) {
                 Template template = entry.getValue();
                 if (valueListMap.containsKey(template.getId())) {
+                    TemplateProgram templateProgram = compiledGuideline.getTemplateProgram(entry.getKey());
                     List<Object> list = valueListMap.get(template.getId());
                     for (Object object : list) {
-                        dataInstances.add(fromOutputTemplateObject(template, object));
+                        dataInstances.add(templateProgram.toDataInstance(object));
                     }
                 }
             }
@@ -363,21 +657,19 @@ public class Interpreter {
             for (Map.Entry<String, Element> elementBindingEntry : dataBinding.getElements().entrySet()) {
                 String elementId = elementBindingEntry.getValue().getId();
                 String elementPath = elementBindingEntry.getValue().getPath();
-                for (Map.Entry<String, List<Object>> entry : valueListMap.entrySet()) {
-                    String valueKey = entry.getKey();
-                    List<Object> objects = entry.getValue();
-                    if (elementId.equals(valueKey)) {
-                        if (this.runtimeConfiguration.isIncludingInputWithPredicate()
-                                && INPUT.equals(dataBinding.getType())) {
-                            if (total < objects.size()) {
-                                total = objects.size();
-                            }
-                            pathValueListMap.put(elementPath, objects);
-                        } else if (assignableCodes.contains(valueKey)) {
-                            total = 1; // only take last element for output type
-                            pathValueListMap.put(elementPath, singletonList(objects.get(objects.size() - 1)));
-                        }
+                List<Object> objects = valueListMap.get(elementId);
+                if (objects == null) {
+                    continue;
+                }
+                if (this.runtimeConfiguration.isIncludingInputWithPredicate()
+                        && INPUT.equals(dataBinding.getType())) {
+                    if (total < objects.size()) {
+                        total = objects.size();
                     }
+                    pathValueListMap.put(elementPath, objects);
+                } else if (assignableCodes.contains(elementId)) {
+                    total = 1; // only take last element for output type
+                    pathValueListMap.put(elementPath, singletonList(objects.get(objects.size() - 1)));
                 }
             }
             dataInstances.addAll(
@@ -386,46 +678,6 @@ public class Interpreter {
         return dataInstances;
     }
 
-    private DataInstance fromOutputTemplateObject(Template template, Object object) {
-        DataInstance dataInstance = new DataInstance.Builder()
-                .id(template.getId())
-                .modelId(template.getModelId())
-                .addValue(ROOT, object)
-                .build();
-        if (template.getElementBindings() != null) {
-            Gson gson = new Gson();
-            object = retrieveNamedObjectToAvoidNameInObjectPaths(object, template.getName());
-            String json = gson.toJson(object);
-            for (ElementBinding elementBinding : template.getElementBindings()) {
-                String path = elementBinding.getPath();
-                String jsonPath = "$" + path.replaceAll("/", ".");
-                String type = elementBinding.getType();
-                Object jsonPathValue = JsonPath.read(json, jsonPath);
-                String value;
-                Object objectValue;
-                if ("DV_CODED_TEXT".equals(type)) {
-                    value = gson.toJson(jsonPathValue);
-                    objectValue = gson.fromJson(value, DvCodedText.class);
-                } else if ("DV_TEXT".equals(type)) {
-                    objectValue = DvText.valueOf(jsonPathValue.toString());
-                } else {
-                    objectValue = jsonPathValue;
-                }
-                if (objectValue != null) {
-                    dataInstance.setValue(path, objectValue);
-                }
-            }
-        }
-        return dataInstance;
-    }
-
-    private Object retrieveNamedObjectToAvoidNameInObjectPaths(Object object, String name) {
-        if (name == null) {
-            return object;
-        }
-        return ((Map) object).get(name);
-    }
-
     private List<DataInstance> createFromValueListsUsingSingleDataBinding(String bindingId,
                                                                           String modelId,
                                                                           Map<String, List<Object>> pathValueListMap,
@@ -450,28 +702,31 @@ public class Interpreter {
         return dataInstanceList;
     }
 
-    private Map<String, List<Object>> selectDataInstancesUsingPredicatesAndSortWithElementBindingCode(
-            List<DataInstance> dataInstances, Guideline guideline) {
+    private SlotFrame selectDataInstancesUsingPredicatesAndSortWithElementBindingCode(
+            DataInstanceIndex dataInstanceIndex, CompiledGuideline compiledGuideline) {
+        Guideline guideline = compiledGuideline.getGuideline();
+        SlotFrame valueListMap = compiledGuideline.getSlotLayout().newFrame();
         if (guideline.getDefinition().getDataBindings() == null) {
-            return emptyMap();
+            return valueListMap;
         }
-        Map<String, List<Object>> valueListMap = new HashMap<>();
         for (Map.Entry<String, DataBinding> entry : guideline.getDefinition().getDataBindings().entrySet()) {
             DataBinding dataBinding = entry.getValue();
-            List<DataInstance> selectedDataInstances =
-                    evaluateDataInstancesWithPredicates(
-                            filterDataInstancesWithModelId(dataInstances, dataBinding.getModelId()),
-                            dataBinding.getPredicates(),
-                            guideline);
-            convertDataInstancesToCodeBasedValueMap(dataBinding, selectedDataInstances, valueListMap);
+            List<DataInstance> selectedDataInstances = dataInstanceIndex.select(dataBinding.getModelId(),
+                    compiledGuideline.getRequiredPaths(entry.getKey()));
+            for (CompiledPredicate compiledPredicate : compiledGuideline.getPredicates(entry.getKey())) {
+                selectedDataInstances = evaluateDataInstancesWithPredicate(selectedDataInstances, compiledPredicate, guideline,
+                        dataInstanceIndex, dataBinding.getModelId());
+            }
+            convertDataInstancesToCodeBasedValueMap(dataBinding, compiledGuideline.getPathToCode(entry.getKey()),
+                    selectedDataInstances, valueListMap);
         }
         return valueListMap;
     }
 
     private void convertDataInstancesToCodeBasedValueMap(DataBinding dataBinding,
+                                                         Map<String, String> pathToCode,
                                                          List<DataInstance> dataInstances,
                                                          Map<String, List<Object>> valueListMap) {
-        Map<String, String> pathToCode = pathToCode(dataBinding);
         dataInstances.stream()
                 .flatMap(s -> s.values().entrySet().stream())
                 .filter(s -> pathToCode.containsKey(s.getKey()))
@@ -486,178 +741,67 @@ public class Interpreter {
         }
     }
 
-    private Map<String, String> pathToCode(DataBinding dataBinding) {
-        if (dataBinding.getElements() == null) {
-            return EMPTY_MAP;
-        }
-        return dataBinding.getElements().entrySet().stream()
-                .map(Map.Entry::getValue)
-                .collect(Collectors.toMap(Element::getPath, Element::getId));
-    }
-
-    private List<Rule> sortRulesByPriority(Collection<Rule> rules) {
-        return rules.stream().sorted(new RuleComparator()).collect(Collectors.toList());
-    }
-
-    private Map<String, List<Object>> evaluateRule(Rule rule, Map<String, List<Object>> input, Guideline guideline,
+    private Map<String, List<Object>> evaluateRule(CompiledRule compiledRule, int ruleIndex, RuleNetwork.Memory networkMemory,
+                                                   Map<String, List<Object>> input, CompiledGuideline compiledGuideline,
                                                    Set<String> firedRules, List<Card> cards) {
+        Guideline guideline = compiledGuideline.getGuideline();
+        Rule rule = compiledRule.getRule();
         Map<String, List<Object>> result = new HashMap<>();
         Map<String, Object> singleResult = new HashMap<>();
 
-        boolean allWhenStatementsAreTrue = rule.getWhen() == null || rule.getWhen().stream()
-                .allMatch(whenStatement -> evaluateBooleanExpression(whenStatement, input, guideline, firedRules));
+        EvaluationContext whenContext = new EvaluationContext(this, input, guideline, firedRules);
+        boolean allWhenStatementsAreTrue = networkMemory == null
+                ? compiledRule.getWhen().stream().allMatch(whenStatement -> whenStatement.evaluateBoolean(whenContext))
+                : networkMemory.matches(ruleIndex, whenContext);
         if (!allWhenStatementsAreTrue) {
             return result;
         }
         if (rule.getThen() != null) {
-            Map<String, Class> typeMap = typeBindingThroughAssignmentStatements(rule.getThen());
-            Map<String, Template> templateMap = guideline.getDefinition().getTemplates();
-            for (ExpressionItem thenStatement : rule.getThen()) {
-                if (thenStatement instanceof AssignmentExpression) {
-                    performAssignmentStatements((AssignmentExpression) thenStatement, input, typeMap, singleResult, guideline);
+            Map<String, Class> typeMap = compiledRule.getTypeMap();
+            EvaluationContext thenContext = new EvaluationContext(this, input, guideline, null);
+            for (CompiledAssignment thenStatement : compiledRule.getThen()) {
+                if (thenStatement.getStatement() instanceof AssignmentExpression) {
+                    performAssignmentStatements(thenStatement, thenContext, typeMap, singleResult);
                 }
-                if (thenStatement instanceof UseTemplateExpression) {
+                if (thenStatement.getStatement() instanceof UseTemplateExpression) {
                     mergeValueMapIntoListValueMap(singleResult, result);
-                    performUseTemplateStatement((UseTemplateExpression) thenStatement, templateMap, input, result, guideline);
+                    performUseTemplateStatement(thenStatement, compiledGuideline, thenContext, result);
                 }
-                if (hasContinuousAssignments(rule) || hasCards(rule)) {
+                if (compiledRule.hasContinuousAssignments() || compiledRule.hasCards()) {
                     mergeValueMapIntoListValueMap(singleResult, input);
                 }
             }
         }
-        if (hasCards(rule)) {
-            for (Card card : rule.getCards()) {
-                cards.add(processCard(card, input, guideline));
-            }
+        if (compiledRule.hasCards()) {
+            renderCards(compiledRule, input, compiledGuideline, cards);
         }
         firedRules.add(rule.getId());
+        if (networkMemory != null) {
+            networkMemory.fired(ruleIndex);
+        }
         mergeValueMapIntoListValueMap(singleResult, result);
         input.remove(CURRENT_INDEX);
         return result;
     }
 
-    private boolean hasCards(Rule rule) {
-        return rule.getCards() != null && !rule.getCards().isEmpty();
-    }
-
-    /*
-     * continuous assignments are more than one thenStatements assigning values to the same variable of a given rule
-     */
-    private boolean hasContinuousAssignments(Rule rule) {
-        List<ExpressionItem> assignmentExpressions = rule.getThen();
-        if (assignmentExpressions == null || assignmentExpressions.size() <= 1) {
-            return false;
-        }
-        Set<String> variableIds = new HashSet<>();
-        for (ExpressionItem expressionItem : assignmentExpressions) {
-            if (!(expressionItem instanceof AssignmentExpression)) {
-                continue;
-            }
-            AssignmentExpression assignmentExpression = (AssignmentExpression) expressionItem;
-            String code = assignmentExpression.getVariable().getCode();
-            if (variableIds.contains(code)) {
-                return true;
-            } else {
-                variableIds.add(code);
-            }
-        }
-        return false;
-    }
-
-    private Card processCard(Card card, Map<String, List<Object>> input, Guideline guideline) {
-        TermDefinition termDefinition = guideline.getOntology().getTermDefinitions().get(this.runtimeConfiguration.getLanguage());
+    private void renderCards(CompiledRule compiledRule, Map<String, List<Object>> input, CompiledGuideline compiledGuideline,
+                             List<Card> cards) {
+        Map<String, TermDefinition> termDefinitions = compiledGuideline.getGuideline().getOntology().getTermDefinitions();
+        String language = this.runtimeConfiguration.getLanguage();
+        TermDefinition termDefinition = termDefinitions.get(language);
         if (termDefinition == null) {
-            termDefinition = guideline.getOntology().getTermDefinitions().get(getDefaultLanguage());
-        }
-        List<Suggestion> suggestions = new ArrayList<>();
-        if (card.getSuggestions() != null) {
-            for (int i = 0, j = card.getSuggestions().size(); i < j; i++) {
-                suggestions.add(processSuggestion(card.getSuggestions().get(i), input, guideline, termDefinition));
-            }
-        }
-        Source source = card.getSource();
-        if (source != null) {
-            source = processReferencedSource(source, guideline.getDescription());
-        }
-        List<Link> links = new ArrayList<>();
-        if (card.getLinks() != null) {
-            for (Link link : card.getLinks()) {
-                links.add(processLink(link, guideline.getDescription(), input, termDefinition));
-            }
-        }
-        return Card.builder()
-                .summary(replaceVariablesWithValues(card.getSummary(), input, termDefinition))
-                .detail(replaceVariablesWithValues(card.getDetail(), input, termDefinition))
-                .indicator(card.getIndicator())
-                .source(source)
-                .suggestions(suggestions)
-                .links(links)
-                .build();
-    }
-
-    private Source processReferencedSource(Source source, ResourceDescription description) {
-        if (description == null) {
-            return source;
-        }
-        String label = fromReferencedLabel(source.getLabelReference(), description);
-        URL url = fromReferencedUrl(source.getUrlReference(), description);
-        return Source.builder().label(label).url(url).build();
-    }
-
-    private Link processLink(Link link, ResourceDescription resourceDescription,
-                             Map<String, List<Object>> values, TermDefinition termDefinition) {
-        if (ABSOLUTE.equals(link.getType()) && resourceDescription != null) {
-            return processReferencedLink(link, resourceDescription);
-        } else {
-            return processLanguageSpecificLabel(link, values, termDefinition);
-        }
-    }
-
-    private Link processReferencedLink(Link link, ResourceDescription resourceDescription) {
-        String label = fromReferencedLabel(link.getLabelReference(), resourceDescription);
-        URL url = fromReferencedUrl(link.getUrlReference(), resourceDescription);
-        return Link.builder()
-                .label(label)
-                .url(url)
-                .type(ABSOLUTE)
-                .build();
-    }
-
-    private Link processLanguageSpecificLabel(Link link, Map<String, List<Object>> values, TermDefinition termDefinition) {
-        return Link.builder()
-                .label(replaceVariablesWithValues(link.getLabel(), values, termDefinition))
-                .url(link.getUrl())
-                .type(link.getType())
-                .build();
-    }
-
-    private String fromReferencedLabel(String labelRef, ResourceDescription resourceDescription) {
-        String label = "";
-        if (labelRef != null && labelRef.startsWith("$ref[") && labelRef.endsWith("].label")) {
-            int index = Integer.parseInt(labelRef.substring(5, labelRef.indexOf("]"))) - 1;
-            if (index < resourceDescription.getReferences().size()) {
-                label = resourceDescription.getReferences().get(index).getLabel();
-            }
+            language = getDefaultLanguage();
+            termDefinition = termDefinitions.get(language);
         }
-        return label;
-    }
-
-    private URL fromReferencedUrl(String urlReference, ResourceDescription resourceDescription) {
-        URL url = null;
-        if (urlReference != null && urlReference.startsWith("$ref[") && urlReference.endsWith("].url")) {
-            int index = Integer.parseInt(urlReference.substring(5, urlReference.indexOf("]"))) - 1;
-            if (index < resourceDescription.getReferences().size()) {
-                try {
-                    url = new URL(resourceDescription.getReferences().get(index).getUrl());
-                } catch (MalformedURLException murle) {
-                    // ignore
-                }
-            }
+        for (CardRenderer cardRenderer : compiledRule.getCardRenderers(termDefinition == null ? null : language)) {
+            cards.add(cardRenderer.render(this, input, compiledGuideline, termDefinition));
         }
-        return url;
     }
 
-    private String replaceVariablesWithValues(String source, Map<String, List<Object>> values, TermDefinition termDefinition) {
+    /*
+     * substitution of the variables of card texts, used by card renderers for texts they do not substitute themselves
+     */
+    String replaceVariablesWithValues(String source, Map<String, List<Object>> values, TermDefinition termDefinition) {
         if (source == null) {
             return null;
         }
@@ -686,7 +830,7 @@ public class Interpreter {
         return term == null ? null : term.getText();
     }
 
-    private Variable parseVariable(String expression) {
+    static Variable parseVariable(String expression) {
         int index = expression.indexOf(".");
         if (index < 0) {
             return new Variable(expression.substring(1));
@@ -695,38 +839,13 @@ public class Interpreter {
         }
     }
 
-    private Suggestion processSuggestion(Suggestion suggestion, Map<String, List<Object>> input, Guideline guideline,
-                                         TermDefinition termDefinition) {
-        List<Action> actions = new ArrayList<>();
-        if (suggestion.getActions() != null) {
-            for (Action action : suggestion.getActions()) {
-                actions.add(processAction(action, input, guideline, termDefinition));
-            }
-        }
-        return Suggestion.builder().actions(actions)
-                .label(replaceVariablesWithValues(suggestion.getLabel(), input, termDefinition))
-                .uuid(suggestion.getUuid())
-                .build();
-    }
-
-    private Action processAction(Action action, Map<String, List<Object>> input, Guideline guideline, TermDefinition termDefinition) {
-        Action.ActionBuilder actionBuilder = Action.builder()
-                .description(replaceVariablesWithValues(action.getDescription(), input, termDefinition))
-                .type(action.getType());
-        if (action.getResourceTemplate() != null) {
-            actionBuilder.resource(processUseTemplate(action.getResourceTemplate(), input, guideline));
-        }
-        return actionBuilder.build();
-    }
-
-    private Object processUseTemplate(UseTemplate useTemplate, Map<String, List<Object>> input, Guideline guideline) {
-        Template template = null;
-        if (guideline.getDefinition().getTemplates() != null) {
-            template = guideline.getDefinition().getTemplates().get(useTemplate.getTemplateId());
-        }
-        if (template == null) {
+    Object processUseTemplate(UseTemplate useTemplate, Map<String, List<Object>> input, CompiledGuideline compiledGuideline) {
+        Guideline guideline = compiledGuideline.getGuideline();
+        TemplateProgram templateProgram = compiledGuideline.getTemplateProgram(useTemplate.getTemplateId());
+        if (templateProgram == null) {
             return null;
         }
+        Template template = templateProgram.getTemplate();
         Map<String, Object> useTemplateLocalResult = new HashMap<>();
         for (ExpressionItem expressionItem : useTemplate.getAssignments()) {
             AssignmentExpression assignmentExpression = (AssignmentExpression) expressionItem;
@@ -734,8 +853,7 @@ public class Interpreter {
             useTemplateLocalResult.put(assignmentExpression.getVariable().getCode(), value);
         }
 
-        Map<String, Object> localMapCopy = deepCopy(template.getObject());
-        this.templateFiller.traverseMapAndReplaceAllVariablesWithValues(localMapCopy, useTemplateLocalResult, input);
+        Map<String, Object> localMapCopy = templateProgram.fill(useTemplateLocalResult, input, null);
         try {
             return this.runtimeConfiguration.getObjectCreatorPlugin().create(template.getModelId(), localMapCopy);
         } catch (ClassNotFoundException cnf) {
@@ -745,26 +863,8 @@ public class Interpreter {
         }
     }
 
-    private Map<String, Object> deepCopy(Map<String, Object> map) {
-        Gson gson = new Gson();
-        String json = gson.toJson(map);
-        return gson.fromJson(json, Map.class);
-    }
-
-    // mainly to resolve ambiguity between DvCount and DvQuantity
     Map<String, Class> typeBindingThroughAssignmentStatements(List<ExpressionItem> assignmentExpressions) {
-        Map<String, Set<String>> attributesMap = new HashMap<>();
-        for (ExpressionItem expressionItem : assignmentExpressions) {
-            if (expressionItem instanceof AssignmentExpression) {
-                Variable variable = ((AssignmentExpression) expressionItem).getVariable();
-                attributesMap
-                        .computeIfAbsent(variable.getCode(), key -> new HashSet<>())
-                        .add(variable.getAttribute());
-            }
-        }
-        TypeBinding typeBinding = new TypeBinding();
-        return attributesMap.entrySet().stream()
-                .collect(Collectors.toMap(Map.Entry::getKey, s -> typeBinding.possibleType(s.getValue())));
+        return GuidelineCompiler.typeBindingThroughAssignmentStatements(assignmentExpressions);
     }
 
     void performAssignmentStatements(AssignmentExpression assignmentExpression, Map<String, List<Object>> input,
@@ -774,8 +874,6 @@ public class Interpreter {
 
     void performAssignmentStatements(AssignmentExpression assignmentExpression, Map<String, List<Object>> input,
                                      Map<String, Class> typeMap, Map<String, Object> result, Guideline guideline) {
-        Variable variable = assignmentExpression.getVariable();
-        String attribute = variable.getAttribute();
         if (assignmentExpression instanceof CreateInstanceExpression) {
             evaluateCreateInstanceExpression(assignmentExpression, input, typeMap, result, guideline);
             return;
@@ -786,6 +884,27 @@ public class Interpreter {
         } else {
             value = evaluateExpressionItem(assignmentExpression.getAssignment(), input, guideline, null);
         }
+        assignValue(value, assignmentExpression, input, typeMap, result, guideline);
+    }
+
+    private void performAssignmentStatements(CompiledAssignment compiledAssignment, EvaluationContext context,
+                                             Map<String, Class> typeMap, Map<String, Object> result) {
+        AssignmentExpression assignmentExpression = (AssignmentExpression) compiledAssignment.getStatement();
+        if (assignmentExpression instanceof CreateInstanceExpression) {
+            for (CompiledAssignment assignment : compiledAssignment.getAssignments()) {
+                performAssignmentStatements(assignment, context, typeMap, result);
+                mergeValueMapIntoListValueMap(result, context.getInput());
+            }
+            return;
+        }
+        Object value = compiledAssignment.getValue().evaluate(context);
+        assignValue(value, assignmentExpression, context.getInput(), typeMap, result, context.getGuideline());
+    }
+
+    private void assignValue(Object value, AssignmentExpression assignmentExpression, Map<String, List<Object>> input,
+                             Map<String, Class> typeMap, Map<String, Object> result, Guideline guideline) {
+        Variable variable = assignmentExpression.getVariable();
+        String attribute = variable.getAttribute();
         if (TypeBinding.PRECISION.equals(attribute)) {
             DvQuantity dvQuantity = retrieveDvQuantityFromResultMapOrCreateNew(variable.getCode(), result);
             try {
@@ -852,23 +971,25 @@ public class Interpreter {
                 .build();
     }
 
-    private void performUseTemplateStatement(UseTemplateExpression useTemplateExpression, Map<String, Template> templateMap,
-                                             Map<String, List<Object>> input, Map<String, List<Object>> result, Guideline guideline) {
+    private void performUseTemplateStatement(CompiledAssignment compiledUseTemplate, CompiledGuideline compiledGuideline,
+                                             EvaluationContext context, Map<String, List<Object>> result) {
+        UseTemplateExpression useTemplateExpression = (UseTemplateExpression) compiledUseTemplate.getStatement();
+        Map<String, List<Object>> input = context.getInput();
         Variable variable = useTemplateExpression.getVariable();
         String attribute = variable.getCode();
-        Template template = templateMap.get(attribute);
-        if (template == null) {
+        TemplateProgram templateProgram = compiledGuideline.getTemplateProgram(attribute);
+        if (templateProgram == null) {
             return;
         }
         Map<String, Object> useTemplateLocalResult = new HashMap<>();
-        for (AssignmentExpression assignmentExpression : useTemplateExpression.getAssignmentExpressions()) {
-            Object value = evaluateExpressionItem(assignmentExpression.getAssignment(), input, guideline, null);
-            useTemplateLocalResult.put(assignmentExpression.getVariable().getCode(), value);
+        for (CompiledAssignment assignment : compiledUseTemplate.getAssignments()) {
+            Object value = assignment.getValue().evaluate(context);
+            useTemplateLocalResult.put(((AssignmentExpression) assignment.getStatement()).getVariable().getCode(), value);
         }
         useTemplateLocalResult.putAll(result);
         Map<Variable, List<Variable>> inputVariableMap = useTemplateExpression.getInputVariableMap();
         if (inputVariableMap == null || inputVariableMap.size() == 0) {
-            createObjectUsingOutPutTemplate(variable, template, useTemplateLocalResult, input, result, null);
+            createObjectUsingOutPutTemplate(variable, templateProgram, useTemplateLocalResult, input, result, null);
         } else {
             List<Variable> ifVariables = useTemplateExpression.getIfVariables();
             for (int i = 0, j = inputVariableMap.entrySet().iterator().next().getValue().size(); i < j; i++) {
@@ -881,7 +1002,7 @@ public class Interpreter {
                 }
                 Map<String, Object> values = createInputValueMap(inputVariableMap, input, i);
                 if (!values.isEmpty()) {
-                    createObjectUsingOutPutTemplate(variable, template, useTemplateLocalResult, input, result, values);
+                    createObjectUsingOutPutTemplate(variable, templateProgram, useTemplateLocalResult, input, result, values);
                 }
             }
         }
@@ -903,12 +1024,12 @@ public class Interpreter {
         return valueMap;
     }
 
-    private void createObjectUsingOutPutTemplate(Variable variable, Template template, Map<String, Object> useTemplateLocalResult,
+    private void createObjectUsingOutPutTemplate(Variable variable, TemplateProgram templateProgram, Map<String, Object> useTemplateLocalResult,
                                                  Map<String, List<Object>> input, Map<String, List<Object>> result,
                                                  Map<String, Object> additionalInputValues) {
-        Map<String, Object> localMapCopy = deepCopy(template.getObject());
+        Template template = templateProgram.getTemplate();
         addCurrentDateTimeToGlobalVariableValues(input);
-        this.templateFiller.traverseMapAndReplaceAllVariablesWithValues(localMapCopy, useTemplateLocalResult, input, additionalInputValues);
+        Map<String, Object> localMapCopy = templateProgram.fill(useTemplateLocalResult, input, additionalInputValues);
 
         String modelId = template.getModelId();
         try {
@@ -1055,7 +1176,7 @@ public class Interpreter {
         return REFERENCE_NOT_FOUND;
     }
 
-    private Object evaluateConstantExpression(ExpressionItem expressionItem) {
+    static Object evaluateConstantExpression(ExpressionItem expressionItem) {
         if (expressionItem instanceof DoubleConstant) {
             return ((DoubleConstant) expressionItem).getDoubleValue();
         } else if (expressionItem instanceof IntegerConstant) {
@@ -1081,18 +1202,18 @@ public class Interpreter {
         }
     }
 
-    private Object evaluateQuantityValue(@NonNull DvQuantity dvQuantity) {
+    private static Object evaluateQuantityValue(@NonNull DvQuantity dvQuantity) {
         if (isTimePeriodUnits(dvQuantity.getUnit())) {
             return convertTimeQuantityToPeriodOrMilliSeconds(dvQuantity);
         }
         return dvQuantity;
     }
 
-    private boolean isTimePeriodUnits(String unit) {
+    private static boolean isTimePeriodUnits(String unit) {
         return TIME_PERIOD_UNITS_LIST.contains(unit);
     }
 
-    private Object convertTimeQuantityToPeriodOrMilliSeconds(DvQuantity dvQuantity) {
+    private static Object convertTimeQuantityToPeriodOrMilliSeconds(DvQuantity dvQuantity) {
         int magnitude = Double.valueOf(dvQuantity.getMagnitude()).intValue();
         if (YEAR.equals(dvQuantity.getUnit())) {
             return Period.ofYears(magnitude);
@@ -1118,33 +1239,15 @@ public class Interpreter {
             List<Object>> input, Guideline guideline, Set<String> firedRules) {
         String function = functionalExpression.getFunction().toString();
         Double value = Double.valueOf(evaluateExpressionItem(functionalExpression.getItems().get(0), input, guideline, firedRules).toString());
-        if (ABS.equalsIgnoreCase(function)) {
-            return Math.abs(value);
-        } else if (CEIL.equalsIgnoreCase(function)) {
-            return Math.ceil(value);
-        } else if (EXP.equalsIgnoreCase(function)) {
-            return Math.exp(value);
-        } else if (FLOOR.equalsIgnoreCase(function)) {
-            return Math.floor(value);
-        } else if (LOG.equalsIgnoreCase(function)) {
-            return Math.log(value);
-        } else if (LOG10.equalsIgnoreCase(function)) {
-            return Math.log10(value);
-        } else if (LOG1P.equalsIgnoreCase(function)) {
-            return Math.log1p(value);
-        } else if (ROUND.equalsIgnoreCase(function)) {
-            return Math.round(value);
-        } else if (SQRT.equalsIgnoreCase(function)) {
-            return Math.sqrt(value);
-        } else if (SIN.equalsIgnoreCase(function)) {
-            return Math.sin(value);
-        } else if (COS.equalsIgnoreCase(function)) {
-            return Math.cos(value);
-        } else if (TAN.equalsIgnoreCase(function)) {
-            return Math.tan(value);
-        } else {
+        DoubleFunction<Object> mathFunction = mathFunction(function);
+        if (mathFunction == null) {
             throw new UnsupportedOperationException("Unsupported function: " + function);
         }
+        return mathFunction.apply(value);
+    }
+
+    static DoubleFunction<Object> mathFunction(String function) {
+        return MATH_FUNCTIONS.get(function.toLowerCase(Locale.ROOT));
     }
 
     private Object processUnaryExpression(UnaryExpression unaryExpression, Map<String, List<Object>> input,
@@ -1167,16 +1270,10 @@ public class Interpreter {
             idList.add(variable.getCode());
         }
         int maxListSize = maxValueListSize(input, idList);
-        List currentIndex;
-        Map<String, Integer> indexMap;
-        if (input.containsKey(CURRENT_INDEX)) {
-            currentIndex = input.get(CURRENT_INDEX);
-            indexMap = (Map) currentIndex.get(0);
-        } else {
-            indexMap = new HashMap<>();
-            currentIndex = singletonList(indexMap);
-            input.put(CURRENT_INDEX, currentIndex);
+        if (!input.containsKey(CURRENT_INDEX)) {
+            input.put(CURRENT_INDEX, singletonList(new HashMap<>()));
         }
+        Map<String, Integer> indexMap = (Map) input.get(CURRENT_INDEX).get(0);
         for (int i = 0; i < maxListSize; i++) {
             if (Boolean.valueOf(
                     evaluateExpressionItem(
@@ -1194,7 +1291,7 @@ public class Interpreter {
         return false;
     }
 
-    private int maxValueListSize(Map<String, List<Object>> input, List<String> idList) {
+    int maxValueListSize(Map<String, List<Object>> input, List<String> idList) {
         int max = 0;
         for (String id : idList) {
             List<Object> list = input.get(id);
@@ -1208,8 +1305,8 @@ public class Interpreter {
         return max;
     }
 
-    private Map<String, List<Object>> createSingletonListByIndex(List<String> idList, Map<String, List<Object>> input, int index) {
-        Map<String, List<Object>> singletonListValueMap = new HashMap<>(input);
+    Map<String, List<Object>> createSingletonListByIndex(List<String> idList, Map<String, List<Object>> input, int index) {
+        Map<String, List<Object>> singletonListValueMap = input instanceof SlotFrame ? ((SlotFrame) input).copy() : new HashMap<>(input);
         for (String id : idList) {
             List<Object> valueList = input.get(id);
             if (valueList == null) {
@@ -1289,7 +1386,7 @@ public class Interpreter {
         return runtimeConfiguration.getTimezoneId() == null ? ZoneId.of("UTC") : runtimeConfiguration.getTimezoneId();
     }
 
-    private Object evaluateDateTimeExpression(OperatorKind operator, Object leftValue, Object rightValue) {
+    Object evaluateDateTimeExpression(OperatorKind operator, Object leftValue, Object rightValue) {
         if (leftValue instanceof Period && rightValue instanceof Period) {
             Period periodLeft = (Period) leftValue;
             Period periodRight = (Period) rightValue;
@@ -1342,7 +1439,7 @@ public class Interpreter {
                 + leftValue + ", right: " + rightValue + ", operator: " + operator);
     }
 
-    private boolean evaluateEqualityExpression(Object leftValue, Object rightValue) {
+    boolean evaluateEqualityExpression(Object leftValue, Object rightValue) {
         checkDvQuantityUnits(leftValue, rightValue);
         if (leftValue == null && rightValue == null) {
             return true;
@@ -1378,7 +1475,7 @@ public class Interpreter {
         }
     }
 
-    private Object evaluateArithmeticExpression(OperatorKind operator, Object leftValue, Object rightValue, ExpressionItem expressionItem) {
+    Object evaluateArithmeticExpression(OperatorKind operator, Object leftValue, Object rightValue, ExpressionItem expressionItem) {
         if ((leftValue == null || rightValue == null)) {
             if (isRelationalOperator(operator)) {
                 return false;
@@ -1411,7 +1508,7 @@ public class Interpreter {
         }
     }
 
-    private Object evaluateRelationalExpression(OperatorKind operator, Object leftValue, Object rightValue, ExpressionItem expressionItem) {
+    Object evaluateRelationalExpression(OperatorKind operator, Object leftValue, Object rightValue, ExpressionItem expressionItem) {
         checkDvQuantityUnits(leftValue, rightValue);
         if ((leftValue == null || rightValue == null)) {
             return null;
@@ -1451,8 +1548,10 @@ public class Interpreter {
                 || operator == LESS_THAN_OR_EQUAL;
     }
 
-    private double convertObjectValueToDouble(Object dataValue) {
-        if (dataValue instanceof DvQuantity) {
+    double convertObjectValueToDouble(Object dataValue) {
+        if (ExpressionCompiler.isPlainNumber(dataValue) || dataValue instanceof DvCount) {
+            return CompiledExpression.toDouble(dataValue);
+        } else if (dataValue instanceof DvQuantity) {
             return ((DvQuantity) dataValue).getMagnitude();
         } else if (dataValue instanceof DvDateTime) {
             return ((DvDateTime) dataValue).getDateTime().atZone(getRuntimeTimezoneId()).toInstant().toEpochMilli();
@@ -1470,7 +1569,7 @@ public class Interpreter {
         }
     }
 
-    private boolean evaluateIsARelationship(Object leftValue, Object rightValue, GuideOntology ontology) {
+    boolean evaluateIsARelationship(Object leftValue, Object rightValue, GuideOntology ontology) {
         if (!(leftValue instanceof DvCodedText) || !(rightValue instanceof DvCodedText)) {
             return false;
         }
@@ -1534,9 +1633,14 @@ public class Interpreter {
         } else if (SUM.equals(variable.getAttribute())) {
             return evaluateAggregationSum(variable, valueMap);
         }
-        if (key.endsWith("/value/value")) {
-            key = key.substring(0, key.length() - 12);
-        }
+        return retrieveValueFromValueMap(variable, valueKey(variable), valueMap, null);
+    }
+
+    /*
+     * key is the variable code or path, without any trailing /value/value, see valueKey(Variable);
+     * site is where a compiled variable keeps its resolved attribute accessor, null for none
+     */
+    Object retrieveValueFromValueMap(Variable variable, String key, Map<String, List<Object>> valueMap, AttributeAccessors.Site site) {
         Object dataValue;
         if (CURRENT_DATETIME.equals(variable.getCode())) {
             dataValue = systemCurrentDateTime();
@@ -1549,6 +1653,13 @@ public class Interpreter {
             }
             dataValue = retrieveValueUsingLastIndex(valueMap, key);
         }
+        return retrieveAttributeValue(variable, key, dataValue, site);
+    }
+
+    /*
+     * value of the variable attribute, or the data value itself if the variable has no attribute
+     */
+    Object retrieveAttributeValue(Variable variable, String key, Object dataValue, AttributeAccessors.Site site) {
         String attribute = variable.getAttribute();
         if (attribute == null) {
             if (dataValue instanceof DvQuantity) {
@@ -1577,15 +1688,23 @@ public class Interpreter {
                 return dataValue.toString();
             }
         }
+        AttributeAccessor attributeAccessor = site == null
+                ? attributeAccessors.resolve(dataValue.getClass(), attribute) : site.resolve(attributeAccessors, dataValue.getClass());
         try {
-            String getterName = "get" + attribute.substring(0, 1).toUpperCase() + attribute.substring(1);
-            Method method = dataValue.getClass().getMethod(getterName);
-            return method.invoke(dataValue);
-        } catch (ReflectiveOperationException exception) {
+            return attributeAccessor.get(dataValue);
+        } catch (Exception exception) {
             throw new IllegalArgumentException("Failed to retrieve attribute [" + attribute + "] value for variable: " + variable);
         }
     }
 
+    static String valueKey(Variable variable) {
+        String key = variable.getCode() != null ? variable.getCode() : variable.getPath();
+        if (key.endsWith("/value/value")) {
+            key = key.substring(0, key.length() - 12);
+        }
+        return key;
+    }
+
     private Object retrieveValueUsingLastIndex(Map<String, List<Object>> valueMap, String key) {
         List<Object> valueList = valueMap.get(key);
         Object dataValue;
@@ -1634,17 +1753,16 @@ public class Interpreter {
         return DateTimeFormatter.ofPattern(this.runtimeConfiguration.getDateTimeFormatPattern()).format(date);
     }
 
-    private List<DataInstance> filterDataInstancesWithModelId(List<DataInstance> dataInstances, String modelId) {
-        return dataInstances.stream()
-                .filter(s -> modelId.equals(s.modelId()))
-                .collect(Collectors.toList());
+    private List<DataInstance> evaluateMinOrMaxFunction(List<DataInstance> dataInstances, UnaryExpression unaryExpression, boolean minFunction) {
+        return evaluateMinOrMaxFunction(dataInstances, ExpressionCompiler.interpreted(unaryExpression.getOperand()), minFunction);
     }
 
-    private List<DataInstance> evaluateMinOrMaxFunction(List<DataInstance> dataInstances, UnaryExpression unaryExpression, boolean minFunction) {
+    private List<DataInstance> evaluateMinOrMaxFunction(List<DataInstance> dataInstances, CompiledExpression operand, boolean minFunction) {
         DataInstance found = null;
         long milliseconds = 0;
+        EvaluationContext context = new EvaluationContext(this, null, null, null);
         for (DataInstance dataInstance : dataInstances) {
-            Object value = evaluateExpressionItem(unaryExpression.getOperand(), dataInstance.valueListMap());
+            Object value = operand.evaluate(context.withInput(dataInstance.valueListMap()));
             if (value instanceof ZonedDateTime) {
                 ZonedDateTime zonedDateTime = (ZonedDateTime) value;
                 long convertedDateTime = zonedDateTime.toInstant().toEpochMilli();
@@ -1720,6 +1838,50 @@ public class Interpreter {
         throw new IllegalArgumentException("Unsupported operator in predicateStatement: " + predicateStatement);
     }
 
+    /*
+     * data instances are selected from the model id in the index, whose time index answers max/min of a plain path
+     * and time range predicates
+     */
+    private List<DataInstance> evaluateDataInstancesWithPredicate(List<DataInstance> dataInstances,
+                                                                  CompiledPredicate compiledPredicate,
+                                                                  Guideline guideline,
+                                                                  DataInstanceIndex dataInstanceIndex,
+                                                                  String modelId) {
+        EvaluationContext context = new EvaluationContext(this, null, guideline, null);
+        CompiledExpression expression = compiledPredicate.getExpression();
+        switch (compiledPredicate.getKind()) {
+            case MAX:
+                if (compiledPredicate.getPath() != null) {
+                    return dataInstances.isEmpty() ? dataInstances : dataInstanceIndex.timeIndex(modelId, compiledPredicate.getPath()).max(dataInstances);
+                }
+                return evaluateMinOrMaxFunction(dataInstances, expression, false);
+            case MIN:
+                if (compiledPredicate.getPath() != null) {
+                    return dataInstances.isEmpty() ? dataInstances : dataInstanceIndex.timeIndex(modelId, compiledPredicate.getPath()).min(dataInstances);
+                }
+                return evaluateMinOrMaxFunction(dataInstances, expression, true);
+            case IS_A:
+                return dataInstances.stream()
+                        .filter(dataInstance -> evaluateIsARelationship(
+                                dataInstance.get(compiledPredicate.getPath()),
+                                expression.evaluate(context.withInput(dataInstance.valueListMap())), guideline.getOntology()))
+                        .collect(Collectors.toList());
+            case BOOLEAN:
+                ColumnarPredicate columnar = compiledPredicate.getColumnar();
+                if (columnar != null && !dataInstances.isEmpty()) {
+                    List<DataInstance> selected = columnar.filter(dataInstances, context, dataInstanceIndex.timeIndex(modelId, columnar.getKey()));
+                    if (selected != null) {
+                        return selected;
+                    }
+                }
+                return dataInstances.stream()
+                        .filter(dataInstance -> expression.evaluateBoolean(context.withInput(dataInstance.valueListMap())))
+                        .collect(Collectors.toList());
+            default:
+                return evaluateDataInstancesWithPredicate(dataInstances, compiledPredicate.getPredicate(), guideline);
+        }
+    }
+
     private List<DataInstance> evaluateDataInstancesWithPredicateBinaryExpressions(List<DataInstance> dataInstances,
                                                                                    BinaryExpression binaryExpression,
                                                                                    Guideline guideline) {
@@ -1775,6 +1937,32 @@ public class Interpreter {
         }
     }
 
+    public static class BatchExecutionOutput {
+        private Map<String, Set<String>> firedRules;
+
+        private List<DataInstance> result;
+
+        private List<Card> cards;
+
+        BatchExecutionOutput(Map<String, Set<String>> firedRules, List<DataInstance> result, List<Card> cards) {
+            this.firedRules = firedRules;
+            this.result = result;
+            this.cards = cards;
+        }
+
+        public Map<String, Set<String>> getFiredRules() {
+            return firedRules;
+        }
+
+        public List<DataInstance> getResult() {
+            return result;
+        }
+
+        public List<Card> getCards() {
+            return cards;
+        }
+    }
+
     static class InternalOutput {
         private Map<String, Set<String>> firedRules;
 
@@ -0,0 +1,226 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.CreateInstanceExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.FunctionalExpression;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.OperatorKind;
+import org.gdl2.expression.ReferenceVariable;
+import org.gdl2.expression.UnaryExpression;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.expression.Variable;
+import org.gdl2.model.Rule;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Network of the when-statements of a compiled guideline, used when
+ * {@link RuntimeConfiguration#isRuleNetworkEnabled()}.
+ *
+ * <p>Identical when-statements of different rules share one condition node. The result of a condition is kept
+ * for the rest of the execution and only tested again once a fired rule wrote one of the variables, or fired
+ * one of the rules, the condition reads. Rules are still evaluated one by one in priority order, so fired and
+ * not-fired checks see the same fired rules as without the network.
+ *
+ * <p>Conditions with any-expressions, or anything else whose reads are not known, are always tested. So are all
+ * conditions while values are selected by an any-expression, since variables then read other values than the last.
+ */
+final class RuleNetwork {
+    private static final byte UNTESTED = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+
+    private final CompiledExpression[] conditions;
+    private final boolean[] memoizable;
+    private final int[][] conditionsByRule;
+    private final int[][] invalidatedByRule;
+
+    private RuleNetwork(CompiledExpression[] conditions, boolean[] memoizable, int[][] conditionsByRule, int[][] invalidatedByRule) {
+        this.conditions = conditions;
+        this.memoizable = memoizable;
+        this.conditionsByRule = conditionsByRule;
+        this.invalidatedByRule = invalidatedByRule;
+    }
+
+    /**
+     * Builds the network of the rules, sorted by priority as they are executed.
+     */
+    static RuleNetwork build(List<CompiledRule> rules) {
+        Map<ExpressionItem, Integer> conditionIndexes = new LinkedHashMap<>();
+        List<CompiledExpression> conditions = new ArrayList<>();
+        List<Boolean> memoizable = new ArrayList<>();
+        Map<String, BitSet> conditionsByRead = new HashMap<>();
+        int[][] conditionsByRule = new int[rules.size()][];
+        for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+            CompiledRule compiledRule = rules.get(ruleIndex);
+            List<ExpressionItem> when = compiledRule.getRule().getWhen();
+            int[] ruleConditions = new int[compiledRule.getWhen().size()];
+            for (int index = 0; index < ruleConditions.length; index++) {
+                ExpressionItem whenStatement = when.get(index);
+                Integer condition = conditionIndexes.get(whenStatement);
+                if (condition == null) {
+                    condition = conditions.size();
+                    conditionIndexes.put(whenStatement, condition);
+                    conditions.add(compiledRule.getWhen().get(index));
+                    Set<String> reads = new HashSet<>();
+                    boolean knownReads = collectReads(whenStatement, reads);
+                    memoizable.add(knownReads);
+                    for (String read : reads) {
+                        conditionsByRead.computeIfAbsent(read, key -> new BitSet()).set(condition);
+                    }
+                }
+                ruleConditions[index] = condition;
+            }
+            conditionsByRule[ruleIndex] = ruleConditions;
+        }
+        int[][] invalidatedByRule = new int[rules.size()][];
+        for (int ruleIndex = 0; ruleIndex < rules.size(); ruleIndex++) {
+            Set<String> writes = new HashSet<>();
+            BitSet invalidated = new BitSet();
+            if (collectWrites(rules.get(ruleIndex).getRule(), writes)) {
+                for (String write : writes) {
+                    BitSet readers = conditionsByRead.get(write);
+                    if (readers != null) {
+                        invalidated.or(readers);
+                    }
+                }
+            } else {
+                invalidated.set(0, conditions.size());
+            }
+            invalidatedByRule[ruleIndex] = invalidated.stream().toArray();
+        }
+        boolean[] memoizableConditions = new boolean[memoizable.size()];
+        for (int condition = 0; condition < memoizableConditions.length; condition++) {
+            memoizableConditions[condition] = memoizable.get(condition);
+        }
+        return new RuleNetwork(conditions.toArray(new CompiledExpression[0]), memoizableConditions, conditionsByRule, invalidatedByRule);
+    }
+
+    /**
+     * Number of distinct conditions, i.e. of when-statements after sharing identical ones.
+     */
+    int getConditionCount() {
+        return conditions.length;
+    }
+
+    /**
+     * Creates the condition results of one execution.
+     */
+    Memory newMemory() {
+        return new Memory();
+    }
+
+    /*
+     * codes of the variables and fired rules read by the expression, false if it reads more than those
+     */
+    private static boolean collectReads(ExpressionItem expressionItem, Set<String> reads) {
+        if (expressionItem == null || expressionItem instanceof ConstantExpression || expressionItem instanceof ReferenceVariable) {
+            return true;
+        } else if (expressionItem instanceof Variable) {
+            Variable variable = (Variable) expressionItem;
+            reads.add(variable.getCode() != null ? variable.getCode() : Interpreter.valueKey(variable));
+            return true;
+        } else if (expressionItem instanceof BinaryExpression) {
+            BinaryExpression binaryExpression = (BinaryExpression) expressionItem;
+            return collectReads(binaryExpression.getLeft(), reads) && collectReads(binaryExpression.getRight(), reads);
+        } else if (expressionItem instanceof LongExpression) {
+            for (LongExpression.OperandPair operandPair : ((LongExpression) expressionItem).getItems()) {
+                if (!collectReads(operandPair.getExpressionItem(), reads)) {
+                    return false;
+                }
+            }
+            return true;
+        } else if (expressionItem instanceof UnaryExpression) {
+            UnaryExpression unaryExpression = (UnaryExpression) expressionItem;
+            if ((unaryExpression.getOperator() == OperatorKind.FIRED || unaryExpression.getOperator() == OperatorKind.NOT_FIRED)
+                    && !(unaryExpression.getOperand() instanceof Variable)) {
+                return false;
+            }
+            return collectReads(unaryExpression.getOperand(), reads);
+        } else if (expressionItem instanceof FunctionalExpression) {
+            for (ExpressionItem item : ((FunctionalExpression) expressionItem).getItems()) {
+                if (!collectReads(item, reads)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        // any-expressions select values by index, other expressions are not known
+        return false;
+    }
+
+    /*
+     * codes of the variables written by the rule and the rule id, false if the written variables are not known
+     */
+    private static boolean collectWrites(Rule rule, Set<String> writes) {
+        writes.add(rule.getId());
+        if (rule.getThen() == null) {
+            return true;
+        }
+        for (ExpressionItem thenStatement : rule.getThen()) {
+            if (thenStatement instanceof CreateInstanceExpression) {
+                for (AssignmentExpression assignmentExpression : ((CreateInstanceExpression) thenStatement).getAssignmentExpressions()) {
+                    writes.add(assignmentExpression.getVariable().getCode());
+                }
+                writes.add(((CreateInstanceExpression) thenStatement).getVariable().getCode());
+            } else if (thenStatement instanceof AssignmentExpression) {
+                writes.add(((AssignmentExpression) thenStatement).getVariable().getCode());
+            } else if (thenStatement instanceof UseTemplateExpression) {
+                writes.add(((UseTemplateExpression) thenStatement).getVariable().getCode());
+            }
+        }
+        return !writes.contains(null);
+    }
+
+    /**
+     * Condition results of one execution.
+     */
+    final class Memory {
+        private final byte[] results = new byte[conditions.length];
+
+        /**
+         * Tests the when-statements of the rule, stopping at the first false one like the interpreter does.
+         *
+         * @param ruleIndex index of the rule in priority order
+         * @param context   context of the when-statements
+         * @return true if all when-statements are true
+         */
+        boolean matches(int ruleIndex, EvaluationContext context) {
+            for (int condition : conditionsByRule[ruleIndex]) {
+                if (!test(condition, context)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Forgets the results of the conditions reading the variables written by the fired rule, or the rule itself.
+         */
+        void fired(int ruleIndex) {
+            for (int condition : invalidatedByRule[ruleIndex]) {
+                results[condition] = UNTESTED;
+            }
+        }
+
+        private boolean test(int condition, EvaluationContext context) {
+            if (!memoizable[condition] || context.getInput().containsKey(Interpreter.CURRENT_INDEX)) {
+                return conditions[condition].evaluateBoolean(context);
+            }
+            if (results[condition] == UNTESTED) {
+                results[condition] = conditions[condition].evaluateBoolean(context) ? TRUE : FALSE;
+            }
+            return results[condition] == TRUE;
+        }
+    }
+}
@@ -7,9 +7,10 @@ import org.gdl2.terminology.SubsumptionEvaluator;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class RuntimeConfiguration {
     private String language;
     private ZoneId timezoneId;
@@ -18,4 +19,25 @@ public class RuntimeConfiguration {
     private ObjectCreatorPlugin objectCreatorPlugin;
     private String dateTimeFormatPattern;
     private Map<String, SubsumptionEvaluator> terminologySubsumptionEvaluators;
+    /**
+     * Accessors of data value attributes by type and attribute name, in addition to the built-in ones.
+     */
+    private Map<Class<?>, Map<String, AttributeAccessor>> attributeAccessors;
+    /**
+     * Evaluates when-statements through the rule network of compiled guidelines, re-testing a condition only after
+     * a fired rule changed what it reads.
+     */
+    private boolean ruleNetworkEnabled;
+    /**
+     * Executes the guidelines of a stage of the {@link ExecutionPlan} in parallel, using the common fork/join pool.
+     */
+    private boolean parallelGuidelineExecution;
+    /**
+     * Pool executing the patients of {@link Interpreter#executeGuidelinesBatch(java.util.List, Iterable)}, the common fork/join pool if null.
+     */
+    private ForkJoinPool batchForkJoinPool;
+    /**
+     * Patients of a batch execution submitted to the pool and not yet passed to the result consumer, 4 per worker of the pool if 0.
+     */
+    private int batchPatientsInFlight;
 }
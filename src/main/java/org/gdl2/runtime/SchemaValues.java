@@ -0,0 +1,146 @@
+package org.gdl2.runtime;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Values of a data instance stored by column of a {@link DataInstanceSchema}, seen as the map keyed by path
+ * the rest of the engine reads. A missing value is a null in its column.
+ */
+abstract class SchemaValues extends AbstractMap<String, Object> {
+    final DataInstanceSchema schema;
+
+    SchemaValues(DataInstanceSchema schema) {
+        this.schema = schema;
+    }
+
+    abstract Object value(int column);
+
+    abstract void setValue(int column, Object value);
+
+    @Override
+    public Object get(Object key) {
+        int column = key instanceof String ? schema.columnOf((String) key) : -1;
+        return column < 0 ? null : value(column);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        int column = schema.column(key);
+        Object previous = value(column);
+        setValue(column, value);
+        return previous;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int column = 0; column < schema.size(); column++) {
+            if (value(column) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return new AbstractSet<Entry<String, Object>>() {
+            @Override
+            public Iterator<Entry<String, Object>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return SchemaValues.this.size();
+            }
+        };
+    }
+
+    /**
+     * Values of one instance in an array indexed by column, grown when the schema gets new columns.
+     */
+    static final class Row extends SchemaValues {
+        private Object[] values;
+
+        Row(DataInstanceSchema schema) {
+            super(schema);
+            this.values = new Object[schema.size()];
+        }
+
+        @Override
+        Object value(int column) {
+            return column < values.length ? values[column] : null;
+        }
+
+        @Override
+        void setValue(int column, Object value) {
+            if (column >= values.length) {
+                values = Arrays.copyOf(values, Math.max(column + 1, schema.size()));
+            }
+            values[column] = value;
+        }
+    }
+
+    /**
+     * Values of one row of a {@link DataInstanceTable}.
+     */
+    static final class TableRow extends SchemaValues {
+        private final DataInstanceTable table;
+        private final int row;
+
+        TableRow(DataInstanceTable table, int row) {
+            super(table.getSchema());
+            this.table = table;
+            this.row = row;
+        }
+
+        @Override
+        Object value(int column) {
+            return table.value(column, row);
+        }
+
+        @Override
+        void setValue(int column, Object value) {
+            table.setValue(column, row, value);
+        }
+    }
+
+    private final class EntryIterator implements Iterator<Entry<String, Object>> {
+        private int column = next(0);
+
+        @Override
+        public boolean hasNext() {
+            return column >= 0;
+        }
+
+        @Override
+        public Entry<String, Object> next() {
+            if (column < 0) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, Object> entry = new SimpleImmutableEntry<>(schema.path(column), value(column));
+            column = next(column + 1);
+            return entry;
+        }
+
+        private int next(int from) {
+            for (int next = from; next < schema.size(); next++) {
+                if (value(next) != null) {
+                    return next;
+                }
+            }
+            return -1;
+        }
+    }
+}
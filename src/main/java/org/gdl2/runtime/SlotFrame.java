@@ -0,0 +1,279 @@
+package org.gdl2.runtime;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.Collections.singletonList;
+import static java.util.Collections.unmodifiableList;
+import static org.gdl2.runtime.SlotLayout.NO_SLOT;
+
+/**
+ * Value lists of one guideline execution, keyed like the value maps of the interpreter but stored in the
+ * slots of a {@link SlotLayout}. Keys outside the layout are kept in an ordinary map.
+ *
+ * <p>The {@link Interpreter#CURRENT_INDEX} entry, i.e. the value indexes selected by any-expressions, is kept
+ * as an index per slot, so reading a variable compiled to a slot takes a few array accesses.
+ */
+final class SlotFrame extends AbstractMap<String, List<Object>> {
+    private static final int NO_INDEX = -1;
+
+    private final SlotLayout layout;
+    private final List<Object>[] values;
+    private Map<String, List<Object>> overflow;
+    private IndexMap currentIndex;
+
+    @SuppressWarnings("unchecked")
+    SlotFrame(SlotLayout layout) {
+        this.layout = layout;
+        this.values = new List[layout.size()];
+    }
+
+    private SlotFrame(SlotFrame frame) {
+        this.layout = frame.layout;
+        this.values = frame.values.clone();
+        this.overflow = frame.overflow == null ? null : new HashMap<>(frame.overflow);
+        this.currentIndex = frame.currentIndex;
+    }
+
+    SlotLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * Shallow copy sharing value lists and current index, like copying a value map into a new HashMap.
+     */
+    SlotFrame copy() {
+        return new SlotFrame(this);
+    }
+
+    List<Object> valueList(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Value of the slot at the index selected by an any-expression, otherwise the last value.
+     */
+    Object currentValue(int slot, List<Object> valueList) {
+        if (currentIndex != null) {
+            int index = currentIndex.indexes[slot];
+            if (index != NO_INDEX) {
+                return valueList.get(index);
+            }
+        }
+        return valueList.get(valueList.size() - 1);
+    }
+
+    @Override
+    public List<Object> get(Object key) {
+        int slot = layout.slotOf(key);
+        if (slot != NO_SLOT) {
+            return values[slot];
+        } else if (Interpreter.CURRENT_INDEX.equals(key)) {
+            return currentIndex == null ? null : currentIndex.asList;
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        int slot = layout.slotOf(key);
+        if (slot != NO_SLOT) {
+            return values[slot] != null;
+        } else if (Interpreter.CURRENT_INDEX.equals(key)) {
+            return currentIndex != null;
+        }
+        return overflow != null && overflow.containsKey(key);
+    }
+
+    @Override
+    public List<Object> put(String key, List<Object> value) {
+        int slot = layout.slotOf(key);
+        if (slot != NO_SLOT) {
+            List<Object> previous = values[slot];
+            values[slot] = value;
+            return previous;
+        } else if (Interpreter.CURRENT_INDEX.equals(key)) {
+            List<Object> previous = get(key);
+            currentIndex = toIndexMap(value);
+            return previous;
+        }
+        if (overflow == null) {
+            overflow = new HashMap<>();
+        }
+        return overflow.put(key, value);
+    }
+
+    @Override
+    public List<Object> computeIfAbsent(String key, Function<? super String, ? extends List<Object>> mappingFunction) {
+        int slot = layout.slotOf(key);
+        if (slot == NO_SLOT) {
+            return super.computeIfAbsent(key, mappingFunction);
+        }
+        if (values[slot] == null) {
+            values[slot] = mappingFunction.apply(key);
+        }
+        return values[slot];
+    }
+
+    @Override
+    public List<Object> remove(Object key) {
+        int slot = layout.slotOf(key);
+        if (slot != NO_SLOT) {
+            List<Object> previous = values[slot];
+            values[slot] = null;
+            return previous;
+        } else if (Interpreter.CURRENT_INDEX.equals(key)) {
+            List<Object> previous = get(key);
+            currentIndex = null;
+            return previous;
+        }
+        return overflow == null ? null : overflow.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        overflow = null;
+        currentIndex = null;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (List<Object> value : values) {
+            if (value != null) {
+                size++;
+            }
+        }
+        if (currentIndex != null) {
+            size++;
+        }
+        return overflow == null ? size : size + overflow.size();
+    }
+
+    @Override
+    public Set<Entry<String, List<Object>>> entrySet() {
+        return new AbstractSet<Entry<String, List<Object>>>() {
+            @Override
+            public Iterator<Entry<String, List<Object>>> iterator() {
+                return unmodifiableList(entries()).iterator();
+            }
+
+            @Override
+            public int size() {
+                return SlotFrame.this.size();
+            }
+        };
+    }
+
+    private List<Entry<String, List<Object>>> entries() {
+        List<Entry<String, List<Object>>> entries = new ArrayList<>();
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                entries.add(new SimpleImmutableEntry<>(layout.keyOf(slot), values[slot]));
+            }
+        }
+        if (currentIndex != null) {
+            entries.add(new SimpleImmutableEntry<>(Interpreter.CURRENT_INDEX, currentIndex.asList));
+        }
+        if (overflow != null) {
+            for (Entry<String, List<Object>> entry : overflow.entrySet()) {
+                entries.add(new SimpleImmutableEntry<>(entry));
+            }
+        }
+        return entries;
+    }
+
+    @SuppressWarnings("unchecked")
+    private IndexMap toIndexMap(List<Object> value) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        Object indexes = value.get(0);
+        if (indexes instanceof IndexMap && ((IndexMap) indexes).layout == layout) {
+            return (IndexMap) indexes;
+        }
+        IndexMap indexMap = new IndexMap(layout);
+        indexMap.putAll((Map<String, Integer>) indexes);
+        return indexMap;
+    }
+
+    /**
+     * Value indexes selected by any-expressions, keyed by variable code.
+     */
+    private static final class IndexMap extends AbstractMap<String, Integer> {
+        private final SlotLayout layout;
+        private final int[] indexes;
+        private final List<Object> asList;
+        private Map<String, Integer> overflow;
+
+        IndexMap(SlotLayout layout) {
+            this.layout = layout;
+            this.indexes = new int[layout.size()];
+            this.asList = singletonList(this);
+            Arrays.fill(indexes, NO_INDEX);
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int slot = layout.slotOf(key);
+            if (slot != NO_SLOT) {
+                return indexes[slot] == NO_INDEX ? null : indexes[slot];
+            }
+            return overflow == null ? null : overflow.get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public Integer put(String key, Integer value) {
+            int slot = layout.slotOf(key);
+            if (slot != NO_SLOT) {
+                Integer previous = get(key);
+                indexes[slot] = value == null ? NO_INDEX : value;
+                return previous;
+            }
+            if (overflow == null) {
+                overflow = new HashMap<>();
+            }
+            return overflow.put(key, value);
+        }
+
+        @Override
+        public Set<Entry<String, Integer>> entrySet() {
+            List<Entry<String, Integer>> entries = new ArrayList<>();
+            for (int slot = 0; slot < indexes.length; slot++) {
+                if (indexes[slot] != NO_INDEX) {
+                    entries.add(new SimpleImmutableEntry<>(layout.keyOf(slot), indexes[slot]));
+                }
+            }
+            if (overflow != null) {
+                for (Entry<String, Integer> entry : overflow.entrySet()) {
+                    entries.add(new SimpleImmutableEntry<>(entry));
+                }
+            }
+            return new AbstractSet<Entry<String, Integer>>() {
+                @Override
+                public Iterator<Entry<String, Integer>> iterator() {
+                    return unmodifiableList(entries).iterator();
+                }
+
+                @Override
+                public int size() {
+                    return entries.size();
+                }
+            };
+        }
+    }
+}
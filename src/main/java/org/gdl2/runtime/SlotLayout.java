@@ -0,0 +1,55 @@
+package org.gdl2.runtime;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Slot numbers of the values of a compiled guideline, i.e. of element binding codes, data binding and
+ * template ids, internal variables and the variables referenced by its expressions.
+ *
+ * <p>Slots are added while the guideline is compiled, {@link SlotFrame}s are created from the completed layout.
+ */
+final class SlotLayout {
+    static final int NO_SLOT = -1;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<String> keys = new ArrayList<>();
+
+    /**
+     * Adds a slot for the key unless there is one already.
+     *
+     * @param key variable code, path or id
+     * @return slot of the key, or {@link #NO_SLOT} for a null key, which stays in the overflow map of frames
+     */
+    int addSlot(String key) {
+        if (key == null) {
+            return NO_SLOT;
+        }
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = keys.size();
+            slots.put(key, slot);
+            keys.add(key);
+        }
+        return slot;
+    }
+
+    int slotOf(Object key) {
+        Integer slot = slots.get(key);
+        return slot == null ? NO_SLOT : slot;
+    }
+
+    String keyOf(int slot) {
+        return keys.get(slot);
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    SlotFrame newFrame() {
+        return new SlotFrame(this);
+    }
+}
@@ -13,10 +13,9 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 class TemplateFiller {
-    private static final Pattern VARIABLE_REGEX = Pattern.compile("\\{\\$gt([0-9.])+[0-9]?}");
+    static final Pattern VARIABLE_REGEX = Pattern.compile("\\{\\$gt([0-9.])+[0-9]?}");
     private static final String ALL = ".all";
-    private static final String ALL_ENDING = ALL + "}";
-    private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
+    static final String ALL_ENDING = ALL + "}";
 
     Object replaceVariablesWithValues(String source, Map<String, Object> localValues,
                                       Map<String, List<Object>> globalValues) {
@@ -40,14 +39,14 @@ class TemplateFiller {
         return stringBuffer.toString();
     }
 
-    private boolean isSingleVariable(String source) {
+    static boolean isSingleVariable(String source) {
         return source.startsWith("{$")
                 && source.endsWith("}")
                 && source.indexOf("}") == source.length() - 1;
     }
 
-    private Object fetchValue(String variable, Map<String, Object> localValues, Map<String, List<Object>> globalValues,
-                              Map<String, Object> additionalInputValues) {
+    Object fetchValue(String variable, Map<String, Object> localValues, Map<String, List<Object>> globalValues,
+                      Map<String, Object> additionalInputValues) {
         String key = variable.substring(2, variable.length() - 1);
         Object value;
         if (key.endsWith(ALL)) {
@@ -70,6 +69,7 @@ class TemplateFiller {
         }
         if (value != null) {
             if (value instanceof Date) {
+                DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
                 value = dateFormat.format(value);
             } else if (value instanceof LocalDateTime) {
                 value = ((LocalDateTime) value).format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
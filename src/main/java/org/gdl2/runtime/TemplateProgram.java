@@ -0,0 +1,239 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.model.Template;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+
+/**
+ * Template compiled once into a tree of literal nodes and variable slots, filled by creating the output objects
+ * only, with the same result as copying the template object and filling the copy with {@link TemplateFiller}.
+ *
+ * <p>The template object is copied through json once when compiling, so the literals are the numbers, strings,
+ * booleans, maps and lists the copy would have had. Strings are split into literal text and variables when
+ * compiling, a variable with a value containing "$" or "\" fills the string by {@link TemplateFiller} to keep
+ * the treatment of such values as replacement patterns.
+ */
+final class TemplateProgram {
+    private static final TemplateFiller TEMPLATE_FILLER = new TemplateFiller();
+
+    private final Template template;
+    private final ElementBindingExtractor elementBindingExtractor;
+    private volatile MapNode root;
+
+    TemplateProgram(Template template) {
+        this.template = template;
+        this.elementBindingExtractor = new ElementBindingExtractor(template);
+    }
+
+    Template getTemplate() {
+        return template;
+    }
+
+    /**
+     * Output data instance of an object filled from the template, with the values of the element bindings of the
+     * template.
+     */
+    DataInstance toDataInstance(Object object) {
+        return elementBindingExtractor.extract(object);
+    }
+
+    /**
+     * New object of the template with its variables replaced by values as by
+     * {@link TemplateFiller#traverseMapAndReplaceAllVariablesWithValues(Map, Map, Map, Map)}. The template is compiled
+     * on the first fill, so templates never used are not compiled.
+     */
+    @SuppressWarnings("unchecked")
+    Map<String, Object> fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues,
+                             Map<String, Object> additionalInputValues) {
+        MapNode current = root;
+        if (current == null) {
+            if (template.getObject() == null) {
+                throw new NullPointerException("Template without object: " + template.getId());
+            }
+            Gson gson = new Gson();
+            current = compileMap(gson.fromJson(gson.toJson(template.getObject()), Map.class));
+            root = current;
+        }
+        return current.fill(localValues, globalValues, additionalInputValues);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Node compile(Object object) {
+        if (object instanceof String) {
+            return compileString((String) object);
+        } else if (object instanceof Map) {
+            return compileMap((Map<String, Object>) object);
+        } else if (object instanceof List) {
+            return compileList((List<Object>) object);
+        }
+        return new Literal(object);
+    }
+
+    private static MapNode compileMap(Map<String, Object> map) {
+        String[] keys = new String[map.size()];
+        Node[] values = new Node[map.size()];
+        int index = 0;
+        for (Map.Entry<String, Object> entry : map.entrySet()) {
+            keys[index] = entry.getKey();
+            values[index++] = compile(entry.getValue());
+        }
+        return new MapNode(keys, values);
+    }
+
+    private static ListNode compileList(List<Object> list) {
+        Node[] elements = new Node[list.size()];
+        boolean[] strings = new boolean[list.size()];
+        boolean[] expanded = new boolean[list.size()];
+        for (int index = 0; index < elements.length; index++) {
+            Object element = list.get(index);
+            elements[index] = compile(element);
+            strings[index] = element instanceof String;
+            expanded[index] = strings[index] && ((String) element).endsWith(TemplateFiller.ALL_ENDING);
+        }
+        return new ListNode(elements, strings, expanded);
+    }
+
+    /*
+     * same split as TemplateFiller.replaceVariablesWithValues: a whole string variable, or the variables found by
+     * the regex between literal text
+     */
+    private static Node compileString(String source) {
+        if (TemplateFiller.isSingleVariable(source)) {
+            return new Variable(source);
+        }
+        List<String> texts = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        Matcher matcher = TemplateFiller.VARIABLE_REGEX.matcher(source);
+        int end = 0;
+        while (matcher.find()) {
+            texts.add(source.substring(end, matcher.start()));
+            variables.add(matcher.group());
+            end = matcher.end();
+        }
+        if (variables.isEmpty()) {
+            return new Literal(source);
+        }
+        texts.add(source.substring(end));
+        return new Text(source, texts.toArray(new String[0]), variables.toArray(new String[0]));
+    }
+
+    private abstract static class Node {
+        abstract Object fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues,
+                             Map<String, Object> additionalInputValues);
+    }
+
+    private static final class Literal extends Node {
+        private final Object value;
+
+        Literal(Object value) {
+            this.value = value;
+        }
+
+        @Override
+        Object fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues, Map<String, Object> additionalInputValues) {
+            return value;
+        }
+    }
+
+    private static final class Variable extends Node {
+        private final String variable;
+
+        Variable(String variable) {
+            this.variable = variable;
+        }
+
+        @Override
+        Object fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues, Map<String, Object> additionalInputValues) {
+            return TEMPLATE_FILLER.fetchValue(variable, localValues, globalValues, additionalInputValues);
+        }
+    }
+
+    /*
+     * literal text around variables, a variable without value kept as it is
+     */
+    private static final class Text extends Node {
+        private final String source;
+        private final String[] texts;
+        private final String[] variables;
+
+        Text(String source, String[] texts, String[] variables) {
+            this.source = source;
+            this.texts = texts;
+            this.variables = variables;
+        }
+
+        @Override
+        Object fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues, Map<String, Object> additionalInputValues) {
+            StringBuilder text = new StringBuilder(source.length() + 16);
+            for (int index = 0; index < variables.length; index++) {
+                text.append(texts[index]);
+                Object value = TEMPLATE_FILLER.fetchValue(variables[index], localValues, globalValues, additionalInputValues);
+                if (value == null) {
+                    text.append(variables[index]);
+                    continue;
+                }
+                String replacement = value.toString();
+                if (replacement.indexOf('$') >= 0 || replacement.indexOf('\\') >= 0) {
+                    return TEMPLATE_FILLER.replaceVariablesWithValues(source, localValues, globalValues, additionalInputValues);
+                }
+                text.append(replacement);
+            }
+            return text.append(texts[variables.length]).toString();
+        }
+    }
+
+    private static final class MapNode extends Node {
+        private final String[] keys;
+        private final Node[] values;
+
+        MapNode(String[] keys, Node[] values) {
+            this.keys = keys;
+            this.values = values;
+        }
+
+        @Override
+        Map<String, Object> fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues,
+                                 Map<String, Object> additionalInputValues) {
+            Map<String, Object> map = new LinkedHashMap<>(keys.length * 4 / 3 + 1);
+            for (int index = 0; index < keys.length; index++) {
+                map.put(keys[index], values[index].fill(localValues, globalValues, additionalInputValues));
+            }
+            return map;
+        }
+    }
+
+    /*
+     * elements of strings without value are removed and those of ".all" variables replaced by the values of the
+     * variable, as by TemplateFiller.traverseListAndReplaceAllVariablesWithValues
+     */
+    private static final class ListNode extends Node {
+        private final Node[] elements;
+        private final boolean[] strings;
+        private final boolean[] expanded;
+
+        ListNode(Node[] elements, boolean[] strings, boolean[] expanded) {
+            this.elements = elements;
+            this.strings = strings;
+            this.expanded = expanded;
+        }
+
+        @Override
+        Object fill(Map<String, Object> localValues, Map<String, List<Object>> globalValues, Map<String, Object> additionalInputValues) {
+            List<Object> list = new ArrayList<>(elements.length);
+            for (int index = 0; index < elements.length; index++) {
+                Object value = elements[index].fill(localValues, globalValues, additionalInputValues);
+                if (expanded[index] && value instanceof List) {
+                    list.addAll((List<?>) value);
+                } else if (value != null || !strings[index]) {
+                    list.add(value);
+                }
+            }
+            return list;
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.OperatorKind;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Data instances of a model id ordered by the date time at a path, as epoch milliseconds sorted together
+ * with the positions of their instances, so max/min predicates and time range predicates like
+ * {@code /data/events/time > $currentDateTime - 12,mo} are answered by binary search instead of a scan.
+ *
+ * <p>Only values that are {@link ZonedDateTime}s are indexed, the only values max/min compare. Instances with
+ * the same time are ordered by position, so max/min select the first of them in input order like the scan.
+ *
+ * <p>The candidates passed to the queries are the instances of the index left by the predicates evaluated
+ * before, so they are always a subsequence of the indexed instances.
+ */
+final class TimeIndex {
+    private final List<DataInstance> dataInstances;
+    private final long[] times;
+    private final int[] positions;
+    private final boolean timesOnly;
+
+    private TimeIndex(List<DataInstance> dataInstances, long[] times, int[] positions, boolean timesOnly) {
+        this.dataInstances = dataInstances;
+        this.times = times;
+        this.positions = positions;
+        this.timesOnly = timesOnly;
+    }
+
+    /**
+     * Indexes the date times at the path of the data instances.
+     */
+    static TimeIndex of(List<DataInstance> dataInstances, String path) {
+        long[] times = new long[dataInstances.size()];
+        int[] positions = new int[dataInstances.size()];
+        int size = 0;
+        boolean timesOnly = true;
+        for (int position = 0; position < dataInstances.size(); position++) {
+            Object value = dataInstances.get(position).get(path);
+            if (value instanceof ZonedDateTime) {
+                times[size] = ((ZonedDateTime) value).toInstant().toEpochMilli();
+                positions[size++] = position;
+            } else if (value != null) {
+                timesOnly = false;
+            }
+        }
+        times = Arrays.copyOf(times, size);
+        positions = Arrays.copyOf(positions, size);
+        sort(times, positions, new long[size], new int[size], 0, size);
+        return new TimeIndex(dataInstances, times, positions, timesOnly);
+    }
+
+    /**
+     * True if every value at the path is a date time or missing, so the index answers range predicates.
+     */
+    boolean isTimesOnly() {
+        return timesOnly;
+    }
+
+    /**
+     * Candidate with the latest date time, the first one in input order if several have it.
+     */
+    List<DataInstance> max(List<DataInstance> candidates) {
+        Set<DataInstance> members = members(candidates);
+        for (int end = times.length - 1; end >= 0; ) {
+            int start = end;
+            while (start > 0 && times[start - 1] == times[end]) {
+                start--;
+            }
+            for (int index = start; index <= end; index++) {
+                DataInstance dataInstance = dataInstances.get(positions[index]);
+                if (members == null || members.contains(dataInstance)) {
+                    return Collections.singletonList(dataInstance);
+                }
+            }
+            end = start - 1;
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Candidate with the earliest date time, the first one in input order if several have it.
+     */
+    List<DataInstance> min(List<DataInstance> candidates) {
+        Set<DataInstance> members = members(candidates);
+        for (int index = 0; index < times.length; index++) {
+            DataInstance dataInstance = dataInstances.get(positions[index]);
+            if (members == null || members.contains(dataInstance)) {
+                return Collections.singletonList(dataInstance);
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Candidates whose date time in epoch milliseconds compares true with the value, in input order. Requires
+     * {@link #isTimesOnly()}, as only then the missing values are the only ones not indexed.
+     */
+    List<DataInstance> range(List<DataInstance> candidates, OperatorKind operator, double value) {
+        if (Double.isNaN(value)) {
+            return new ArrayList<>();
+        }
+        int from;
+        int to;
+        switch (operator) {
+            case GREATER_THAN:
+                from = firstGreaterThan(value);
+                to = times.length;
+                break;
+            case GREATER_THAN_OR_EQUAL:
+                from = firstGreaterThanOrEqual(value);
+                to = times.length;
+                break;
+            case LESS_THAN:
+                from = 0;
+                to = firstGreaterThanOrEqual(value);
+                break;
+            case LESS_THAN_OR_EQUAL:
+                from = 0;
+                to = firstGreaterThan(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported operator in time range: " + operator);
+        }
+        if (from >= to) {
+            return new ArrayList<>();
+        }
+        int[] selection = Arrays.copyOfRange(positions, from, to);
+        Arrays.sort(selection);
+        Set<DataInstance> members = members(candidates);
+        List<DataInstance> selected = new ArrayList<>(selection.length);
+        for (int position : selection) {
+            DataInstance dataInstance = dataInstances.get(position);
+            if (members == null || members.contains(dataInstance)) {
+                selected.add(dataInstance);
+            }
+        }
+        return selected;
+    }
+
+    /*
+     * identity set of the candidates, null if they are all the indexed instances
+     */
+    private Set<DataInstance> members(List<DataInstance> candidates) {
+        if (candidates == dataInstances || candidates.size() == dataInstances.size()) {
+            return null;
+        }
+        Set<DataInstance> members = Collections.newSetFromMap(new IdentityHashMap<>(candidates.size() * 2));
+        members.addAll(candidates);
+        return members;
+    }
+
+    /*
+     * first index whose time is greater than the value, compared as doubles like the interpreter does
+     */
+    private int firstGreaterThan(double value) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((double) times[middle] > value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private int firstGreaterThanOrEqual(double value) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if ((double) times[middle] >= value) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    /*
+     * stable merge sort of the times carrying the positions along, so equal times keep ascending positions
+     */
+    private static void sort(long[] times, int[] positions, long[] timesBuffer, int[] positionsBuffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        sort(times, positions, timesBuffer, positionsBuffer, from, middle);
+        sort(times, positions, timesBuffer, positionsBuffer, middle, to);
+        if (times[middle - 1] <= times[middle]) {
+            return;
+        }
+        System.arraycopy(times, from, timesBuffer, from, to - from);
+        System.arraycopy(positions, from, positionsBuffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int index = from; index < to; index++) {
+            if (right >= to || (left < middle && timesBuffer[left] <= timesBuffer[right])) {
+                times[index] = timesBuffer[left];
+                positions[index] = positionsBuffer[left++];
+            } else {
+                times[index] = timesBuffer[right];
+                positions[index] = positionsBuffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.gdl2;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.deserializers.CodePhraseDeserializer;
+import org.gdl2.deserializers.ExpressionItemDeserializer;
+import org.gdl2.deserializers.UnmodifiableCollectionsAdapterFactory;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.MicroBenchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares loading all guidelines of the test resources, as a service does at start-up, with a Gson built for each
+ * guideline binding the model by reflection and with the streaming type adapters of {@link Gdl2#fromGdl2(java.io.InputStream)}.
+ * The first load of each is timed on its own before the warmed-up measurements, and loading with lazy expressions
+ * is compared with parsing them all.
+ */
+public class Gdl2LoadingBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        new Gdl2LoadingBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        File directory = new File(getClass().getClassLoader().getResource("BSA_Calculation.v1.gdl2.json").toURI()).getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".gdl2.json"));
+        Arrays.sort(files);
+        List<byte[]> guidelines = new ArrayList<>();
+        for (File file : files) {
+            guidelines.add(Files.readAllBytes(file.toPath()));
+        }
+        System.out.println(guidelines.size() + " guidelines");
+        MicroBenchmark.measure("first load, streaming type adapters", 0, 1, () -> loadStreaming(guidelines));
+        MicroBenchmark.measure("first load, reflective gson", 0, 1, () -> loadReflective(guidelines));
+        double reflective = MicroBenchmark.measure("all guidelines, reflective gson", 50, 200, () -> loadReflective(guidelines));
+        double streaming = MicroBenchmark.measure("all guidelines, streaming type adapters", 50, 200, () -> loadStreaming(guidelines));
+        double lazy = MicroBenchmark.measure("all guidelines, lazy expressions", 50, 200, () -> loadLazily(guidelines));
+        MicroBenchmark.printRatio("speed-up, streaming type adapters", reflective, streaming);
+        MicroBenchmark.printRatio("speed-up, lazy expressions", streaming, lazy);
+    }
+
+    /*
+     * guidelines loaded the way fromGdl2 did before the streaming type adapters
+     */
+    private static List<Guideline> loadReflective(List<byte[]> guidelines) {
+        List<Guideline> loaded = new ArrayList<>(guidelines.size());
+        for (byte[] guideline : guidelines) {
+            Gson gson = new GsonBuilder()
+                    .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                    .registerTypeAdapter(ExpressionItem.class, new ExpressionItemDeserializer())
+                    .registerTypeAdapter(CodePhrase.class, new CodePhraseDeserializer())
+                    .registerTypeAdapterFactory(new UnmodifiableCollectionsAdapterFactory())
+                    .create();
+            loaded.add(gson.fromJson(new String(guideline, StandardCharsets.UTF_8), Guideline.class));
+        }
+        return loaded;
+    }
+
+    private static List<Guideline> loadStreaming(List<byte[]> guidelines) {
+        List<Guideline> loaded = new ArrayList<>(guidelines.size());
+        for (byte[] guideline : guidelines) {
+            loaded.add(Gdl2.fromGdl2(new ByteArrayInputStream(guideline)));
+        }
+        return loaded;
+    }
+
+    private static List<Guideline> loadLazily(List<byte[]> guidelines) {
+        List<Guideline> loaded = new ArrayList<>(guidelines.size());
+        for (byte[] guideline : guidelines) {
+            loaded.add(Gdl2.fromGdl2(new ByteArrayInputStream(guideline), Gdl2.ExpressionParsing.LAZY));
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,161 @@
+package org.gdl2;
+
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.deserializers.CodePhraseDeserializer;
+import org.gdl2.deserializers.ExpressionItemDeserializer;
+import org.gdl2.deserializers.UnmodifiableCollectionsAdapterFactory;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class Gdl2StreamingLoaderTest {
+    private static final String CARD = "{\"summary\": \"s\", \"indicator\": \"warning\", \"source\": {\"label\": \"l\", \"url\": \"%s\"},"
+            + " \"suggestions\": [{\"uuid\": \"%s\", \"actions\": [{\"type\": \"create\", \"resource\": %s,"
+            + " \"resource_template\": {\"template_id\": \"gt0001\", \"assignments\": [\"$gt0001.magnitude=1\"]}}]}],"
+            + " \"links\": [{\"label\": 1, \"url\": \"null\", \"type\": \"%s\", \"label_reference\": true}]}";
+    private static final String[] DOCUMENTS = {
+        "",
+        "   ",
+        "null",
+        "{",
+        "[]",
+        "{} {}",
+        "{}",
+        "{\"id\": 12, \"gdl_version\": true, \"concept\": null, \"unknown\": [1, {\"a\": [null]}], \"id\": \"second\"}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"id\": \"gt0001\", \"priority\": \"3\", \"when\": [\"$gt0002>1\"]}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"priority\": 1.5}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"priority\": null}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {}, \"gt0001\": {}}}}",
+        "{\"definition\": {\"rules\": [[\"gt0001\", {\"id\": \"first\"}], [\"gt0002\", null]]}}",
+        "{\"definition\": {\"pre_conditions\": [{\"expression\": 1}]}}",
+        "{\"definition\": {\"pre_conditions\": [\"$gt0001 ==\"]}}",
+        "{\"definition\": {\"pre_conditions\": [null, 1, \"$gt0001.value==2\"]}}",
+        "{\"definition\": {\"internal_variables\": [{\"id\": \"gt0001\", \"data_type\": \"coded_text\"},"
+            + " {\"id\": \"gt0002\", \"data_type\": \"CODED_TEXT\"}]}}",
+        "{\"definition\": {\"data_bindings\": {\"gt0001\": {\"type\": \"OUTPUT\", \"model_id\": \"m\", \"elements\":"
+            + " {\"gt0002\": {\"id\": \"gt0002\", \"path\": \"/value\"}}, \"predicates\": [\"$gt0002!=null\"]}}}}",
+        "{\"definition\": {\"data_bindings\": {\"gt0001\": {\"type\": \"output\"}}}}",
+        "{\"definition\": {\"templates\": {\"gt0001\": {\"object\": {\"value\": 1, \"list\": [1, \"a\", true, null, {\"b\": 2.5}],"
+            + " \"nothing\": null}, \"element_bindings\": [{\"path\": \"$.value\", \"type\": \"DV_QUANTITY\"}]}}}}",
+        "{\"definition\": {\"templates\": {\"gt0001\": {\"object\": {\"value\": 1, \"value\": 2}}}}}",
+        "{\"definition\": {\"templates\": {\"gt0001\": {\"object\": [1]}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"cards\": [" + String.format(CARD, "https://example.com",
+            "5f6ad92d-3b39-4766-831d-23586f7999e3", "{\"count\": 3, \"nothing\": null, \"list\": [1, [2]]}", "smart") + "]}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"cards\": [" + String.format(CARD, "null", "5f6ad92d-3b39-4766-831d-23586f7999e3",
+            "\"text\"", "unknown") + "]}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"cards\": [" + String.format(CARD, "not a url", "5f6ad92d-3b39-4766-831d-23586f7999e3",
+            "1", "app") + "]}}}}",
+        "{\"definition\": {\"rules\": {\"gt0001\": {\"cards\": [" + String.format(CARD, "https://example.com", "not a uuid", "null", "app")
+            + "]}}}}",
+        "{\"language\": {\"original_language\": \"ISO_639-1::en\", \"translations\": {\"sv\": {\"language\": \"ISO_639-1::sv\","
+            + " \"author\": {\"name\": \"A\", \"email\": null}}}}}",
+        "{\"language\": {\"original_language\": \"en\"}}",
+        "{\"language\": {\"original_language\": [\"ISO_639-1::en\"]}}",
+        "{\"ontology\": {\"term_bindings\": {\"ICD10\": {\"bindings\": {\"gt0001\": {\"codes\": [\"ICD10::I48\", null], \"uri\": 5}}}},"
+            + " \"term_definitions\": {\"en\": {\"terms\": {\"gt0001\": {\"text\": \"t\", \"description\": \"d\"}}}}}}",
+        "{\"description\": {\"original_author\": {\"name\": \"A\"}, \"other_contributors\": [\"B\", 1], \"details\": {\"en\":"
+            + " {\"language\": \"ISO_639-1::en\", \"keywords\": [\"k\"]}}, \"references\": [{\"id\": \"1\", \"url\": \"not a url\"}]}}",
+        "{\"test_cases\": [{\"id\": \"1\", \"input\": {\"gt0001\": \"1,kg\"}, \"expected_output\": {\"gt0002\": 2}}]}",
+        "{\"test_cases\": {\"id\": \"1\"}}"};
+    private static final Gson GSON = new GsonBuilder()
+            .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+            .registerTypeAdapter(ExpressionItem.class, new ExpressionItemDeserializer())
+            .registerTypeAdapter(CodePhrase.class, new CodePhraseDeserializer())
+            .registerTypeAdapterFactory(new UnmodifiableCollectionsAdapterFactory())
+            .create();
+
+    @Test
+    public void can_load_resources_same_as_reflective_gson() throws Exception {
+        File directory = new File(getClass().getClassLoader().getResource("BSA_Calculation.v1.gdl2.json").toURI()).getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        assertThat(files.length > 50, is(true));
+        for (File file : files) {
+            String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            assertThat(file.getName(), loadedOrFailure(json), is(reflectedOrFailure(json)));
+        }
+    }
+
+    @Test
+    public void can_load_documents_same_as_reflective_gson() {
+        for (String json : DOCUMENTS) {
+            assertThat(json, loadedOrFailure(json), is(reflectedOrFailure(json)));
+        }
+    }
+
+    @Test
+    public void can_load_guideline_from_input_stream() throws Exception {
+        String json = loadJson("BSA_Calculation_cdshooks_test.v1.gdl2.json");
+        Guideline guideline = Gdl2.fromGdl2(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+        assertThat(guideline, is(GSON.fromJson(json, Guideline.class)));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_load_unmodifiable_template_objects() throws Exception {
+        Guideline guideline = Gdl2.fromGdl2(loadJson("BSA_Calculation_cdshooks_test2.v1.gdl2.json"));
+        Map<String, Object> object = guideline.getDefinition().getTemplates().values().iterator().next().getObject();
+        object.put("changed", 1);
+    }
+
+    @Test
+    public void can_load_guidelines_in_parallel_threads() throws Exception {
+        List<String> names = Arrays.asList("BSA_Calculation.v1.gdl2.json", "BSA_Calculation_long_expression.v1.gdl2.json",
+                "BSA_Calculation_cdshooks_test.v1.gdl2.json", "BSA_Calculation_cdshooks_test2.v1.gdl2.json");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 5; round++) {
+                List<Callable<Guideline>> loads = names.stream()
+                        .map(name -> (Callable<Guideline>) () -> Gdl2.fromGdl2(loadJson(name)))
+                        .collect(Collectors.toList());
+                List<Future<Guideline>> loaded = executor.invokeAll(loads);
+                for (int i = 0; i < names.size(); i++) {
+                    assertThat(names.get(i), loaded.get(i).get(), is(GSON.fromJson(loadJson(names.get(i)), Guideline.class)));
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private String loadJson(String name) throws Exception {
+        return new String(Files.readAllBytes(new File(getClass().getClassLoader().getResource(name).toURI()).toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+    private static Object loadedOrFailure(String json) {
+        try {
+            return Gdl2.fromGdl2(json);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    /*
+     * guideline as loaded by the reflective Gson binding before the streaming type adapters, or the class of the failure
+     */
+    private static Object reflectedOrFailure(String json) {
+        try {
+            return GSON.fromJson(json, Guideline.class);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package org.gdl2.batch;
+
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.MicroBenchmark;
+import org.gdl2.runtime.TestCommon;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares batch executions of 50k synthetic patients held in the heap with batch executions of the same
+ * patients memory mapped from a cohort file, printing the heap the cohort takes and the time to evaluate it.
+ */
+public class CohortStoreBenchmark extends TestCommon {
+    private static final int PATIENTS = 50_000;
+
+    public static void main(String[] args) throws Exception {
+        new CohortStoreBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        Path cohort = Files.createTempFile("cohort", ".bin");
+        try {
+            long before = usedHeap();
+            List<List<DataInstance>> patients = new ArrayList<>(PATIENTS);
+            try (CohortWriter cohortWriter = new CohortWriter(cohort)) {
+                for (int patient = 0; patient < PATIENTS; patient++) {
+                    patients.add(syntheticPatient(guidelines, patient));
+                    cohortWriter.write(new PatientRecord("patient-" + patient, patients.get(patient)));
+                }
+            }
+            print("cohort in heap", (usedHeap() - before) / 1e6, "MB");
+            print("cohort file", Files.size(cohort) / 1e6, "MB");
+            double inHeap = execute("batch execution, cohort in heap", interpreter, guidelines, patients);
+            patients = null;
+            before = usedHeap();
+            try (CohortReader cohortReader = CohortReader.open(cohort)) {
+                print("cohort mapped, heap", (usedHeap() - before) / 1e6, "MB");
+                double mapped = execute("batch execution, cohort mapped", interpreter, guidelines, cohortReader.patients());
+                MicroBenchmark.printRatio("speed-up, cohort mapped", inHeap, mapped);
+            }
+        } finally {
+            Files.deleteIfExists(cohort);
+        }
+    }
+
+    private static double execute(String name, Interpreter interpreter, List<Guideline> guidelines, List<List<DataInstance>> patients) {
+        double millis = 0;
+        for (int run = 0; run < 3; run++) {
+            AtomicInteger results = new AtomicInteger();
+            long start = System.nanoTime();
+            interpreter.executeGuidelinesBatch(guidelines, patients, (result, index) -> results.addAndGet(result.size()));
+            millis = (System.nanoTime() - start) / 1e6;
+        }
+        print(name, millis, "ms");
+        return millis;
+    }
+
+    private static void print(String name, double value, String unit) {
+        System.out.println(String.format(Locale.ROOT, "%-72s %12.1f %s", name, value, unit));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int gc = 0; gc < 3; gc++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
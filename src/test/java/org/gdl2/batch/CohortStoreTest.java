@@ -0,0 +1,151 @@
+package org.gdl2.batch;
+
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CohortStoreTest extends TestCommon {
+    private Path cohort;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        cohort = Files.createTempFile("cohort", ".bin");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(cohort);
+    }
+
+    @Test
+    public void can_read_patient_records_converted_from_ndjson() throws Exception {
+        List<PatientRecord> patientRecords = new ArrayList<>();
+        List<Guideline> guidelines = loadResourceGuidelines();
+        for (int patient = 0; patient < 40; patient++) {
+            patientRecords.add(new PatientRecord("patient-" + patient, syntheticPatient(guidelines, patient)));
+        }
+        patientRecords.add(new PatientRecord(null, Arrays.asList(allValueTypes(), new DataInstance.Builder().modelId("openEHR-EHR-OBSERVATION.empty.v1").build())));
+        String ndjson = patientRecords.stream().map(PatientRecordJson::format).collect(Collectors.joining("\n", "", "\n\n"));
+        assertThat(CohortWriter.convert(new BufferedReader(new StringReader(ndjson)), cohort), is(patientRecords.size()));
+        try (CohortReader cohortReader = CohortReader.open(cohort)) {
+            assertThat(cohortReader.size(), is(patientRecords.size()));
+            for (int patient = 0; patient < patientRecords.size(); patient++) {
+                PatientRecord expected = patientRecords.get(patient);
+                PatientRecord read = cohortReader.get(patient);
+                assertThat(read.getId(), is(expected.getId()));
+                assertThat(describe(read.getDataInstances()), is(describe(expected.getDataInstances())));
+                assertThat(describe(PatientRecordJson.parse(PatientRecordJson.format(read)).getDataInstances()), is(describe(expected.getDataInstances())));
+            }
+        }
+    }
+
+    @Test
+    public void can_execute_guidelines_on_mapped_cohort() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        List<List<DataInstance>> patients = new ArrayList<>();
+        try (CohortWriter cohortWriter = new CohortWriter(cohort)) {
+            for (int patient = 0; patient < 500; patient++) {
+                patients.add(syntheticPatient(guidelines, patient));
+                cohortWriter.write(new PatientRecord("patient-" + patient, patients.get(patient)));
+            }
+        }
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        try (CohortReader cohortReader = CohortReader.open(cohort)) {
+            List<List<DataInstance>> results = interpreter.executeGuidelinesBatch(guidelines, cohortReader.patients());
+            List<List<DataInstance>> expected = interpreter.executeGuidelinesBatch(guidelines, patients);
+            for (int patient = 0; patient < patients.size(); patient++) {
+                assertThat(describe(results.get(patient)), is(describe(expected.get(patient))));
+            }
+        }
+    }
+
+    @Test
+    public void can_read_patient_records_in_any_order() throws Exception {
+        try (CohortWriter cohortWriter = new CohortWriter(cohort)) {
+            for (int patient = 0; patient < 3; patient++) {
+                cohortWriter.write(new PatientRecord("patient-" + patient, Arrays.asList(toWeight((60 + patient) + ".0,kg"))));
+            }
+        }
+        try (CohortReader cohortReader = CohortReader.open(cohort)) {
+            for (int patient : new int[]{2, 0, 1, 2}) {
+                PatientRecord read = cohortReader.get(patient);
+                assertThat(read.getId(), is("patient-" + patient));
+                assertThat(read.getDataInstances().get(0).getDvQuantity("/data[at0002]/events[at0003]/data[at0001]/items[at0004]"),
+                        is(new DvQuantity("kg", 60.0 + patient, 1)));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = IndexOutOfBoundsException.class)
+    public void can_not_read_patient_record_after_last() throws Exception {
+        try (CohortWriter cohortWriter = new CohortWriter(cohort)) {
+            cohortWriter.write(new PatientRecord("patient-0", new ArrayList<>()));
+        }
+        try (CohortReader cohortReader = CohortReader.open(cohort)) {
+            cohortReader.get(1);
+        }
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void can_not_open_file_other_than_cohort() throws Exception {
+        Files.write(cohort, "{\"id\": \"patient-1\", \"data_instances\": []}".getBytes(StandardCharsets.UTF_8));
+        CohortReader.open(cohort);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_write_value_without_binary_form() throws Exception {
+        try (CohortWriter cohortWriter = new CohortWriter(cohort)) {
+            cohortWriter.write(new PatientRecord("patient-1", Arrays.asList(new DataInstance.Builder()
+                    .modelId("openEHR-EHR-OBSERVATION.lab_test.v1").addValue("/", new Object()).build())));
+        }
+    }
+
+    private static DataInstance allValueTypes() {
+        return new DataInstance.Builder()
+                .modelId("openEHR-EHR-OBSERVATION.lab_test.v1")
+                .id("gt0002")
+                .addValue("/coded", DvCodedText.valueOf("ICD10::I48|Atrial fibrillation|"))
+                .addValue("/text", DvText.valueOf("Free text ǅ €"))
+                .addValue("/boolean", DvBoolean.TRUE)
+                .addValue("/date_time", DvDateTime.valueOf("2017-03-04T05:06:07.123"))
+                .addValue("/date", DvDate.valueOf("2017-03-04"))
+                .addValue("/zoned", ZonedDateTime.parse("2017-07-01T10:00:00+02:00[Europe/Stockholm]"))
+                .addValue("/string", "string")
+                .addValue("/real", 1.25)
+                .addValue("/integer", 42)
+                .addValue("/long", Long.MAX_VALUE)
+                .build();
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.id(), dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,64 @@
+package org.gdl2.batch;
+
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.MicroBenchmark;
+import org.gdl2.runtime.RuntimeConfiguration;
+import org.gdl2.runtime.TestCommon;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compares a population run of 5k synthetic patients by {@link PopulationRunner}, which parses and renders on the
+ * calling thread, with the same run through the stages of {@link PipelineExecutor}, printing the stage metrics.
+ */
+public class PipelineBenchmark extends TestCommon {
+    private static final int PATIENTS = 5_000;
+
+    public static void main(String[] args) throws Exception {
+        new PipelineBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        StringBuilder lines = new StringBuilder();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            lines.append(PatientRecordJson.format(new PatientRecord("patient-" + patient, syntheticPatient(guidelines, patient)))).append('\n');
+        }
+        String input = lines.toString();
+        RuntimeConfiguration runtimeConfiguration = RuntimeConfiguration.builder().currentDateTime(SYNTHETIC_DATE_TIME).build();
+        PopulationRunner populationRunner = new PopulationRunner(guidelines, runtimeConfiguration);
+        PipelineExecutor pipelineExecutor = new PipelineExecutor(guidelines, runtimeConfiguration, PipelineConfiguration.builder()
+                .ingestThreads(2)
+                .renderingThreads(2)
+                .build());
+        PipelineExecutor.Metrics[] metrics = new PipelineExecutor.Metrics[1];
+        double batch = MicroBenchmark.measure("population runner, " + PATIENTS + " patients", 3, 5,
+            () -> populationRunner.run(new BufferedReader(new StringReader(input)), discard(), progress -> { }));
+        double pipeline = MicroBenchmark.measure("pipeline executor, " + PATIENTS + " patients", 3, 5,
+            () -> metrics[0] = pipelineExecutor.run(new BufferedReader(new StringReader(input)), discard(), report -> { }));
+        MicroBenchmark.printRatio("speed-up, pipeline executor", batch, pipeline);
+        for (PipelineExecutor.StageMetrics stageMetrics : metrics[0].getStages()) {
+            System.out.println("  " + stageMetrics);
+        }
+    }
+
+    private static Writer discard() {
+        return new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,149 @@
+package org.gdl2.batch;
+
+import com.google.gson.JsonParseException;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.RuntimeConfiguration;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class PipelineExecutorTest extends TestCommon {
+    private static final int PATIENTS = 300;
+    private static final PipelineConfiguration PIPELINE_CONFIGURATION = PipelineConfiguration.builder()
+            .ingestThreads(2)
+            .evaluationThreads(3)
+            .renderingThreads(2)
+            .queueCapacity(2)
+            .maxInFlight(6)
+            .reportInterval(100)
+            .build();
+
+    private List<Guideline> guidelines;
+    private String input;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        StringBuilder lines = new StringBuilder();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            lines.append(PatientRecordJson.format(new PatientRecord("patient-" + patient, syntheticPatient(guidelines, patient))))
+                    .append(patient % 7 == 0 ? "\n\n" : "\n");
+        }
+        input = lines.toString();
+    }
+
+    @Test
+    public void can_write_same_outcomes_as_population_runner_in_order() throws Exception {
+        RuntimeConfiguration runtimeConfiguration = RuntimeConfiguration.builder().currentDateTime(SYNTHETIC_DATE_TIME).build();
+        StringWriter expected = new StringWriter();
+        new PopulationRunner(guidelines, runtimeConfiguration).run(new BufferedReader(new StringReader(input)), expected, progress -> { });
+        StringWriter output = new StringWriter();
+        List<Long> reports = new ArrayList<>();
+        PipelineExecutor.Metrics metrics = new PipelineExecutor(guidelines, runtimeConfiguration, PIPELINE_CONFIGURATION)
+                .run(new BufferedReader(new StringReader(input)), output, report -> reports.add(report.getPatients()));
+        assertThat(output.toString(), is(expected.toString()));
+        assertThat(reports, is(Arrays.asList(100L, 200L, 300L, 300L)));
+        assertThat(metrics.getPatients(), is((long) PATIENTS));
+        assertThat(metrics.getStages().size(), is(4));
+        for (PipelineExecutor.StageMetrics stageMetrics : metrics.getStages()) {
+            assertThat(stageMetrics.getName(), stageMetrics.getProcessed(), is((long) PATIENTS));
+            assertThat(stageMetrics.getName(), stageMetrics.getQueueDepth(), is(0));
+            assertThat(stageMetrics.getName(), stageMetrics.getMaxQueueDepth(), lessThanOrEqualTo(2));
+        }
+    }
+
+    @Test(timeOut = 60_000)
+    public void can_write_patient_with_long_history_before_patients_after_it() throws Exception {
+        List<DataInstance> longHistory = new ArrayList<>();
+        for (int patient = 0; patient < 50; patient++) {
+            longHistory.addAll(syntheticPatient(guidelines, patient));
+        }
+        StringBuilder lines = new StringBuilder(PatientRecordJson.format(new PatientRecord("patient-0", longHistory))).append("\n");
+        for (int patient = 1; patient < 20; patient++) {
+            lines.append(PatientRecordJson.format(new PatientRecord("patient-" + patient, new ArrayList<>()))).append("\n");
+        }
+        StringWriter output = new StringWriter();
+        PipelineExecutor.Metrics metrics = new PipelineExecutor(guidelines, RuntimeConfiguration.builder().build(), PIPELINE_CONFIGURATION)
+                .run(new BufferedReader(new StringReader(lines.toString())), output, report -> { });
+        List<String> ids = new ArrayList<>();
+        for (String line : output.toString().split("\n")) {
+            ids.add(PatientRecordJson.parse(line).getId());
+        }
+        List<String> expected = new ArrayList<>();
+        for (int patient = 0; patient < 20; patient++) {
+            expected.add("patient-" + patient);
+        }
+        assertThat(ids, is(expected));
+        assertThat(metrics.getStages().stream().map(PipelineExecutor.StageMetrics::getName).collect(Collectors.toList()),
+                is(Arrays.asList("ingest", "evaluation", "rendering", "output")));
+        assertThat(metrics.getStages().stream().map(PipelineExecutor.StageMetrics::getThreads).collect(Collectors.toList()),
+                is(Arrays.asList(2, 3, 2, 1)));
+    }
+
+    @Test(expectedExceptions = JsonParseException.class, expectedExceptionsMessageRegExp = "Line 3: .*", timeOut = 60_000)
+    public void can_stop_on_line_other_than_patient_record() throws Exception {
+        String lines = input.substring(0, input.indexOf('\n') + 1) + "\n[1, 2]\n" + input;
+        new PipelineExecutor(guidelines, RuntimeConfiguration.builder().build(), PIPELINE_CONFIGURATION)
+                .run(new BufferedReader(new StringReader(lines)), new StringWriter(), metrics -> { });
+    }
+
+    @Test(expectedExceptions = IOException.class, expectedExceptionsMessageRegExp = "Disk full", timeOut = 60_000)
+    public void can_stop_on_failure_to_write_outcome() throws Exception {
+        Writer output = new Writer() {
+            private int written;
+
+            @Override
+            public void write(char[] buffer, int offset, int length) throws IOException {
+                written += length;
+                if (written > 10_000) {
+                    throw new IOException("Disk full");
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        new PipelineExecutor(guidelines, RuntimeConfiguration.builder().build(), PIPELINE_CONFIGURATION)
+                .run(new BufferedReader(new StringReader(input)), output, metrics -> { });
+    }
+
+    @Test(timeOut = 60_000)
+    public void can_stop_when_interrupted() throws Exception {
+        PipelineExecutor pipelineExecutor = new PipelineExecutor(guidelines, RuntimeConfiguration.builder().build(), PIPELINE_CONFIGURATION);
+        Thread.currentThread().interrupt();
+        try {
+            pipelineExecutor.run(new BufferedReader(new StringReader(input)), new StringWriter(), metrics -> { });
+            throw new AssertionError("completed interrupted run");
+        } catch (InterruptedIOException exception) {
+            assertThat(Thread.currentThread().isInterrupted(), is(true));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_configure_negative_threads() throws Exception {
+        new PipelineExecutor(guidelines, RuntimeConfiguration.builder().build(), PipelineConfiguration.builder().evaluationThreads(-1).build());
+    }
+}
@@ -0,0 +1,169 @@
+package org.gdl2.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.RuntimeConfiguration;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class PopulationRunnerTest extends TestCommon {
+    private static final int PATIENTS = 300;
+    private static final int IN_FLIGHT = 8;
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void can_write_outcome_of_each_patient_in_order() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        List<List<DataInstance>> patients = new ArrayList<>();
+        StringBuilder input = new StringBuilder();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            patients.add(syntheticPatient(guidelines, patient));
+            input.append(PatientRecordJson.format(new PatientRecord("patient-" + patient, patients.get(patient)))).append("\n\n");
+        }
+        StringWriter output = new StringWriter();
+        List<Long> progress = new ArrayList<>();
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            PopulationRunner populationRunner = new PopulationRunner(guidelines, RuntimeConfiguration.builder()
+                    .currentDateTime(SYNTHETIC_DATE_TIME)
+                    .batchForkJoinPool(forkJoinPool)
+                    .batchPatientsInFlight(IN_FLIGHT)
+                    .build(), 100);
+            populationRunner.run(new BufferedReader(new StringReader(input.toString())), output, report -> progress.add(report.getPatients()));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        assertThat(progress, is(Arrays.asList(100L, 200L, 300L, 300L)));
+        String[] lines = output.toString().split("\n");
+        assertThat(lines.length, is(PATIENTS));
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            PatientRecord outcome = PatientRecordJson.parse(lines[patient]);
+            assertThat(outcome.getId(), is("patient-" + patient));
+            Interpreter.ExecutionOutput expected = interpreter.executeGuidelinesAndGetFiredRules(guidelines, patients.get(patient));
+            assertThat(describe(outcome.getDataInstances()), is(describe(expected.getResult())));
+            JsonObject firedRules = new JsonParser().parse(lines[patient]).getAsJsonObject().getAsJsonObject("fired_rules");
+            for (Map.Entry<String, Set<String>> entry : expected.getFiredRules().entrySet()) {
+                assertThat(GSON.fromJson(firedRules.get(entry.getKey()), String[].class), is(new TreeSet<>(entry.getValue()).toArray()));
+            }
+            assertThat(firedRules.size(), is(expected.getFiredRules().size()));
+        }
+    }
+
+    @Test
+    public void can_write_fired_rules_of_each_patient() throws Exception {
+        String input = PatientRecordJson.format(new PatientRecord("patient-1", Arrays.asList(toWeight("72.0,kg"), toHeight("180.0,cm"))))
+                + "\n" + PatientRecordJson.format(new PatientRecord("patient-2", new ArrayList<>()));
+        StringWriter output = new StringWriter();
+        new PopulationRunner(Arrays.asList(loadGuideline("BSA_Calculation_test.v1.gdl2")), RuntimeConfiguration.builder().build())
+                .run(new BufferedReader(new StringReader(input)), output, progress -> { });
+        String[] lines = output.toString().split("\n");
+        assertThat(lines.length, is(2));
+        assertThat(PatientRecordJson.parse(lines[0]).getId(), is("patient-1"));
+        assertThat(PatientRecordJson.parse(lines[1]).getId(), is("patient-2"));
+        JsonObject firedRules = new JsonParser().parse(lines[0]).getAsJsonObject().getAsJsonObject("fired_rules");
+        assertThat(GSON.fromJson(firedRules.get("BSA_Calculation.v1"), String[].class), is(new String[]{"gt0009", "gt0016"}));
+        firedRules = new JsonParser().parse(lines[1]).getAsJsonObject().getAsJsonObject("fired_rules");
+        assertThat(GSON.fromJson(firedRules.get("BSA_Calculation.v1"), String[].class), is(new String[]{"gt0017"}));
+    }
+
+    @Test
+    public void can_write_cards_of_each_patient() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("cdshooks_multiple_cards_test.v0.1.gdl2"));
+        String input = PatientRecordJson.format(new PatientRecord("patient-1", Collections.emptyList()));
+        StringWriter output = new StringWriter();
+        new PopulationRunner(guidelines, RuntimeConfiguration.builder().currentDateTime(ZonedDateTime.parse("2013-04-20T14:00:00Z")).build())
+                .run(new BufferedReader(new StringReader(input)), output, progress -> { });
+        JsonArray cards = new JsonParser().parse(output.toString()).getAsJsonObject().getAsJsonArray("cards");
+        assertThat(cards.size(), is(2));
+        assertThat(cards.get(0).getAsJsonObject().get("summary").getAsString(), is("card 1"));
+        assertThat(cards.get(1).getAsJsonObject().get("summary").getAsString(), is("card 2"));
+    }
+
+    @Test
+    public void can_write_cards_created_as_results_by_classic_guidelines() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("cdshooks_card_dynamic_summary_detail_classic_mode_test.v0.1.gdl2"));
+        String input = PatientRecordJson.format(new PatientRecord("patient-1", Arrays.asList(new DataInstance.Builder()
+                .modelId("org.hl7.fhir.dstu3.model.MedicationStatement")
+                .addValue("/medicationCodeableConcept/coding[0]", DvCodedText.valueOf("ATC::C10AA05|Statin|"))
+                .build())));
+        StringWriter output = new StringWriter();
+        new PopulationRunner(guidelines, RuntimeConfiguration.builder().currentDateTime(ZonedDateTime.parse("2013-04-20T14:00:00Z")).build())
+                .run(new BufferedReader(new StringReader(input)), output, progress -> { });
+        JsonArray cards = new JsonParser().parse(output.toString()).getAsJsonObject().getAsJsonArray("cards");
+        assertThat(cards.size(), is(1));
+        assertThat(cards.get(0).getAsJsonObject().get("summary").getAsString(), is("card summary: Statin"));
+    }
+
+    @Test
+    public void can_read_patients_only_while_fewer_than_limit_are_in_flight() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2"));
+        StringBuilder input = new StringBuilder();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            input.append(PatientRecordJson.format(new PatientRecord("patient-" + patient, syntheticPatient(guidelines, patient)))).append('\n');
+        }
+        StringWriter output = new StringWriter();
+        int[] read = new int[1];
+        int[] maxAhead = new int[1];
+        BufferedReader reader = new BufferedReader(new StringReader(input.toString())) {
+            @Override
+            public String readLine() throws IOException {
+                int written = output.toString().split("\n", -1).length - 1;
+                maxAhead[0] = Math.max(maxAhead[0], read[0]++ - written);
+                return super.readLine();
+            }
+        };
+        ForkJoinPool forkJoinPool = new ForkJoinPool(2);
+        try {
+            new PopulationRunner(guidelines, RuntimeConfiguration.builder()
+                    .currentDateTime(SYNTHETIC_DATE_TIME)
+                    .batchForkJoinPool(forkJoinPool)
+                    .batchPatientsInFlight(IN_FLIGHT)
+                    .build()).run(reader, output, progress -> { });
+        } finally {
+            forkJoinPool.shutdown();
+        }
+        assertThat(output.toString().split("\n").length, is(PATIENTS));
+        assertThat(maxAhead[0], lessThanOrEqualTo(IN_FLIGHT));
+    }
+
+    @Test(expectedExceptions = JsonParseException.class, expectedExceptionsMessageRegExp = "Line 2: .*")
+    public void can_not_run_lines_other_than_patient_records() throws Exception {
+        String input = PatientRecordJson.format(new PatientRecord("patient-1", Collections.emptyList())) + "\n[1, 2]\n";
+        new PopulationRunner(Arrays.asList(loadGuideline("BSA_Calculation.v1.gdl2")), RuntimeConfiguration.builder().build())
+                .run(new BufferedReader(new StringReader(input)), new StringWriter(), progress -> { });
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
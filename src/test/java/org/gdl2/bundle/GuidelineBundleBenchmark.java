@@ -0,0 +1,60 @@
+package org.gdl2.bundle;
+
+import org.gdl2.Gdl2;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.MicroBenchmark;
+import org.gdl2.runtime.TestCommon;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Compares loading a library of 800 guidelines, the guidelines of the test resources repeated, from Gdl2 json with
+ * reading it from a guideline bundle, and prints the size of both.
+ */
+public class GuidelineBundleBenchmark extends TestCommon {
+    private static final int LIBRARY_SIZE = 800;
+
+    public static void main(String[] args) throws Exception {
+        new GuidelineBundleBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        File directory = new File(getClass().getClassLoader().getResource("BSA_Calculation.v1.gdl2.json").toURI()).getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".gdl2.json"));
+        Arrays.sort(files);
+        List<byte[]> library = new ArrayList<>();
+        long jsonSize = 0;
+        for (int guideline = 0; guideline < LIBRARY_SIZE; guideline++) {
+            library.add(Files.readAllBytes(files[guideline % files.length].toPath()));
+            jsonSize += library.get(guideline).length;
+        }
+        List<Guideline> guidelines = loadJson(library);
+        Path bundle = Files.createTempFile("guidelines", ".bundle");
+        try {
+            GuidelineBundleWriter.write(guidelines, bundle);
+            System.out.println(String.format(Locale.ROOT, "%d guidelines, json %d KB, bundle %d KB", LIBRARY_SIZE, jsonSize / 1024, Files.size(bundle) / 1024));
+            MicroBenchmark.measure("first load, guideline bundle", 0, 1, () -> GuidelineBundleReader.read(bundle));
+            MicroBenchmark.measure("first load, gdl2 json", 0, 1, () -> loadJson(library));
+            double json = MicroBenchmark.measure("library, gdl2 json", 5, 20, () -> loadJson(library));
+            double read = MicroBenchmark.measure("library, guideline bundle", 5, 20, () -> GuidelineBundleReader.read(bundle));
+            MicroBenchmark.printRatio("speed-up, guideline bundle", json, read);
+        } finally {
+            Files.delete(bundle);
+        }
+    }
+
+    private static List<Guideline> loadJson(List<byte[]> library) {
+        List<Guideline> guidelines = new ArrayList<>(library.size());
+        for (byte[] guideline : library) {
+            guidelines.add(Gdl2.fromGdl2(new ByteArrayInputStream(guideline)));
+        }
+        return guidelines;
+    }
+}
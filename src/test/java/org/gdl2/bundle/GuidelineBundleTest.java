@@ -0,0 +1,121 @@
+package org.gdl2.bundle;
+
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class GuidelineBundleTest extends TestCommon {
+    private Path bundle;
+
+    @BeforeMethod
+    public void setUp() throws IOException {
+        bundle = Files.createTempFile("guidelines", ".bundle");
+    }
+
+    @AfterMethod
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bundle);
+    }
+
+    @Test
+    public void can_read_guidelines_equal_to_loaded_from_gdl2() throws Exception {
+        List<Guideline> guidelines = loadResourceGuidelines();
+        GuidelineBundleWriter.write(guidelines, bundle);
+        try (GuidelineBundleReader reader = GuidelineBundleReader.open(bundle)) {
+            assertThat(reader.size(), is(guidelines.size()));
+            for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+                assertThat(guidelines.get(guideline).getId(), reader.get(guideline), is(guidelines.get(guideline)));
+            }
+        }
+    }
+
+    @Test
+    public void can_execute_guidelines_read_from_bundle() throws Exception {
+        List<Guideline> guidelines = loadResourceGuidelines();
+        GuidelineBundleWriter.write(guidelines, bundle);
+        List<Guideline> read = GuidelineBundleReader.read(bundle);
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            for (int patient = 0; patient < 3; patient++) {
+                List<DataInstance> input = syntheticPatient(Collections.singletonList(guidelines.get(guideline)), patient);
+                assertThat(guidelines.get(guideline).getId(), executedOrFailure(interpreter, read.get(guideline), input),
+                        is(executedOrFailure(interpreter, guidelines.get(guideline), input)));
+            }
+        }
+    }
+
+    @Test
+    public void can_write_same_bundle_from_guidelines_read_back() throws Exception {
+        List<Guideline> guidelines = loadResourceGuidelines();
+        GuidelineBundleWriter.write(guidelines, bundle);
+        Path rewritten = Files.createTempFile("guidelines", ".bundle");
+        try {
+            GuidelineBundleWriter.write(GuidelineBundleReader.read(bundle), rewritten);
+            assertThat(Arrays.equals(Files.readAllBytes(rewritten), Files.readAllBytes(bundle)), is(true));
+        } finally {
+            Files.deleteIfExists(rewritten);
+        }
+    }
+
+    @Test
+    public void can_read_guidelines_in_any_order() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline("BSA_Calculation_test.v1.gdl2"),
+                loadGuideline("DAS28-ESR_Calculation.v1.gdl2"), loadGuideline("cdshooks_card_referenced_link_test.v0.1.gdl2"));
+        GuidelineBundleWriter.write(guidelines, bundle);
+        try (GuidelineBundleReader reader = GuidelineBundleReader.open(bundle)) {
+            for (int guideline : new int[]{2, 0, 1, 2}) {
+                assertThat(reader.get(guideline).getId(), is(guidelines.get(guideline).getId()));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_read_unmodifiable_template_objects() throws Exception {
+        GuidelineBundleWriter.write(loadSingleGuideline("BSA_Calculation_cdshooks_test2.v1.gdl2"), bundle);
+        Guideline guideline = GuidelineBundleReader.read(bundle).get(0);
+        guideline.getDefinition().getTemplates().values().iterator().next().getObject().put("changed", 1);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void can_reject_file_that_is_not_a_bundle() throws Exception {
+        Files.write(bundle, Collections.nCopies(64, "not a bundle").toString().getBytes());
+        GuidelineBundleReader.open(bundle).close();
+    }
+
+    @Test
+    public void can_read_empty_bundle() throws Exception {
+        GuidelineBundleWriter.write(new ArrayList<>(), bundle);
+        assertThat(GuidelineBundleReader.read(bundle).isEmpty(), is(true));
+    }
+
+    private static Object executedOrFailure(Interpreter interpreter, Guideline guideline, List<DataInstance> input) {
+        try {
+            return describe(interpreter.executeSingleGuideline(guideline, input));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.id(), dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,216 @@
+package org.gdl2.codegen;
+
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.UseTemplateExpression;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.CompiledGuideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.GeneratedExpression;
+import org.gdl2.runtime.GuidelineCompiler;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.TestCommon;
+import org.testng.SkipException;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+public class GuidelineSourceGeneratorTest extends TestCommon {
+    private static final String PACKAGE = "org.gdl2.generated";
+
+    private Path directory;
+    private List<Guideline> guidelines;
+    private List<ExecutableGuideline> generated;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            throw new SkipException("No Java compiler");
+        }
+        directory = Files.createTempDirectory("generated");
+        guidelines = loadResourceGuidelines();
+        List<String> arguments = new ArrayList<>(Arrays.asList("-classpath", classPath(), "-d", directory.toString(), "-encoding", "UTF-8"));
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            Path source = directory.resolve(className(guideline) + ".java");
+            Files.write(source, GuidelineSourceGenerator.generate(guidelines.get(guideline), PACKAGE, className(guideline))
+                    .getBytes(StandardCharsets.UTF_8));
+            arguments.add(source.toString());
+        }
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        assertThat(errors.toString(), compiler.run(null, null, errors, arguments.toArray(new String[0])), is(0));
+        generated = new ArrayList<>();
+        ClassLoader classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader());
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            generated.add((ExecutableGuideline) classLoader.loadClass(PACKAGE + "." + className(guideline)).newInstance());
+        }
+    }
+
+    @AfterClass(alwaysRun = true)
+    public void tearDown() throws Exception {
+        if (directory != null) {
+            try (Stream<Path> paths = Files.walk(directory)) {
+                for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                    Files.delete(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void can_generate_guidelines_equal_to_loaded_from_gdl2() {
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            assertThat(guidelines.get(guideline).getId(), generated.get(guideline).getGuideline(), is(guidelines.get(guideline)));
+        }
+    }
+
+    @Test
+    public void can_execute_generated_guidelines() {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            for (int patient = 0; patient < 3; patient++) {
+                List<DataInstance> input = syntheticPatient(Collections.singletonList(guidelines.get(guideline)), patient);
+                assertThat(guidelines.get(guideline).getId(), executedOrFailure(interpreter, generated.get(guideline), input),
+                        is(executedOrFailure(interpreter, guidelines.get(guideline), input)));
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void can_evaluate_expressions_by_generated_code() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        AtomicInteger evaluations = new AtomicInteger();
+        for (int guideline = 0; guideline < guidelines.size(); guideline++) {
+            Map<ExpressionItem, GeneratedExpression.Evaluator> counting = new IdentityHashMap<>();
+            ((Map<ExpressionItem, GeneratedExpression.Evaluator>) generated.get(guideline).getClass().getMethod("evaluators").invoke(null))
+                    .forEach((expressionItem, evaluator) -> counting.put(expressionItem, (expression, context) -> {
+                        evaluations.incrementAndGet();
+                        return evaluator.evaluate(expression, context);
+                    }));
+            Guideline generatedGuideline = generated.get(guideline).getGuideline();
+            for (int patient = 0; patient < 3; patient++) {
+                List<DataInstance> input = syntheticPatient(Collections.singletonList(guidelines.get(guideline)), patient);
+                assertThat(guidelines.get(guideline).getId(),
+                        executedOrFailure(interpreter, new GuidelineCompiler().compile(generatedGuideline, counting), input),
+                        is(executedOrFailure(interpreter, guidelines.get(guideline), input)));
+            }
+        }
+        assertThat(evaluations.get(), greaterThan(0));
+    }
+
+    @Test
+    public void can_generate_evaluators_of_conditions_and_assignments() throws Exception {
+        String source = GuidelineSourceGenerator.generate(loadGuideline("BSA_Calculation.v1.gdl2"), PACKAGE, "BSA");
+        assertThat(source, containsString("Math.pow("));
+        assertThat(source, containsString("evaluators.put(((AssignmentExpression) GUIDELINE.getDefinition().getRules().get(\"gt0009\").getThen().get(0))"
+                + ".getAssignment(), BSA::evaluate"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_generate_unmodifiable_expressions() throws Exception {
+        int ordinal = guidelines.indexOf(loadGuideline("use_template_with_ordinal_test4.v0.1.gdl2"));
+        ExpressionItem useTemplate = generated.get(ordinal).getGuideline().getDefinition().getRules().get("gt0034").getThen().get(0);
+        ((UseTemplateExpression) useTemplate).getAssignmentExpressions().clear();
+    }
+
+    @Test
+    public void can_escape_strings_in_generated_source() throws Exception {
+        Guideline guideline = loadGuideline("BSA_Calculation.v1.gdl2");
+        Guideline withId = new Guideline("line\nbreak \"quoted\" \\ caf\u00e9 \u0000", guideline.getGdlVersion(), guideline.getConcept(),
+                guideline.getLanguage(), guideline.getDescription(), guideline.getDefinition(), guideline.getOntology(), guideline.getTestCases());
+        String source = GuidelineSourceGenerator.generate(withId, PACKAGE, "Escaped");
+        assertThat(source, containsString("\"line\\012break \\\"quoted\\\" \\\\ caf\\u00e9 \\000\""));
+        assertThat(source, not(containsString("\\u000a")));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_reject_invalid_class_name() throws Exception {
+        GuidelineSourceGenerator.generate(loadGuideline("BSA_Calculation.v1.gdl2"), PACKAGE, "BSA_Calculation.v1");
+    }
+
+    @Test
+    public void can_derive_class_name_from_guideline_id() {
+        assertThat(GuidelineSourceGenerator.className("BSA_Calculation.v1"), is("BSA_Calculation_v1"));
+        assertThat(GuidelineSourceGenerator.className("1-guideline"), is("_1_guideline"));
+    }
+
+    /* resource guidelines may share ids, so not the default class names */
+    private static String className(int guideline) {
+        return "Guideline" + guideline;
+    }
+
+    /* class path of the tests, including the entries of the manifest of a surefire booter jar */
+    private static String classPath() throws Exception {
+        List<String> entries = new ArrayList<>();
+        for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+            entries.add(entry);
+            if (entry.endsWith(".jar") && new File(entry).getName().startsWith("surefire")) {
+                try (JarFile jar = new JarFile(entry)) {
+                    String manifestClassPath = jar.getManifest() == null ? null : jar.getManifest().getMainAttributes().getValue("Class-Path");
+                    if (manifestClassPath != null) {
+                        for (String url : manifestClassPath.split(" ")) {
+                            if (!url.isEmpty()) {
+                                entries.add(new File(new URL(new File(entry).toURI().toURL(), url).toURI()).getPath());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return String.join(File.pathSeparator, entries);
+    }
+
+    private static Object executedOrFailure(Interpreter interpreter, ExecutableGuideline guideline, List<DataInstance> input) {
+        try {
+            return describe(guideline.execute(interpreter, input));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object executedOrFailure(Interpreter interpreter, Guideline guideline, List<DataInstance> input) {
+        return executedOrFailure(interpreter, new GuidelineCompiler().compile(guideline), input);
+    }
+
+    private static Object executedOrFailure(Interpreter interpreter, CompiledGuideline compiledGuideline, List<DataInstance> input) {
+        try {
+            return describe(interpreter.executeCompiledGuidelines(Collections.singletonList(compiledGuideline), input));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.id(), dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
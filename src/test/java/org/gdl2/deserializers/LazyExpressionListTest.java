@@ -0,0 +1,149 @@
+package org.gdl2.deserializers;
+
+import com.google.gson.JsonParseException;
+import org.gdl2.Gdl2;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class LazyExpressionListTest extends TestCommon {
+    private static final String INVALID_EXPRESSION = "{\"id\": \"invalid\", \"definition\": {\"rules\": {\"gt0001\":"
+            + " {\"id\": \"gt0001\", \"when\": [\"$gt0002.value==1\", \"(((\"], \"then\": [\"$gt0003.value=1\"]}}}}";
+
+    @Test
+    public void can_load_guidelines_lazily_equal_to_strictly() throws Exception {
+        for (String json : resourceJson()) {
+            Guideline strict = Gdl2.fromGdl2(json);
+            if (strict != null) {
+                assertThat(strict.getId(), Gdl2.fromGdl2(new StringReader(json), Gdl2.ExpressionParsing.LAZY), is(strict));
+            }
+        }
+    }
+
+    @Test
+    public void can_execute_guidelines_loaded_lazily() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        for (String json : resourceJson()) {
+            Guideline strict = Gdl2.fromGdl2(json);
+            if (strict == null || strict.getDefinition() == null) {
+                continue;
+            }
+            for (int patient = 0; patient < 3; patient++) {
+                Guideline lazy = Gdl2.fromGdl2(new StringReader(json), Gdl2.ExpressionParsing.LAZY);
+                List<DataInstance> input = syntheticPatient(Collections.singletonList(strict), patient);
+                assertThat(strict.getId(), executedOrFailure(interpreter, lazy, input), is(executedOrFailure(interpreter, strict, input)));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = JsonParseException.class)
+    public void can_fail_on_invalid_expression_when_loading_strictly() {
+        Gdl2.fromGdl2(INVALID_EXPRESSION);
+    }
+
+    @Test
+    public void can_load_invalid_expression_lazily_until_read() {
+        Guideline guideline = Gdl2.fromGdl2(new StringReader(INVALID_EXPRESSION), Gdl2.ExpressionParsing.LAZY);
+        List<ExpressionItem> when = guideline.getDefinition().getRules().get("gt0001").getWhen();
+        assertThat(when, instanceOf(LazyExpressionList.class));
+        assertThat(when.size(), is(2));
+    }
+
+    @Test
+    public void can_fail_on_invalid_expression_when_first_used() {
+        Guideline guideline = Gdl2.fromGdl2(new StringReader(INVALID_EXPRESSION), Gdl2.ExpressionParsing.LAZY);
+        List<ExpressionItem> when = guideline.getDefinition().getRules().get("gt0001").getWhen();
+        assertThat(when.size(), is(2));
+        List<JsonParseException> failures = new ArrayList<>();
+        for (int read = 0; read < 2; read++) {
+            try {
+                when.get(1);
+                throw new AssertionError("parsed invalid expression");
+            } catch (JsonParseException exception) {
+                failures.add(exception);
+            }
+        }
+        assertThat(failures.get(1), sameInstance(failures.get(0)));
+        assertThat(guideline.getDefinition().getRules().get("gt0001").getThen().size(), is(1));
+    }
+
+    @Test
+    public void can_parse_expressions_once_for_all_threads() throws Exception {
+        List<String> sources = new ArrayList<>();
+        for (int expression = 0; expression < 200; expression++) {
+            sources.add("$gt0001.magnitude>" + expression);
+        }
+        LazyExpressionList expressions = new LazyExpressionList(sources);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<ExpressionItem>> reads = Collections.nCopies(8, () -> expressions.get(199));
+            List<Future<ExpressionItem>> read = executor.invokeAll(reads);
+            for (Future<ExpressionItem> expression : read) {
+                assertThat(expression.get(), sameInstance(read.get(0).get()));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertThat(expressions.get(199).toString(), is("$gt0001.magnitude>199"));
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_not_modify_lazy_expressions() {
+        new LazyExpressionList(Arrays.asList("$gt0001.value==1", null)).add(null);
+    }
+
+    @Test
+    public void can_keep_null_expressions() {
+        LazyExpressionList expressions = new LazyExpressionList(Arrays.asList(null, "$gt0001.value==1"));
+        assertThat(expressions.get(0) == null, is(true));
+        assertThat(expressions.get(1), instanceOf(ExpressionItem.class));
+    }
+
+    private List<String> resourceJson() throws Exception {
+        File directory = new File(getClass().getClassLoader().getResource("BSA_Calculation.v1.gdl2.json").toURI()).getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".gdl2.json"));
+        Arrays.sort(files);
+        List<String> json = new ArrayList<>();
+        for (File file : files) {
+            json.add(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+        }
+        return json;
+    }
+
+    private static Object executedOrFailure(Interpreter interpreter, Guideline guideline, List<DataInstance> input) {
+        try {
+            return describe(interpreter.executeSingleGuideline(guideline, input));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.id(), dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
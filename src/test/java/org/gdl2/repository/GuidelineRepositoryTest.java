@@ -0,0 +1,222 @@
+package org.gdl2.repository;
+
+import org.gdl2.model.Guideline;
+import org.gdl2.runtime.CompiledGuideline;
+import org.gdl2.runtime.DataInstance;
+import org.gdl2.runtime.Interpreter;
+import org.gdl2.runtime.TestCommon;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class GuidelineRepositoryTest extends TestCommon {
+    private static final String BSA = "BSA_Calculation.v1.gdl2.json";
+    private static final String DAS28 = "DAS28-ESR_Calculation.v1.gdl2.json";
+    private static final String LONG_EXPRESSION = "BSA_Calculation_long_expression.v1.gdl2.json";
+
+    private Path directory;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("guidelines");
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void tearDown() throws Exception {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void can_load_directory_of_guidelines() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        copy(LONG_EXPRESSION, "b.gdl2.json");
+        Files.write(directory.resolve("ignored.json"), "not a guideline".getBytes(StandardCharsets.UTF_8));
+        try (GuidelineRepository repository = GuidelineRepository.open(directory, 2)) {
+            GuidelineRepository.Snapshot snapshot = repository.snapshot();
+            assertThat(snapshot.getFailures().isEmpty(), is(true));
+            assertThat(snapshot.getEntries().size(), is(2));
+            for (String name : Arrays.asList(BSA, LONG_EXPRESSION)) {
+                Guideline guideline = loadGuideline(name.replace(".json", ""));
+                GuidelineRepository.Entry entry = snapshot.get(guideline.getId());
+                assertThat(entry.getGuideline(), is(guideline));
+                assertThat(entry.getContentHash(), is(sha256(resource(name))));
+            }
+        }
+    }
+
+    @Test
+    public void can_execute_snapshot_as_interpreter() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        copy(DAS28, "b.gdl2.json");
+        List<Guideline> guidelines = new ArrayList<>();
+        guidelines.add(loadGuideline(BSA.replace(".json", "")));
+        guidelines.add(loadGuideline(DAS28.replace(".json", "")));
+        guidelines.sort(Comparator.comparing(Guideline::getId));
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            for (int patient = 0; patient < 3; patient++) {
+                List<DataInstance> input = syntheticPatient(guidelines, patient);
+                assertThat(describe(repository.snapshot().execute(interpreter, input)), is(describe(interpreter.executeGuidelines(guidelines, input))));
+            }
+        }
+    }
+
+    @Test
+    public void can_reload_changed_guidelines_keeping_taken_snapshot() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        copy(LONG_EXPRESSION, "b.gdl2.json");
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            GuidelineRepository.Snapshot taken = repository.snapshot();
+            copy(DAS28, "b.gdl2.json");
+            Files.delete(directory.resolve("a.gdl2.json"));
+            GuidelineRepository.Snapshot reloaded = repository.reload();
+            assertThat(reloaded.getVersion(), is(taken.getVersion() + 1));
+            assertThat(reloaded.getEntries().size(), is(1));
+            assertThat(reloaded.get(loadGuideline(DAS28.replace(".json", "")).getId()).getGuideline(),
+                    is(loadGuideline(DAS28.replace(".json", ""))));
+            assertThat(taken.getEntries().size(), is(2));
+            assertThat(taken.get(loadGuideline(BSA.replace(".json", "")).getId()), notNullValue());
+            assertThat(repository.snapshot(), sameInstance(reloaded));
+        }
+    }
+
+    @Test
+    public void can_reuse_compiled_guidelines_of_unchanged_content() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            CompiledGuideline compiled = repository.snapshot().getCompiledGuidelines().get(0);
+            Files.move(directory.resolve("a.gdl2.json"), directory.resolve("renamed.gdl2.json"));
+            GuidelineRepository.Snapshot reloaded = repository.reload();
+            assertThat(reloaded.getCompiledGuidelines().get(0), sameInstance(compiled));
+            assertThat(reloaded.getEntries().iterator().next().getFile(), is(directory.resolve("renamed.gdl2.json")));
+        }
+    }
+
+    @Test
+    public void can_parse_only_changed_content_on_reload() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        copy(LONG_EXPRESSION, "b.gdl2.json");
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            String unchangedId = loadGuideline(BSA.replace(".json", "")).getId();
+            Guideline unchanged = repository.snapshot().get(unchangedId).getGuideline();
+            Guideline changed = repository.snapshot().get(loadGuideline(LONG_EXPRESSION.replace(".json", "")).getId()).getGuideline();
+            copy(DAS28, "b.gdl2.json");
+            GuidelineRepository.Snapshot reloaded = repository.reload();
+            assertThat(reloaded.get(unchangedId).getGuideline(), sameInstance(unchanged));
+            assertThat(reloaded.get(changed.getId()), nullValue());
+            assertThat(reloaded.get(loadGuideline(DAS28.replace(".json", "")).getId()).getFile(), is(directory.resolve("b.gdl2.json")));
+        }
+    }
+
+    @Test
+    public void can_keep_guideline_of_file_failing_to_reload() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            GuidelineRepository.Entry entry = repository.snapshot().getEntries().iterator().next();
+            Files.write(directory.resolve("a.gdl2.json"), "{\"id\": \"half".getBytes(StandardCharsets.UTF_8));
+            GuidelineRepository.Snapshot reloaded = repository.reload();
+            assertThat(reloaded.getFailures().get(directory.resolve("a.gdl2.json")), notNullValue());
+            assertThat(reloaded.get(entry.getId()), sameInstance(entry));
+            copy(BSA, "a.gdl2.json");
+            assertThat(repository.reload().getFailures().isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void can_report_guidelines_with_same_id() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        copy(BSA, "b.gdl2.json");
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            GuidelineRepository.Snapshot snapshot = repository.snapshot();
+            assertThat(snapshot.getEntries().iterator().next().getFile(), is(directory.resolve("a.gdl2.json")));
+            assertThat(snapshot.getFailures().keySet().iterator().next(), is(directory.resolve("b.gdl2.json")));
+            Files.delete(directory.resolve("a.gdl2.json"));
+            snapshot = repository.reload();
+            assertThat(snapshot.getFailures().isEmpty(), is(true));
+            assertThat(snapshot.getEntries().iterator().next().getFile(), is(directory.resolve("b.gdl2.json")));
+        }
+    }
+
+    @Test
+    public void can_watch_directory_for_changes() throws Exception {
+        copy(BSA, "a.gdl2.json");
+        BlockingQueue<GuidelineRepository.Snapshot> reloaded = new ArrayBlockingQueue<>(100);
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            repository.watch(reloaded::add);
+            copy(DAS28, "b.gdl2.json");
+            String id = loadGuideline(DAS28.replace(".json", "")).getId();
+            GuidelineRepository.Snapshot snapshot = reloaded.poll(30, TimeUnit.SECONDS);
+            while (snapshot != null && snapshot.get(id) == null) {
+                snapshot = reloaded.poll(30, TimeUnit.SECONDS);
+            }
+            assertThat(snapshot, notNullValue());
+            assertThat(repository.snapshot().get(id), notNullValue());
+            assertThat(repository.snapshot().getEntries().size(), is(2));
+        }
+    }
+
+    @Test(expectedExceptions = NoSuchFileException.class)
+    public void can_not_open_missing_directory() throws Exception {
+        GuidelineRepository.open(directory.resolve("missing"));
+    }
+
+    @Test
+    public void can_return_null_for_unknown_id() throws Exception {
+        try (GuidelineRepository repository = GuidelineRepository.open(directory)) {
+            assertThat(repository.snapshot().get("unknown"), nullValue());
+        }
+    }
+
+    private void copy(String resource, String name) throws Exception {
+        Path target = directory.resolve(name);
+        Path temporary = directory.resolve(name + ".tmp");
+        Files.write(temporary, resource(resource));
+        Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private byte[] resource(String name) throws Exception {
+        return Files.readAllBytes(new File(getClass().getClassLoader().getResource(name).toURI()).toPath());
+    }
+
+    private static String sha256(byte[] content) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte value : MessageDigest.getInstance("SHA-256").digest(content)) {
+            hex.append(String.format("%02x", value));
+        }
+        return hex.toString();
+    }
+
+    private static List<List<Object>> describe(List<DataInstance> dataInstances) {
+        return dataInstances.stream()
+                .map(dataInstance -> Arrays.<Object>asList(dataInstance.id(), dataInstance.modelId(), new TreeMap<>(dataInstance.values())))
+                .collect(Collectors.toList());
+    }
+}
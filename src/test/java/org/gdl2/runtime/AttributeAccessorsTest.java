@@ -0,0 +1,142 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvBoolean;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvDate;
+import org.gdl2.datatypes.DvDateTime;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+import org.testng.annotations.Test;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class AttributeAccessorsTest extends TestCommon {
+
+    @Test
+    public void can_read_built_in_attributes_same_as_getters() throws Exception {
+        AttributeAccessors attributeAccessors = AttributeAccessors.of(null);
+        List<Object> dataValues = Arrays.asList(
+                new DvQuantity("kg", 72.5, 1),
+                new DvCount(3),
+                DvOrdinal.valueOf("1|local::at0001|Present|"),
+                new DvCodedText("Hypertension", "ICD10", "I10"),
+                new CodePhrase("ICD10", "I10"),
+                new DvText("text"),
+                DvBoolean.valueOf(true),
+                DvDate.valueOf("2018-01-01"),
+                DvDateTime.valueOf("2018-01-01T12:00:00"));
+        List<String> attributes = Arrays.asList("magnitude", "unit", "precision", "value", "symbol", "terminologyId", "label",
+                "definingCode", "terminology", "code", "date", "dateTime");
+        for (Object dataValue : dataValues) {
+            for (String attribute : attributes) {
+                Object expected;
+                try {
+                    String getterName = "get" + attribute.substring(0, 1).toUpperCase() + attribute.substring(1);
+                    expected = dataValue.getClass().getMethod(getterName).invoke(dataValue);
+                } catch (NoSuchMethodException exception) {
+                    continue;
+                }
+                Object actual = attributeAccessors.resolve(dataValue.getClass(), attribute).get(dataValue);
+                assertThat(dataValue.getClass().getSimpleName() + "." + attribute, actual, is(expected));
+            }
+        }
+    }
+
+    @Test
+    public void can_read_attribute_using_getter_without_registered_accessor() {
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", asList(ZonedDateTime.parse("2018-05-01T00:00:00Z")));
+        Object value = new Interpreter().evaluateExpressionItem(parseExpression("$gt0001.monthValue"), input);
+        assertThat(value, is(5));
+    }
+
+    @Test
+    public void can_read_attribute_using_registered_accessor() {
+        RuntimeConfiguration runtimeConfiguration = RuntimeConfiguration.builder()
+                .attributeAccessors(singletonMap(BloodPressure.class,
+                        singletonMap("meanArterialPressure", dataValue -> ((BloodPressure) dataValue).meanArterialPressure())))
+                .build();
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", asList(new BloodPressure(140, 90)));
+        Object value = new Interpreter(runtimeConfiguration).evaluateExpressionItem(parseExpression("$gt0001.meanArterialPressure>100"), input);
+        assertThat(value, is(true));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Failed to retrieve attribute \\[systolic\\] value for variable: .*")
+    public void can_report_attribute_without_accessor_or_getter() {
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", asList(new BloodPressure(120, 90)));
+        new Interpreter().evaluateExpressionItem(parseExpression("$gt0001.systolic"), input);
+    }
+
+    @Test
+    public void can_read_attribute_using_accessor_of_service_provider() {
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", asList(new BloodPressure(140, 90)));
+        Object value = new Interpreter().evaluateExpressionItem(parseExpression("$gt0001.pulsePressure"), input);
+        assertThat(value, is(50.0));
+    }
+
+    @Test
+    public void can_override_accessor_of_service_provider_by_runtime_configuration() {
+        RuntimeConfiguration runtimeConfiguration = RuntimeConfiguration.builder()
+                .attributeAccessors(singletonMap(BloodPressure.class, singletonMap("pulsePressure", dataValue -> 0.0)))
+                .build();
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", asList(new BloodPressure(140, 90)));
+        Object value = new Interpreter(runtimeConfiguration).evaluateExpressionItem(parseExpression("$gt0001.pulsePressure"), input);
+        assertThat(value, is(0.0));
+    }
+
+    @Test
+    public void can_keep_accessor_resolved_at_site_until_type_or_registry_changes() throws Exception {
+        AttributeAccessors attributeAccessors = AttributeAccessors.of(null);
+        AttributeAccessors.Site site = new AttributeAccessors.Site("magnitude");
+        AttributeAccessor quantityMagnitude = site.resolve(attributeAccessors, DvQuantity.class);
+        assertThat(site.resolve(attributeAccessors, DvQuantity.class), sameInstance(quantityMagnitude));
+        assertThat(site.resolve(attributeAccessors, DvCount.class).get(new DvCount(3)), is(3));
+        AttributeAccessor configured = dataValue -> 1.0;
+        AttributeAccessors configuredAccessors = AttributeAccessors.of(singletonMap(DvQuantity.class, singletonMap("magnitude", configured)));
+        assertThat(site.resolve(configuredAccessors, DvQuantity.class), sameInstance(configured));
+        assertThat(site.resolve(attributeAccessors, DvQuantity.class).get(new DvQuantity("kg", 72.5, 1)), is(72.5));
+    }
+
+    public static final class PulsePressureProvider implements AttributeAccessorProvider {
+
+        @Override
+        public Map<Class<?>, Map<String, AttributeAccessor>> getAttributeAccessors() {
+            return singletonMap(BloodPressure.class, singletonMap("pulsePressure", dataValue -> ((BloodPressure) dataValue).pulsePressure()));
+        }
+    }
+
+    private static final class BloodPressure {
+        private final double systolic;
+        private final double diastolic;
+
+        BloodPressure(double systolic, double diastolic) {
+            this.systolic = systolic;
+            this.diastolic = diastolic;
+        }
+
+        double meanArterialPressure() {
+            return diastolic + (systolic - diastolic) / 3;
+        }
+
+        double pulsePressure() {
+            return systolic - diastolic;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares loops executing the guidelines once per patient with batch executions of 100k synthetic patients
+ * on fork/join pools of increasing parallelism, up to the number of available processors.
+ */
+public class BatchExecutionBenchmark extends TestCommon {
+    private static final int PATIENTS = 100_000;
+    private static final String[] GUIDELINES = {"BSA_Calculation.v1.gdl2", "DAS28-ESR_Calculation.v1.gdl2",
+            "CHA2DS2VASc_diagnosis_review.v1.0.1.gdl2", "Stroke_prevention_dashboard_case.v1.gdl2"};
+
+    public static void main(String[] args) throws Exception {
+        new BatchExecutionBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        List<Guideline> guidelines = new ArrayList<>();
+        for (String guidelineId : GUIDELINES) {
+            Guideline guideline = loadGuideline(guidelineId);
+            // skip guidelines that do not accept the synthetic values
+            if (!(executionOutcome(interpreter, new GuidelineCompiler().compile(guideline), syntheticPatient(Collections.singletonList(guideline), 0)) instanceof String)) {
+                guidelines.add(guideline);
+            }
+        }
+        System.out.println("Guidelines: " + guidelines.size() + ", patients: " + PATIENTS);
+        Iterable<List<DataInstance>> patients = () -> new Iterator<List<DataInstance>>() {
+            private int patient;
+
+            @Override
+            public boolean hasNext() {
+                return patient < PATIENTS;
+            }
+
+            @Override
+            public List<DataInstance> next() {
+                return syntheticPatient(guidelines, patient++);
+            }
+        };
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            int results = 0;
+            for (List<DataInstance> patient : patients) {
+                results += interpreter.executeGuidelines(guidelines, patient).size();
+            }
+            print("loop over executeGuidelines", start, results);
+            List<CompiledGuideline> compiled = new GuidelineCompiler().compile(guidelines);
+            start = System.nanoTime();
+            results = 0;
+            for (List<DataInstance> patient : patients) {
+                results += interpreter.executeCompiledGuidelines(compiled, patient).size();
+            }
+            double baseline = print("loop over executeCompiledGuidelines", start, results);
+            for (int parallelism = 1; parallelism <= Runtime.getRuntime().availableProcessors(); parallelism *= 2) {
+                ForkJoinPool forkJoinPool = new ForkJoinPool(parallelism);
+                Interpreter batchInterpreter = new Interpreter(RuntimeConfiguration.builder()
+                        .currentDateTime(SYNTHETIC_DATE_TIME)
+                        .batchForkJoinPool(forkJoinPool)
+                        .build());
+                AtomicInteger batchResults = new AtomicInteger();
+                start = System.nanoTime();
+                batchInterpreter.executeGuidelinesBatch(guidelines, patients, (result, index) -> batchResults.addAndGet(result.size()));
+                double batch = print("executeGuidelinesBatch, parallelism " + parallelism, start, batchResults.get());
+                MicroBenchmark.printRatio("speed-up, parallelism " + parallelism, baseline, batch);
+                forkJoinPool.shutdown();
+            }
+        }
+    }
+
+    private static double print(String name, long start, int results) {
+        double millis = (System.nanoTime() - start) / 1e6;
+        System.out.println(String.format(Locale.ROOT, "%-72s %12.1f ms (%d results)", name, millis, results));
+        return millis;
+    }
+}
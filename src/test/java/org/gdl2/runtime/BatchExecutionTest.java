@@ -0,0 +1,97 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class BatchExecutionTest extends TestCommon {
+    private static final int PATIENTS = 5000;
+
+    @Test
+    public void can_execute_guidelines_for_each_patient_with_same_results_in_order() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline(BSA_CALCULATION), loadGuideline("DAS28-ESR_Calculation.v1.gdl2"));
+        List<List<DataInstance>> patients = new ArrayList<>();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            patients.add(syntheticPatient(guidelines, patient));
+        }
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        ForkJoinPool forkJoinPool = new ForkJoinPool(4);
+        try {
+            Interpreter batchInterpreter = new Interpreter(RuntimeConfiguration.builder()
+                    .currentDateTime(SYNTHETIC_DATE_TIME)
+                    .batchForkJoinPool(forkJoinPool)
+                    .build());
+            List<String> expected = new ArrayList<>();
+            for (List<DataInstance> patient : patients) {
+                expected.add(outcome(interpreter.executeGuidelines(guidelines, patient)));
+            }
+            List<String> actual = batchInterpreter.executeGuidelinesBatch(guidelines, patients).stream()
+                    .map(this::outcome)
+                    .collect(Collectors.toList());
+            assertThat(actual, is(expected));
+        } finally {
+            forkJoinPool.shutdown();
+        }
+    }
+
+    @Test
+    public void can_pass_results_to_consumer_in_order_of_patients() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(loadGuideline(BSA_CALCULATION));
+        List<List<DataInstance>> patients = new ArrayList<>();
+        for (int patient = 0; patient < PATIENTS; patient++) {
+            patients.add(syntheticPatient(guidelines, patient));
+        }
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        List<Integer> indexes = new ArrayList<>();
+        List<String> actual = new ArrayList<>();
+        interpreter.executeGuidelinesBatch(guidelines, patients, (result, index) -> {
+            indexes.add(index);
+            actual.add(outcome(result));
+        });
+        assertThat(indexes.size(), is(PATIENTS));
+        for (int index = 0; index < PATIENTS; index++) {
+            assertThat(indexes.get(index), is(index));
+        }
+        assertThat(actual.get(PATIENTS - 1), is(outcome(interpreter.executeGuidelines(guidelines, patients.get(PATIENTS - 1)))));
+    }
+
+    @Test
+    public void can_execute_each_patient_on_own_input_only() throws Exception {
+        List<List<DataInstance>> patients = Arrays.asList(
+                Arrays.asList(toWeight("72.0,kg"), toHeight("180.0,cm")),
+                new ArrayList<>(),
+                Arrays.asList(toWeight("50.0,kg"), toHeight("160.0,cm")));
+        List<List<DataInstance>> results = new Interpreter().executeGuidelinesBatch(Arrays.asList(loadGuideline(BSA_CALCULATION)), patients);
+        assertThat(results.stream().map(List::size).collect(Collectors.toList()), is(Arrays.asList(1, 1, 1)));
+        List<Object> bodySurfaceAreas = results.stream()
+                .map(result -> result.get(0).get("/data[at0001]/events[at0002]/data[at0003]/items[at0004]"))
+                .collect(Collectors.toList());
+        assertThat(bodySurfaceAreas.get(0), is(notNullValue()));
+        assertThat(bodySurfaceAreas.get(1), is(nullValue()));
+        assertThat(bodySurfaceAreas.get(2), is(notNullValue()));
+        assertThat(bodySurfaceAreas.get(2), is(not(bodySurfaceAreas.get(0))));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_execute_batch_with_null_patient() throws Exception {
+        new Interpreter().executeGuidelinesBatch(Arrays.asList(loadGuideline(BSA_CALCULATION)), Arrays.asList(new ArrayList<>(), null));
+    }
+
+    private String outcome(List<DataInstance> result) {
+        return result.stream()
+                .map(dataInstance -> dataInstance.modelId() + dataInstance.values())
+                .collect(Collectors.toList())
+                .toString();
+    }
+}
@@ -0,0 +1,134 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Source;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.datatypes.DvQuantity;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+
+public class CardMapperTest extends TestCommon {
+    private static final Gson GSON = new Gson();
+
+    @Test
+    public void can_map_results_same_as_reading_card_from_json() throws Exception {
+        List<Object> roots = new ArrayList<>();
+        roots.add(card());
+        roots.add(cardMap());
+        roots.add(null);
+        roots.add(new DvQuantity("kg", 80.5, 1));
+        roots.add(Collections.singletonMap("value", 1.0));
+        roots.add(Card.builder().summary("object").links(Collections.singletonList(
+                Link.builder().label("label").url(new URL("https://example.com")).type(Link.LinkType.APP).build())).build());
+        roots.add(Card.builder().summary("resource object").suggestions(Collections.singletonList(Suggestion.builder()
+                .actions(Collections.singletonList(Action.builder().resource(new DvQuantity("kg", 1.0, 1)).build())).build())).build());
+        for (Object[] change : new Object[][]{{"summary", 12}, {"summary", true}, {"indicator", "INFO"}, {"indicator", "unknown"},
+            {"indicator", 1.0}, {"source", "text"}, {"links", "text"}, {"detail", null}, {"source", Collections.singletonMap("url", "null")},
+            {"source", Collections.singletonMap("url", "not a url")}, {"suggestions", Collections.singletonList(Collections.singletonMap("uuid", "x"))},
+            {"suggestions", Arrays.asList(null, Collections.singletonMap("label", 2.0))},
+            {"suggestions", Collections.singletonList(Collections.singletonMap("actions",
+                Collections.singletonList(Collections.singletonMap("resourceTemplate", Collections.singletonMap("templateId", "gt0001")))))}}) {
+            Map<String, Object> root = cardMap();
+            root.put((String) change[0], change[1]);
+            roots.add(root);
+        }
+        for (Object root : roots) {
+            assertThat(String.valueOf(root), mappedOrFailure(root), is(readOrFailure(root)));
+        }
+    }
+
+    @Test
+    public void can_map_resources_as_read_from_json() {
+        Card card = CardMapper.toCard(cardMap());
+        Object resource = card.getSuggestions().get(0).getActions().get(0).getResource();
+        assertThat(resource, instanceOf(Map.class));
+        assertThat(((Map) resource).get("count"), is(3.0));
+        assertThat(((Map) resource).containsKey("nothing"), is(false));
+        assertThat(card.getIndicator(), is(Card.IndicatorEnum.CRITICAL));
+        assertThat(card.getSuggestions().get(0).getActions().get(0).getType(), is(Action.ActionType.UPDATE));
+    }
+
+    private static Card card() throws Exception {
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("count", 3);
+        resource.put("values", Arrays.asList(1L, 2.5, null, "text"));
+        return Card.builder()
+                .summary("summary")
+                .detail("detail")
+                .indicator(Card.IndicatorEnum.INFO)
+                .source(Source.builder().label("NICE").url(new URL("https://www.nice.org.uk")).build())
+                .suggestions(Collections.singletonList(Suggestion.builder()
+                        .uuid(UUID.fromString("5f6ad92d-3b39-4766-831d-23586f7999e3"))
+                        .label("label")
+                        .actions(Arrays.asList(Action.builder().type(Action.ActionType.CREATE).description("create").resource(resource).build(), null))
+                        .build()))
+                .links(Collections.singletonList(Link.builder().label("link").url(new URL("https://example.com")).type(Link.LinkType.SMART).build()))
+                .build();
+    }
+
+    private static Map<String, Object> cardMap() {
+        Map<String, Object> resource = new LinkedHashMap<>();
+        resource.put("count", 3);
+        resource.put("nothing", null);
+        resource.put("nested", Collections.singletonMap("values", Arrays.asList(1.5, 10_000_000_000L)));
+        Map<String, Object> action = new LinkedHashMap<>();
+        action.put("type", "update");
+        action.put("description", "update");
+        action.put("resource", resource);
+        Map<String, Object> suggestion = new LinkedHashMap<>();
+        suggestion.put("uuid", "5f6ad92d-3b39-4766-831d-23586f7999e3");
+        suggestion.put("label", "label");
+        suggestion.put("actions", Collections.singletonList(action));
+        Map<String, Object> link = new LinkedHashMap<>();
+        link.put("label", "link");
+        link.put("url", "https://example.com");
+        link.put("type", "absolute");
+        link.put("labelReference", "$ref[1].label");
+        Map<String, Object> source = new LinkedHashMap<>();
+        source.put("label", "NICE");
+        source.put("icon", "https://www.nice.org.uk/icon.png");
+        Map<String, Object> card = new LinkedHashMap<>();
+        card.put("summary", "summary");
+        card.put("detail", "detail");
+        card.put("indicator", "critical");
+        card.put("source", source);
+        card.put("suggestions", Collections.singletonList(suggestion));
+        card.put("links", Collections.singletonList(link));
+        card.put("other", 1.0);
+        return card;
+    }
+
+    /*
+     * json of the card read from the json of the root, the way results were mapped before, or the class of the failure
+     */
+    private static Object readOrFailure(Object root) {
+        try {
+            return GSON.toJson(GSON.fromJson(GSON.toJson(root), Card.class));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object mappedOrFailure(Object root) {
+        try {
+            return GSON.toJson(CardMapper.toCard(root));
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.gdl2.runtime;
+
+import org.gdl2.cdshooks.Action;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermDefinition;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.core.Is.is;
+
+public class CardRendererTest extends TestCommon {
+    private static final String[] TEXTS = {
+        "Weight {$gt0001} and {$gt0001.magnitude} {$gt0001.unit}",
+        "{$gt0002.term}: {$gt0003} without {$gt0009} and {$gt0009.term}",
+        "no variables",
+        "{$gt0004}",
+        "price {$gt0005} for {$gt0002.term}",
+        "{$gt0006.term}",
+        "{$gt0002.count} values"};
+
+    private Interpreter interpreter;
+    private Map<String, List<Object>> input;
+    private TermDefinition termDefinition;
+
+    @BeforeMethod
+    public void setUp() {
+        interpreter = new Interpreter();
+        input = new HashMap<>();
+        input.put("gt0001", singletonList(new DvQuantity("kg", 80.5, 1)));
+        input.put("gt0002", Arrays.asList("first", "second"));
+        input.put("gt0003", singletonList(42));
+        input.put("gt0004", singletonList(SYNTHETIC_DATE_TIME));
+        input.put("gt0005", singletonList("$10 \\ each"));
+        Map<String, Term> terms = new HashMap<>();
+        terms.put("gt0002", new Term("gt0002", "Medication", null));
+        terms.put("gt0006", new Term("gt0006", "Costs $5", null));
+        termDefinition = new TermDefinition("en", terms);
+    }
+
+    @Test
+    public void can_render_texts_same_as_substituting_variables() {
+        for (TermDefinition definition : Arrays.asList(termDefinition, new TermDefinition("en", Collections.emptyMap()))) {
+            for (String text : TEXTS) {
+                assertThat(text, renderedOrFailure(text, definition), is(substitutedOrFailure(text, definition)));
+            }
+        }
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void can_fail_on_term_without_term_definition_as_substituting_variables() {
+        Card card = Card.builder().summary(TEXTS[1]).build();
+        new CardRenderer(card, null, null, new ExpressionCompiler()).render(interpreter, input, null, null);
+    }
+
+    @Test
+    public void can_render_suggestions_and_links_as_new_objects() throws Exception {
+        UUID uuid = UUID.randomUUID();
+        Card card = Card.builder()
+                .summary("{$gt0003} mg")
+                .indicator(Card.IndicatorEnum.WARNING)
+                .suggestions(singletonList(Suggestion.builder()
+                        .uuid(uuid)
+                        .label("Give {$gt0002.term}")
+                        .actions(singletonList(Action.builder().type(Action.ActionType.CREATE).description("{$gt0001.magnitude}").build()))
+                        .build()))
+                .links(singletonList(Link.builder().label("{$gt0002.term}").url(new URL("https://example.com")).type(Link.LinkType.SMART).build()))
+                .build();
+        CardRenderer cardRenderer = new CardRenderer(card, null, termDefinition, new ExpressionCompiler());
+        Card rendered = cardRenderer.render(interpreter, input, null, termDefinition);
+        assertThat(rendered.getSummary(), is("42 mg"));
+        assertThat(rendered.getIndicator(), is(Card.IndicatorEnum.WARNING));
+        assertThat(rendered.getSuggestions().get(0).getUuid(), is(uuid));
+        assertThat(rendered.getSuggestions().get(0).getLabel(), is("Give Medication"));
+        assertThat(rendered.getSuggestions().get(0).getActions().get(0).getDescription(), is("80.5"));
+        assertThat(rendered.getSuggestions().get(0).getActions().get(0).getType(), is(Action.ActionType.CREATE));
+        assertThat(rendered.getLinks().get(0).getLabel(), is("Medication"));
+        assertThat(rendered.getLinks().get(0).getType(), is(Link.LinkType.SMART));
+        assertThat(cardRenderer.render(interpreter, input, null, termDefinition).getLinks(), is(rendered.getLinks()));
+    }
+
+    private Object renderedOrFailure(String text, TermDefinition definition) {
+        try {
+            Card card = Card.builder().summary(text).detail(text).build();
+            Card rendered = new CardRenderer(card, null, definition, new ExpressionCompiler()).render(interpreter, input, null, definition);
+            return Arrays.asList(rendered.getSummary(), rendered.getDetail());
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    /*
+     * texts as substituted each time a rule fired before card renderers, or the class of the failure
+     */
+    private Object substitutedOrFailure(String text, TermDefinition definition) {
+        try {
+            String substituted = interpreter.replaceVariablesWithValues(text, input, definition);
+            return Arrays.asList(substituted, substituted);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.cdshooks.Suggestion;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.terminology.Term;
+import org.gdl2.terminology.TermDefinition;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares rendering a card by substituting the variables of its texts with rendering it by a {@link CardRenderer},
+ * and reading a classic mode card from json with mapping it by {@link CardMapper}.
+ */
+public class CardRenderingBenchmark extends TestCommon {
+    private static final String SUMMARY = "{$gt0002.term}: weight {$gt0001.magnitude} {$gt0001.unit}";
+    private static final String DETAIL = "Body weight {$gt0001} recorded, consider {$gt0002.term} at {$gt0003} mg daily";
+    private static final String LABEL = "Prescribe {$gt0002.term}";
+
+    public static void main(String[] args) throws Exception {
+        new CardRenderingBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Interpreter interpreter = new Interpreter();
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0001", Collections.singletonList(new DvQuantity("kg", 80.5, 1)));
+        input.put("gt0003", Collections.singletonList(40));
+        TermDefinition termDefinition = new TermDefinition("en", Collections.singletonMap("gt0002", new Term("gt0002", "Statin", null)));
+        Card card = Card.builder()
+                .summary(SUMMARY)
+                .detail(DETAIL)
+                .indicator(Card.IndicatorEnum.INFO)
+                .suggestions(Collections.singletonList(Suggestion.builder().label(LABEL).build()))
+                .links(Collections.singletonList(Link.builder().label(LABEL).url(new URL("https://example.com")).type(Link.LinkType.SMART).build()))
+                .build();
+        CardRenderer cardRenderer = new CardRenderer(card, null, termDefinition, new ExpressionCompiler());
+        double substituted = MicroBenchmark.measure("card, substituted variables", 20_000, 100_000, () -> Card.builder()
+                .summary(interpreter.replaceVariablesWithValues(SUMMARY, input, termDefinition))
+                .detail(interpreter.replaceVariablesWithValues(DETAIL, input, termDefinition))
+                .indicator(card.getIndicator())
+                .suggestions(Collections.singletonList(Suggestion.builder()
+                        .label(interpreter.replaceVariablesWithValues(LABEL, input, termDefinition)).build()))
+                .links(Collections.singletonList(Link.builder().label(interpreter.replaceVariablesWithValues(LABEL, input, termDefinition))
+                        .url(card.getLinks().get(0).getUrl()).type(Link.LinkType.SMART).build()))
+                .build());
+        double rendered = MicroBenchmark.measure("card, card renderer", 20_000, 100_000,
+            () -> cardRenderer.render(interpreter, input, null, termDefinition));
+        MicroBenchmark.printRatio("speed-up, card renderer", substituted, rendered);
+
+        Gson gson = new Gson();
+        Map<String, Object> root = gson.fromJson(gson.toJson(cardRenderer.render(interpreter, input, null, termDefinition)), Map.class);
+        double json = MicroBenchmark.measure("classic mode card, json", 20_000, 100_000, () -> gson.fromJson(gson.toJson(root), Card.class));
+        double mapped = MicroBenchmark.measure("classic mode card, card mapper", 20_000, 100_000, () -> CardMapper.toCard(root));
+        MicroBenchmark.printRatio("speed-up, card mapper", json, mapped);
+    }
+}
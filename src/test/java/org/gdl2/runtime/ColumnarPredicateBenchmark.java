@@ -0,0 +1,65 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.BinaryExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.LongExpression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares evaluating data binding predicates instance by instance with evaluating them column-wise,
+ * over lab histories of growing length.
+ */
+public class ColumnarPredicateBenchmark extends TestCommon {
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.lab_test.v1";
+    private static final String TIME = "/data/events/time";
+    private static final String RESULT = "/data[at0001]/events[at0002]/data[at0003]/items[at0004]";
+    private static final int[] HISTORY_LENGTHS = {100, 1_000, 10_000};
+
+    public static void main(String[] args) throws Exception {
+        ColumnarPredicateBenchmark benchmark = new ColumnarPredicateBenchmark();
+        benchmark.run(TIME + ">=$currentDateTime-12,mo");
+        benchmark.run(RESULT + ">100");
+    }
+
+    private void run(String predicate) throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        ExpressionItem expressionItem = parseExpression(predicate);
+        BinaryExpression binaryExpression = expressionItem instanceof LongExpression
+                ? ((LongExpression) expressionItem).toBinaryExpression() : (BinaryExpression) expressionItem;
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler();
+        CompiledExpression compiled = expressionCompiler.compile(binaryExpression);
+        ColumnarPredicate columnar = ColumnarPredicate.of(binaryExpression, expressionCompiler);
+        EvaluationContext context = new EvaluationContext(interpreter, null, null, null);
+        for (int historyLength : HISTORY_LENGTHS) {
+            List<DataInstance> history = labHistory(historyLength);
+            int iterations = 10_000_000 / historyLength;
+            double rowWise = MicroBenchmark.measure(predicate + ", " + historyLength + " instances, row-wise",
+                    iterations / 5, iterations, () -> {
+                        List<DataInstance> selected = new ArrayList<>();
+                        for (DataInstance dataInstance : history) {
+                            if (compiled.evaluateBoolean(context.withInput(dataInstance.valueListMap()))) {
+                                selected.add(dataInstance);
+                            }
+                        }
+                        return selected;
+                    });
+            double columnWise = MicroBenchmark.measure(predicate + ", " + historyLength + " instances, column-wise",
+                    iterations / 5, iterations, () -> columnar.filter(history, context));
+            MicroBenchmark.printRatio(predicate + ", " + historyLength + " instances, speed-up", rowWise, columnWise);
+        }
+    }
+
+    private List<DataInstance> labHistory(int length) {
+        List<DataInstance> history = new ArrayList<>();
+        for (int index = 0; index < length; index++) {
+            history.add(new DataInstance.Builder().modelId(ARCHETYPE)
+                    .addValue(TIME, SYNTHETIC_DATE_TIME.minusDays(index))
+                    .addValue(RESULT, new DvQuantity("mg", index % 200, 1))
+                    .build());
+        }
+        return history;
+    }
+}
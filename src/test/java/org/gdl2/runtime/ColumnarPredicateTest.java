@@ -0,0 +1,79 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvQuantity;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class ColumnarPredicateTest extends TestCommon {
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.lab_test.v1";
+    private static final String TIME = "/data/events/time";
+    private static final String RESULT = "/data[at0001]/events[at0002]/data[at0003]/items[at0004]";
+
+    private final Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+    private final EvaluationContext context = new EvaluationContext(interpreter, null, null, null);
+
+    @Test
+    public void can_select_same_data_instances_as_interpreter() {
+        List<DataInstance> dataInstances = labHistory(500);
+        String[] predicates = {
+                TIME + ">=$currentDateTime-12,mo",
+                TIME + "<$currentDateTime-1,a",
+                RESULT + ">100",
+                RESULT + "<=42.5",
+                RESULT + ">=(10+5)*2"};
+        for (String predicate : predicates) {
+            ColumnarPredicate columnarPredicate = columnar(predicate);
+            assertThat(predicate, columnarPredicate, notNullValue());
+            List<DataInstance> selected = columnarPredicate.filter(dataInstances, context);
+            List<DataInstance> expected = interpreter.evaluateDataInstancesWithPredicate(dataInstances, parseExpression(predicate), null);
+            assertThat(predicate, selected, is(expected));
+            assertThat(predicate, selected.size(), greaterThan(0));
+        }
+    }
+
+    @Test
+    public void can_not_evaluate_predicate_depending_on_data_instance_column_wise() {
+        assertThat(columnar(RESULT + ">" + TIME), nullValue());
+        assertThat(columnar(RESULT + "==100"), nullValue());
+        assertThat(columnar(RESULT + ".magnitude>100"), nullValue());
+    }
+
+    @Test
+    public void can_leave_values_not_compared_as_doubles_to_interpreter() {
+        List<DataInstance> dataInstances = new ArrayList<>();
+        dataInstances.add(new DataInstance.Builder().modelId(ARCHETYPE).addValue(RESULT, new DvQuantity("d", 3.0, 0)).build());
+        assertThat(columnar(RESULT + ">2").filter(dataInstances, context), nullValue());
+        assertThat(columnar(RESULT + ">2,kg").filter(dataInstances, context), nullValue());
+    }
+
+    /*
+     * results of rotating types over a few years, some without time or result
+     */
+    private List<DataInstance> labHistory(int size) {
+        List<DataInstance> dataInstances = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            DataInstance.Builder builder = new DataInstance.Builder().modelId(ARCHETYPE);
+            if (index % 7 != 0) {
+                builder.addValue(TIME, SYNTHETIC_DATE_TIME.minusDays(index * 5L));
+            }
+            if (index % 3 == 0) {
+                builder.addValue(RESULT, new DvQuantity("mg", index % 200, 1));
+            } else if (index % 3 == 1) {
+                builder.addValue(RESULT, new DvCount(index % 150));
+            } else if (index % 11 != 0) {
+                builder.addValue(RESULT, (double) (index % 120));
+            }
+            dataInstances.add(builder.build());
+        }
+        return dataInstances;
+    }
+}
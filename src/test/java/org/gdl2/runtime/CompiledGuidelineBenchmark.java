@@ -0,0 +1,78 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.model.Guideline;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Compares executing guidelines as-is, which looks up their compiled form in the cache of the interpreter on each call,
+ * with executing guidelines compiled once by {@link GuidelineCompiler}. Both should take about the same time.
+ */
+public class CompiledGuidelineBenchmark extends TestCommon {
+    private static final String DIAGNOSIS_ARCHETYPE = "openEHR-EHR-EVALUATION.problem-diagnosis.v1";
+    private static final String DIAGNOSIS_CODE = "/data[at0001]/items[at0002.1]";
+    private static final String DIAGNOSIS_DATE = "/data[at0001]/items[at0003]";
+    private static final String REVIEW_ARCHETYPE = "openEHR-EHR-EVALUATION.chadsvas_diagnosis_review.v1";
+    private static final String[] REVIEW_ITEMS = {"at0035", "at0036", "at0037", "at0038", "at0039", "at0040"};
+    private static final String REVIEW_DATE = "/data[at0001]/items[at0041]";
+    private static final int WARM_UP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    public static void main(String[] args) throws Exception {
+        CompiledGuidelineBenchmark benchmark = new CompiledGuidelineBenchmark();
+        benchmark.run("BSA_Calculation.v1.gdl2", benchmark.bodySurfaceAreaInput());
+        benchmark.run("CHA2DS2VASc_diagnosis_review.v1.0.1.gdl2", benchmark.diagnosisInput());
+    }
+
+    private void run(String guidelineId, List<DataInstance> input) throws Exception {
+        Interpreter interpreter = new Interpreter(ZonedDateTime.parse("2018-01-01T00:00:00Z"));
+        Guideline guideline = loadGuideline(guidelineId);
+        List<Guideline> guidelines = singletonList(guideline);
+        List<CompiledGuideline> compiledGuidelines = new GuidelineCompiler().compile(guidelines);
+        double baseline = MicroBenchmark.measure(guidelineId + " executeGuidelines",
+                WARM_UP, ITERATIONS, () -> interpreter.executeGuidelines(guidelines, input));
+        double compiled = MicroBenchmark.measure(guidelineId + " executeCompiledGuidelines",
+                WARM_UP, ITERATIONS, () -> interpreter.executeCompiledGuidelines(compiledGuidelines, input));
+        MicroBenchmark.printRatio(guidelineId + " speed-up", baseline, compiled);
+    }
+
+    private List<DataInstance> bodySurfaceAreaInput() {
+        List<DataInstance> input = new ArrayList<>();
+        input.add(toWeight("72.0,kg"));
+        input.add(toHeight("180.0,cm"));
+        return input;
+    }
+
+    private List<DataInstance> diagnosisInput() {
+        List<DataInstance> input = new ArrayList<>();
+        input.add(toDiagnosis("Hypertension", "I10", "2012-01-01T00:00:00Z"));
+        input.add(toDiagnosis("Diabetes Type-1", "E10", "2013-05-01T00:00:00Z"));
+        input.add(toDiagnosis("Heart failure", "I50", "2014-02-01T00:00:00Z"));
+        input.add(toDiagnosis("Atrial fibrillation", "I48", "2015-03-01T00:00:00Z"));
+        input.add(toDiagnosis("Hypertension", "I11", "2016-01-01T00:00:00Z"));
+        input.add(toPreviousReview("2014-01-01T00:00:00Z"));
+        return input;
+    }
+
+    private DataInstance toPreviousReview(String dateTime) {
+        DataInstance.Builder builder = new DataInstance.Builder().modelId(REVIEW_ARCHETYPE);
+        for (String item : REVIEW_ITEMS) {
+            builder.addValue("/data[at0001]/items[" + item + "]", DvOrdinal.valueOf("0|local::at0050|Absent|"));
+        }
+        return builder.addValue(REVIEW_DATE, ZonedDateTime.parse(dateTime)).build();
+    }
+
+    private DataInstance toDiagnosis(String text, String code, String dateTime) {
+        return new DataInstance.Builder()
+                .modelId(DIAGNOSIS_ARCHETYPE)
+                .addValue(DIAGNOSIS_CODE, new DvCodedText(text, "ICD10", code))
+                .addValue(DIAGNOSIS_DATE, ZonedDateTime.parse(dateTime))
+                .build();
+    }
+}
@@ -0,0 +1,58 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.Guideline;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class CompiledGuidelineCacheTest extends TestCommon {
+    private CompiledGuidelineCache compiledGuidelineCache;
+
+    @BeforeMethod
+    public void setUp() {
+        compiledGuidelineCache = new CompiledGuidelineCache(new GuidelineCompiler());
+    }
+
+    @Test
+    public void can_compile_guideline_once() throws Exception {
+        Guideline guideline = loadGuideline(BSA_CALCULATION);
+        CompiledGuideline compiledGuideline = compiledGuidelineCache.get(guideline);
+        assertThat(compiledGuidelineCache.get(guideline), sameInstance(compiledGuideline));
+        assertThat(compiledGuidelineCache.size(), is(1));
+    }
+
+    @Test
+    public void can_compile_equal_guidelines_separately() throws Exception {
+        Guideline guideline = loadGuideline(BSA_CALCULATION);
+        Guideline equalGuideline = loadGuideline(BSA_CALCULATION);
+        assertThat(equalGuideline, is(guideline));
+        assertThat(compiledGuidelineCache.get(equalGuideline), not(sameInstance(compiledGuidelineCache.get(guideline))));
+        assertThat(compiledGuidelineCache.size(), is(2));
+    }
+
+    @Test
+    public void can_compile_list_of_guidelines_in_order() throws Exception {
+        Guideline first = loadGuideline(BSA_CALCULATION);
+        Guideline second = loadGuideline(BSA_CALCULATION_WITHOUT_WHEN);
+        List<CompiledGuideline> compiledGuidelines = compiledGuidelineCache.get(Arrays.asList(first, second));
+        assertThat(compiledGuidelines.get(0), sameInstance(compiledGuidelineCache.get(first)));
+        assertThat(compiledGuidelines.get(1), sameInstance(compiledGuidelineCache.get(second)));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_compile_null_guideline() {
+        compiledGuidelineCache.get((Guideline) null);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_compile_null_list_of_guidelines() {
+        compiledGuidelineCache.get((List<Guideline>) null);
+    }
+}
@@ -0,0 +1,138 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvQuantity;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Compares the heap taken by the values storage of a cohort of lab results, and the time to read one path of
+ * all of them, for data instances keeping their values in a hash map, in an array per instance by column of a
+ * shared {@link DataInstanceSchema}, and in a {@link DataInstanceTable} with an array per column.
+ *
+ * <p>The values are shared by all storages, so the heap measured is the storage overhead only.
+ */
+public class DataInstanceFootprintBenchmark extends TestCommon {
+    private static final int INSTANCES = 500_000;
+    private static volatile Object blackHole;
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.lab_test.v1";
+    private static final String[] PATHS = {
+            "/data/events/time",
+            "/data[at0001]/events[at0002]/data[at0003]/items[at0005]",
+            "/data[at0001]/events[at0002]/data[at0003]/items[at0004]",
+            "/data[at0001]/events[at0002]/data[at0003]/items[at0008]",
+            "/data[at0001]/events[at0002]/data[at0003]/items[at0010]"};
+
+    public static void main(String[] args) throws Exception {
+        new DataInstanceFootprintBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        List<Object[]> values = new ArrayList<>(INSTANCES);
+        for (int index = 0; index < INSTANCES; index++) {
+            values.add(new Object[]{SYNTHETIC_DATE_TIME.minusHours(index),
+                    new DvCodedText("result " + index % 20, "LOINC", "code" + index % 20),
+                    new DvQuantity("mg", index % 300, 1),
+                    new DvCount(index % 5),
+                    index % 2 == 0 ? "normal" : null});
+        }
+        double hashMaps = footprint("hash map per instance", values, this::hashMaps);
+        double rows = footprint("array per instance, shared schema", values, this::rows);
+        double table = footprint("array per column, shared schema", values, this::table);
+        MicroBenchmark.printRatio("heap reduction, array per instance", hashMaps, rows);
+        MicroBenchmark.printRatio("heap reduction, array per column", hashMaps, table);
+
+        double hashMapRead = read("hash map per instance", hashMaps(values));
+        double rowRead = read("array per instance, shared schema", rows(values));
+        double tableRead = read("array per column, shared schema", table(values));
+        MicroBenchmark.printRatio("read speed-up, array per instance", hashMapRead, rowRead);
+        MicroBenchmark.printRatio("read speed-up, array per column", hashMapRead, tableRead);
+        List<Object> column = table(values).column(PATHS[2]);
+        double columnRead = MicroBenchmark.measure("read value, column of table", 5, 20, () -> {
+            double sum = 0;
+            for (Object value : column) {
+                sum += ((DvQuantity) value).getMagnitude();
+            }
+            return sum;
+        });
+        MicroBenchmark.printRatio("read speed-up, column of table", hashMapRead, columnRead);
+    }
+
+    private List<DataInstance> hashMaps(List<Object[]> values) {
+        List<DataInstance> dataInstances = new ArrayList<>(values.size());
+        for (Object[] row : values) {
+            DataInstance.Builder builder = new DataInstance.Builder().modelId(ARCHETYPE);
+            for (int column = 0; column < PATHS.length; column++) {
+                builder.addValue(PATHS[column], row[column]);
+            }
+            dataInstances.add(builder.build());
+        }
+        return dataInstances;
+    }
+
+    private List<DataInstance> rows(List<Object[]> values) {
+        DataInstanceSchema schema = new DataInstanceSchema(ARCHETYPE);
+        List<DataInstance> dataInstances = new ArrayList<>(values.size());
+        for (Object[] row : values) {
+            DataInstance.Builder builder = new DataInstance.Builder(schema);
+            for (int column = 0; column < PATHS.length; column++) {
+                builder.addValue(PATHS[column], row[column]);
+            }
+            dataInstances.add(builder.build());
+        }
+        return dataInstances;
+    }
+
+    private DataInstanceTable table(List<Object[]> values) {
+        DataInstanceTable table = new DataInstanceTable(new DataInstanceSchema(ARCHETYPE));
+        for (Object[] row : values) {
+            Map<String, Object> valuesByPath = new HashMap<>();
+            for (int column = 0; column < PATHS.length; column++) {
+                valuesByPath.put(PATHS[column], row[column]);
+            }
+            table.add(valuesByPath);
+        }
+        return table;
+    }
+
+    private static double footprint(String name, List<Object[]> values, Function<List<Object[]>, Object> storage) {
+        long before = usedHeap();
+        Object stored = storage.apply(values);
+        long bytes = usedHeap() - before;
+        blackHole = stored;
+        System.out.println(String.format(Locale.ROOT, "%-72s %12.1f bytes/instance", name,
+                bytes / (double) values.size()));
+        return bytes;
+    }
+
+    private static double read(String name, Object storage) throws Exception {
+        List<DataInstance> dataInstances = storage instanceof DataInstanceTable
+                ? ((DataInstanceTable) storage).getDataInstances() : castToList(storage);
+        return MicroBenchmark.measure("read value, " + name, 5, 20, () -> {
+            double sum = 0;
+            for (DataInstance dataInstance : dataInstances) {
+                sum += ((DvQuantity) dataInstance.get(PATHS[2])).getMagnitude();
+            }
+            return sum;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DataInstance> castToList(Object storage) {
+        return (List<DataInstance>) storage;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int gc = 0; gc < 3; gc++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,78 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvQuantity;
+import org.testng.annotations.Test;
+
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DataInstanceIndexTest extends TestCommon {
+    private static final String DIAGNOSIS_ARCHETYPE = "openEHR-EHR-EVALUATION.problem-diagnosis.v1";
+    private static final String DIAGNOSIS_CODE = "/data[at0001]/items[at0002.1]";
+    private static final String DIAGNOSIS_DATE = "/data[at0001]/items[at0003]";
+
+    @Test
+    public void can_select_data_instances_of_model_id_in_input_order() {
+        DataInstance weight = toWeight("72.0,kg");
+        DataInstance height = toHeight("180.0,cm");
+        DataInstance secondWeight = toWeight("75.0,kg");
+        DataInstanceIndex dataInstanceIndex = DataInstanceIndex.of(Arrays.asList(weight, height, secondWeight));
+        assertThat(dataInstanceIndex.select(weight.modelId()), is(Arrays.asList(weight, secondWeight)));
+        assertThat(dataInstanceIndex.select(height.modelId()), is(Collections.singletonList(height)));
+        assertThat(dataInstanceIndex.select("openEHR-EHR-OBSERVATION.unknown.v1"), is(empty()));
+    }
+
+    @Test
+    public void can_select_data_instances_added_after_indexed_ones() {
+        DataInstance weight = toWeight("72.0,kg");
+        DataInstance height = toHeight("180.0,cm");
+        DataInstance secondWeight = toWeight("75.0,kg");
+        DataInstanceIndex inputIndex = DataInstanceIndex.of(Arrays.asList(weight, height));
+        DataInstanceIndex dataInstanceIndex = inputIndex.with(Collections.singletonList(secondWeight));
+        assertThat(dataInstanceIndex.select(weight.modelId()), is(Arrays.asList(weight, secondWeight)));
+        assertThat(dataInstanceIndex.select(height.modelId()), sameInstance(inputIndex.select(height.modelId())));
+        assertThat(inputIndex.select(weight.modelId()), is(Collections.singletonList(weight)));
+    }
+
+    @Test
+    public void can_select_data_instances_having_value_at_required_paths() {
+        DataInstance coded = toDiagnosis("I10", "2012-01-01T00:00:00Z");
+        DataInstance notCoded = toDiagnosis(null, "2013-01-01T00:00:00Z");
+        DataInstance notDated = toDiagnosis("I48", null);
+        DataInstanceIndex inputIndex = DataInstanceIndex.of(Arrays.asList(coded, notCoded, notDated));
+        DataInstanceIndex dataInstanceIndex = inputIndex.with(Collections.singletonList(toDiagnosis(null, null)));
+        assertThat(dataInstanceIndex.select(DIAGNOSIS_ARCHETYPE, Collections.singletonList(DIAGNOSIS_CODE)),
+                is(Arrays.asList(coded, notDated)));
+        assertThat(dataInstanceIndex.select(DIAGNOSIS_ARCHETYPE, Arrays.asList(DIAGNOSIS_CODE, DIAGNOSIS_DATE)),
+                is(Collections.singletonList(coded)));
+        assertThat(inputIndex.presence(DIAGNOSIS_ARCHETYPE, DIAGNOSIS_DATE).toString(), is("{0, 1}"));
+        assertThat(inputIndex.presence(DIAGNOSIS_ARCHETYPE, DIAGNOSIS_DATE), sameInstance(inputIndex.presence(DIAGNOSIS_ARCHETYPE, DIAGNOSIS_DATE)));
+    }
+
+    @Test
+    public void can_require_paths_of_is_a_and_max_predicates() throws Exception {
+        CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(loadGuideline("CHA2DS2VASc_diagnosis_review.v1.0.1.gdl2"));
+        List<String> requiredPaths = compiledGuideline.getRequiredPaths("gt0160");
+        assertThat(requiredPaths, is(Arrays.asList(DIAGNOSIS_CODE, DIAGNOSIS_DATE)));
+    }
+
+    private DataInstance toDiagnosis(String code, String dateTime) {
+        DataInstance.Builder builder = new DataInstance.Builder().modelId(DIAGNOSIS_ARCHETYPE)
+                .addValue("/data[at0001]/items[at0002]", new DvQuantity("kg", 1.0, 1));
+        if (code != null) {
+            builder.addValue(DIAGNOSIS_CODE, new DvCodedText(code, "ICD10", code));
+        }
+        if (dateTime != null) {
+            builder.addValue(DIAGNOSIS_DATE, ZonedDateTime.parse(dateTime));
+        }
+        return builder.build();
+    }
+}
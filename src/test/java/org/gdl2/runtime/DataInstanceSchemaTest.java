@@ -0,0 +1,128 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class DataInstanceSchemaTest extends TestCommon {
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.lab_test.v1";
+    private static final String TIME = "/data/events/time";
+    private static final String RESULT = "/data[at0001]/events[at0002]/data[at0003]/items[at0004]";
+    private static final String COUNT = "/data[at0001]/items[at0005]";
+
+    @Test
+    public void can_access_values_stored_by_column() {
+        DataInstanceSchema schema = new DataInstanceSchema(ARCHETYPE);
+        DataInstance dataInstance = new DataInstance.Builder(schema)
+                .id("gt0001")
+                .addValue(RESULT, new DvQuantity("mg", 3.0, 1))
+                .addValue(TIME, null)
+                .build();
+        assertThat(dataInstance.modelId(), is(ARCHETYPE));
+        assertThat(dataInstance.getDvQuantity(RESULT).getMagnitude(), is(3.0));
+        assertThat(dataInstance.contains(TIME), is(false));
+        assertThat(dataInstance.get(COUNT), nullValue());
+        assertThat(dataInstance.size(), is(1));
+        dataInstance.merge(new DataInstance.Builder().modelId(ARCHETYPE).addValue(COUNT, new DvCount(2)).build());
+        dataInstance.setValue(TIME, SYNTHETIC_DATE_TIME);
+        Map<String, Object> expected = new HashMap<>();
+        expected.put(RESULT, new DvQuantity("mg", 3.0, 1));
+        expected.put(COUNT, new DvCount(2));
+        expected.put(TIME, SYNTHETIC_DATE_TIME);
+        assertThat(dataInstance.values(), is(expected));
+        assertThat(dataInstance.valueListMap().get(TIME), is(Collections.singletonList(SYNTHETIC_DATE_TIME)));
+        assertThat(schema.size(), is(3));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_access_missing_value_stored_by_column() {
+        new DataInstance.Builder(new DataInstanceSchema(ARCHETYPE)).addValue(RESULT, new DvCount(1)).build().getDvCount(COUNT);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_not_build_data_instance_of_other_model_id_than_schema() {
+        new DataInstance.Builder(new DataInstanceSchema(ARCHETYPE)).modelId("openEHR-EHR-OBSERVATION.body_weight.v1");
+    }
+
+    @Test
+    public void can_store_data_instances_in_bulk_by_column() {
+        List<DataInstance> dataInstances = new ArrayList<>();
+        for (int index = 0; index < 100; index++) {
+            DataInstance.Builder builder = new DataInstance.Builder().modelId(ARCHETYPE).id("gt" + index);
+            if (index % 3 != 0) {
+                builder.addValue(RESULT, new DvQuantity("mg", index, 1));
+            }
+            if (index >= 50) {
+                builder.addValue(COUNT, new DvCount(index));
+            }
+            dataInstances.add(builder.build());
+        }
+        DataInstanceTable table = new DataInstanceTable(new DataInstanceSchema(ARCHETYPE));
+        List<DataInstance> stored = table.addAll(dataInstances);
+        assertThat(table.size(), is(100));
+        assertThat(table.getDataInstances(), is(stored));
+        for (int index = 0; index < dataInstances.size(); index++) {
+            assertThat(stored.get(index).id(), is(dataInstances.get(index).id()));
+            assertThat(stored.get(index).values(), is(dataInstances.get(index).values()));
+        }
+        assertThat(table.column(COUNT).get(49), nullValue());
+        assertThat(table.column(COUNT).get(50), is(new DvCount(50)));
+        assertThat(table.column(TIME).size(), is(100));
+        stored.get(0).setValue(TIME, SYNTHETIC_DATE_TIME);
+        assertThat(stored.get(0).get(TIME), is(SYNTHETIC_DATE_TIME));
+        assertThat(stored.get(1).contains(TIME), is(false));
+    }
+
+    @Test
+    public void can_share_columns_of_schema_between_data_instances() {
+        DataInstanceSchema schema = new DataInstanceSchema(ARCHETYPE);
+        DataInstance first = new DataInstance.Builder(schema)
+                .addValue(RESULT, new DvQuantity("mg", 1.0, 1))
+                .addValue(TIME, SYNTHETIC_DATE_TIME)
+                .build();
+        DataInstance second = new DataInstance.Builder(schema)
+                .addValue(TIME, SYNTHETIC_DATE_TIME.minusDays(1))
+                .addValue(RESULT, new DvQuantity("mg", 2.0, 1))
+                .build();
+        assertThat(schema.size(), is(2));
+        assertThat(schema.path(schema.columnOf(RESULT)), is(RESULT));
+        assertThat(first.getDvQuantity(RESULT).getMagnitude(), is(1.0));
+        assertThat(second.getDvQuantity(RESULT).getMagnitude(), is(2.0));
+        assertThat(second.get(TIME), is(SYNTHETIC_DATE_TIME.minusDays(1)));
+        second.setValue(COUNT, new DvCount(3));
+        assertThat(schema.size(), is(3));
+        assertThat(first.contains(COUNT), is(false));
+        assertThat(first.size(), is(2));
+        assertThat(second.getDvCount(COUNT), is(new DvCount(3)));
+    }
+
+    @Test
+    public void can_execute_guidelines_with_data_instances_stored_by_column() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        Map<String, DataInstanceTable> tables = new HashMap<>();
+        for (Guideline guideline : loadResourceGuidelines()) {
+            CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(guideline);
+            for (int variant = 0; variant < SYNTHETIC_INPUT_VARIANTS; variant++) {
+                List<DataInstance> input = syntheticInput(guideline, variant);
+                List<DataInstance> stored = new ArrayList<>();
+                for (DataInstance dataInstance : input) {
+                    stored.addAll(tables.computeIfAbsent(dataInstance.modelId(), modelId -> new DataInstanceTable(new DataInstanceSchema(modelId)))
+                            .addAll(Collections.singletonList(dataInstance)));
+                }
+                assertThat(guideline.getId() + " variant " + variant, executionOutcome(interpreter, compiledGuideline, stored),
+                        is(executionOutcome(interpreter, compiledGuideline, input)));
+            }
+        }
+    }
+}
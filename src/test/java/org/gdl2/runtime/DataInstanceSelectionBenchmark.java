@@ -0,0 +1,77 @@
+package org.gdl2.runtime;
+
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Guideline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Compares selecting the data instances of every data binding of the resource guidelines by scanning the
+ * whole input per data binding with selecting them from a {@link DataInstanceIndex}, for growing inputs.
+ */
+public class DataInstanceSelectionBenchmark extends TestCommon {
+    private static final int[] INPUT_SIZES = {100, 1_000, 10_000, 100_000};
+
+    public static void main(String[] args) throws Exception {
+        new DataInstanceSelectionBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        List<Guideline> guidelines = loadResourceGuidelines();
+        List<CompiledGuideline> compiledGuidelines = new GuidelineCompiler().compile(guidelines);
+        int dataBindings = 0;
+        for (Guideline guideline : guidelines) {
+            dataBindings += guideline.getDefinition().getDataBindings() == null ? 0 : guideline.getDefinition().getDataBindings().size();
+        }
+        System.out.println("Guidelines: " + guidelines.size() + ", data bindings: " + dataBindings);
+        for (int inputSize : INPUT_SIZES) {
+            List<DataInstance> input = new ArrayList<>();
+            for (int variant = 0; input.size() < inputSize; variant++) {
+                for (Guideline guideline : guidelines) {
+                    input.addAll(syntheticInput(guideline, variant % SYNTHETIC_INPUT_VARIANTS));
+                }
+            }
+            input = input.subList(0, inputSize);
+            List<DataInstance> instances = input;
+            int iterations = Math.max(5, 2_000_000 / inputSize);
+            double scan = MicroBenchmark.measure(inputSize + " instances, scan per data binding",
+                    iterations / 5, iterations, () -> scan(compiledGuidelines, instances));
+            double indexed = MicroBenchmark.measure(inputSize + " instances, index",
+                    iterations / 5, iterations, () -> select(compiledGuidelines, instances));
+            MicroBenchmark.printRatio(inputSize + " instances, speed-up", scan, indexed);
+        }
+    }
+
+    private int scan(List<CompiledGuideline> compiledGuidelines, List<DataInstance> input) {
+        int selected = 0;
+        for (CompiledGuideline compiledGuideline : compiledGuidelines) {
+            for (DataBinding dataBinding : dataBindings(compiledGuideline).values()) {
+                selected += input.stream()
+                        .filter(dataInstance -> dataBinding.getModelId().equals(dataInstance.modelId()))
+                        .collect(Collectors.toList())
+                        .size();
+            }
+        }
+        return selected;
+    }
+
+    private int select(List<CompiledGuideline> compiledGuidelines, List<DataInstance> input) {
+        DataInstanceIndex dataInstanceIndex = DataInstanceIndex.of(input);
+        int selected = 0;
+        for (CompiledGuideline compiledGuideline : compiledGuidelines) {
+            for (Map.Entry<String, DataBinding> entry : dataBindings(compiledGuideline).entrySet()) {
+                selected += dataInstanceIndex.select(entry.getValue().getModelId(), compiledGuideline.getRequiredPaths(entry.getKey())).size();
+            }
+        }
+        return selected;
+    }
+
+    private static Map<String, DataBinding> dataBindings(CompiledGuideline compiledGuideline) {
+        Map<String, DataBinding> dataBindings = compiledGuideline.getGuideline().getDefinition().getDataBindings();
+        return dataBindings == null ? Collections.emptyMap() : dataBindings;
+    }
+}
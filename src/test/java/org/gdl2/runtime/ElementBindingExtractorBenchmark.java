@@ -0,0 +1,61 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import com.jayway.jsonpath.JsonPath;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.Template;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares reading the element bindings of an output template by json path from the json of the filled object
+ * with reading them by the compiled accessors of {@link ElementBindingExtractor}.
+ */
+public class ElementBindingExtractorBenchmark extends TestCommon {
+    public static void main(String[] args) throws Exception {
+        new ElementBindingExtractorBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, Object> definingCode = new LinkedHashMap<>();
+        definingCode.put("terminology", "ATC");
+        definingCode.put("code", "C10AA");
+        Map<String, Object> coded = new LinkedHashMap<>();
+        coded.put("value", "Statin");
+        coded.put("definingCode", definingCode);
+        Map<String, Object> quantity = new LinkedHashMap<>();
+        quantity.put("value", 80.5);
+        quantity.put("unit", "mg");
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("id", "medication-1");
+        object.put("medication", coded);
+        object.put("valueQuantity", quantity);
+        object.put("status", "active");
+        List<ElementBinding> elementBindings = Arrays.asList(new ElementBinding("/id", null), new ElementBinding("/medication", "DV_CODED_TEXT"),
+                new ElementBinding("/valueQuantity/value", null), new ElementBinding("/status", "DV_TEXT"));
+        Template template = new Template("gt2000", null, "model", null, object, elementBindings);
+        ElementBindingExtractor extractor = new ElementBindingExtractor(template);
+        double jsonPath = MicroBenchmark.measure("4 element bindings, json path", 20_000, 100_000, () -> {
+            DataInstance dataInstance = new DataInstance.Builder().id(template.getId()).modelId(template.getModelId()).addValue("/", object).build();
+            Gson gson = new Gson();
+            String json = gson.toJson(object);
+            for (ElementBinding elementBinding : elementBindings) {
+                Object value = JsonPath.read(json, "$" + elementBinding.getPath().replaceAll("/", "."));
+                if ("DV_CODED_TEXT".equals(elementBinding.getType())) {
+                    value = gson.fromJson(gson.toJson(value), DvCodedText.class);
+                } else if ("DV_TEXT".equals(elementBinding.getType())) {
+                    value = DvText.valueOf(value.toString());
+                }
+                dataInstance.setValue(elementBinding.getPath(), value);
+            }
+            return dataInstance;
+        });
+        double compiled = MicroBenchmark.measure("4 element bindings, compiled accessors", 20_000, 100_000, () -> extractor.extract(object));
+        MicroBenchmark.printRatio("speed-up, compiled accessors", jsonPath, compiled);
+    }
+}
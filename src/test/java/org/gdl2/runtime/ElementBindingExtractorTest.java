@@ -0,0 +1,134 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import com.jayway.jsonpath.JsonPath;
+import com.jayway.jsonpath.PathNotFoundException;
+import org.gdl2.datatypes.CodePhrase;
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.datatypes.DvText;
+import org.gdl2.model.ElementBinding;
+import org.gdl2.model.Template;
+import org.testng.annotations.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.core.Is.is;
+
+public class ElementBindingExtractorTest extends TestCommon {
+    private static final String[] PATHS = {"", "/text", "/integer", "/long", "/double", "/precise", "/flag", "/nested", "/nested/code",
+        "/nested/list", "/nested/list[1]", "/nested/list[2]", "/matrix[1][0]", "/quantity", "/quantity/magnitude", "/coded",
+        "/codedObject", "/codedNumber", "/missing", "/nothing", "/text/more", "/list[9]", "/nested//code", "/$weird"};
+    private static final String[] TYPES = {null, "DV_TEXT", "DV_CODED_TEXT"};
+
+    @Test
+    public void can_extract_same_values_as_json_path_on_json_of_object() {
+        Map<String, Object> object = object();
+        int extracted = 0;
+        for (String path : PATHS) {
+            for (String type : TYPES) {
+                Template template = template(null, new ElementBinding(path, type));
+                Object expected = jsonPathValueOrFailure(object, path, type);
+                Object actual = extractedValueOrFailure(template, object, path);
+                assertThat(path + " " + type, actual, is(expected));
+                extracted += expected instanceof Class ? 0 : 1;
+            }
+        }
+        assertThat(extracted > PATHS.length, is(true));
+    }
+
+    @Test
+    public void can_extract_values_of_named_object() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("medication", object());
+        Template template = template("medication", new ElementBinding("/text", "DV_TEXT"), new ElementBinding("/coded", "DV_CODED_TEXT"),
+                new ElementBinding("/nested/list[1]", null));
+        DataInstance dataInstance = new ElementBindingExtractor(template).extract(object);
+        assertThat(dataInstance.getRoot(), is(object));
+        assertThat(dataInstance.get("/text"), is(new DvText("aspirin")));
+        assertThat(dataInstance.get("/coded"), is(new DvCodedText("Statin", new CodePhrase("ATC", "C10AA"))));
+        assertThat(dataInstance.get("/nested/list[1]"), is(2.5));
+    }
+
+    @Test
+    public void can_extract_values_as_parsed_from_json() {
+        Map<String, Object> object = object();
+        ElementBindingExtractor extractor = new ElementBindingExtractor(template(null, new ElementBinding("/long", null),
+                new ElementBinding("/precise", null), new ElementBinding("/nested", null)));
+        DataInstance dataInstance = extractor.extract(object);
+        assertThat(dataInstance.get("/long"), is(7));
+        assertThat(dataInstance.get("/precise"), instanceOf(BigDecimal.class));
+        assertThat(((Map) dataInstance.get("/nested")).containsKey("nothing"), is(false));
+    }
+
+    @Test(expectedExceptions = PathNotFoundException.class)
+    public void can_fail_as_json_path_on_missing_value() {
+        new ElementBindingExtractor(template(null, new ElementBinding("/missing", null))).extract(object());
+    }
+
+    private static Map<String, Object> object() {
+        Map<String, Object> nested = new LinkedHashMap<>();
+        nested.put("code", "C10AA");
+        nested.put("nothing", null);
+        nested.put("list", Arrays.asList("first", 2.5, null));
+        Map<String, Object> definingCode = new LinkedHashMap<>();
+        definingCode.put("terminology", "ATC");
+        definingCode.put("code", "C10AA");
+        Map<String, Object> coded = new LinkedHashMap<>();
+        coded.put("value", "Statin");
+        coded.put("definingCode", definingCode);
+        coded.put("extra", 1.0);
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("text", "aspirin");
+        object.put("integer", 80);
+        object.put("long", 7L);
+        object.put("double", 80.5);
+        object.put("precise", 0.1 + 0.2);
+        object.put("flag", true);
+        object.put("nested", nested);
+        object.put("matrix", Arrays.asList(Collections.singletonList(1.0), Collections.singletonList(new ArrayList<>())));
+        object.put("quantity", new DvQuantity("mg", 80.0, 1));
+        object.put("coded", coded);
+        object.put("codedObject", new DvCodedText("Statin", "ATC", "C10AA"));
+        object.put("codedNumber", Collections.singletonMap("value", 1.0));
+        object.put("nothing", null);
+        return object;
+    }
+
+    private static Template template(String name, ElementBinding... elementBindings) {
+        return new Template("gt2000", name, "model", null, Collections.emptyMap(), Arrays.asList(elementBindings));
+    }
+
+    /*
+     * value of the element binding as read before compiled accessors, or the class of the failure
+     */
+    private static Object jsonPathValueOrFailure(Object object, String path, String type) {
+        try {
+            Gson gson = new Gson();
+            Object value = JsonPath.read(gson.toJson(object), "$" + path.replaceAll("/", "."));
+            if ("DV_CODED_TEXT".equals(type)) {
+                value = gson.fromJson(gson.toJson(value), DvCodedText.class);
+            } else if ("DV_TEXT".equals(type)) {
+                value = DvText.valueOf(value.toString());
+            }
+            return value;
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+
+    private static Object extractedValueOrFailure(Template template, Object object, String path) {
+        try {
+            return new ElementBindingExtractor(template).extract(object).get(path);
+        } catch (RuntimeException e) {
+            return e.getClass();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class ExecutionPlanTest extends TestCommon {
+    private final GuidelineCompiler guidelineCompiler = new GuidelineCompiler();
+
+    @Test
+    public void can_move_guideline_creating_object_before_guideline_using_it() throws Exception {
+        List<CompiledGuideline> compiledGuidelines = guidelineCompiler.compile(Arrays.asList(
+                loadGuideline("use_template_with_ordinal_test5.v0.1.gdl2"),
+                loadGuideline(BSA_CALCULATION),
+                loadGuideline("use_template_with_ordinal_test3.v0.1.gdl2"),
+                loadGuideline("DAS28-ESR_Calculation.v1.gdl2")));
+        ExecutionPlan executionPlan = ExecutionPlan.of(compiledGuidelines, false);
+        assertThat(executionPlan.getGuidelines(), is(Arrays.asList(
+                compiledGuidelines.get(1), compiledGuidelines.get(2), compiledGuidelines.get(0), compiledGuidelines.get(3))));
+        assertThat(executionPlan.getStages().stream().map(Arrays::toString).collect(Collectors.toList()),
+                is(Arrays.asList("[0, 1, 3]", "[2]")));
+    }
+
+    @Test
+    public void can_keep_given_order_of_guidelines_depending_on_each_other() throws Exception {
+        List<CompiledGuideline> compiledGuidelines = guidelineCompiler.compile(Arrays.asList(
+                loadGuideline("use_template_with_ordinal_test3.v0.1.gdl2"),
+                loadGuideline("use_template_with_ordinal_test4.v0.1.gdl2"),
+                loadGuideline("use_template_with_ordinal_test3.v0.1.gdl2"),
+                loadGuideline("use_template_with_ordinal_test5.v0.1.gdl2")));
+        ExecutionPlan executionPlan = ExecutionPlan.of(compiledGuidelines, false);
+        assertThat(executionPlan.getGuidelines(), is(compiledGuidelines));
+        assertThat(executionPlan.getStages().size(), is(4));
+    }
+
+    @Test
+    public void can_execute_guideline_using_object_created_by_guideline_given_after_it() throws Exception {
+        List<Guideline> guidelines = Arrays.asList(
+                loadGuideline("use_template_with_ordinal_test5.v0.1.gdl2"),
+                loadGuideline("use_template_with_ordinal_test4.v0.1.gdl2"));
+        List<DataInstance> output = new Interpreter().executeGuidelines(guidelines, new ArrayList<>());
+        Gson gson = new Gson();
+        assertThat(output.stream().map(dataInstance -> gson.fromJson(gson.toJson(dataInstance.getRoot()), DvOrdinal.class).toString())
+                        .collect(Collectors.toList()),
+                is(Arrays.asList("4|ATC::C10AA05|atorvastatin|", "5|ATC::C10AA05|atorvastatin|")));
+    }
+
+    @Test
+    public void can_execute_independent_guidelines_in_parallel_in_given_order() throws Exception {
+        Interpreter parallelInterpreter = new Interpreter(RuntimeConfiguration.builder()
+                .currentDateTime(SYNTHETIC_DATE_TIME)
+                .parallelGuidelineExecution(true)
+                .build());
+        Guideline bsaCalculation = loadGuideline(BSA_CALCULATION);
+        Guideline createOrdinal = loadGuideline("use_template_with_ordinal_test4.v0.1.gdl2");
+        List<Guideline> guidelines = Arrays.asList(bsaCalculation, createOrdinal);
+        assertThat(ExecutionPlan.of(guidelineCompiler.compile(guidelines), false).getStages().size(), is(1));
+        Interpreter.ExecutionOutput output = parallelInterpreter.executeGuidelinesAndGetFiredRules(guidelines,
+                Arrays.asList(toWeight("72.0,kg"), toHeight("180.0,cm")));
+        assertThat(new ArrayList<>(output.getFiredRules().keySet()), is(Arrays.asList(bsaCalculation.getId(), createOrdinal.getId())));
+        assertThat(output.getResult().size(), is(2));
+        assertThat(output.getResult().get(0).modelId(), is("openEHR-EHR-OBSERVATION.body_surface_area.v1"));
+        Gson gson = new Gson();
+        assertThat(gson.fromJson(gson.toJson(output.getResult().get(1).getRoot()), DvOrdinal.class).toString(), is("4|ATC::C10AA05|atorvastatin|"));
+    }
+
+    @Test
+    public void can_reuse_plan_while_executing_same_guidelines() throws Exception {
+        Interpreter interpreter = new Interpreter();
+        List<CompiledGuideline> compiledGuidelines = guidelineCompiler.compile(Arrays.asList(
+                loadGuideline(BSA_CALCULATION), loadGuideline("use_template_with_ordinal_test4.v0.1.gdl2")));
+        ExecutionPlan executionPlan = interpreter.executionPlan(compiledGuidelines);
+        assertThat(interpreter.executionPlan(new ArrayList<>(compiledGuidelines)), sameInstance(executionPlan));
+        assertThat(interpreter.executionPlan(Arrays.asList(compiledGuidelines.get(1), compiledGuidelines.get(0))),
+                not(sameInstance(executionPlan)));
+    }
+
+    @Test
+    public void can_execute_guidelines_in_parallel_with_same_result() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        Interpreter parallelInterpreter = new Interpreter(RuntimeConfiguration.builder()
+                .currentDateTime(SYNTHETIC_DATE_TIME)
+                .parallelGuidelineExecution(true)
+                .build());
+        List<Guideline> guidelines = new ArrayList<>();
+        List<DataInstance> input = new ArrayList<>();
+        for (Guideline guideline : loadResourceGuidelines()) {
+            List<DataInstance> guidelineInput = syntheticInput(guideline, 1);
+            if (!(executionOutcome(interpreter, guidelineCompiler.compile(guideline), guidelineInput) instanceof String)) {
+                guidelines.add(guideline);
+                input.addAll(guidelineInput);
+            }
+        }
+        assertThat(guidelines.size(), greaterThan(50));
+        List<CompiledGuideline> compiledGuidelines = guidelineCompiler.compile(guidelines);
+        assertThat(ExecutionPlan.of(compiledGuidelines, false).getStages().size(), greaterThan(1));
+        for (int run = 0; run < 5; run++) {
+            assertThat(outcome(parallelInterpreter.executeGuidelinesAndGetFiredRules(guidelines, input)),
+                    is(outcome(interpreter.executeGuidelinesAndGetFiredRules(guidelines, input))));
+        }
+    }
+
+    private String outcome(Interpreter.ExecutionOutput executionOutput) {
+        return executionOutput.getFiredRules() + " " + executionOutput.getResult().stream()
+                .map(dataInstance -> new TreeMap<String, Object>(dataInstance.values()).toString())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,164 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCodedText;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.ConstantExpression;
+import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.LongExpression;
+import org.gdl2.expression.Variable;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+
+public class ExpressionCompilerTest extends TestCommon {
+    private ExpressionCompiler expressionCompiler;
+    private Interpreter interpreter;
+    private Map<String, List<Object>> inputMap;
+    private Set<String> firedRules;
+
+    @BeforeMethod
+    public void setUp() {
+        expressionCompiler = new ExpressionCompiler();
+        interpreter = new Interpreter();
+        inputMap = new HashMap<>();
+        inputMap.put("gt0005", asList(new DvQuantity("kg", 72.0, 1)));
+        inputMap.put("gt0006", asList(new DvQuantity("cm", 180, 1)));
+        inputMap.put("gt0009", asList(DvOrdinal.valueOf("1|local::at0001|Text one|")));
+        inputMap.put("gt0010", asList(DvOrdinal.valueOf("2|local::at0002|Text two|")));
+        inputMap.put("gt0011", asList(new DvCount(3)));
+        inputMap.put("gt0012", asList(new DvCodedText("Hypertension", "ICD10", "I10")));
+        inputMap.put("gt0013", asList(true));
+        firedRules = new HashSet<>();
+        firedRules.add("gt0100");
+    }
+
+    @Test
+    public void can_evaluate_complex_arithmetic_expression() {
+        Object value = evaluateCompiled("(($gt0005.magnitude*$gt0006.magnitude)/3600)^0.5");
+        assertThat(value, instanceOf(Double.class));
+        assertThat((Double) value, closeTo(1.90, 0.1));
+    }
+
+    @Test
+    public void can_evaluate_same_as_interpreter() {
+        List<String> expressions = Arrays.asList(
+                "(($gt0005.magnitude*$gt0006.magnitude)/3600)^0.5",
+                "$gt0009.value+$gt0010.value",
+                "$gt0009.value+$gt0010.value*2-1",
+                "$gt0005.magnitude>70&&$gt0006.magnitude<=180",
+                "$gt0005.magnitude<70||$gt0013==true",
+                "$gt0005>(70,kg)",
+                "$gt0005==(72.0,kg)",
+                "$gt0011.magnitude>=3",
+                "$gt0011==3",
+                "$gt0012==null",
+                "$gt0099==null",
+                "$gt0099!=null",
+                "!($gt0013==true)",
+                "$gt0012==(ICD10::I10|Hypertension|)",
+                "$gt0009.value+$gt0010.value==3",
+                "'a'+'b'",
+                "fired($gt0100)",
+                "!fired($gt0100)",
+                "floor($gt0005.magnitude/7)",
+                "round($gt0005.magnitude/7)",
+                "$gt0005.count",
+                "$gt0099.count");
+        for (String expression : expressions) {
+            ExpressionItem expressionItem = parseExpression(expression);
+            Object expected = interpreter.evaluateExpressionItem(expressionItem, inputMap, null, firedRules);
+            Object actual = expressionCompiler.compile(expressionItem).evaluate(context());
+            assertThat(expression, actual, is(expected));
+        }
+    }
+
+    @Test
+    public void can_evaluate_numeric_operators_on_doubles_same_as_interpreter() {
+        List<String> expressions = Arrays.asList(
+                "$gt0011+1",
+                "$gt0011*2+$gt0009.value*3-$gt0010.value/4",
+                "0.56*sqrt($gt0005.magnitude)+0.28*sqrt($gt0006.magnitude)+0.7*log($gt0011.magnitude)",
+                "round($gt0005.magnitude/7)*2",
+                "$gt0011*2>=$gt0010.value+4",
+                "$gt0005+1",
+                "$gt0005>(70,kg)",
+                "'a'+'b'+'c'",
+                "$gt0099.magnitude<3");
+        for (String expression : expressions) {
+            ExpressionItem expressionItem = parseExpression(expression);
+            Object expected = interpreter.evaluateExpressionItem(expressionItem, inputMap, null, firedRules);
+            Object actual = expressionCompiler.compile(expressionItem).evaluate(context());
+            assertThat(expression, actual, is(expected));
+        }
+    }
+
+    @Test(expectedExceptions = CompiledExpression.NotNumeric.class)
+    public void can_signal_non_numeric_value_when_evaluating_double() {
+        expressionCompiler.compile(parseExpression("$gt0009.value+$gt0012")).evaluateDouble(context());
+    }
+
+    @Test
+    public void can_evaluate_chain_with_value_that_is_not_a_number_reading_each_variable_at_most_twice() {
+        Map<String, Integer> reads = new HashMap<>();
+        interpreter = new Interpreter() {
+            @Override
+            Object retrieveValueFromValueMap(Variable variable, String key, Map<String, List<Object>> valueMap, AttributeAccessors.Site site) {
+                reads.merge(key, 1, Integer::sum);
+                return super.retrieveValueFromValueMap(variable, key, valueMap, site);
+            }
+        };
+        Object value = evaluateCompiled("(((((($gt0005+1)*2)-3)/$gt0006.magnitude)+$gt0009.value)*10)>=17");
+        assertThat(value, is(true));
+        reads.clear();
+        value = evaluateCompiled("((((($gt0005+1)*2)-3)/$gt0006.magnitude)+$gt0009.value)*10");
+        assertThat((Double) value, closeTo((143.0 / 180 + 1) * 10, 1e-9));
+        assertThat(reads.get("gt0005"), is(2));
+        assertThat(reads.get("gt0006"), is(1));
+        assertThat(reads.get("gt0009"), is(1));
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void can_report_null_value_in_arithmetic_expression_at_evaluation() {
+        evaluateCompiled("$gt0098.magnitude+$gt0099.magnitude");
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void can_report_unsupported_operator_at_evaluation() {
+        evaluateCompiled("$gt0009.value%2");
+    }
+
+    @Test(expectedExceptions = ClassCastException.class)
+    public void can_report_malformed_long_expression_at_evaluation() {
+        LongExpression longExpression = new LongExpression(singletonList(new LongExpression.OperandPair(parseExpression("$gt0005"), null)));
+        CompiledExpression compiledExpression = expressionCompiler.compile(longExpression);
+        compiledExpression.evaluate(context());
+    }
+
+    @Test(expectedExceptions = NullPointerException.class)
+    public void can_report_constant_without_value_at_evaluation() {
+        CompiledExpression compiledExpression = expressionCompiler.compile(new ConstantExpression(null));
+        compiledExpression.evaluate(context());
+    }
+
+    private Object evaluateCompiled(String expression) {
+        return expressionCompiler.compile(parseExpression(expression)).evaluate(context());
+    }
+
+    private EvaluationContext context() {
+        return new EvaluationContext(interpreter, inputMap, null, firedRules);
+    }
+}
@@ -0,0 +1,51 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvOrdinal;
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.expression.ExpressionItem;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares tree-walking evaluation of expressions by the interpreter with evaluation of the same
+ * expressions compiled by {@link ExpressionCompiler}.
+ */
+public class ExpressionEvaluationBenchmark extends TestCommon {
+    private static final int WARM_UP = 200_000;
+    private static final int ITERATIONS = 1_000_000;
+
+    public static void main(String[] args) throws Exception {
+        ExpressionEvaluationBenchmark benchmark = new ExpressionEvaluationBenchmark();
+        benchmark.run("(($gt0005.magnitude*$gt0006.magnitude)/3600)^0.5");
+        benchmark.run("$gt0001.value+$gt0002.value+$gt0003.value+$gt0004.value*2+$gt0007.value");
+        benchmark.run("$gt0011*2+$gt0012-1>=2&&$gt0011<10");
+        benchmark.run("0.56*sqrt($gt0001.value)+0.28*sqrt($gt0002.value)+0.7*log($gt0005.magnitude)+0.014*$gt0006.magnitude");
+    }
+
+    private void run(String expression) throws Exception {
+        Interpreter interpreter = new Interpreter();
+        Map<String, List<Object>> input = input();
+        ExpressionItem expressionItem = parseExpression(expression);
+        CompiledExpression compiledExpression = new ExpressionCompiler().compile(expressionItem);
+        EvaluationContext context = new EvaluationContext(interpreter, input, null, null);
+        double baseline = MicroBenchmark.measure(expression + " interpreted",
+                WARM_UP, ITERATIONS, () -> interpreter.evaluateExpressionItem(expressionItem, input, null, null));
+        double compiled = MicroBenchmark.measure(expression + " compiled",
+                WARM_UP, ITERATIONS, () -> compiledExpression.evaluate(context));
+        MicroBenchmark.printRatio(expression + " speed-up", baseline, compiled);
+    }
+
+    private Map<String, List<Object>> input() {
+        Map<String, List<Object>> input = new HashMap<>();
+        input.put("gt0005", asList(new DvQuantity("kg", 72.0, 1)));
+        input.put("gt0006", asList(new DvQuantity("cm", 180, 1)));
+        for (String code : new String[] {"gt0001", "gt0002", "gt0003", "gt0004", "gt0007"}) {
+            input.put(code, asList(DvOrdinal.valueOf("1|local::at0001|Present|")));
+        }
+        input.put("gt0011", asList(2.0));
+        input.put("gt0012", asList(1));
+        return input;
+    }
+}
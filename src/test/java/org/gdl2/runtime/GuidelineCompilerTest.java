@@ -0,0 +1,70 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class GuidelineCompilerTest extends TestCommon {
+    private static final String BSA_VALUE_PATH = "/data[at0001]/events[at0002]/data[at0003]/items[at0004]";
+    private GuidelineCompiler guidelineCompiler;
+    private Interpreter interpreter;
+    private List<DataInstance> dataInstances;
+
+    @BeforeMethod
+    public void setUp() {
+        guidelineCompiler = new GuidelineCompiler();
+        interpreter = new Interpreter();
+        dataInstances = new ArrayList<>();
+        dataInstances.add(toWeight("72.0,kg"));
+        dataInstances.add(toHeight("180.0,cm"));
+    }
+
+    @Test
+    public void can_sort_rules_by_priority() throws Exception {
+        CompiledGuideline compiledGuideline = guidelineCompiler.compile(loadGuideline("BSA_Calculation.v1.gdl2"));
+        List<String> ruleIds = compiledGuideline.getRules().stream()
+                .map(CompiledRule::getId)
+                .collect(Collectors.toList());
+        assertThat(ruleIds, contains("gt0009", "gt0016", "gt0017"));
+    }
+
+    @Test
+    public void can_collect_assignable_codes() throws Exception {
+        CompiledGuideline compiledGuideline = guidelineCompiler.compile(loadGuideline("BSA_Calculation.v1.gdl2"));
+        assertThat(compiledGuideline.getAssignableCodes(), containsInAnyOrder("gt0004", "gt0013", "gt0014"));
+    }
+
+    @Test
+    public void can_execute_compiled_guideline_repeatedly() throws Exception {
+        CompiledGuideline compiledGuideline = guidelineCompiler.compile(loadGuideline(BSA_CALCULATION));
+        for (int i = 0; i < 3; i++) {
+            Interpreter.ExecutionOutput output = interpreter.execute(compiledGuideline, dataInstances);
+            assertThat(output.getFiredRules().get(compiledGuideline.getId()).contains("gt0009"), is(true));
+            DvQuantity dvQuantity = output.getResult().get(0).getDvQuantity(BSA_VALUE_PATH);
+            assertThat(dvQuantity.getMagnitude(), closeTo(1.90, 0.1));
+            assertThat(dvQuantity.getUnit(), is("m2"));
+        }
+    }
+
+    @Test
+    public void can_execute_compiled_guidelines_with_same_result_as_guidelines() throws Exception {
+        Guideline guideline = loadGuideline(BSA_CALCULATION);
+        List<DataInstance> expected = interpreter.executeGuidelines(singletonList(guideline), dataInstances);
+        List<DataInstance> actual = interpreter.executeCompiledGuidelines(
+                guidelineCompiler.compile(singletonList(guideline)), dataInstances);
+        assertThat(actual.size(), is(expected.size()));
+        assertThat(actual.get(0).values(), is(expected.get(0).values()));
+    }
+}
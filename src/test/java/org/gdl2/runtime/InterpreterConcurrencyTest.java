@@ -0,0 +1,138 @@
+package org.gdl2.runtime;
+
+import org.gdl2.cdshooks.Card;
+import org.gdl2.cdshooks.Link;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class InterpreterConcurrencyTest extends TestCommon {
+    private static final int THREADS = 64;
+
+    @Test
+    public void can_share_interpreter_between_threads_with_different_execution_contexts() throws Exception {
+        Interpreter interpreter = new Interpreter(RuntimeConfiguration.builder().ruleNetworkEnabled(true).build());
+        ExecutionContext[] executionContexts = {
+                ExecutionContext.builder().currentDateTime(SYNTHETIC_DATE_TIME).build(),
+                ExecutionContext.builder().currentDateTime(SYNTHETIC_DATE_TIME.plusYears(30)).language("sv").build()};
+        GuidelineCompiler guidelineCompiler = new GuidelineCompiler();
+        List<CompiledGuideline> compiledGuidelines = new ArrayList<>();
+        List<List<DataInstance>> inputs = new ArrayList<>();
+        List<Object> expectedOutcomes = new ArrayList<>();
+        for (Guideline guideline : loadResourceGuidelines()) {
+            CompiledGuideline compiledGuideline = guidelineCompiler.compile(guideline);
+            for (int variant = 0; variant < SYNTHETIC_INPUT_VARIANTS; variant += 3) {
+                List<DataInstance> input = syntheticInput(guideline, variant);
+                for (ExecutionContext executionContext : executionContexts) {
+                    compiledGuidelines.add(compiledGuideline);
+                    inputs.add(input);
+                    expectedOutcomes.add(executionOutcome(interpreter, compiledGuideline, input, executionContext));
+                }
+            }
+        }
+        assertThat(expectedOutcomes.size(), greaterThan(200));
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                final int offset = thread;
+                Callable<List<String>> task = () -> {
+                    List<String> mismatches = new ArrayList<>();
+                    for (int count = 0; count < expectedOutcomes.size(); count++) {
+                        int index = (offset * 7 + count) % expectedOutcomes.size();
+                        Object outcome = executionOutcome(interpreter, compiledGuidelines.get(index), inputs.get(index),
+                                executionContexts[index % executionContexts.length]);
+                        if (!outcome.equals(expectedOutcomes.get(index))) {
+                            mismatches.add(compiledGuidelines.get(index).getGuideline().getId() + " " + index);
+                        }
+                    }
+                    return mismatches;
+                };
+                futures.add(executorService.submit(task));
+            }
+            for (Future<List<String>> future : futures) {
+                assertThat(future.get(), is(new ArrayList<String>()));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void can_use_language_of_each_execution_context_on_shared_interpreter() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        List<CompiledGuideline> compiledGuidelines = new GuidelineCompiler().compile(
+                loadSingleGuideline("BSA_Calculation_cdshooks_test.v1.gdl2"));
+        List<DataInstance> input = Arrays.asList(toWeight("72.0,kg"), toHeight("180.0,cm"));
+        ExecutionContext[] executionContexts = {
+                ExecutionContext.builder().language("en").build(),
+                ExecutionContext.builder().language("sv").build()};
+        String[] summaries = {"BSA summary", "BSA sammanfattning"};
+        ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                ExecutionContext executionContext = executionContexts[thread % executionContexts.length];
+                futures.add(executorService.submit(() -> {
+                    List<Card> cards = interpreter.executeCompiledCdsHooksGuidelines(compiledGuidelines, input, executionContext);
+                    return cards.get(0).getSummary();
+                }));
+            }
+            for (int thread = 0; thread < THREADS; thread++) {
+                assertThat(futures.get(thread).get(), is(summaries[thread % summaries.length]));
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void can_use_runtime_configuration_for_values_missing_in_execution_context() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        GuidelineCompiler guidelineCompiler = new GuidelineCompiler();
+        for (Guideline guideline : loadResourceGuidelines()) {
+            CompiledGuideline compiledGuideline = guidelineCompiler.compile(guideline);
+            List<DataInstance> input = syntheticInput(guideline, 1);
+            assertThat(guideline.getId(), executionOutcome(interpreter, compiledGuideline, input, ExecutionContext.builder().build()),
+                    is(executionOutcome(interpreter, compiledGuideline, input)));
+        }
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_not_modify_loaded_guideline() throws Exception {
+        Map<String, ?> dataBindings = loadGuideline(BSA_CALCULATION).getDefinition().getDataBindings();
+        dataBindings.clear();
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void can_not_modify_links_of_loaded_guideline() throws Exception {
+        List<Link> links = loadGuideline("cdshooks_card_referenced_link_test.v0.1.gdl2").getDefinition().getRules()
+                .get("gt0034").getCards().get(0).getLinks();
+        links.set(0, links.get(0).toBuilder().urlReference("$ref[2].url").build());
+    }
+
+    @Test
+    public void can_override_url_of_loaded_link_on_copy_only() throws Exception {
+        Link link = loadGuideline("cdshooks_card_referenced_link_test.v0.1.gdl2").getDefinition().getRules()
+                .get("gt0034").getCards().get(0).getLinks().get(0);
+        Link overridden = link.toBuilder().url(new URL("https://example.org/guideline")).build();
+        assertThat(overridden.getUrl().toString(), is("https://example.org/guideline"));
+        assertThat(overridden.getLabelReference(), is("$ref[1].label"));
+        assertThat(link.getUrl(), is(nullValue()));
+        assertThat(Arrays.stream(Link.class.getMethods()).anyMatch(method -> method.getName().startsWith("set")), is(false));
+    }
+}
@@ -0,0 +1,44 @@
+package org.gdl2.runtime;
+
+import java.util.Locale;
+
+/**
+ * Minimal timing harness for the *Benchmark classes, which are run by hand through their main methods
+ * and are not part of the unit test suite.
+ */
+public final class MicroBenchmark {
+    private static volatile Object blackHole;
+
+    private MicroBenchmark() {
+    }
+
+    /**
+     * Runs the task for the warm-up iterations, then measures and prints the average time of the measured iterations.
+     *
+     * @param name       printed name of the measurement
+     * @param warmUp     number of iterations before measuring
+     * @param iterations number of measured iterations
+     * @param task       the task to measure
+     * @return average nanoseconds per iteration
+     */
+    public static double measure(String name, int warmUp, int iterations, Task task) throws Exception {
+        for (int i = 0; i < warmUp; i++) {
+            blackHole = task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            blackHole = task.run();
+        }
+        double nanosPerIteration = (System.nanoTime() - start) / (double) iterations;
+        System.out.println(String.format(Locale.ROOT, "%-72s %12.1f us/op", name, nanosPerIteration / 1000));
+        return nanosPerIteration;
+    }
+
+    public static void printRatio(String name, double baseline, double improved) {
+        System.out.println(String.format(Locale.ROOT, "%-72s %12.2fx", name, baseline / improved));
+    }
+
+    public interface Task {
+        Object run() throws Exception;
+    }
+}
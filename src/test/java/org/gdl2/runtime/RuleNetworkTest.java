@@ -0,0 +1,84 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvQuantity;
+import org.gdl2.model.Guideline;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+
+public class RuleNetworkTest extends TestCommon {
+    private static final String RULE_NETWORK_TEST = "Rule_network_test.v1.gdl2";
+
+    @Test
+    public void can_share_identical_when_statements_across_rules() throws Exception {
+        CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(loadGuideline(RULE_NETWORK_TEST));
+        assertThat(compiledGuideline.getRuleNetwork().getConditionCount(), is(4));
+    }
+
+    @Test
+    public void can_fire_same_rules_testing_shared_condition_once() throws Exception {
+        CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(loadGuideline(RULE_NETWORK_TEST));
+        Set<String> expectedFiredRules = new LinkedHashSet<>(Arrays.asList("gt0020", "gt0022", "gt0023"));
+        for (boolean ruleNetworkEnabled : new boolean[]{false, true}) {
+            AtomicInteger magnitudeReads = new AtomicInteger();
+            Interpreter interpreter = new Interpreter(RuntimeConfiguration.builder()
+                    .ruleNetworkEnabled(ruleNetworkEnabled)
+                    .attributeAccessors(singletonMap(DvQuantity.class, singletonMap("magnitude", dataValue -> {
+                        magnitudeReads.incrementAndGet();
+                        return ((DvQuantity) dataValue).getMagnitude();
+                    })))
+                    .build());
+            Interpreter.ExecutionOutput output = interpreter.execute(compiledGuideline, singletonList(toWeight("72.0,kg")));
+            assertThat(output.getFiredRules().get("Rule_network_test.v1"), is(expectedFiredRules));
+            assertThat(magnitudeReads.get(), is(ruleNetworkEnabled ? 1 : 4));
+        }
+    }
+
+    @Test
+    public void can_fire_no_rules_when_shared_condition_is_false() throws Exception {
+        CompiledGuideline compiledGuideline = new GuidelineCompiler().compile(loadGuideline(RULE_NETWORK_TEST));
+        AtomicInteger magnitudeReads = new AtomicInteger();
+        Interpreter interpreter = new Interpreter(RuntimeConfiguration.builder()
+                .ruleNetworkEnabled(true)
+                .attributeAccessors(singletonMap(DvQuantity.class, singletonMap("magnitude", dataValue -> {
+                    magnitudeReads.incrementAndGet();
+                    return ((DvQuantity) dataValue).getMagnitude();
+                })))
+                .build());
+        Interpreter.ExecutionOutput output = interpreter.execute(compiledGuideline, singletonList(toWeight("40.0,kg")));
+        assertThat(output.getResult().isEmpty(), is(true));
+        assertThat(output.getFiredRules().getOrDefault("Rule_network_test.v1", emptySet()).isEmpty(), is(true));
+        assertThat(magnitudeReads.get(), is(1));
+    }
+
+    @Test
+    public void can_execute_every_guideline_with_same_result_using_rule_network() throws Exception {
+        Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+        Interpreter networkInterpreter = new Interpreter(RuntimeConfiguration.builder()
+                .currentDateTime(SYNTHETIC_DATE_TIME)
+                .ruleNetworkEnabled(true)
+                .build());
+        GuidelineCompiler guidelineCompiler = new GuidelineCompiler();
+        List<Guideline> guidelines = loadResourceGuidelines();
+        assertThat(guidelines.size(), greaterThan(50));
+        for (Guideline guideline : guidelines) {
+            CompiledGuideline compiledGuideline = guidelineCompiler.compile(guideline);
+            for (int variant = 0; variant < SYNTHETIC_INPUT_VARIANTS; variant++) {
+                List<DataInstance> input = syntheticInput(guideline, variant);
+                assertThat(guideline.getId() + " variant " + variant,
+                        executionOutcome(networkInterpreter, compiledGuideline, input), is(executionOutcome(interpreter, compiledGuideline, input)));
+            }
+        }
+    }
+}
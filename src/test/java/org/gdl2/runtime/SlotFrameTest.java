@@ -0,0 +1,70 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvQuantity;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+public class SlotFrameTest extends TestCommon {
+    private SlotLayout slotLayout;
+
+    @BeforeMethod
+    public void setUp() {
+        slotLayout = new SlotLayout();
+        slotLayout.addSlot("gt0005");
+        slotLayout.addSlot("gt0006");
+    }
+
+    @Test
+    public void can_behave_as_value_map() {
+        SlotFrame frame = slotLayout.newFrame();
+        Map<String, List<Object>> expected = new HashMap<>();
+        for (Map<String, List<Object>> valueMap : Arrays.<Map<String, List<Object>>>asList(frame, expected)) {
+            valueMap.put("gt0005", asList(new DvQuantity("kg", 72.0, 1)));
+            valueMap.computeIfAbsent("gt0099", key -> asList("outside layout"));
+            valueMap.computeIfAbsent("gt0005", key -> asList("ignored")).add(new DvQuantity("kg", 75.0, 1));
+        }
+        assertThat(frame, is(expected));
+        assertThat(frame.size(), is(2));
+        assertThat(frame.containsKey("gt0006"), is(false));
+        assertThat(frame.remove("gt0099"), is(asList("outside layout")));
+        assertThat(frame.get("gt0099"), nullValue());
+    }
+
+    @Test
+    public void can_evaluate_variable_from_slot() {
+        ExpressionCompiler expressionCompiler = new ExpressionCompiler(slotLayout);
+        CompiledExpression compiledExpression = expressionCompiler.compile(parseExpression("$gt0005.magnitude+$gt0007.magnitude"));
+        SlotFrame frame = slotLayout.newFrame();
+        frame.put("gt0005", asList(new DvQuantity("kg", 72.0, 1)));
+        frame.put("gt0007", asList(new DvQuantity("kg", 3.0, 1)));
+        assertThat(slotLayout.slotOf("gt0007"), is(2));
+        assertThat(compiledExpression.evaluate(new EvaluationContext(new Interpreter(), frame, null, null)), is(75.0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void can_keep_current_index_per_slot() {
+        SlotFrame frame = slotLayout.newFrame();
+        List<Object> values = asList(new DvQuantity("kg", 72.0, 1));
+        values.add(new DvQuantity("kg", 75.0, 1));
+        frame.put("gt0005", values);
+        assertThat(frame.currentValue(0, values), is(values.get(1)));
+        frame.put(Interpreter.CURRENT_INDEX, singletonList(new HashMap<>()));
+        ((Map<String, Integer>) frame.get(Interpreter.CURRENT_INDEX).get(0)).put("gt0005", 0);
+        SlotFrame copy = frame.copy();
+        assertThat(copy.currentValue(0, values), is(values.get(0)));
+        frame.remove(Interpreter.CURRENT_INDEX);
+        assertThat(frame.currentValue(0, values), is(values.get(1)));
+        assertThat(copy.containsKey(Interpreter.CURRENT_INDEX), is(true));
+    }
+}
@@ -0,0 +1,67 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.Template;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares filling the templates of the resource guidelines by copying the template object through json and
+ * replacing its variables with {@link TemplateFiller}, with filling the compiled {@link TemplateProgram}.
+ */
+public class TemplateProgramBenchmark extends TestCommon {
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\$([^.}]*)(\\.all)?}");
+
+    public static void main(String[] args) throws Exception {
+        new TemplateProgramBenchmark().run();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void run() throws Exception {
+        Gson gson = new Gson();
+        List<Template> templates = new ArrayList<>();
+        Map<String, Object> localValues = new HashMap<>();
+        Map<String, List<Object>> globalValues = new HashMap<>();
+        for (Guideline guideline : loadResourceGuidelines()) {
+            if (guideline.getDefinition().getTemplates() != null) {
+                for (Template template : guideline.getDefinition().getTemplates().values()) {
+                    templates.add(template);
+                    Matcher matcher = VARIABLE.matcher(gson.toJson(template.getObject()));
+                    while (matcher.find()) {
+                        localValues.put(matcher.group(1), 80.5);
+                        globalValues.put(matcher.group(1), Collections.singletonList("value"));
+                    }
+                }
+            }
+        }
+        List<TemplateProgram> templatePrograms = new ArrayList<>();
+        for (Template template : templates) {
+            templatePrograms.add(new TemplateProgram(template));
+        }
+        TemplateFiller templateFiller = new TemplateFiller();
+        double copied = MicroBenchmark.measure(templates.size() + " templates, json copy and template filler", 500, 2_000, () -> {
+            List<Object> filled = new ArrayList<>();
+            for (Template template : templates) {
+                Map<String, Object> copy = gson.fromJson(gson.toJson(template.getObject()), Map.class);
+                templateFiller.traverseMapAndReplaceAllVariablesWithValues(copy, localValues, globalValues, null);
+                filled.add(copy);
+            }
+            return filled;
+        });
+        double compiled = MicroBenchmark.measure(templates.size() + " templates, template programs", 500, 2_000, () -> {
+            List<Object> filled = new ArrayList<>();
+            for (TemplateProgram templateProgram : templatePrograms) {
+                filled.add(templateProgram.fill(localValues, globalValues, null));
+            }
+            return filled;
+        });
+        MicroBenchmark.printRatio("speed-up, template programs", copied, compiled);
+    }
+}
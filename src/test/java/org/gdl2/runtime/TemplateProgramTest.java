@@ -0,0 +1,142 @@
+package org.gdl2.runtime;
+
+import com.google.gson.Gson;
+import org.gdl2.model.Guideline;
+import org.gdl2.model.Template;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.core.Is.is;
+
+public class TemplateProgramTest extends TestCommon {
+    private static final Pattern VARIABLE = Pattern.compile("\\{\\$([^}]*)}");
+
+    private Map<String, Object> localValues;
+    private Map<String, List<Object>> globalValues;
+
+    @BeforeMethod
+    public void setUp() {
+        localValues = new HashMap<>();
+        globalValues = new HashMap<>();
+    }
+
+    @Test
+    public void can_fill_templates_of_all_resource_guidelines_same_as_template_filler() throws Exception {
+        int templates = 0;
+        for (Guideline guideline : loadResourceGuidelines()) {
+            if (guideline.getDefinition().getTemplates() == null) {
+                continue;
+            }
+            for (Template template : guideline.getDefinition().getTemplates().values()) {
+                TemplateProgram templateProgram = new TemplateProgram(template);
+                for (int variant = 0; variant < 4; variant++) {
+                    setUp();
+                    Map<String, Object> additionalInputValues = syntheticValues(template, variant);
+                    assertThat(guideline.getId() + "/" + template.getId(), templateProgram.fill(localValues, globalValues, additionalInputValues),
+                            is(filledCopy(template, additionalInputValues)));
+                }
+                templates++;
+            }
+        }
+        assertThat(templates, greaterThan(40));
+    }
+
+    @Test
+    public void can_expand_all_values_and_remove_elements_without_value_in_lists() {
+        Template template = template("list", Arrays.asList("{$gt1000.all}", "{$gt1001}", "{$gt1002}", "text", null, 5));
+        globalValues.put("gt1000", Arrays.asList("a", "b"));
+        localValues.put("gt1002", "c");
+        Map<String, Object> expected = new LinkedHashMap<>();
+        expected.put("list", Arrays.asList("a", "b", "c", "text", null, 5.0));
+        assertThat(new TemplateProgram(template).fill(localValues, globalValues, null), is(expected));
+        assertThat(new TemplateProgram(template).fill(localValues, globalValues, null), is(filledCopy(template, null)));
+    }
+
+    @Test
+    public void can_keep_variables_without_value_in_text() {
+        Template template = template("text", "{$gt1000} mg {$gt1001} daily");
+        localValues.put("gt1001", 2);
+        assertThat(new TemplateProgram(template).fill(localValues, globalValues, null).get("text"), is("{$gt1000} mg 2 daily"));
+    }
+
+    @Test
+    public void can_fill_text_with_value_containing_dollar_sign_same_as_template_filler() {
+        Template template = template("text", "price {$gt1000} {$gt1001}");
+        localValues.put("gt1000", "$1");
+        localValues.put("gt1001", ZonedDateTime.parse("2017-04-14T13:55:55Z"));
+        assertThat(new TemplateProgram(template).fill(localValues, globalValues, null), is(filledCopy(template, null)));
+    }
+
+    @Test
+    public void can_fill_new_objects_from_copy_through_json() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put("count", 1);
+        object.put("nothing", null);
+        object.put("nested", new LinkedHashMap<>(Collections.singletonMap("dose", "{$gt1000}")));
+        Template template = new Template("gt2000", null, "model", null, object, null);
+        TemplateProgram templateProgram = new TemplateProgram(template);
+        localValues.put("gt1000", 80);
+        Map<String, Object> first = templateProgram.fill(localValues, globalValues, null);
+        assertThat(first, is(filledCopy(template, null)));
+        assertThat(first.get("count"), is(1.0));
+        assertThat(first.containsKey("nothing"), is(false));
+        ((Map) first.get("nested")).put("dose", 0);
+        assertThat(((Map) templateProgram.fill(localValues, globalValues, null).get("nested")).get("dose"), is(80));
+    }
+
+    private static Template template(String key, Object value) {
+        Map<String, Object> object = new LinkedHashMap<>();
+        object.put(key, value);
+        return new Template("gt2000", null, "model", null, object, null);
+    }
+
+    /*
+     * values of the variables of the template, rotating between local, global, all and additional values
+     */
+    private Map<String, Object> syntheticValues(Template template, int variant) {
+        Map<String, Object> additionalInputValues = new HashMap<>();
+        Matcher matcher = VARIABLE.matcher(new Gson().toJson(template.getObject()));
+        int index = variant;
+        while (matcher.find()) {
+            String code = matcher.group(1).replace(".all", "");
+            switch (index++ % 5) {
+                case 0:
+                    localValues.put(code, index % 2 == 0 ? index : "value" + index);
+                    break;
+                case 1:
+                    globalValues.put(code, new ArrayList<>(Arrays.asList("first" + index, 1.5 * index)));
+                    break;
+                case 2:
+                    localValues.put(code, ZonedDateTime.parse("2017-04-14T13:55:55Z").plusDays(index));
+                    break;
+                case 3:
+                    additionalInputValues.put(matcher.group(1), "additional" + index);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return additionalInputValues;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> filledCopy(Template template, Map<String, Object> additionalInputValues) {
+        Gson gson = new Gson();
+        Map<String, Object> copy = gson.fromJson(gson.toJson(template.getObject()), Map.class);
+        new TemplateFiller().traverseMapAndReplaceAllVariablesWithValues(copy, localValues, globalValues, additionalInputValues);
+        return copy;
+    }
+}
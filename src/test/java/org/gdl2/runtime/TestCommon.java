@@ -2,17 +2,29 @@ package org.gdl2.runtime;
 
 import org.apache.commons.io.IOUtils;
 import org.gdl2.Gdl2;
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.datatypes.DvOrdinal;
 import org.gdl2.datatypes.DvQuantity;
 import org.gdl2.expression.AssignmentExpression;
+import org.gdl2.expression.BinaryExpression;
 import org.gdl2.expression.ExpressionItem;
+import org.gdl2.expression.LongExpression;
 import org.gdl2.expression.parser.ExpressionParser;
+import org.gdl2.model.DataBinding;
+import org.gdl2.model.Element;
 import org.gdl2.model.Guideline;
 
+import java.io.File;
 import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
 
 public class TestCommon {
     private static final String WEIGHT_ARCHETYPE = "openEHR-EHR-OBSERVATION.body_weight.v1";
@@ -26,15 +38,17 @@ public class TestCommon {
     static final String BSA_CALCULATION_WITHOUT_WHEN = "BSA_Calculation_without_when_test.v1.gdl2";
     static final String BSA_CALCULATION_USING_CREATE = "BSA_Calculation_using_create_test.v1.gdl2";
     static final String BSA_CALCULATION_USING_CREATE_2 = "BSA_Calculation_using_create2_test.v1.gdl2";
+    public static final ZonedDateTime SYNTHETIC_DATE_TIME = ZonedDateTime.parse("2018-01-01T00:00:00Z");
+    static final int SYNTHETIC_INPUT_VARIANTS = 12;
 
-    DataInstance toWeight(String value) {
+    public DataInstance toWeight(String value) {
         return new DataInstance.Builder().modelId(WEIGHT_ARCHETYPE)
                 .addValue(WEIGHT_VALUE, DvQuantity.valueOf(value))
                 .addValue(WEIGHT_EVENT_TIME, ZonedDateTime.parse("2012-01-01T00:00:00Z"))
                 .build();
     }
 
-    DataInstance toHeight(String value) {
+    public DataInstance toHeight(String value) {
         return new DataInstance.Builder().modelId(HEIGHT_ARCHETYPE)
                 .addValue(HEIGHT_VALUE, DvQuantity.valueOf(value))
                 .addValue(HEIGHT_EVENT_TIME, ZonedDateTime.parse("2012-01-01T00:00:00Z"))
@@ -57,6 +71,13 @@ public class TestCommon {
         }
     }
 
+    ColumnarPredicate columnar(String predicate) {
+        ExpressionItem expressionItem = parseExpression(predicate);
+        BinaryExpression binaryExpression = expressionItem instanceof LongExpression
+                ? ((LongExpression) expressionItem).toBinaryExpression() : (BinaryExpression) expressionItem;
+        return ColumnarPredicate.of(binaryExpression, new ExpressionCompiler());
+    }
+
     AssignmentExpression parseAssignmentExpression(String expression) throws Exception {
         return (AssignmentExpression) parseExpression(expression);
     }
@@ -70,4 +91,105 @@ public class TestCommon {
         list.add(dataValue);
         return list;
     }
+
+    /*
+     * all guidelines of the test resources
+     */
+    public List<Guideline> loadResourceGuidelines() throws Exception {
+        File directory = new File(getClass().getClassLoader().getResource("BSA_Calculation.v1.gdl2.json").toURI()).getParentFile();
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".json"));
+        Arrays.sort(files);
+        List<Guideline> guidelines = new ArrayList<>();
+        for (File file : files) {
+            Guideline guideline;
+            try {
+                guideline = Gdl2.fromGdl2(new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+            } catch (RuntimeException exception) {
+                // resources that are not guidelines, e.g. expected FHIR resources
+                continue;
+            }
+            if (guideline != null && guideline.getDefinition() != null) {
+                guidelines.add(guideline);
+            }
+        }
+        return guidelines;
+    }
+
+    /*
+     * one or two data instances per data binding with values of rotating numeric types
+     */
+    List<DataInstance> syntheticInput(Guideline guideline, int variant) {
+        List<DataInstance> input = new ArrayList<>();
+        if (guideline.getDefinition().getDataBindings() == null) {
+            return input;
+        }
+        int seed = variant;
+        for (DataBinding dataBinding : guideline.getDefinition().getDataBindings().values()) {
+            if (dataBinding.getElements() == null) {
+                continue;
+            }
+            for (int instance = 0; instance <= variant % 2; instance++) {
+                DataInstance.Builder builder = new DataInstance.Builder().modelId(dataBinding.getModelId());
+                for (Element element : dataBinding.getElements().values()) {
+                    builder.addValue(element.getPath(), syntheticValue(seed++));
+                }
+                input.add(builder.build());
+            }
+        }
+        return input;
+    }
+
+    /*
+     * input of the guidelines for a synthetic patient, with a history of 1 to 16 variants
+     */
+    public List<DataInstance> syntheticPatient(List<Guideline> guidelines, int patient) {
+        List<DataInstance> input = new ArrayList<>();
+        int historyLength = 1 + (patient * 7) % 16;
+        for (int variant = 0; variant < historyLength; variant++) {
+            for (Guideline guideline : guidelines) {
+                input.addAll(syntheticInput(guideline, (patient + variant) % SYNTHETIC_INPUT_VARIANTS));
+            }
+        }
+        return input;
+    }
+
+    private Object syntheticValue(int seed) {
+        int magnitude = (seed * 37) % 200;
+        switch (seed % 5) {
+            case 0:
+                return new DvQuantity("kg", magnitude + 0.5, 1);
+            case 1:
+                return new DvQuantity("cm", magnitude, 0);
+            case 2:
+                return new DvCount(magnitude % 10);
+            case 3:
+                return DvOrdinal.valueOf(magnitude % 4 + "|local::at000" + magnitude % 4 + "|Text|");
+            default:
+                return SYNTHETIC_DATE_TIME.minusDays(magnitude * 20L);
+        }
+    }
+
+    /*
+     * fired rules and results, or the error, of executing the guideline
+     */
+    Object executionOutcome(Interpreter interpreter, CompiledGuideline compiledGuideline, List<DataInstance> input) {
+        return executionOutcome(interpreter, compiledGuideline, input, null);
+    }
+
+    Object executionOutcome(Interpreter interpreter, CompiledGuideline compiledGuideline, List<DataInstance> input,
+                            ExecutionContext executionContext) {
+        try {
+            Interpreter.ExecutionOutput output = executionContext == null
+                    ? interpreter.execute(compiledGuideline, input)
+                    : interpreter.execute(compiledGuideline, input, executionContext);
+            List<Object> outcome = new ArrayList<>();
+            outcome.add(new TreeMap<>(output.getFiredRules()));
+            outcome.add(output.getResult().stream()
+                    .map(dataInstance -> new TreeMap<String, Object>(dataInstance.values()).toString())
+                    .collect(Collectors.toList()));
+            return outcome;
+        } catch (RuntimeException exception) {
+            return exception.getClass().getName() + ": " + exception.getMessage();
+        }
+    }
 }
@@ -0,0 +1,62 @@
+package org.gdl2.runtime;
+
+import org.gdl2.expression.ExpressionItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares selecting the latest observation and the observations of the last year of growing histories, for
+ * as many data bindings as guidelines in an execution, by scanning the history with selecting them from the
+ * {@link TimeIndex} built once per execution.
+ */
+public class TimeIndexBenchmark extends TestCommon {
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.blood_pressure.v1";
+    private static final String TIME = "/data/events/time";
+    private static final int[] HISTORY_SIZES = {1_000, 10_000, 100_000};
+    private static final int DATA_BINDINGS = 10;
+
+    private final Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+    private final EvaluationContext context = new EvaluationContext(interpreter, null, null, null);
+    private final ExpressionItem max = parseExpression("max(" + TIME + ")");
+    private final ColumnarPredicate lastYear = columnar(TIME + ">$currentDateTime-12,mo");
+
+    public static void main(String[] args) throws Exception {
+        new TimeIndexBenchmark().run();
+    }
+
+    private void run() throws Exception {
+        for (int historySize : HISTORY_SIZES) {
+            List<DataInstance> history = new ArrayList<>();
+            for (int index = 0; index < historySize; index++) {
+                history.add(new DataInstance.Builder().modelId(ARCHETYPE)
+                        .addValue(TIME, SYNTHETIC_DATE_TIME.minusHours((index * 7919L) % (historySize * 6L)))
+                        .build());
+            }
+            int iterations = Math.max(5, 2_000_000 / historySize);
+            double scan = MicroBenchmark.measure(historySize + " observations, scan", iterations / 5, iterations, () -> scan(history));
+            double indexed = MicroBenchmark.measure(historySize + " observations, time index", iterations / 5, iterations, () -> select(history));
+            MicroBenchmark.printRatio(historySize + " observations, speed-up", scan, indexed);
+        }
+    }
+
+    private int scan(List<DataInstance> history) {
+        int selected = 0;
+        for (int dataBinding = 0; dataBinding < DATA_BINDINGS; dataBinding++) {
+            selected += interpreter.evaluateDataInstancesWithPredicate(history, max, null).size();
+            selected += lastYear.filter(history, context).size();
+        }
+        return selected;
+    }
+
+    private int select(List<DataInstance> history) {
+        DataInstanceIndex dataInstanceIndex = DataInstanceIndex.of(history);
+        int selected = 0;
+        for (int dataBinding = 0; dataBinding < DATA_BINDINGS; dataBinding++) {
+            TimeIndex timeIndex = dataInstanceIndex.timeIndex(ARCHETYPE, TIME);
+            selected += timeIndex.max(history).size();
+            selected += lastYear.filter(history, context, timeIndex).size();
+        }
+        return selected;
+    }
+}
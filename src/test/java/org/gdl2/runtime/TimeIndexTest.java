@@ -0,0 +1,99 @@
+package org.gdl2.runtime;
+
+import org.gdl2.datatypes.DvCount;
+import org.gdl2.expression.OperatorKind;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class TimeIndexTest extends TestCommon {
+    private static final String ARCHETYPE = "openEHR-EHR-OBSERVATION.blood_pressure.v1";
+    private static final String TIME = "/data/events/time";
+
+    private final Interpreter interpreter = new Interpreter(SYNTHETIC_DATE_TIME);
+    private final EvaluationContext context = new EvaluationContext(interpreter, null, null, null);
+
+    @Test
+    public void can_select_same_max_and_min_as_interpreter() {
+        List<DataInstance> dataInstances = observations(1_000, true);
+        TimeIndex timeIndex = TimeIndex.of(dataInstances, TIME);
+        for (int step = 1; step <= 7; step++) {
+            List<DataInstance> candidates = everyNth(dataInstances, step);
+            assertThat(timeIndex.max(candidates), is(interpreted(candidates, "max(" + TIME + ")")));
+            assertThat(timeIndex.min(candidates), is(interpreted(candidates, "min(" + TIME + ")")));
+        }
+        assertThat(timeIndex.max(Collections.emptyList()), is(Collections.emptyList()));
+    }
+
+    @Test
+    public void can_select_same_time_range_as_interpreter() {
+        List<DataInstance> dataInstances = observations(1_000, false);
+        TimeIndex timeIndex = TimeIndex.of(dataInstances, TIME);
+        assertThat(timeIndex.isTimesOnly(), is(true));
+        String[] predicates = {
+                TIME + ">$currentDateTime-12,mo",
+                TIME + ">=$currentDateTime-30,d",
+                TIME + "<$currentDateTime-1,a",
+                TIME + "<=$currentDateTime-10,d"};
+        for (String predicate : predicates) {
+            for (int step = 1; step <= 3; step++) {
+                List<DataInstance> candidates = everyNth(dataInstances, step);
+                List<DataInstance> selected = columnar(predicate).filter(candidates, context, timeIndex);
+                assertThat(predicate, selected, is(interpreted(candidates, predicate)));
+                assertThat(predicate, selected.size(), greaterThan(0));
+            }
+        }
+        assertThat(timeIndex.range(dataInstances, OperatorKind.LESS_THAN, Double.NaN), is(Collections.emptyList()));
+    }
+
+    @Test
+    public void can_not_select_time_range_with_values_other_than_date_times() {
+        assertThat(TimeIndex.of(observations(100, true), TIME).isTimesOnly(), is(false));
+    }
+
+    @Test
+    public void can_share_time_index_with_extension_without_data_instances_of_model_id() {
+        DataInstanceIndex inputIndex = DataInstanceIndex.of(observations(10, false));
+        DataInstanceIndex dataInstanceIndex = inputIndex.with(Collections.singletonList(toWeight("72.0,kg")));
+        assertThat(dataInstanceIndex.timeIndex(ARCHETYPE, TIME), sameInstance(inputIndex.timeIndex(ARCHETYPE, TIME)));
+        DataInstanceIndex extendedIndex = inputIndex.with(observations(1, false));
+        assertThat(extendedIndex.timeIndex(ARCHETYPE, TIME).max(extendedIndex.select(ARCHETYPE)),
+                is(interpreted(extendedIndex.select(ARCHETYPE), "max(" + TIME + ")")));
+    }
+
+    private List<DataInstance> interpreted(List<DataInstance> dataInstances, String predicate) {
+        return interpreter.evaluateDataInstancesWithPredicate(dataInstances, parseExpression(predicate), null);
+    }
+
+    private static List<DataInstance> everyNth(List<DataInstance> dataInstances, int step) {
+        List<DataInstance> selected = new ArrayList<>();
+        for (int index = 0; index < dataInstances.size(); index += step) {
+            selected.add(dataInstances.get(index));
+        }
+        return selected;
+    }
+
+    /*
+     * observations over a few years out of order, many at the same time, some without time or with a count instead
+     */
+    private static List<DataInstance> observations(int size, boolean withCounts) {
+        List<DataInstance> dataInstances = new ArrayList<>();
+        for (int index = 0; index < size; index++) {
+            DataInstance.Builder builder = new DataInstance.Builder().modelId(ARCHETYPE);
+            if (withCounts && index % 13 == 0) {
+                builder.addValue(TIME, new DvCount(index));
+            } else if (index % 7 != 0) {
+                builder.addValue(TIME, SYNTHETIC_DATE_TIME.minusDays((index * 31L) % 500));
+            }
+            dataInstances.add(builder.build());
+        }
+        return dataInstances;
+    }
+}